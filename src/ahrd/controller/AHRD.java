@@ -6,12 +6,19 @@ import static ahrd.model.ReferenceGoAnnotations.parseReferenceGoAnnotations;
 
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
 
 import org.xml.sax.SAXException;
 
@@ -19,8 +26,10 @@ import ahrd.exception.MissingAccessionException;
 import ahrd.exception.MissingInterproResultException;
 import ahrd.exception.MissingProteinException;
 import ahrd.model.BlastResult;
+import ahrd.model.DescriptionCache;
 import ahrd.model.GOterm;
 import ahrd.model.InterproResult;
+import ahrd.model.PartialProteinDb;
 import ahrd.model.Protein;
 import ahrd.view.FastaOutputWriter;
 import ahrd.view.IOutputWriter;
@@ -30,6 +39,11 @@ import nu.xom.ParsingException;
 public class AHRD {
 
 	public static final String VERSION = "3.11";
+	/**
+	 * Maximum number of Proteins annotated by a single task, when annotating
+	 * in parallel.
+	 */
+	public static final int ANNOTATION_BATCH_SIZE = 16;
 
 	private Map<String, Protein> proteins;
 	private Map<String, Double> descriptionScoreBitScoreWeights = new HashMap<String, Double>();
@@ -116,7 +130,7 @@ public class AHRD {
 	}
 
 	public void initializeProteins() throws IOException, MissingAccessionException {
-		setProteins(Protein.initializeProteins(getSettings().getProteinsFasta()));
+		setProteins(Protein.readProteins(getSettings().getPathToProteinsFasta()));
 	}
 
 	public void parseBlastResults() throws IOException, MissingProteinException, SAXException {
@@ -126,10 +140,22 @@ public class AHRD {
 	}
 
 	public void parseInterproResult() throws IOException {
+		if (getSettings().hasInterproAnnotations())
+			parseInterproResult(InterproResult.interproResultFormat());
+	}
+
+	/**
+	 * Parses the InterPro results in the argument format, see
+	 * <code>InterproResult.interproResultFormat()</code>.
+	 * 
+	 * @param interproResultFormat
+	 * @throws IOException
+	 */
+	public void parseInterproResult(String interproResultFormat) throws IOException {
 		if (getSettings().hasInterproAnnotations()) {
 			Set<String> missingProteinAccessions = new HashSet<String>();
 			try {
-				InterproResult.parseInterproResult(proteins);
+				InterproResult.parseInterproResult(proteins, interproResultFormat);
 			} catch (MissingProteinException mpe) {
 				missingProteinAccessions.add(mpe.getMessage());
 			}
@@ -142,6 +168,22 @@ public class AHRD {
 		}
 	}
 
+	/**
+	 * Loads the InterPro database. If requested by the Settings, only the
+	 * entries referenced in the InterPro results of the argument format are
+	 * loaded.
+	 * 
+	 * @param interproResultFormat
+	 * @throws IOException
+	 * @throws ParsingException
+	 */
+	public void initialiseInterproDb(String interproResultFormat) throws IOException, ParsingException {
+		if (getSettings().getLoadReferencedInterproEntriesOnly())
+			InterproResult.initialiseInterproDb(InterproResult.parseInterproIds(interproResultFormat));
+		else
+			InterproResult.initialiseInterproDb();
+	}
+
 	/**
 	 * Method finds GO term annotations for Proteins in the searched Blast
 	 * databases and stores them in a Map.
@@ -157,7 +199,8 @@ public class AHRD {
 	public void filterBestScoringBlastResults(Protein prot) {
 		for (String blastDatabaseName : prot.getBlastResults().keySet()) {
 			prot.getBlastResults().put(blastDatabaseName,
-					BlastResult.filterBestScoringBlastResults(prot.getBlastResults().get(blastDatabaseName), 200));
+					BlastResult.filterBestScoringBlastResults(prot.getBlastResults().get(blastDatabaseName),
+							getSettings().getMaxHits(blastDatabaseName)));
 		}
 	}
 
@@ -173,6 +216,10 @@ public class AHRD {
 	 */
 	public void setup(boolean writeLogMsgs)
 			throws IOException, MissingAccessionException, MissingProteinException, SAXException, ParsingException {
+		if (getSettings().getConcurrentSetup()) {
+			setupConcurrently(writeLogMsgs);
+			return;
+		}
 		if (writeLogMsgs)
 			System.out.println("Started AHRD...\n");
 
@@ -185,9 +232,11 @@ public class AHRD {
 
 		// multiple blast-results against different Blast-Databases
 		parseBlastResults();
-		if (writeLogMsgs)
+		if (writeLogMsgs) {
 			System.out.println("...parsed blast results in " + takeTime() + "sec, currently occupying "
 					+ takeMemoryUsage() + " MB");
+			logDescriptionCacheStatistics();
+		}
 
 		// Reference GO Annotations (for Proteins in the searched Blast
 		// Databases)
@@ -199,8 +248,9 @@ public class AHRD {
 
 		// one single InterproResult-File
 		if (getSettings().hasValidInterproDatabaseAndResultFile()) {
-			InterproResult.initialiseInterproDb();
-			parseInterproResult();
+			String interproResultFormat = InterproResult.interproResultFormat();
+			initialiseInterproDb(interproResultFormat);
+			parseInterproResult(interproResultFormat);
 			if (writeLogMsgs)
 				System.out.println("...parsed interpro results in " + takeTime() + "sec, currently occupying "
 						+ takeMemoryUsage() + " MB");
@@ -208,40 +258,277 @@ public class AHRD {
 	}
 
 	/**
-	 * Assign a HumanReadableDescription to each Protein
+	 * Writes the hit rates of the Blast databases' DescriptionCaches to the
+	 * log, so that their sizes can be tuned.
+	 */
+	protected void logDescriptionCacheStatistics() {
+		for (String blastDatabase : getSettings().getBlastDatabases()) {
+			DescriptionCache cache = getSettings().getDescriptionCache(blastDatabase);
+			if (cache != null)
+				System.out.println(String.format(
+						"...description cache of '%s': %d hits, %d misses (hit rate %.1f%%), holding %d of at most %d descriptions",
+						blastDatabase, cache.getHits(), cache.getMisses(), 100 * cache.getHitRate(), cache.size(),
+						cache.getMaxSize()));
+		}
+	}
+
+	/**
+	 * Loads the same inputs as <code>setup</code>, but loads independent ones
+	 * concurrently: The InterPro database is loaded while the Proteins are
+	 * initialised. Afterwards the results of each Blast database and the
+	 * InterPro results are parsed concurrently. Each Blast database collects
+	 * its BlastResults in partial copies of the Proteins, which are merged into
+	 * the Proteins in the same order the Blast databases are processed by
+	 * <code>setup</code>, see <code>PartialProteinDb</code>. Thus the
+	 * resulting scores are identical. Finally the reference GO annotations are
+	 * parsed, as they require the unique short accessions of all Blast Hits.
+	 * Large files are split into chunks, which are parsed by a single pool of
+	 * parser_threads threads shared by all files, see
+	 * <code>Utils.parserPool</code>.
+	 * 
+	 * @param writeLogMsgs
+	 * @throws IOException
+	 * @throws MissingAccessionException
+	 * @throws MissingProteinException
+	 * @throws SAXException
+	 * @throws ParsingException
+	 */
+	public void setupConcurrently(final boolean writeLogMsgs)
+			throws IOException, MissingAccessionException, MissingProteinException, SAXException, ParsingException {
+		if (writeLogMsgs)
+			System.out.println("Started AHRD concurrently...\n");
+
+		takeTime();
+
+		final boolean hasInterpro = getSettings().hasValidInterproDatabaseAndResultFile();
+		final String interproResultFormat = hasInterpro ? InterproResult.interproResultFormat() : null;
+		List<String> blastDatabases = new ArrayList<String>(getSettings().getBlastDatabases());
+		ExecutorService pool = Utils.newFixedThreadPool(blastDatabases.size() + 2);
+		// All files parsed concurrently share a single pool of parser_threads
+		// threads:
+		ExecutorService parserPool = Utils.newFixedThreadPool(getSettings().getParserThreads());
+		getSettings().setParserPool(parserPool);
+		try {
+			// The InterPro database does not depend on anything:
+			Future<Void> interproDb = null;
+			if (hasInterpro) {
+				interproDb = pool.submit(new Callable<Void>() {
+					public Void call() throws Exception {
+						long start = System.currentTimeMillis();
+						initialiseInterproDb(interproResultFormat);
+						if (writeLogMsgs)
+							System.out.println("...loaded interpro database in "
+									+ (System.currentTimeMillis() - start) / 1000 + "sec");
+						return null;
+					}
+				});
+			}
+
+			initializeProteins();
+			if (writeLogMsgs)
+				System.out.println("...initialised proteins in " + takeTime() + "sec, currently occupying "
+						+ takeMemoryUsage() + " MB");
+
+			// Each Blast database is parsed into its own partial copies of the
+			// Proteins:
+			List<Future<PartialProteinDb>> partialProteinDbs = new ArrayList<Future<PartialProteinDb>>();
+			List<Set<String>> blastDbsShortAccessions = new ArrayList<Set<String>>();
+			for (final String blastDatabase : blastDatabases) {
+				final Set<String> shortAccessions = getUniqueBlastResultShortAccessions() != null
+						? new HashSet<String>() : null;
+				blastDbsShortAccessions.add(shortAccessions);
+				partialProteinDbs.add(pool.submit(new Callable<PartialProteinDb>() {
+					public PartialProteinDb call() throws Exception {
+						long start = System.currentTimeMillis();
+						PartialProteinDb partialProteinDb = new PartialProteinDb(getProteins());
+						BlastResult.readBlastResults(partialProteinDb, blastDatabase, shortAccessions);
+						if (writeLogMsgs)
+							System.out.println("...parsed blast results of '" + blastDatabase + "' in "
+									+ (System.currentTimeMillis() - start) / 1000 + "sec");
+						return partialProteinDb;
+					}
+				}));
+			}
+
+			// The InterPro results require the Proteins and the InterPro
+			// database:
+			Future<Void> interproResults = null;
+			if (hasInterpro) {
+				final Future<Void> loadedInterproDb = interproDb;
+				interproResults = pool.submit(new Callable<Void>() {
+					public Void call() throws Exception {
+						await(loadedInterproDb);
+						long start = System.currentTimeMillis();
+						parseInterproResult(interproResultFormat);
+						if (writeLogMsgs)
+							System.out.println("...parsed interpro results in "
+									+ (System.currentTimeMillis() - start) / 1000 + "sec");
+						return null;
+					}
+				});
+			}
+
+			// Merge the Blast databases in a fixed order:
+			for (int i = 0; i < blastDatabases.size(); i++) {
+				await(partialProteinDbs.get(i)).mergeInto(blastDatabases.get(i));
+				if (blastDbsShortAccessions.get(i) != null)
+					getUniqueBlastResultShortAccessions().addAll(blastDbsShortAccessions.get(i));
+			}
+			if (writeLogMsgs) {
+				System.out.println("...parsed blast results in " + takeTime() + "sec, currently occupying "
+						+ takeMemoryUsage() + " MB");
+				logDescriptionCacheStatistics();
+			}
+
+			// Reference GO Annotations require the short accessions of all
+			// Blast Hits:
+			setUpReferenceGoAnnotations();
+			if (writeLogMsgs) {
+				System.out.println("...parsed reference Gene Ontology Annotations (GOA) in " + takeTime()
+						+ "sec, currently occupying " + takeMemoryUsage() + " MB");
+			}
+
+			if (hasInterpro) {
+				await(interproResults);
+				if (writeLogMsgs)
+					System.out.println("...waited " + takeTime() + "sec for the interpro results, currently occupying "
+							+ takeMemoryUsage() + " MB");
+			}
+		} finally {
+			getSettings().setParserPool(null);
+			parserPool.shutdownNow();
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Waits for the argument task to finish, and re-throws any exception that
+	 * occurred while executing it.
+	 */
+	protected static <T> T await(Future<T> task)
+			throws IOException, MissingAccessionException, MissingProteinException, SAXException, ParsingException {
+		try {
+			return Utils.await(task, Exception.class, "Interrupted while setting up AHRD.");
+		} catch (IOException | MissingAccessionException | MissingProteinException | SAXException | ParsingException
+				| RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * Assign a HumanReadableDescription to each Protein. If requested by the
+	 * Settings, the Proteins are annotated in parallel, see
+	 * <code>assignHumanReadableDescriptionsInParallel</code>.
 	 * 
 	 * @throws MissingInterproResultException
 	 * @throws IOException
 	 * @throws SQLException
 	 */
 	public void assignHumanReadableDescriptions() throws MissingInterproResultException, IOException, SQLException {
+		if (getSettings().getAnnotationThreads() > 1) {
+			assignHumanReadableDescriptionsInParallel(getSettings().getAnnotationThreads());
+			return;
+		}
 		for (String protAcc : getProteins().keySet()) {
-			Protein prot = getProteins().get(protAcc);
-			// Find best scoring Blast-Hit's Description-Line (based on
-			// evalue):
-			filterBestScoringBlastResults(prot);
-			// Tokenize each BlastResult's Description-Line and
-			// assign the Tokens their Scores:
-			// tokenizeBlastResultDescriptionLines(prot);
-			prot.getTokenScoreCalculator().assignTokenScores();
-			// Tell informative from non-informative Tokens.
-			// Assign each non-informative a new Score :=
-			// currentScore - (Token-High-Score / 2)
-			prot.getTokenScoreCalculator().filterTokenScores();
-			// Find the highest scoring Blast-Result:
-			prot.getDescriptionScoreCalculator().findHighestScoringBlastResult(this.getReferenceGoAnnotations());
-			// If AHRD is requested to annotate Gene Ontology Terms, do so:
-			if (getSettings().hasGeneOntologyAnnotations()
-					&& prot.getDescriptionScoreCalculator().getHighestScoringBlastResult() != null
-					&& getReferenceGoAnnotations().containsKey(
-							prot.getDescriptionScoreCalculator().getHighestScoringBlastResult().getShortAccession())) {
-				prot.setGoResults(getReferenceGoAnnotations()
-						.get(prot.getDescriptionScoreCalculator().getHighestScoringBlastResult().getShortAccession()));
+			assignHumanReadableDescription(getProteins().get(protAcc));
+		}
+	}
+
+	/**
+	 * Assign a HumanReadableDescription to the argument Protein. As each
+	 * Protein is annotated independently of all others, this is safe to be
+	 * invoked concurrently for different Proteins.
+	 * 
+	 * @param prot
+	 * @throws MissingInterproResultException
+	 */
+	public void assignHumanReadableDescription(Protein prot) throws MissingInterproResultException {
+		// Find best scoring Blast-Hit's Description-Line (based on
+		// evalue):
+		filterBestScoringBlastResults(prot);
+		// Tokenize each BlastResult's Description-Line and
+		// assign the Tokens their Scores:
+		// tokenizeBlastResultDescriptionLines(prot);
+		prot.getTokenScoreCalculator().assignTokenScores();
+		// Tell informative from non-informative Tokens.
+		// Assign each non-informative a new Score :=
+		// currentScore - (Token-High-Score / 2)
+		prot.getTokenScoreCalculator().filterTokenScores();
+		// Find the highest scoring Blast-Result:
+		prot.getDescriptionScoreCalculator().findHighestScoringBlastResult(this.getReferenceGoAnnotations());
+		// If AHRD is requested to annotate Gene Ontology Terms, do so:
+		if (getSettings().hasGeneOntologyAnnotations()
+				&& prot.getDescriptionScoreCalculator().getHighestScoringBlastResult() != null
+				&& getReferenceGoAnnotations().containsKey(
+						prot.getDescriptionScoreCalculator().getHighestScoringBlastResult().getShortAccession())) {
+			prot.setGoResults(getReferenceGoAnnotations()
+					.get(prot.getDescriptionScoreCalculator().getHighestScoringBlastResult().getShortAccession()));
+		}
+		// filter for each protein's most-informative
+		// interpro-results
+		InterproResult.filterForMostInforming(prot);
+	}
+
+	/**
+	 * Annotates a range of Proteins. Ranges larger than
+	 * <code>ANNOTATION_BATCH_SIZE</code> are split in halves, so that idle
+	 * threads can steal the annotation of the halves from busy ones. This
+	 * balances the very different costs of annotating Proteins with few and
+	 * with many Blast Hits.
+	 */
+	private class AnnotationTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+		private List<Protein> proteins;
+		private int from;
+		private int to;
+
+		public AnnotationTask(List<Protein> proteins, int from, int to) {
+			super();
+			this.proteins = proteins;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.to - this.from <= ANNOTATION_BATCH_SIZE) {
+				try {
+					for (int i = this.from; i < this.to; i++) {
+						assignHumanReadableDescription(this.proteins.get(i));
+					}
+				} catch (MissingInterproResultException e) {
+					completeExceptionally(e);
+				}
+			} else {
+				int middle = (this.from + this.to) >>> 1;
+				invokeAll(new AnnotationTask(this.proteins, this.from, middle),
+						new AnnotationTask(this.proteins, middle, this.to));
 			}
-			// filter for each protein's most-informative
-			// interpro-results
-			InterproResult.filterForMostInforming(prot);
-		}		
+		}
+	}
+
+	/**
+	 * Assigns the HumanReadableDescriptions using a work-stealing pool of the
+	 * argument number of threads. The results are identical to the ones of the
+	 * sequential annotation.
+	 * 
+	 * @param nThreads
+	 * @throws MissingInterproResultException
+	 * @throws IOException
+	 */
+	public void assignHumanReadableDescriptionsInParallel(int nThreads)
+			throws MissingInterproResultException, IOException {
+		List<Protein> proteins = new ArrayList<Protein>(getProteins().values());
+		ForkJoinPool pool = Utils.newForkJoinPool(nThreads);
+		try {
+			Utils.await(pool.submit(new AnnotationTask(proteins, 0, proteins.size())),
+					MissingInterproResultException.class, "Interrupted while assigning human readable descriptions.");
+		} finally {
+			pool.shutdownNow();
+		}
 	}
 
 	public Map<String, Protein> getProteins() {
@@ -0,0 +1,57 @@
+package ahrd.controller;
+
+import static ahrd.controller.Settings.getSettings;
+import static ahrd.controller.Settings.setSettings;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import ahrd.model.BlastDatabaseIndex;
+
+/**
+ * Writes the persistent index of each Blast database referenced in an AHRD
+ * input file. See <code>ahrd.model.BlastDatabaseIndex</code> for details.
+ * Subsequent AHRD runs using the very same Blast databases and FASTA header
+ * regular expressions do not need to scan the Blast databases anymore, but
+ * look up the Blast Hits in the respective index.
+ *
+ * @author hallab, klee
+ */
+public class BlastDatabaseIndexer {
+
+	public static void main(String[] args) {
+		System.out.println("Usage:\njava -Xmx2g -cp ahrd.jar ahrd.controller.BlastDatabaseIndexer input.yml\n");
+
+		try {
+			setSettings(new Settings(args[0]));
+			indexBlastDatabases();
+			System.out.println("\n\nDONE");
+		} catch (Exception e) {
+			System.err.println("We are sorry, an un-expected ERROR occurred:");
+			e.printStackTrace(System.err);
+		}
+	}
+
+	/**
+	 * Indexes each Blast database of the current Settings. Blast databases
+	 * used by more than one Blast search are indexed only once.
+	 *
+	 * @throws IOException
+	 */
+	public static void indexBlastDatabases() throws IOException {
+		Set<String> indexed = new HashSet<String>();
+		for (String blastDbName : getSettings().getSortedBlastDatabases()) {
+			String pathToBlastDatabase = getSettings().getPathToBlastDatabase(blastDbName);
+			if (!indexed.add(pathToBlastDatabase))
+				continue;
+			long start = System.currentTimeMillis();
+			long entries = BlastDatabaseIndex.write(pathToBlastDatabase,
+					getSettings().getFastaHeaderParser(blastDbName), blastDbName);
+			System.out.println("...indexed " + entries + " entries of Blast database '" + blastDbName + "' into '"
+					+ BlastDatabaseIndex.getPathToIndex(pathToBlastDatabase) + "' in "
+					+ (System.currentTimeMillis() - start) / 1000 + "sec");
+		}
+	}
+
+}
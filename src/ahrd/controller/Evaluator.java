@@ -3,10 +3,10 @@ package ahrd.controller;
 import static ahrd.controller.Settings.getSettings;
 
 import java.io.IOException;
-import java.util.List;
 
 import ahrd.exception.MissingAccessionException;
 import ahrd.model.Blast2GoAnnot;
+import ahrd.model.FastaReader;
 import ahrd.model.Protein;
 import ahrd.model.ReferenceDescription;
 import ahrd.view.OutputWriter;
@@ -18,16 +18,20 @@ public class Evaluator extends AHRD {
 	}
 
 	public void setupReferences() throws IOException, MissingAccessionException {
-		List<String> fastaEntries = Protein.splitFasta(getSettings().getReferencesFasta());
-		for (String fastaEntry : fastaEntries) {
-			if (fastaEntry != null && !fastaEntry.trim().equals("")) {
-				ReferenceDescription rd = ReferenceDescription.constructFromFastaEntry(fastaEntry.trim());
+		FastaReader fastaReader = new FastaReader(getSettings().getPathToReferencesFasta(), false);
+		try {
+			while (fastaReader.next()) {
+				if (fastaReader.getHeader().trim().equals(""))
+					continue;
+				ReferenceDescription rd = ReferenceDescription.constructFromFastaHeader(fastaReader.getHeader().trim());
 				Protein p = getProteins().get(rd.getAccession());
 				if (p == null)
 					throw new MissingAccessionException(
 							"Could not find Protein for Accession '" + rd.getAccession() + "'");
 				p.getEvaluationScoreCalculator().setReferenceDescription(rd);
 			}
+		} finally {
+			fastaReader.close();
 		}
 	}
 
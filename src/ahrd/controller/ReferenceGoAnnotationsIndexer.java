@@ -0,0 +1,55 @@
+package ahrd.controller;
+
+import static ahrd.controller.Settings.getSettings;
+import static ahrd.controller.Settings.setSettings;
+
+import java.io.IOException;
+
+import ahrd.model.ReferenceGoAnnotationsIndex;
+
+/**
+ * Writes the persistent index of the reference Gene Ontology term annotations
+ * (GOA) referenced in an AHRD input file. See
+ * <code>ahrd.model.ReferenceGoAnnotationsIndex</code> for details. Subsequent
+ * AHRD runs using the very same GOA file and reference GO regular expression
+ * do not need to parse the GOA file anymore, but look up the short accessions
+ * of the Blast Hits in the index.
+ *
+ * @author hallab, klee
+ */
+public class ReferenceGoAnnotationsIndexer {
+
+	public static void main(String[] args) {
+		System.out.println(
+				"Usage:\njava -Xmx8g -cp ahrd.jar ahrd.controller.ReferenceGoAnnotationsIndexer input.yml\n");
+
+		try {
+			setSettings(new Settings(args[0]));
+			indexReferenceGoAnnotations();
+			System.out.println("\n\nDONE");
+		} catch (Exception e) {
+			System.err.println("We are sorry, an un-expected ERROR occurred:");
+			e.printStackTrace(System.err);
+		}
+	}
+
+	/**
+	 * Indexes the reference GOA file of the current Settings.
+	 *
+	 * @throws IOException
+	 */
+	public static void indexReferenceGoAnnotations() throws IOException {
+		if (!getSettings().hasGeneOntologyAnnotations()) {
+			System.err.println("WARNING: No readable reference Gene Ontology annotations given in parameter '"
+					+ Settings.GENE_ONTOLOGY_RESULT_KEY + "', nothing to index.");
+			return;
+		}
+		String pathToGoa = getSettings().getPathToGeneOntologyResults();
+		long start = System.currentTimeMillis();
+		long accessions = ReferenceGoAnnotationsIndex.write(pathToGoa, getSettings().getReferenceGoRegex());
+		System.out.println("...indexed the GO terms of " + accessions + " short accessions into '"
+				+ ReferenceGoAnnotationsIndex.getPathToIndex(pathToGoa) + "' in "
+				+ (System.currentTimeMillis() - start) / 1000 + "sec");
+	}
+
+}
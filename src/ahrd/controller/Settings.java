@@ -12,10 +12,15 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.regex.Pattern;
 
 import com.esotericsoftware.yamlbeans.YamlReader;
 
+import ahrd.model.DescriptionCache;
+import ahrd.model.FastaHeaderParser;
+import ahrd.model.PatternSet;
+
 /**
  * Using the <em>thread-local</em> singleton-pattern to hold in a central place
  * all AHRD's current settings. This eases greatly access of input-values from
@@ -51,6 +56,8 @@ public class Settings implements Cloneable {
 	public static final String TOKEN_BLACKLIST_KEY = "token_blacklist";
 	public static final String INTERPRO_DATABASE_KEY = "interpro_database";
 	public static final String INTERPRO_RESULT_KEY = "interpro_result";
+	public static final String INTERPRO_RESULT_FORMAT_KEY = "interpro_result_format";
+	public static final String LOAD_REFERENCED_INTERPRO_ENTRIES_ONLY_KEY = "load_referenced_interpro_entries_only";
 	public static final String GENE_ONTOLOGY_RESULT_KEY = "gene_ontology_result";
 	public static final String OUTPUT_KEY = "output";
 	public static final String SIMULATED_ANNEALING_PATH_LOG_KEY = "path_log";
@@ -88,9 +95,20 @@ public class Settings implements Cloneable {
 	public static final String SEQ_SIM_SEARCH_TABLE_SUBJECT_END_COL_KEY = "seq_sim_search_table_subject_end_col";
 	public static final String SEQ_SIM_SEARCH_TABLE_E_VALUE_COL_KEY = "seq_sim_search_table_e_value_col";
 	public static final String SEQ_SIM_SEARCH_TABLE_BIT_SCORE_COL_KEY = "seq_sim_search_table_bit_score_col";
+	public static final String PARSER_THREADS_KEY = "parser_threads";
+	public static final String MAX_HITS_KEY = "max_hits";
+	public static final Integer DEFAULT_MAX_HITS = 200;
+	public static final String MIN_BIT_SCORE_KEY = "min_bit_score";
+	public static final String MAX_E_VALUE_KEY = "max_e_value";
+	public static final String FILTER_BEST_HITS_WHILE_PARSING_KEY = "filter_best_hits_while_parsing";
+	public static final String CONCURRENT_SETUP_KEY = "concurrent_setup";
+	public static final String ANNOTATION_THREADS_KEY = "annotation_threads";
+	public static final String DESCRIPTION_CACHE_SIZE_KEY = "description_cache_size";
+	public static final Integer DEFAULT_DESCRIPTION_CACHE_SIZE = 10000;
 	public static final String FASTA_HEADER_REGEX_KEY = "fasta_header_regex";
 	public static final Pattern DEFAULT_FASTA_HEADER_REGEX = Pattern
 			.compile("^>(?<accession>\\S+)\\s+(?<description>.+?)\\s+(((OS|os)=.+)|((GN|gn)=.+))?$");
+	public static final String FASTA_HEADER_FORMAT_KEY = "fasta_header_format";
 	public static final String SHORT_ACCESSION_REGEX_KEY = "short_accession_regex";
 	public static final Pattern DEFAULT_SHORT_ACCESSION_REGEX = Pattern.compile("^[^|]+\\|(?<shortAccession>[^|]+)");
 	public static final String REFERENCE_GO_REGEX_KEY = "reference_go_regex";
@@ -106,13 +124,27 @@ public class Settings implements Cloneable {
 	private String pathToProteinsFasta;
 	private String pathToReferencesFasta;
 	private String pathToReferencesDescriptionBlacklist;
-	private List<String> referencesDescriptionBlacklist;
+	private PatternSet referencesDescriptionBlacklist;
 	private String pathToReferencesDescriptionFilter;
-	private List<String> referencesDescriptionFilter;
+	private PatternSet referencesDescriptionFilter;
 	private String pathToReferencesTokenBlacklist;
-	private List<String> referencesTokenBlacklist = new ArrayList<String>();
+	private PatternSet referencesTokenBlacklist = PatternSet.EMPTY;
 	private String pathToInterproDatabase;
 	private String pathToInterproResults;
+	/**
+	 * Format of the InterPro results, see
+	 * <code>ahrd.model.InterproResultParser</code>, or <code>null</code> if
+	 * not configured. Then the format is detected, see
+	 * <code>InterproResultParser.detectFormat</code>.
+	 */
+	private String interproResultFormat;
+	/**
+	 * If set to true, only the entries of the InterPro database referenced in
+	 * the InterPro results are loaded, see
+	 * <code>ahrd.model.InterproResult.initialiseInterproDb(Set)</code>. This
+	 * saves memory, but reads the InterPro results and database twice.
+	 */
+	private Boolean loadReferencedInterproEntriesOnly = false;
 	private String pathToGeneOntologyResults;
 	private String pathToOutput;
 	/**
@@ -142,9 +174,20 @@ public class Settings implements Cloneable {
 	private Double fMeasureBetaParameter = 1.0;
 	private Map<String, Map<String, String>> blastDbSettings = new HashMap<String, Map<String, String>>();
 	private List<String> sortedBlastDatabaseNames;
-	private Map<String, List<String>> blastResultsBlacklists = new HashMap<String, List<String>>();
-	private Map<String, List<String>> blastResultsFilter = new HashMap<String, List<String>>();
-	private Map<String, List<String>> tokenBlacklists = new HashMap<String, List<String>>();
+	/**
+	 * The Blacklists and Filters are compiled once when the Settings are
+	 * loaded. Identical ones, e.g. read from the same file, are shared.
+	 */
+	private Map<String, PatternSet> blastResultsBlacklists = new HashMap<String, PatternSet>();
+	private Map<String, PatternSet> blastResultsFilter = new HashMap<String, PatternSet>();
+	private Map<String, PatternSet> tokenBlacklists = new HashMap<String, PatternSet>();
+	/**
+	 * Per Blast database the raw descriptions already blacklisted, filtered
+	 * and tokenized. Clones share the caches, as they share the Blacklists and
+	 * Filters.
+	 */
+	private Map<String, DescriptionCache> descriptionCaches = new HashMap<String, DescriptionCache>();
+	private Map<String, FastaHeaderParser> fastaHeaderParsers = new HashMap<String, FastaHeaderParser>();
 	private String pathToBlast2GoAnnotations;
 	/**
 	 * For the <strong>simulated annealing</strong> algorithm, this will be
@@ -216,6 +259,36 @@ public class Settings implements Cloneable {
 	private Integer seqSimSearchTableSubjectEndCol = 9;
 	private Integer seqSimSearchTableEValueCol = 10;
 	private Integer seqSimSearchTableBitScoreCol = 11;
+	/**
+	 * Number of threads used to parse large input files in chunks. With the
+	 * default of one, input files are parsed sequentially.
+	 */
+	private Integer parserThreads = 1;
+	/**
+	 * If set to true, only the best scoring Hits of each query protein and
+	 * Blast database are retained while parsing the sequence similarity search
+	 * results. Otherwise all Hits are read and only the best ones are kept
+	 * after having been looked up in the Blast database.
+	 */
+	private Boolean filterBestHitsWhileParsing = false;
+	/**
+	 * If set to true, independent inputs like the InterPro database and the
+	 * results of the different Blast databases are loaded concurrently.
+	 */
+	private Boolean concurrentSetup = false;
+	/**
+	 * Number of threads used to assign the Human Readable Descriptions to the
+	 * query proteins. With the default of one, proteins are annotated
+	 * sequentially.
+	 */
+	private Integer annotationThreads = 1;
+	/**
+	 * If set, e.g. during the concurrent setup, large files are parsed in
+	 * chunks by this pool, which is shared by all files parsed at the same
+	 * time. Otherwise each file is parsed by its own pool of parserThreads
+	 * threads, see <code>Utils.parserPool</code>.
+	 */
+	private ExecutorService parserPool;
 	private Pattern referenceGoRegex;
 	/**
 	 * If set to true AHRD will choose the highest scoring BlastResult WITH GO
@@ -252,6 +325,11 @@ public class Settings implements Cloneable {
 		setPathToProteinsFasta((String) input.get(PROTEINS_FASTA_KEY));
 		setPathToInterproDatabase((String) input.get(INTERPRO_DATABASE_KEY));
 		setPathToInterproResults((String) input.get(INTERPRO_RESULT_KEY));
+		if (input.get(INTERPRO_RESULT_FORMAT_KEY) != null)
+			setInterproResultFormat(input.get(INTERPRO_RESULT_FORMAT_KEY).toString());
+		if (input.get(LOAD_REFERENCED_INTERPRO_ENTRIES_ONLY_KEY) != null)
+			setLoadReferencedInterproEntriesOnly(
+					Boolean.parseBoolean(input.get(LOAD_REFERENCED_INTERPRO_ENTRIES_ONLY_KEY).toString()));
 		setPathToGeneOntologyResults((String) input.get(GENE_ONTOLOGY_RESULT_KEY));
 		setPathToOutput((String) input.get(OUTPUT_KEY));
 		if (input.get(HRD_SCORES_OUTPUT_PATH) != null && !input.get(HRD_SCORES_OUTPUT_PATH).equals(""))
@@ -270,9 +348,19 @@ public class Settings implements Cloneable {
 		// their appropriate files:
 		for (String blastDatabaseName : getBlastDatabases()) {
 			this.blastResultsBlacklists.put(blastDatabaseName,
-					fromFile(getPathToBlastResultsBlackList(blastDatabaseName)));
-			this.blastResultsFilter.put(blastDatabaseName, fromFile(getPathToBlastResultsFilter(blastDatabaseName)));
-			this.tokenBlacklists.put(blastDatabaseName, fromFile(getPathToTokenBlacklist(blastDatabaseName)));
+					PatternSet.valueOf(fromFile(getPathToBlastResultsBlackList(blastDatabaseName))));
+			this.blastResultsFilter.put(blastDatabaseName,
+					PatternSet.valueOf(fromFile(getPathToBlastResultsFilter(blastDatabaseName))));
+			this.tokenBlacklists.put(blastDatabaseName,
+					PatternSet.valueOf(fromFile(getPathToTokenBlacklist(blastDatabaseName))));
+			if (getDescriptionCacheSize(blastDatabaseName) > 0)
+				this.descriptionCaches.put(blastDatabaseName,
+						new DescriptionCache(getDescriptionCacheSize(blastDatabaseName)));
+			this.fastaHeaderParsers.put(blastDatabaseName,
+					FastaHeaderParser.valueOf(getFastaHeaderFormat(blastDatabaseName),
+							getFastaHeaderRegex(blastDatabaseName),
+							getBlastDbSettings(blastDatabaseName).containsKey(SHORT_ACCESSION_REGEX_KEY)
+									? getShortAccessionRegex(blastDatabaseName) : null));
 			// Set Database-Weights and Description-Score-Bit-Score-Weight:
 			this.getParameters().setBlastDbWeight(blastDatabaseName,
 					this.getBlastDbSettings(blastDatabaseName).get(Settings.BLAST_DB_WEIGHT_KEY));
@@ -351,6 +439,19 @@ public class Settings implements Cloneable {
 			setSeqSimSearchTableBitScoreCol(
 					Integer.parseInt(input.get(SEQ_SIM_SEARCH_TABLE_BIT_SCORE_COL_KEY).toString()));
 		}
+		if (input.get(PARSER_THREADS_KEY) != null) {
+			setParserThreads(Integer.parseInt(input.get(PARSER_THREADS_KEY).toString()));
+		}
+		if (input.get(FILTER_BEST_HITS_WHILE_PARSING_KEY) != null) {
+			setFilterBestHitsWhileParsing(
+					Boolean.parseBoolean(input.get(FILTER_BEST_HITS_WHILE_PARSING_KEY).toString()));
+		}
+		if (input.get(CONCURRENT_SETUP_KEY) != null) {
+			setConcurrentSetup(Boolean.parseBoolean(input.get(CONCURRENT_SETUP_KEY).toString()));
+		}
+		if (input.get(ANNOTATION_THREADS_KEY) != null) {
+			setAnnotationThreads(Integer.parseInt(input.get(ANNOTATION_THREADS_KEY).toString()));
+		}
 		// Enable parsing of custom (non UniprotKB) go annotation (GOA) files:
 		if (input.get(REFERENCE_GO_REGEX_KEY) != null) {
 			setReferenceGoRegex(Pattern.compile(input.get(REFERENCE_GO_REGEX_KEY).toString()));
@@ -484,17 +585,94 @@ public class Settings implements Cloneable {
 				: DEFAULT_FASTA_HEADER_REGEX;
 	}
 
+	/**
+	 * @param blastDatabaseName
+	 * @return The format of the FASTA headers of the argument Blast database,
+	 *         one of 'uniprot', 'tair' or 'regex'. By default 'regex', if a
+	 *         fasta_header_regex is set, and 'uniprot' otherwise. See
+	 *         <code>FastaHeaderParser</code> for details.
+	 */
+	public String getFastaHeaderFormat(String blastDatabaseName) {
+		if (getBlastDbSettings(blastDatabaseName).containsKey(FASTA_HEADER_FORMAT_KEY))
+			return getBlastDbSettings(blastDatabaseName).get(FASTA_HEADER_FORMAT_KEY).toString();
+		return (getBlastDbSettings(blastDatabaseName).containsKey(FASTA_HEADER_REGEX_KEY))
+				? FastaHeaderParser.REGEX_FORMAT : FastaHeaderParser.UNIPROT_FORMAT;
+	}
+
+	/**
+	 * @param blastDatabaseName
+	 * @return The parser of the argument Blast database's FASTA headers and
+	 *         long accessions.
+	 */
+	public FastaHeaderParser getFastaHeaderParser(String blastDatabaseName) {
+		return this.fastaHeaderParsers.get(blastDatabaseName);
+	}
+
 	public Pattern getShortAccessionRegex(String blastDatabaseName) {
 		return (getBlastDbSettings(blastDatabaseName).containsKey(SHORT_ACCESSION_REGEX_KEY))
 				? Pattern.compile(getBlastDbSettings(blastDatabaseName).get(SHORT_ACCESSION_REGEX_KEY).toString())
 				: DEFAULT_SHORT_ACCESSION_REGEX;
 	}
 
+	/**
+	 * @param blastDatabaseName
+	 * @return The number of best scoring Hits retained per query protein from
+	 *         the argument Blast database, by default 200.
+	 */
+	public Integer getMaxHits(String blastDatabaseName) {
+		return (getBlastDbSettings(blastDatabaseName).containsKey(MAX_HITS_KEY))
+				? Integer.parseInt(getBlastDbSettings(blastDatabaseName).get(MAX_HITS_KEY).toString())
+				: DEFAULT_MAX_HITS;
+	}
+
+	/**
+	 * @param blastDatabaseName
+	 * @return The maximum number of raw descriptions of the argument Blast
+	 *         database to remember as blacklisted, filtered and tokenized.
+	 *         Zero disables the cache.
+	 */
+	public Integer getDescriptionCacheSize(String blastDatabaseName) {
+		return (getBlastDbSettings(blastDatabaseName).containsKey(DESCRIPTION_CACHE_SIZE_KEY))
+				? Integer.parseInt(getBlastDbSettings(blastDatabaseName).get(DESCRIPTION_CACHE_SIZE_KEY).toString())
+				: DEFAULT_DESCRIPTION_CACHE_SIZE;
+	}
+
+	/**
+	 * @param blastDatabaseName
+	 * @return The DescriptionCache of the argument Blast database or
+	 *         <code>null</code>, if disabled.
+	 */
+	public DescriptionCache getDescriptionCache(String blastDatabaseName) {
+		return this.descriptionCaches.get(blastDatabaseName);
+	}
+
+	/**
+	 * @param blastDatabaseName
+	 * @return The minimum Bit-Score a Hit from the argument Blast database
+	 *         must have to be considered, or <code>null</code> if not set.
+	 */
+	public Double getMinBitScore(String blastDatabaseName) {
+		return (getBlastDbSettings(blastDatabaseName).containsKey(MIN_BIT_SCORE_KEY))
+				? Double.parseDouble(getBlastDbSettings(blastDatabaseName).get(MIN_BIT_SCORE_KEY).toString())
+				: null;
+	}
+
+	/**
+	 * @param blastDatabaseName
+	 * @return The maximum E-Value a Hit from the argument Blast database may
+	 *         have to be considered, or <code>null</code> if not set.
+	 */
+	public Double getMaxEValue(String blastDatabaseName) {
+		return (getBlastDbSettings(blastDatabaseName).containsKey(MAX_E_VALUE_KEY))
+				? Double.parseDouble(getBlastDbSettings(blastDatabaseName).get(MAX_E_VALUE_KEY).toString())
+				: null;
+	}
+
 	private String getPathToBlastResultsBlackList(String blastDatabaseName) {
 		return getBlastDbSettings(blastDatabaseName).get(BLAST_BLACKLIST_KEY);
 	}
 
-	public List<String> getBlastResultsBlackList(String blastDatabaseName) {
+	public PatternSet getBlastResultsBlackList(String blastDatabaseName) {
 		return this.blastResultsBlacklists.get(blastDatabaseName);
 	}
 
@@ -502,7 +680,7 @@ public class Settings implements Cloneable {
 		return getBlastDbSettings(blastDatabaseName).get(BLAST_FILTER_KEY);
 	}
 
-	public List<String> getBlastResultsFilter(String blastDatabaseName) {
+	public PatternSet getBlastResultsFilter(String blastDatabaseName) {
 		return this.blastResultsFilter.get(blastDatabaseName);
 	}
 
@@ -510,11 +688,11 @@ public class Settings implements Cloneable {
 		return getBlastDbSettings(blastDatabaseName).get(TOKEN_BLACKLIST_KEY);
 	}
 
-	public List<String> getTokenBlackList(String blastDatabaseName) {
+	public PatternSet getTokenBlackList(String blastDatabaseName) {
 		return this.tokenBlacklists.get(blastDatabaseName);
 	}
 
-	private String getPathToProteinsFasta() {
+	public String getPathToProteinsFasta() {
 		return pathToProteinsFasta;
 	}
 
@@ -522,7 +700,7 @@ public class Settings implements Cloneable {
 		return readFile(getPathToProteinsFasta());
 	}
 
-	private String getPathToReferencesFasta() {
+	public String getPathToReferencesFasta() {
 		return pathToReferencesFasta;
 	}
 
@@ -555,6 +733,22 @@ public class Settings implements Cloneable {
 		this.pathToInterproResults = pathToInterproResults;
 	}
 
+	public String getInterproResultFormat() {
+		return interproResultFormat;
+	}
+
+	public void setInterproResultFormat(String interproResultFormat) {
+		this.interproResultFormat = interproResultFormat;
+	}
+
+	public Boolean getLoadReferencedInterproEntriesOnly() {
+		return loadReferencedInterproEntriesOnly;
+	}
+
+	public void setLoadReferencedInterproEntriesOnly(Boolean loadReferencedInterproEntriesOnly) {
+		this.loadReferencedInterproEntriesOnly = loadReferencedInterproEntriesOnly;
+	}
+
 	public String getPathToGeneOntologyResults() {
 		return pathToGeneOntologyResults;
 	}
@@ -848,6 +1042,46 @@ public class Settings implements Cloneable {
 		this.seqSimSearchTableBitScoreCol = seqSimSearchTableBitScoreCol;
 	}
 
+	public Integer getParserThreads() {
+		return parserThreads;
+	}
+
+	public void setParserThreads(Integer parserThreads) {
+		this.parserThreads = parserThreads;
+	}
+
+	public Boolean getFilterBestHitsWhileParsing() {
+		return filterBestHitsWhileParsing;
+	}
+
+	public void setFilterBestHitsWhileParsing(Boolean filterBestHitsWhileParsing) {
+		this.filterBestHitsWhileParsing = filterBestHitsWhileParsing;
+	}
+
+	public Boolean getConcurrentSetup() {
+		return concurrentSetup;
+	}
+
+	public void setConcurrentSetup(Boolean concurrentSetup) {
+		this.concurrentSetup = concurrentSetup;
+	}
+
+	public Integer getAnnotationThreads() {
+		return annotationThreads;
+	}
+
+	public void setAnnotationThreads(Integer annotationThreads) {
+		this.annotationThreads = annotationThreads;
+	}
+
+	public ExecutorService getParserPool() {
+		return parserPool;
+	}
+
+	public void setParserPool(ExecutorService parserPool) {
+		this.parserPool = parserPool;
+	}
+
 	/**
 	 * Either returns the custom regular expression pattern used to parse the
 	 * provided reference Gene Ontology annotions (GOA) or returns the default
@@ -903,27 +1137,27 @@ public class Settings implements Cloneable {
 		this.pathToReferencesTokenBlacklist = pathToReferencesTokenBlacklist;
 	}
 
-	public List<String> getReferencesDescriptionBlacklist() {
+	public PatternSet getReferencesDescriptionBlacklist() {
 		return referencesDescriptionBlacklist;
 	}
 
 	public void setReferencesDescriptionBlacklist(List<String> referencesDescriptionBlacklist) {
-		this.referencesDescriptionBlacklist = referencesDescriptionBlacklist;
+		this.referencesDescriptionBlacklist = PatternSet.valueOf(referencesDescriptionBlacklist);
 	}
 
-	public List<String> getReferencesDescriptionFilter() {
+	public PatternSet getReferencesDescriptionFilter() {
 		return referencesDescriptionFilter;
 	}
 
 	public void setReferencesDescriptionFilter(List<String> referencesDescriptionFilter) {
-		this.referencesDescriptionFilter = referencesDescriptionFilter;
+		this.referencesDescriptionFilter = PatternSet.valueOf(referencesDescriptionFilter);
 	}
 
-	public List<String> getReferencesTokenBlacklist() {
+	public PatternSet getReferencesTokenBlacklist() {
 		return referencesTokenBlacklist;
 	}
 
 	public void setReferencesTokenBlacklist(List<String> referencesTokenBlacklist) {
-		this.referencesTokenBlacklist = referencesTokenBlacklist;
+		this.referencesTokenBlacklist = PatternSet.valueOf(referencesTokenBlacklist);
 	}
 }
\ No newline at end of file
@@ -9,6 +9,13 @@ import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * Provides globally used utility-methods. E.g. for reading files or creating
@@ -35,6 +42,137 @@ public class Utils {
 				/ decPlacesFact;
 	}
 
+	/**
+	 * Waits for the argument task to complete and returns its result. Any
+	 * exception that occurred while executing the task is re-thrown: An
+	 * IOException or one of the argument checked type as is, unchecked ones
+	 * right away, and any other wrapped into an IOException.
+	 * 
+	 * @param task
+	 * @param checkedType
+	 *            - The type of checked exceptions, other than IOException, the
+	 *            task may throw.
+	 * @param interruptedMessage
+	 *            - Message of the IOException thrown, if the current thread is
+	 *            interrupted while waiting.
+	 * @return The task's result
+	 * @throws E
+	 * @throws IOException
+	 */
+	public static <T, E extends Exception> T await(Future<T> task, Class<E> checkedType,
+			String interruptedMessage) throws E, IOException {
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			throw new IOException(interruptedMessage, e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException)
+				throw (IOException) cause;
+			if (checkedType.isInstance(cause))
+				throw checkedType.cast(cause);
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IOException(cause);
+		}
+	}
+
+	/**
+	 * Like <code>await(task, checkedType, interruptedMessage)</code> for tasks
+	 * throwing no checked exceptions other than IOException.
+	 * 
+	 * @param task
+	 * @param interruptedMessage
+	 * @return The task's result
+	 * @throws IOException
+	 */
+	public static <T> T await(Future<T> task, String interruptedMessage) throws IOException {
+		return await(task, IOException.class, interruptedMessage);
+	}
+
+	/**
+	 * Creates a fixed size pool of daemon threads. As the Settings are held in
+	 * a thread-local variable, each of the pool's threads is set up to use the
+	 * Settings of the thread calling this method.
+	 * 
+	 * @param nThreads
+	 * @return ExecutorService
+	 */
+	public static ExecutorService newFixedThreadPool(int nThreads) {
+		final Settings callersSettings = Settings.getSettings();
+		return Executors.newFixedThreadPool(nThreads, new ThreadFactory() {
+			public Thread newThread(final Runnable r) {
+				Thread t = new Thread(new Runnable() {
+					public void run() {
+						Settings.setSettings(callersSettings);
+						r.run();
+					}
+				});
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	/**
+	 * Returns the pool to parse the argument number of chunks of a file in
+	 * parallel: The pool shared by all files parsed at the same time, if set
+	 * in the Settings, or otherwise a new pool of at most parser_threads
+	 * threads. Release it with <code>releaseParserPool</code>.
+	 * 
+	 * @param nChunks
+	 * @return ExecutorService
+	 */
+	public static ExecutorService parserPool(int nChunks) {
+		ExecutorService sharedPool = Settings.getSettings().getParserPool();
+		if (sharedPool != null)
+			return sharedPool;
+		return newFixedThreadPool(Math.min(nChunks, Settings.getSettings().getParserThreads()));
+	}
+
+	/**
+	 * Releases a pool obtained from <code>parserPool</code>: A shared pool is
+	 * kept running for the other files, so only the argument chunks are
+	 * cancelled, any other pool is shut down.
+	 * 
+	 * @param pool
+	 * @param chunks
+	 */
+	public static void releaseParserPool(ExecutorService pool, List<? extends Future<?>> chunks) {
+		if (pool != Settings.getSettings().getParserPool()) {
+			pool.shutdownNow();
+			return;
+		}
+		for (Future<?> chunk : chunks) {
+			chunk.cancel(true);
+		}
+	}
+
+	/**
+	 * Creates a work-stealing pool of the argument parallelism. Like
+	 * <code>newFixedThreadPool</code> each of the pool's threads is set up to
+	 * use the Settings of the thread calling this method.
+	 * 
+	 * @param parallelism
+	 * @return ForkJoinPool
+	 */
+	public static ForkJoinPool newForkJoinPool(int parallelism) {
+		final Settings callersSettings = Settings.getSettings();
+		return new ForkJoinPool(parallelism, new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+			public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+				return new ForkJoinWorkerThread(pool) {
+					@Override
+					protected void onStart() {
+						super.onStart();
+						Settings.setSettings(callersSettings);
+					}
+				};
+			}
+		}, null, false);
+	}
+
 	public static String readFile(String path) throws IOException {
 		FileInputStream stream = new FileInputStream(new File(path));
 		try {
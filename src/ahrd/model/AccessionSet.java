@@ -0,0 +1,119 @@
+package ahrd.model;
+
+import java.util.Collection;
+
+/**
+ * An immutable set of accessions, e.g. of all Blast Hits, that can be queried
+ * with a region of a longer String, like the accession within a FASTA header,
+ * without extracting it first. Accessions are held in an open addressing hash
+ * table using the hash codes of <code>String</code>, so that scanning a Blast
+ * database of hundreds of millions of entries does not create a String for
+ * each header not belonging to a Hit.
+ *
+ * Instances are thread-safe.
+ *
+ * @author hallab, klee
+ */
+public class AccessionSet {
+
+	private String[] slots;
+	private int[] hashCodes;
+	private int mask;
+	private int size = 0;
+
+	/**
+	 * @param accessions
+	 */
+	public AccessionSet(Collection<String> accessions) {
+		super();
+		int capacity = Integer.highestOneBit(Math.max(2, accessions.size()) * 2 - 1) << 1;
+		this.slots = new String[capacity];
+		this.hashCodes = new int[capacity];
+		this.mask = capacity - 1;
+		for (String accession : accessions) {
+			add(accession);
+		}
+	}
+
+	private static int slot(int hashCode) {
+		return hashCode ^ (hashCode >>> 16);
+	}
+
+	private void add(String accession) {
+		int h = accession.hashCode();
+		int i = slot(h) & this.mask;
+		while (this.slots[i] != null) {
+			if (this.hashCodes[i] == h && this.slots[i].equals(accession))
+				return;
+			i = (i + 1) & this.mask;
+		}
+		this.slots[i] = accession;
+		this.hashCodes[i] = h;
+		this.size++;
+	}
+
+	/**
+	 * @param s
+	 * @param start
+	 *            - inclusive
+	 * @param end
+	 *            - exclusive
+	 * @return TRUE if and only if the argument region of the argument String is
+	 *         one of the accessions.
+	 */
+	public boolean contains(String s, int start, int end) {
+		int h = 0;
+		for (int j = start; j < end; j++)
+			h = 31 * h + s.charAt(j);
+		int length = end - start;
+		int i = slot(h) & this.mask;
+		while (this.slots[i] != null) {
+			if (this.hashCodes[i] == h && this.slots[i].length() == length
+					&& s.regionMatches(start, this.slots[i], 0, length))
+				return true;
+			i = (i + 1) & this.mask;
+		}
+		return false;
+	}
+
+	/**
+	 * @param b
+	 *            - Bytes of US-ASCII characters
+	 * @param start
+	 *            - inclusive
+	 * @param end
+	 *            - exclusive
+	 * @return TRUE if and only if the argument region of the argument bytes,
+	 *         read as US-ASCII characters, is one of the accessions.
+	 */
+	public boolean contains(byte[] b, int start, int end) {
+		int h = 0;
+		for (int j = start; j < end; j++)
+			h = 31 * h + b[j];
+		int length = end - start;
+		int i = slot(h) & this.mask;
+		while (this.slots[i] != null) {
+			if (this.hashCodes[i] == h && this.slots[i].length() == length && regionMatches(b, start, this.slots[i]))
+				return true;
+			i = (i + 1) & this.mask;
+		}
+		return false;
+	}
+
+	private static boolean regionMatches(byte[] b, int start, String accession) {
+		for (int j = 0; j < accession.length(); j++) {
+			if (b[start + j] != accession.charAt(j))
+				return false;
+		}
+		return true;
+	}
+
+	public boolean contains(String accession) {
+		return contains(accession, 0, accession.length());
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+}
@@ -0,0 +1,187 @@
+package ahrd.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Retains the best scoring BlastResults of each query protein while the
+ * sequence similarity search results of a single Blast database are parsed.
+ * For each query protein a bounded heap holds at most
+ * <code>maxHits</code> Hits, ordered by ascending E-Value, descending
+ * Bit-Score and finally by their position in the parsed file. Multiple High
+ * Scoring Pairs (HSPs) of the same query and Hit are treated as in
+ * <code>BlastResult.addBlastResult</code>, i.e. only the HSP of highest
+ * Bit-Score is retained and occupies a single place in the heap.
+ *
+ * Use <code>isCandidate</code> to find out whether a parsed line needs to be
+ * turned into a BlastResult at all, before doing so.
+ *
+ * @author hallab, klee
+ */
+public class BestScoringBlastResults {
+
+	/**
+	 * A retained BlastResult together with the position of the line it has
+	 * been parsed from.
+	 */
+	private static class Candidate {
+		private BlastResult blastResult;
+		private long position;
+
+		public Candidate(BlastResult blastResult, long position) {
+			super();
+			this.blastResult = blastResult;
+			this.position = position;
+		}
+	}
+
+	/**
+	 * The retained Hits of a single query protein.
+	 */
+	private static class QueryHits {
+		private PriorityQueue<Candidate> heap;
+		private Map<String, Candidate> candidates = new HashMap<String, Candidate>();
+
+		public QueryHits(int maxHits) {
+			super();
+			this.heap = new PriorityQueue<Candidate>(Math.max(1, Math.min(maxHits, 64)), WORST_FIRST);
+		}
+	}
+
+	/**
+	 * Orders Candidates such that the worst one is at the head of the heap.
+	 */
+	private static final Comparator<Candidate> WORST_FIRST = new Comparator<Candidate>() {
+		public int compare(Candidate a, Candidate b) {
+			return compareScores(b.blastResult.getEValue(), b.blastResult.getBitScore(), b.position,
+					a.blastResult.getEValue(), a.blastResult.getBitScore(), a.position);
+		}
+	};
+
+	private static final Comparator<Candidate> BY_POSITION = new Comparator<Candidate>() {
+		public int compare(Candidate a, Candidate b) {
+			return Long.compare(a.position, b.position);
+		}
+	};
+
+	private int maxHits;
+	private Map<Protein, QueryHits> queryHits = new HashMap<Protein, QueryHits>();
+
+	public BestScoringBlastResults(int maxHits) {
+		super();
+		this.maxHits = maxHits;
+	}
+
+	/**
+	 * @return Negative if the first Hit scores better than the second,
+	 *         positive if it scores worse.
+	 */
+	private static int compareScores(double eValue1, double bitScore1, long position1, double eValue2,
+			double bitScore2, long position2) {
+		int c = Double.compare(eValue1, eValue2);
+		if (c == 0)
+			c = Double.compare(bitScore2, bitScore1);
+		if (c == 0)
+			c = Long.compare(position1, position2);
+		return c;
+	}
+
+	/**
+	 * Decides whether a Hit of the argument query protein would be retained,
+	 * without the need to create a BlastResult for it.
+	 *
+	 * @param query
+	 * @param accession
+	 * @param eValue
+	 * @param bitScore
+	 * @param position
+	 * @return boolean
+	 */
+	public boolean isCandidate(Protein query, String accession, double eValue, double bitScore, long position) {
+		if (this.maxHits <= 0)
+			return false;
+		QueryHits hits = this.queryHits.get(query);
+		if (hits == null || hits.heap.size() < this.maxHits)
+			return true;
+		Candidate sameHit = hits.candidates.get(accession);
+		if (sameHit != null)
+			return sameHit.blastResult.getBitScore() < bitScore;
+		Candidate worst = hits.heap.peek();
+		return compareScores(eValue, bitScore, position, worst.blastResult.getEValue(),
+				worst.blastResult.getBitScore(), worst.position) < 0;
+	}
+
+	/**
+	 * Retains the argument BlastResult, if it is among the best scoring Hits of
+	 * its query protein. If so, the worst scoring Hit of the query protein
+	 * might get discarded.
+	 *
+	 * @param br
+	 * @param position
+	 *            - of the line the argument BlastResult has been parsed from
+	 */
+	public void offer(BlastResult br, long position) {
+		if (!isCandidate(br.getProtein(), br.getAccession(), br.getEValue(), br.getBitScore(), position))
+			return;
+		QueryHits hits = this.queryHits.get(br.getProtein());
+		if (hits == null) {
+			hits = new QueryHits(this.maxHits);
+			this.queryHits.put(br.getProtein(), hits);
+		}
+		Candidate sameHit = hits.candidates.get(br.getAccession());
+		if (sameHit != null) {
+			if (sameHit.blastResult.getBitScore() >= br.getBitScore())
+				return;
+			hits.heap.remove(sameHit);
+		} else if (hits.heap.size() >= this.maxHits) {
+			Candidate worst = hits.heap.poll();
+			hits.candidates.remove(worst.blastResult.getAccession());
+		}
+		Candidate candidate = new Candidate(br, position);
+		hits.heap.add(candidate);
+		hits.candidates.put(br.getAccession(), candidate);
+	}
+
+	/**
+	 * Offers all BlastResults retained by the argument instance to this one,
+	 * in the order of the lines they have been parsed from.
+	 *
+	 * @param other
+	 */
+	public void offerAll(BestScoringBlastResults other) {
+		for (Candidate candidate : other.getCandidates()) {
+			offer(candidate.blastResult, candidate.position);
+		}
+	}
+
+	private List<Candidate> getCandidates() {
+		List<Candidate> candidates = new ArrayList<Candidate>();
+		for (QueryHits hits : this.queryHits.values()) {
+			candidates.addAll(hits.heap);
+		}
+		Collections.sort(candidates, BY_POSITION);
+		return candidates;
+	}
+
+	/**
+	 * @return All retained BlastResults in the order of the lines they have
+	 *         been parsed from.
+	 */
+	public List<BlastResult> getBlastResults() {
+		List<BlastResult> brs = new ArrayList<BlastResult>();
+		for (Candidate candidate : getCandidates()) {
+			brs.add(candidate.blastResult);
+		}
+		return brs;
+	}
+
+	public int getMaxHits() {
+		return maxHits;
+	}
+
+}
@@ -9,7 +9,7 @@ public class Blast2GoAnnot implements Comparable<Blast2GoAnnot> {
 
 	private String accession;
 	private String description;
-	private Set<String> evaluationTokens;
+	private TokenSet evaluationTokens;
 	private Double evaluationScore = 0.0;
 
 	public static Blast2GoAnnot fromBlast2GoEntry(String resultLine) {
@@ -83,12 +83,16 @@ public class Blast2GoAnnot implements Comparable<Blast2GoAnnot> {
 		this.description = description;
 	}
 
-	public Set<String> getEvaluationTokens() {
+	public TokenSet getEvaluationTokens() {
 		return evaluationTokens;
 	}
 
+	/**
+	 * @param evaluationTokens
+	 *            - kept as is, if it is a TokenSet, otherwise copied into one
+	 */
 	public void setEvaluationTokens(Set<String> evaluationTokens) {
-		this.evaluationTokens = evaluationTokens;
+		this.evaluationTokens = TokenSet.valueOf(evaluationTokens);
 	}
 
 	public Double getEvaluationScore() {
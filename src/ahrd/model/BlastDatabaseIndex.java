@@ -0,0 +1,431 @@
+package ahrd.model;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * A persistent, memory mapped index of a Blast database in FASTA format. It
+ * maps each accession to the sequence length and the human readable
+ * description, both as extracted by the Blast database's FastaHeaderParser.
+ * With a valid index the Blast database does not have to be scanned, instead
+ * only the Blast Hits are looked up.
+ *
+ * The index is written once into a file next to the Blast database, see
+ * <code>ahrd.controller.BlastDatabaseIndexer</code>. It is only used as long as
+ * size, modification time and a checksum of the Blast database, as well as the
+ * regular expression used to parse the FASTA headers, are unchanged.
+ *
+ * Layout of the index file:
+ * <ol>
+ * <li>Header: magic number, format version, size, modification time and
+ * checksum of the Blast database, number of entries, number of hash slots,
+ * offset of the hash slots, and the FASTA header regular expression</li>
+ * <li>One record per FASTA entry, in the order of the Blast database: length
+ * and bytes of the accession, sequence length, length and bytes of the
+ * description. Records never cross the boundary of a mapped segment.</li>
+ * <li>Open addressing hash table of slots, each holding the offset of a
+ * record plus one, zero meaning empty.</li>
+ * </ol>
+ *
+ * @author hallab, klee
+ */
+public class BlastDatabaseIndex {
+
+	public static final String INDEX_FILE_SUFFIX = ".ahrd_index";
+	/**
+	 * Appended to the index's path to name the file the index is written
+	 * into, before it is moved into place.
+	 */
+	public static final String TMP_FILE_SUFFIX = ".tmp";
+	public static final long MAGIC_NUMBER = 0x4148524449445831L;
+	public static final int VERSION = 1;
+	/**
+	 * The index is mapped in segments of this size, as a single mapped buffer
+	 * can not exceed two gigabytes.
+	 */
+	public static final long SEGMENT_SIZE = 1L << 30;
+	/**
+	 * Number of bytes at the start and the end of the Blast database used to
+	 * compute its checksum.
+	 */
+	public static final int CHECKSUM_SAMPLE_SIZE = 1 << 20;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final int HEADER_ENTRIES_OFFSET = 8 + 4 + 8 + 8 + 8;
+
+	private FileChannel channel;
+	private MappedByteBuffer[] segments;
+	private long slotsOffset;
+	private long nSlots;
+
+	/**
+	 * An entry of the Blast database as stored in the index.
+	 */
+	public static class Entry implements Comparable<Entry> {
+		private long position;
+		private String accession;
+		private int sequenceLength;
+		private String description;
+
+		public Entry(long position, String accession, int sequenceLength, String description) {
+			super();
+			this.position = position;
+			this.accession = accession;
+			this.sequenceLength = sequenceLength;
+			this.description = description;
+		}
+
+		/**
+		 * Entries are ordered as they appear in the Blast database.
+		 */
+		public int compareTo(Entry other) {
+			return Long.compare(this.position, other.position);
+		}
+
+		public String getAccession() {
+			return accession;
+		}
+
+		public int getSequenceLength() {
+			return sequenceLength;
+		}
+
+		public String getDescription() {
+			return description;
+		}
+	}
+
+	private BlastDatabaseIndex(FileChannel channel, MappedByteBuffer[] segments, long slotsOffset, long nSlots) {
+		super();
+		this.channel = channel;
+		this.segments = segments;
+		this.slotsOffset = slotsOffset;
+		this.nSlots = nSlots;
+	}
+
+	public static String getPathToIndex(String pathToBlastDatabase) {
+		return pathToBlastDatabase + INDEX_FILE_SUFFIX;
+	}
+
+	/**
+	 * Computes a checksum from the size and the first and last bytes of the
+	 * argument file. Reading the whole Blast database would defeat the purpose
+	 * of the index.
+	 *
+	 * @param pathToBlastDatabase
+	 * @return long
+	 * @throws IOException
+	 */
+	public static long checksum(String pathToBlastDatabase) throws IOException {
+		FileInputStream in = new FileInputStream(pathToBlastDatabase);
+		try {
+			FileChannel fc = in.getChannel();
+			long size = fc.size();
+			CRC32 crc = new CRC32();
+			ByteBuffer sample = ByteBuffer.allocate((int) Math.min(size, CHECKSUM_SAMPLE_SIZE));
+			fc.read(sample, 0);
+			crc.update(sample.array(), 0, sample.position());
+			if (size > CHECKSUM_SAMPLE_SIZE) {
+				sample.clear();
+				fc.read(sample, size - CHECKSUM_SAMPLE_SIZE);
+				crc.update(sample.array(), 0, sample.position());
+			}
+			return crc.getValue() ^ (size << 32);
+		} finally {
+			in.close();
+		}
+	}
+
+	private static long slot(int hashCode, long nSlots) {
+		long h = (hashCode & 0xFFFFFFFFL) * 0x9E3779B97F4A7C15L;
+		return (h ^ (h >>> 29)) & (nSlots - 1);
+	}
+
+	/**
+	 * Like <code>write(String, FastaHeaderParser, String)</code>, parsing the
+	 * FASTA headers with the argument regular expression.
+	 */
+	public static long write(String pathToBlastDatabase, Pattern fastaHeaderRegex, String blastDbName)
+			throws IOException {
+		return write(pathToBlastDatabase,
+				FastaHeaderParser.valueOf(FastaHeaderParser.REGEX_FORMAT, fastaHeaderRegex, null), blastDbName);
+	}
+
+	/**
+	 * Scans the argument Blast database and writes its index. FASTA headers
+	 * not matching the argument parser's format are reported and not indexed,
+	 * just as they are ignored when scanning the Blast database.
+	 *
+	 * @param pathToBlastDatabase
+	 * @param fastaHeaderParser
+	 * @param blastDbName
+	 *            - used only in warnings
+	 * @return The number of indexed entries
+	 * @throws IOException
+	 */
+	public static long write(String pathToBlastDatabase, FastaHeaderParser fastaHeaderParser, String blastDbName)
+			throws IOException {
+		Pattern fastaHeaderRegex = fastaHeaderParser.getFastaHeaderRegex();
+		File db = new File(pathToBlastDatabase);
+		long dbSize = db.length();
+		long dbLastModified = db.lastModified();
+		long dbChecksum = checksum(pathToBlastDatabase);
+		String pathToIndex = getPathToIndex(pathToBlastDatabase);
+		byte[] regex = fastaHeaderRegex.pattern().getBytes(UTF8);
+
+		long[] positions = new long[1024];
+		int[] hashCodes = new int[1024];
+		int nEntries = 0;
+		// Write into a temporary file, which is moved into place once complete,
+		// so that readers never see a partially written index:
+		String pathToTmpIndex = pathToIndex + TMP_FILE_SUFFIX;
+		DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(pathToTmpIndex), 1 << 16));
+		long pos = 0;
+		try {
+			out.writeLong(MAGIC_NUMBER);
+			out.writeInt(VERSION);
+			out.writeLong(dbSize);
+			out.writeLong(dbLastModified);
+			out.writeLong(dbChecksum);
+			// Number of entries, number of slots, and offset of the slots are
+			// written when known:
+			out.writeLong(0);
+			out.writeLong(0);
+			out.writeLong(0);
+			out.writeInt(regex.length);
+			out.write(regex);
+			pos = HEADER_ENTRIES_OFFSET + 8 + 8 + 8 + 4 + regex.length;
+
+			FastaReader fastaReader = new FastaReader(pathToBlastDatabase, false);
+			try {
+				while (fastaReader.next()) {
+					String header = ">" + fastaReader.getHeader();
+					String accession = fastaHeaderParser.parseAccession(header);
+					if (accession == null) {
+						BlastResult.warnFastaHeaderMismatch(header, fastaHeaderRegex, blastDbName);
+						continue;
+					}
+					byte[] acc = accession.getBytes(UTF8);
+					byte[] desc = fastaHeaderParser.parseDescription(header).getBytes(UTF8);
+					int recordSize = 4 + acc.length + 4 + 4 + desc.length;
+					if (recordSize > SEGMENT_SIZE)
+						throw new IOException("FASTA header too long to be indexed:\n" + header);
+					// Records must not cross the boundary of a segment:
+					long segmentEnd = (pos / SEGMENT_SIZE + 1) * SEGMENT_SIZE;
+					if (pos + recordSize > segmentEnd) {
+						for (; pos < segmentEnd; pos++)
+							out.write(0);
+					}
+					if (nEntries == positions.length) {
+						positions = Arrays.copyOf(positions, nEntries * 2);
+						hashCodes = Arrays.copyOf(hashCodes, nEntries * 2);
+					}
+					positions[nEntries] = pos;
+					hashCodes[nEntries] = accession.hashCode();
+					nEntries++;
+					out.writeInt(acc.length);
+					out.write(acc);
+					out.writeInt(fastaReader.getSequenceLength());
+					out.writeInt(desc.length);
+					out.write(desc);
+					pos += recordSize;
+				}
+			} finally {
+				fastaReader.close();
+			}
+
+			// Align the slots to eight bytes, so that none of them crosses the
+			// boundary of a segment:
+			for (; pos % 8 != 0; pos++)
+				out.write(0);
+			long nSlots = Long.highestOneBit(Math.max(2, nEntries) * 2L - 1) * 2;
+			if (nSlots > Integer.MAX_VALUE)
+				throw new IOException("Blast database '" + pathToBlastDatabase + "' has too many entries to be indexed.");
+			long[] slots = new long[(int) nSlots];
+			for (int i = 0; i < nEntries; i++) {
+				long s = slot(hashCodes[i], nSlots);
+				while (slots[(int) s] != 0)
+					s = (s + 1) & (nSlots - 1);
+				slots[(int) s] = positions[i] + 1;
+			}
+			for (long slot : slots)
+				out.writeLong(slot);
+			out.close();
+
+			RandomAccessFile raf = new RandomAccessFile(pathToTmpIndex, "rw");
+			try {
+				raf.seek(HEADER_ENTRIES_OFFSET);
+				raf.writeLong(nEntries);
+				raf.writeLong(nSlots);
+				raf.writeLong(pos);
+				raf.getChannel().force(true);
+			} finally {
+				raf.close();
+			}
+			Files.move(Paths.get(pathToTmpIndex), Paths.get(pathToIndex), StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			out.close();
+			new File(pathToTmpIndex).delete();
+			throw e;
+		}
+		return nEntries;
+	}
+
+	/**
+	 * Opens the index of the argument Blast database, if it exists and is
+	 * valid, i.e. the Blast database has not changed since the index was
+	 * written and the index was written using the argument regular expression
+	 * to parse the FASTA headers.
+	 *
+	 * @param pathToBlastDatabase
+	 * @param fastaHeaderRegex
+	 * @return The opened index or <code>null</code> if there is no valid one.
+	 * @throws IOException
+	 */
+	public static BlastDatabaseIndex open(String pathToBlastDatabase, Pattern fastaHeaderRegex)
+			throws IOException {
+		return open(pathToBlastDatabase,
+				FastaHeaderParser.valueOf(FastaHeaderParser.REGEX_FORMAT, fastaHeaderRegex, null));
+	}
+
+	/**
+	 * Like <code>open(String, Pattern)</code>, expecting the index to have
+	 * been written with the regular expression equivalent to the argument
+	 * parser. Hence switching between a format and its regular expression
+	 * keeps the index valid.
+	 *
+	 * @param pathToBlastDatabase
+	 * @param fastaHeaderParser
+	 * @return The opened index or <code>null</code> if there is no valid one.
+	 * @throws IOException
+	 */
+	public static BlastDatabaseIndex open(String pathToBlastDatabase, FastaHeaderParser fastaHeaderParser)
+			throws IOException {
+		Pattern fastaHeaderRegex = fastaHeaderParser.getFastaHeaderRegex();
+		File index = new File(getPathToIndex(pathToBlastDatabase));
+		if (!index.canRead())
+			return null;
+		File db = new File(pathToBlastDatabase);
+		FileChannel fc = new FileInputStream(index).getChannel();
+		boolean valid = false;
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_ENTRIES_OFFSET + 8 + 8 + 8 + 4);
+			fc.read(header, 0);
+			header.flip();
+			valid = header.remaining() == header.capacity() && header.getLong() == MAGIC_NUMBER
+					&& header.getInt() == VERSION && header.getLong() == db.length()
+					&& header.getLong() == db.lastModified() && header.getLong() == checksum(pathToBlastDatabase);
+			if (!valid) {
+				System.err.println("WARNING: Index '" + index.getPath() + "' does not match Blast database '"
+						+ pathToBlastDatabase + "' and is ignored. Please, re-create it.");
+				return null;
+			}
+			header.getLong(); // number of entries
+			long nSlots = header.getLong();
+			long slotsOffset = header.getLong();
+			byte[] regex = new byte[header.getInt()];
+			fc.read(ByteBuffer.wrap(regex), header.capacity());
+			if (!new String(regex, UTF8).equals(fastaHeaderRegex.pattern())) {
+				valid = false;
+				System.err.println("WARNING: Index '" + index.getPath()
+						+ "' has been created with another regular expression to parse the FASTA headers and is ignored. Please, re-create it.");
+				return null;
+			}
+			long size = fc.size();
+			MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+			for (int i = 0; i < segments.length; i++) {
+				long start = i * SEGMENT_SIZE;
+				segments[i] = fc.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, size - start));
+			}
+			return new BlastDatabaseIndex(fc, segments, slotsOffset, nSlots);
+		} finally {
+			if (!valid)
+				fc.close();
+		}
+	}
+
+	private ByteBuffer segment(long position) {
+		return this.segments[(int) (position / SEGMENT_SIZE)];
+	}
+
+	private int getInt(long position) {
+		return segment(position).getInt((int) (position % SEGMENT_SIZE));
+	}
+
+	private long getLong(long position) {
+		return segment(position).getLong((int) (position % SEGMENT_SIZE));
+	}
+
+	private byte[] getBytes(long position, int length) {
+		ByteBuffer seg = segment(position).duplicate();
+		seg.position((int) (position % SEGMENT_SIZE));
+		byte[] bytes = new byte[length];
+		seg.get(bytes);
+		return bytes;
+	}
+
+	/**
+	 * Looks up all entries of the argument accession. Usually there is at
+	 * most one, but Blast databases may hold duplicated accessions.
+	 *
+	 * @param accession
+	 * @param entries
+	 *            - found entries are added to this List
+	 */
+	public void lookup(String accession, List<Entry> entries) {
+		byte[] acc = accession.getBytes(UTF8);
+		long s = slot(accession.hashCode(), this.nSlots);
+		long record;
+		while ((record = getLong(this.slotsOffset + 8 * s)) != 0) {
+			long pos = record - 1;
+			if (getInt(pos) == acc.length && Arrays.equals(getBytes(pos + 4, acc.length), acc)) {
+				long p = pos + 4 + acc.length;
+				int sequenceLength = getInt(p);
+				int descLength = getInt(p + 4);
+				entries.add(new Entry(pos, accession, sequenceLength, new String(getBytes(p + 8, descLength), UTF8)));
+			}
+			s = (s + 1) & (this.nSlots - 1);
+		}
+	}
+
+	/**
+	 * Looks up all argument accessions.
+	 *
+	 * @param accessions
+	 * @return List of found entries, in the order they appear in the Blast
+	 *         database.
+	 */
+	public List<Entry> lookupAll(Collection<String> accessions) {
+		List<Entry> entries = new ArrayList<Entry>();
+		for (String accession : accessions) {
+			lookup(accession, entries);
+		}
+		Collections.sort(entries);
+		return entries;
+	}
+
+	public void close() throws IOException {
+		this.segments = null;
+		this.channel.close();
+	}
+
+}
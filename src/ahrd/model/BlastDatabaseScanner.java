@@ -0,0 +1,269 @@
+package ahrd.model;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Scans a range of bytes of a Blast database in FASTA format for the entries
+ * of Blast Hits, reading the memory mapped file directly. Headers are only
+ * decoded into Strings, if their accession may be the one of a Blast Hit, see
+ * <code>FastaHeaderParser.isCandidate</code>, and sequences are never built,
+ * but only their residues counted. Hence, splitting a large Blast database into
+ * consecutive ranges, see <code>chunkBoundaries</code>, each range can be
+ * scanned on its own thread.
+ *
+ * An entry belongs to the range its header line starts in. Its sequence is
+ * read up to the next header, even if that lies beyond the range's end.
+ *
+ * Usage:
+ *
+ * <pre>
+ * BlastDatabaseScanner s = new BlastDatabaseScanner(path, start, end, fastaHeaderParser, hitAccessions, blastDbName);
+ * while (s.next()) {
+ * 	s.getAccession();
+ * 	s.getSequenceLength();
+ * 	s.getDescription();
+ * }
+ * s.close();
+ * </pre>
+ *
+ * Instances are not thread-safe.
+ *
+ * @author hallab, klee
+ */
+public class BlastDatabaseScanner implements Closeable {
+
+	/**
+	 * A range is mapped into memory together with the entry extending beyond
+	 * its end. As a single mapping holds at most
+	 * <code>Integer.MAX_VALUE</code> bytes, ranges must not be larger than
+	 * this.
+	 */
+	public static final long MAX_CHUNK_SIZE = 1L << 30;
+
+	private FileChannel channel;
+	private MappedByteBuffer buffer;
+	private int pos;
+	/**
+	 * Headers starting at or after this position in <code>buffer</code> are
+	 * not read.
+	 */
+	private int end;
+	private Charset charset = Charset.defaultCharset();
+	private byte[] lineBytes = new byte[256];
+	/**
+	 * Start (inclusive) and end (exclusive) in <code>buffer</code> of the
+	 * current line without its line terminator.
+	 */
+	private int lineStart;
+	private int lineEnd;
+
+	private FastaHeaderParser fastaHeaderParser;
+	private AccessionSet hitAccessions;
+	private String blastDbName;
+
+	private String accession;
+	private String description;
+	private int sequenceLength;
+
+	/**
+	 * Scans the entries whose headers start within the argument range of
+	 * bytes.
+	 *
+	 * @param pathToBlastDatabase
+	 * @param start
+	 *            - inclusive
+	 * @param end
+	 *            - exclusive
+	 * @param fastaHeaderParser
+	 * @param hitAccessions
+	 *            - Entries of other accessions are skipped.
+	 * @param blastDbName
+	 *            - Used to report headers not matching the Blast database's
+	 *            FASTA header format.
+	 * @throws IOException
+	 */
+	public BlastDatabaseScanner(String pathToBlastDatabase, long start, long end, FastaHeaderParser fastaHeaderParser,
+			AccessionSet hitAccessions, String blastDbName) throws IOException {
+		super();
+		if (end - start > MAX_CHUNK_SIZE)
+			throw new IllegalArgumentException(
+					"Cannot scan more than " + MAX_CHUNK_SIZE + " bytes of a Blast database at once.");
+		this.fastaHeaderParser = fastaHeaderParser;
+		this.hitAccessions = hitAccessions;
+		this.blastDbName = blastDbName;
+		this.channel = new FileInputStream(pathToBlastDatabase).getChannel();
+		long size = this.channel.size();
+		start = Math.min(start, size);
+		// Map the byte preceding the range, too, to see whether the range
+		// starts with a new line:
+		long bufferFilePos = Math.max(0, start - 1);
+		this.buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, bufferFilePos,
+				Math.min(size - bufferFilePos, Integer.MAX_VALUE));
+		this.pos = (int) (start - bufferFilePos);
+		this.end = (int) Math.min(end - bufferFilePos, this.buffer.limit());
+		// A line starting before the range belongs to the preceding one:
+		if (start > 0 && !isLineTerminator(this.buffer.get(0)))
+			readLine();
+	}
+
+	/**
+	 * Splits the argument file into ranges of roughly equal size. The ranges
+	 * are meant to be scanned with the above constructor.
+	 *
+	 * @param pathToBlastDatabase
+	 * @param nChunks
+	 * @return long[] - The <code>nChunks + 1</code> boundaries of the ranges,
+	 *         starting with zero and ending with the file's size.
+	 */
+	public static long[] chunkBoundaries(String pathToBlastDatabase, int nChunks) {
+		long size = new File(pathToBlastDatabase).length();
+		long[] boundaries = new long[nChunks + 1];
+		for (int i = 0; i <= nChunks; i++) {
+			boundaries[i] = size * i / nChunks;
+		}
+		return boundaries;
+	}
+
+	/**
+	 * Like <code>BufferedReader.readLine</code> lines are terminated by
+	 * '\n', '\r' or "\r\n".
+	 */
+	private static boolean isLineTerminator(byte b) {
+		return b == '\n' || b == '\r';
+	}
+
+	/**
+	 * Advances to the next line.
+	 *
+	 * @return <code>true</code> if a line has been read, <code>false</code>
+	 *         if the end of the file has been reached.
+	 */
+	private boolean readLine() {
+		int limit = this.buffer.limit();
+		if (this.pos >= limit)
+			return false;
+		int i = this.pos;
+		byte b = 0;
+		while (i < limit && !isLineTerminator(b = this.buffer.get(i)))
+			i++;
+		this.lineStart = this.pos;
+		this.lineEnd = i;
+		if (i < limit) {
+			i++;
+			if (b == '\r' && i < limit && this.buffer.get(i) == '\n')
+				i++;
+		}
+		this.pos = i;
+		return true;
+	}
+
+	/**
+	 * Copies the argument region of the buffer into <code>lineBytes</code>.
+	 *
+	 * @return The number of copied bytes
+	 */
+	private int copy(int from, int to) {
+		int length = to - from;
+		if (this.lineBytes.length < length)
+			this.lineBytes = new byte[Math.max(length, 2 * this.lineBytes.length)];
+		this.buffer.position(from);
+		this.buffer.get(this.lineBytes, 0, length);
+		return length;
+	}
+
+	private String decode(int from, int to) {
+		return new String(this.lineBytes, 0, copy(from, to), this.charset);
+	}
+
+	/**
+	 * @return The number of residues in the current line, which is its length
+	 *         without leading and trailing white space, just as
+	 *         <code>line.trim().length()</code>.
+	 */
+	private int residues() {
+		int from = this.lineStart;
+		int to = this.lineEnd;
+		while (from < to && (this.buffer.get(from) & 0xff) <= ' ')
+			from++;
+		while (to > from && (this.buffer.get(to - 1) & 0xff) <= ' ')
+			to--;
+		for (int i = from; i < to; i++) {
+			// Multi byte characters are counted as such:
+			if (this.buffer.get(i) < 0)
+				return decode(from, to).length();
+		}
+		return to - from;
+	}
+
+	/**
+	 * Parses the current header line, if it might be the one of a Blast Hit.
+	 *
+	 * @return <code>true</code> if and only if the current header is the one
+	 *         of a Blast Hit.
+	 */
+	private boolean parseHeader() {
+		int length = copy(this.lineStart, this.lineEnd);
+		if (!this.fastaHeaderParser.isCandidate(this.lineBytes, 0, length, this.hitAccessions))
+			return false;
+		String header = new String(this.lineBytes, 0, length, this.charset);
+		String headerAcc = this.fastaHeaderParser.parseAccession(header);
+		if (headerAcc == null) {
+			// Provided format to parse FASTA header does not work in this
+			// case:
+			BlastResult.warnFastaHeaderMismatch(header, this.fastaHeaderParser.getFastaHeaderRegex(),
+					this.blastDbName);
+			return false;
+		}
+		if (!this.hitAccessions.contains(headerAcc))
+			return false;
+		this.accession = headerAcc;
+		this.description = this.fastaHeaderParser.parseDescription(header);
+		return true;
+	}
+
+	/**
+	 * Advances to the next entry of a Blast Hit, and counts its residues.
+	 *
+	 * @return <code>true</code> if an entry has been read, <code>false</code>
+	 *         if there are no further entries within the range.
+	 */
+	public boolean next() {
+		while (readLine()) {
+			if (this.lineStart >= this.end)
+				return false;
+			if (this.lineEnd > this.lineStart && this.buffer.get(this.lineStart) == '>' && parseHeader()) {
+				this.sequenceLength = 0;
+				// Following lines, until the next header, hold the sequence:
+				while (this.pos < this.buffer.limit() && this.buffer.get(this.pos) != '>' && readLine()) {
+					this.sequenceLength += residues();
+				}
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public String getAccession() {
+		return accession;
+	}
+
+	public int getSequenceLength() {
+		return sequenceLength;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public void close() throws IOException {
+		this.buffer = null;
+		this.channel.close();
+	}
+
+}
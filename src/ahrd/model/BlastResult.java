@@ -3,6 +3,7 @@ package ahrd.model;
 import static ahrd.controller.Settings.getSettings;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -12,10 +13,13 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Matcher;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
 import ahrd.controller.Settings;
+import ahrd.controller.Utils;
 import ahrd.exception.MissingProteinException;
 
 /**
@@ -31,11 +35,18 @@ public class BlastResult implements Comparable<BlastResult> {
 	public static final String FASTA_PROTEIN_HEADER_DESCRIPTION_GROUP_NAME = "description";
 	public static final String SHORT_ACCESSION_GROUP_NAME = "shortAccession";
 	public static final String GO_TERM_GROUP_NAME = "goTerm";
+	/**
+	 * Sequence similarity search result tables smaller than this number of
+	 * bytes per thread are not worth being parsed in parallel.
+	 */
+	public static final long MIN_PARSER_CHUNK_SIZE = 1 << 20;
 
-	private String accession;
-	private String shortAccession;
+	/**
+	 * The Hit's accession, short accession, sequence length, description and
+	 * Tokens, possibly shared with other BlastResults of the same Hit.
+	 */
+	private Subject subject;
 	private Double eValue;
-	private String description;
 	/**
 	 * Query's start position in local alignment
 	 */
@@ -52,17 +63,12 @@ public class BlastResult implements Comparable<BlastResult> {
 	 * Subject's stop position in local alignment
 	 */
 	private Integer subjectEnd;
-	/**
-	 * Length of subject's amino acid sequence.
-	 */
-	private Integer subjectLength;
 	private Double bitScore;
 	private String blastDatabaseName;
 	/**
 	 * The descriptionScore is calculated by AHRD.
 	 */
 	private Double descriptionScore;
-	private Set<String> tokens = new HashSet<String>();
 	/**
 	 * The evaluationScore is calculated while training or evaluating AHRD's
 	 * performance in comparison with the "Best Blast Hit"-Method:
@@ -75,7 +81,7 @@ public class BlastResult implements Comparable<BlastResult> {
 	 * and this BlastResult is the best scoring of the Blast-Search-Result, it
 	 * is obtained from.
 	 */
-	private Set<String> evaluationTokens;
+	private TokenSet evaluationTokens;
 	/**
 	 * The query accession is only stored during the parsing of tabular sequence
 	 * similarity search results. It should only be used in that context.
@@ -94,8 +100,17 @@ public class BlastResult implements Comparable<BlastResult> {
 		return input;
 	}
 
+	/**
+	 * Used by views of rows in a HitTable, which store their values
+	 * themselves. See <code>HitTable</code> for details.
+	 */
+	protected BlastResult() {
+		super();
+	}
+
 	public BlastResult(String blastDatabaseName) {
 		super();
+		this.subject = new Subject(null, null, null, null, TokenSet.emptyTokenSet());
 		setBlastDatabaseName(blastDatabaseName);
 	}
 
@@ -119,7 +134,7 @@ public class BlastResult implements Comparable<BlastResult> {
 	public BlastResult(String accession, double eValue, int queryStart, int queryEnd, int subjectStart, int subjectEnd,
 			double bitScore, String blastDatabaseName, Protein protein) {
 		super();
-		setAccession(accession);
+		this.subject = new Subject(accession, null, null, null, TokenSet.emptyTokenSet());
 		setEValue(eValue);
 		setQueryStart(queryStart);
 		setQueryEnd(queryEnd);
@@ -133,23 +148,20 @@ public class BlastResult implements Comparable<BlastResult> {
 	public BlastResult(String accession, double eValue, String description, int queryStart, int queryEnd,
 			int subjectStart, int subjectEnd, int subjectLength, double bitScore, String blastDatabaseName) {
 		super();
-		setAccession(accession);
+		this.subject = new Subject(accession, null, subjectLength, description, TokenSet.emptyTokenSet());
 		setEValue(eValue);
-		setDescription(description);
 		setQueryStart(queryStart);
 		setQueryEnd(queryEnd);
 		setSubjectStart(subjectStart);
 		setSubjectEnd(subjectEnd);
-		setSubjectLength(subjectLength);
 		setBitScore(bitScore);
 		setBlastDatabaseName(blastDatabaseName);
 	}
 
 	public BlastResult(String blastDbName, String accession, String description) {
 		super();
+		this.subject = new Subject(accession, null, null, description, TokenSet.emptyTokenSet());
 		setBlastDatabaseName(blastDbName);
-		setAccession(accession);
-		setDescription(description);
 	}
 
 	/**
@@ -193,37 +205,146 @@ public class BlastResult implements Comparable<BlastResult> {
 	 */
 	public static Map<String, List<BlastResult>> parseBlastResults(Map<String, Protein> proteinDb, String blastDbName,
 			Set<String> uniqueShortAccessions) throws MissingProteinException, IOException {
-		Map<String, List<BlastResult>> brs = new HashMap<String, List<BlastResult>>();
-		BufferedReader fastaIn = null;
+		int threads = getSettings().getParserThreads();
+		long size = new File(getSettings().getPathToBlastResults(blastDbName)).length();
+		int nChunks = (int) Math.max(1, Math.min(threads, size / MIN_PARSER_CHUNK_SIZE));
+		return parseBlastResults(proteinDb, blastDbName, uniqueShortAccessions, nChunks);
+	}
+
+	/**
+	 * Parses the tabular sequence similarity search results as explained
+	 * above. If the argument number of chunks is greater than one, the file is
+	 * split into as many ranges of lines, which are parsed in parallel, each
+	 * into its own Map of BlastResults. These are finally merged in the order
+	 * of the ranges, which results in exactly the same BlastResults as parsing
+	 * the file sequentially.
+	 * 
+	 * @param proteinDb
+	 * @param blastDbName
+	 * @param uniqueShortAccessions
+	 * @param nChunks
+	 * @return Map<String,List<BlastResult>> Set of Hit-Accessions (Key) to the
+	 *         full BlastResult(s) (Value)
+	 * @throws MissingProteinException
+	 * @throws IOException
+	 */
+	public static Map<String, List<BlastResult>> parseBlastResults(final Map<String, Protein> proteinDb,
+			final String blastDbName, Set<String> uniqueShortAccessions, int nChunks)
+			throws MissingProteinException, IOException {
+		final String pathToTable = getSettings().getPathToBlastResults(blastDbName);
+		final boolean splitByRegex = !SequenceSimilarityTabularSearchResultParser
+				.isSingleCharSeparator(getSettings().getSeqSimSearchTableSep());
+		final boolean filterBestHits = getSettings().getFilterBestHitsWhileParsing();
+		final int maxHits = getSettings().getMaxHits(blastDbName);
+		if (nChunks <= 1) {
+			Map<String, List<BlastResult>> brs = new HashMap<String, List<BlastResult>>();
+			BestScoringBlastResults bestBrs = filterBestHits ? new BestScoringBlastResults(maxHits) : null;
+			parseBlastResults(new SequenceSimilarityTabularSearchResultParser(pathToTable, splitByRegex), proteinDb,
+					blastDbName, brs, uniqueShortAccessions, bestBrs);
+			if (filterBestHits)
+				addBestScoringBlastResults(brs, bestBrs, uniqueShortAccessions);
+			return brs;
+		}
+		final long[] boundaries = LineRangeReader.chunkBoundaries(pathToTable, nChunks);
+		final boolean collectShortAccessions = getSettings().hasGeneOntologyAnnotations();
+		List<Future<Map<String, List<BlastResult>>>> chunks = new ArrayList<Future<Map<String, List<BlastResult>>>>();
+		List<Set<String>> chunksShortAccessions = new ArrayList<Set<String>>();
+		List<BestScoringBlastResults> chunksBestBrs = new ArrayList<BestScoringBlastResults>();
+		ExecutorService pool = Utils.parserPool(nChunks);
 		try {
-			fastaIn = new BufferedReader(new FileReader(getSettings().getPathToBlastResults(blastDbName)));
-			String str;
-			while ((str = fastaIn.readLine()) != null) {
-				// Only evaluate current line, either if there is no
-				// comment-line-regex given, or if it is given AND it does not
-				// match:
-				if (getSettings().getSeqSimSearchTableCommentLineRegex() == null
-						|| !getSettings().getSeqSimSearchTableCommentLineRegex().matcher(str).matches()) {
-					String[] brFields = str.split(getSettings().getSeqSimSearchTableSep());
-					if (!proteinDb.containsKey(brFields[getSettings().getSeqSimSearchTableQueryCol()])) {
-						throw new MissingProteinException("Could not find Protein for Accession '"
-								+ brFields[getSettings().getSeqSimSearchTableQueryCol()] + "' in Protein Database.");
-					} // ELSE
-					BlastResult br = new BlastResult(brFields[getSettings().getSeqSimSearchTableSubjectCol()],
-							Double.parseDouble(validateDouble(brFields[getSettings().getSeqSimSearchTableEValueCol()])),
-							Integer.parseInt(brFields[getSettings().getSeqSimSearchTableQueryStartCol()]),
-							Integer.parseInt(brFields[getSettings().getSeqSimSearchTableQueryEndCol()]),
-							Integer.parseInt(brFields[getSettings().getSeqSimSearchTableSubjectStartCol()]),
-							Integer.parseInt(brFields[getSettings().getSeqSimSearchTableSubjectEndCol()]),
-							Double.parseDouble(brFields[getSettings().getSeqSimSearchTableBitScoreCol()]), blastDbName,
-							proteinDb.get(brFields[getSettings().getSeqSimSearchTableQueryCol()]));
-					addBlastResult(brs, br, uniqueShortAccessions);
+			for (int i = 0; i < nChunks; i++) {
+				final long start = boundaries[i];
+				final long end = boundaries[i + 1];
+				final Set<String> chunkShortAccessions = collectShortAccessions ? new HashSet<String>() : null;
+				chunksShortAccessions.add(chunkShortAccessions);
+				final BestScoringBlastResults chunkBestBrs = filterBestHits ? new BestScoringBlastResults(maxHits)
+						: null;
+				chunksBestBrs.add(chunkBestBrs);
+				chunks.add(pool.submit(new Callable<Map<String, List<BlastResult>>>() {
+					public Map<String, List<BlastResult>> call() throws Exception {
+						Map<String, List<BlastResult>> chunkBrs = new HashMap<String, List<BlastResult>>();
+						parseBlastResults(
+								new SequenceSimilarityTabularSearchResultParser(pathToTable, start, end, splitByRegex),
+								proteinDb, blastDbName, chunkBrs, chunkShortAccessions, chunkBestBrs);
+						return chunkBrs;
+					}
+				}));
+			}
+			// Merge in the order of the chunks, replaying each chunk's
+			// BlastResults as if they had been read sequentially:
+			Map<String, List<BlastResult>> brs = new HashMap<String, List<BlastResult>>();
+			BestScoringBlastResults bestBrs = filterBestHits ? new BestScoringBlastResults(maxHits) : null;
+			for (int i = 0; i < nChunks; i++) {
+				for (List<BlastResult> chunkHitBrs : Utils.await(chunks.get(i), MissingProteinException.class,
+						"Interrupted while parsing sequence similarity search results.").values()) {
+					for (BlastResult br : chunkHitBrs) {
+						addHighScoringPair(brs, br);
+					}
 				}
+				if (collectShortAccessions)
+					uniqueShortAccessions.addAll(chunksShortAccessions.get(i));
+				if (filterBestHits)
+					bestBrs.offerAll(chunksBestBrs.get(i));
 			}
+			if (filterBestHits)
+				addBestScoringBlastResults(brs, bestBrs, uniqueShortAccessions);
+			return brs;
 		} finally {
-			fastaIn.close();
+			Utils.releaseParserPool(pool, chunks);
+		}
+	}
+
+	/**
+	 * Adds the BlastResults retained while parsing to the argument Map of
+	 * BlastResults, in the order they have been parsed.
+	 */
+	private static void addBestScoringBlastResults(Map<String, List<BlastResult>> brs,
+			BestScoringBlastResults bestBrs, Set<String> uniqueShortAccessions) {
+		for (BlastResult br : bestBrs.getBlastResults()) {
+			addBlastResult(brs, br, uniqueShortAccessions);
+		}
+	}
+
+	/**
+	 * Reads all lines provided by the argument parser into the argument Map of
+	 * BlastResults and closes the parser. Hits not passing the Blast database's
+	 * optional Bit-Score and E-Value thresholds are skipped. If the argument
+	 * BestScoringBlastResults is not <code>null</code>, the BlastResults are
+	 * offered to it instead of being added to the Map.
+	 */
+	private static void parseBlastResults(SequenceSimilarityTabularSearchResultParser parser,
+			Map<String, Protein> proteinDb, String blastDbName, Map<String, List<BlastResult>> brs,
+			Set<String> uniqueShortAccessions, BestScoringBlastResults bestBrs)
+			throws MissingProteinException, IOException {
+		Double minBitScoreSetting = getSettings().getMinBitScore(blastDbName);
+		Double maxEValueSetting = getSettings().getMaxEValue(blastDbName);
+		double minBitScore = minBitScoreSetting != null ? minBitScoreSetting : Double.NEGATIVE_INFINITY;
+		double maxEValue = maxEValueSetting != null ? maxEValueSetting : Double.POSITIVE_INFINITY;
+		try {
+			while (parser.next()) {
+				Protein query = proteinDb.get(parser.getQueryAccession());
+				if (query == null) {
+					throw new MissingProteinException("Could not find Protein for Accession '"
+							+ parser.getQueryAccession() + "' in Protein Database.");
+				} // ELSE
+				double eValue = parser.getEValue();
+				double bitScore = parser.getBitScore();
+				if (bitScore < minBitScore || eValue > maxEValue)
+					continue;
+				String accession = parser.getSubjectAccession();
+				if (bestBrs != null
+						&& !bestBrs.isCandidate(query, accession, eValue, bitScore, parser.getLineOffset()))
+					continue;
+				BlastResult br = new BlastResult(accession, eValue, parser.getQueryStart(), parser.getQueryEnd(),
+						parser.getSubjectStart(), parser.getSubjectEnd(), bitScore, blastDbName, query);
+				if (bestBrs != null)
+					bestBrs.offer(br, parser.getLineOffset());
+				else
+					addBlastResult(brs, br, uniqueShortAccessions);
+			}
+		} finally {
+			parser.close();
 		}
-		return brs;
 	}
 
 	/**
@@ -239,33 +360,7 @@ public class BlastResult implements Comparable<BlastResult> {
 	 */
 	public static void addBlastResult(Map<String, List<BlastResult>> brs, BlastResult br,
 			Set<String> uniqueShortAccessions) {
-		if (brs.containsKey(br.getAccession())) {
-			boolean isMultipleHsp = false;
-			List<BlastResult> sameHitBrs = brs.get(br.getAccession());
-			for (BlastResult iterBr : sameHitBrs) {
-				// If and only if there is a BlastResult of same Hit and Query
-				// that also has a better Bit-Score, replace the one of lower
-				// Bit-Score with the higher one:
-				if (iterBr.getProtein().equals(br.getProtein())) {
-					isMultipleHsp = true;
-					if (iterBr.getBitScore() < br.getBitScore()) {
-						sameHitBrs.remove(iterBr);
-						sameHitBrs.add(br);
-					}
-				}
-			}
-			// If this a Hit for another Protein, add it:
-			if (!isMultipleHsp) {
-				sameHitBrs.add(br);
-			}
-
-		} else {
-			// Add a new List<BlastResult> containing the argument BlastResult
-			// br to the argument Map brs:
-			List<BlastResult> sameHitBrs = new ArrayList<BlastResult>();
-			sameHitBrs.add(br);
-			brs.put(br.getAccession(), sameHitBrs);
-		}
+		addHighScoringPair(brs, br);
 		// Finally, if AHRD is requested to annotate Gene Ontology Terms, we
 		// need to extract all unique short reference protein (BlastResult)
 		// accessions:
@@ -274,6 +369,42 @@ public class BlastResult implements Comparable<BlastResult> {
 		}
 	}
 
+	/**
+	 * Adds the argument BlastResult to the argument Map of BlastResults
+	 * applying the rules explained in <code>addBlastResult</code>. The
+	 * BlastResults of each Hit are held in SameHitBlastResults, which find the
+	 * present BlastResult of the same query in constant time.
+	 * 
+	 * @param brs
+	 * @param br
+	 */
+	private static void addHighScoringPair(Map<String, List<BlastResult>> brs, BlastResult br) {
+		List<BlastResult> sameHitBrs = brs.get(br.getAccession());
+		if (!(sameHitBrs instanceof SameHitBlastResults)) {
+			// So far not seen Hit, or BlastResults not added by this method:
+			sameHitBrs = sameHitBrs == null ? new SameHitBlastResults() : new SameHitBlastResults(sameHitBrs);
+			brs.put(br.getAccession(), sameHitBrs);
+		}
+		((SameHitBlastResults) sameHitBrs).addHighScoringPair(br);
+	}
+
+	/**
+	 * The Subject of a Blast Hit as found in the Blast database, and the
+	 * candidate Subject resulting from it, see <code>candidateSubject()</code>.
+	 */
+	private static class ResolvedHit {
+		private String accession;
+		private Subject subject;
+		private Subject candidate;
+
+		public ResolvedHit(String accession, Subject subject, Subject candidate) {
+			super();
+			this.accession = accession;
+			this.subject = subject;
+			this.candidate = candidate;
+		}
+	}
+
 	/**
 	 * Adds the sequence length and Human Readable Description (HRD) to all
 	 * matching BlastHits found in the argument Map 'blastResults'. Afterwards
@@ -281,6 +412,9 @@ public class BlastResult implements Comparable<BlastResult> {
 	 * Proteins. See function <code>generateHRDCandidateForProtein</code> for
 	 * more details.
 	 * 
+	 * The HRD is blacklisted, filtered and tokenized only once and the
+	 * resulting Subject is shared by all BlastResults of the Hit.
+	 * 
 	 * @param blastResults
 	 * @param fastaAccession
 	 * @param hitAALength
@@ -288,10 +422,33 @@ public class BlastResult implements Comparable<BlastResult> {
 	 */
 	public static void fastaEntryValuesForBlastHit(Map<String, List<BlastResult>> blastResults, String fastaAccession,
 			Integer hitAALength, String hrd) {
-		for (BlastResult br : blastResults.get(fastaAccession)) {
-			br.setSubjectLength(hitAALength);
-			br.setDescription(hrd);
-			br.generateHRDCandidateForProtein();
+		addResolvedHit(blastResults, resolveHit(blastResults, fastaAccession, hitAALength, hrd));
+	}
+
+	/**
+	 * Creates the Subject of the argument Hit and passes its HRD through
+	 * blacklist, filter and tokenizer. The argument BlastResults are only
+	 * read, so that Hits can be resolved concurrently.
+	 */
+	private static ResolvedHit resolveHit(Map<String, List<BlastResult>> blastResults, String fastaAccession,
+			Integer hitAALength, String hrd) {
+		BlastResult first = blastResults.get(fastaAccession).get(0);
+		// The short accession is only extracted, if needed:
+		Subject subject = new Subject(first.getAccession(), first.getSubject().getShortAccession(), hitAALength, hrd,
+				TokenSet.emptyTokenSet());
+		BlastResult hit = new BlastResult(first.getBlastDatabaseName());
+		hit.setSubject(subject);
+		return new ResolvedHit(fastaAccession, subject, hit.candidateSubject());
+	}
+
+	/**
+	 * Sets the argument resolved Hit's Subject in all of its BlastResults and
+	 * adds them to their query Proteins.
+	 */
+	private static void addResolvedHit(Map<String, List<BlastResult>> blastResults, ResolvedHit hit) {
+		for (BlastResult br : blastResults.get(hit.accession)) {
+			br.setSubject(hit.subject);
+			br.generateHRDCandidateForProtein(hit.candidate);
 		}
 	}
 
@@ -303,6 +460,10 @@ public class BlastResult implements Comparable<BlastResult> {
 	 * BlastResult and subsequently the method 'Protein.addBlastResult' is
 	 * invoked.
 	 * 
+	 * If the Blast database has been indexed, see
+	 * <code>BlastDatabaseIndex</code>, the Hits are looked up in the index.
+	 * Otherwise large Blast databases are scanned in parallel chunks.
+	 * 
 	 * @param proteinDb
 	 * @param blastDbName
 	 * @param blastResults
@@ -310,11 +471,97 @@ public class BlastResult implements Comparable<BlastResult> {
 	 */
 	public static void parseBlastDatabase(Map<String, Protein> proteinDb, String blastDbName,
 			Map<String, List<BlastResult>> blastResults) throws IOException {
+		String pathToBlastDatabase = getSettings().getPathToBlastDatabase(blastDbName);
+		FastaHeaderParser fastaHeaderParser = getSettings().getFastaHeaderParser(blastDbName);
+		// If the Blast database has been indexed, just look up the Hits:
+		BlastDatabaseIndex index = BlastDatabaseIndex.open(pathToBlastDatabase, fastaHeaderParser);
+		if (index != null) {
+			try {
+				for (BlastDatabaseIndex.Entry hit : index.lookupAll(blastResults.keySet())) {
+					fastaEntryValuesForBlastHit(blastResults, hit.getAccession(), hit.getSequenceLength(),
+							hit.getDescription());
+				}
+			} finally {
+				index.close();
+			}
+			return;
+		}
+		int threads = getSettings().getParserThreads();
+		long size = new File(pathToBlastDatabase).length();
+		int nChunks = (int) Math.max(1, Math.min(threads, size / MIN_PARSER_CHUNK_SIZE));
+		parseBlastDatabase(proteinDb, blastDbName, blastResults, nChunks);
+	}
+
+	/**
+	 * Scans the Blast database in FASTA format as explained above. If the
+	 * argument number of chunks is greater than one, the memory mapped file is
+	 * split into as many ranges of entries, which are scanned in parallel, see
+	 * <code>BlastDatabaseScanner</code>. The Hits found in each range are
+	 * resolved into their Subjects by the scanning thread, and finally added
+	 * to the query Proteins in the order of the ranges, which results in
+	 * exactly the same BlastResults as scanning the file sequentially.
+	 * 
+	 * @param proteinDb
+	 * @param blastDbName
+	 * @param blastResults
+	 * @param nChunks
+	 * @throws IOException
+	 */
+	public static void parseBlastDatabase(Map<String, Protein> proteinDb, final String blastDbName,
+			final Map<String, List<BlastResult>> blastResults, int nChunks) throws IOException {
+		final String pathToBlastDatabase = getSettings().getPathToBlastDatabase(blastDbName);
+		final FastaHeaderParser fastaHeaderParser = getSettings().getFastaHeaderParser(blastDbName);
+		// Headers of Proteins, that are no Blast Hits, are skipped without
+		// parsing them:
+		final AccessionSet hitAccessions = new AccessionSet(blastResults.keySet());
+		if (nChunks > 1) {
+			long size = new File(pathToBlastDatabase).length();
+			nChunks = (int) Math.max(nChunks, size / BlastDatabaseScanner.MAX_CHUNK_SIZE + 1);
+			final long[] boundaries = BlastDatabaseScanner.chunkBoundaries(pathToBlastDatabase, nChunks);
+			List<Future<List<ResolvedHit>>> chunks = new ArrayList<Future<List<ResolvedHit>>>();
+			ExecutorService pool = Utils.parserPool(nChunks);
+			try {
+				for (int i = 0; i < nChunks; i++) {
+					final long start = boundaries[i];
+					final long end = boundaries[i + 1];
+					chunks.add(pool.submit(new Callable<List<ResolvedHit>>() {
+						public List<ResolvedHit> call() throws Exception {
+							List<ResolvedHit> hits = new ArrayList<ResolvedHit>();
+							BlastDatabaseScanner scanner = new BlastDatabaseScanner(pathToBlastDatabase, start, end,
+									fastaHeaderParser, hitAccessions, blastDbName);
+							try {
+								while (scanner.next()) {
+									hits.add(resolveHit(blastResults, scanner.getAccession(),
+											scanner.getSequenceLength(), scanner.getDescription()));
+								}
+							} finally {
+								scanner.close();
+							}
+							return hits;
+						}
+					}));
+				}
+				// The BlastResults are only modified after all chunks have been
+				// scanned, as these read them concurrently:
+				List<List<ResolvedHit>> chunksHits = new ArrayList<List<ResolvedHit>>();
+				for (Future<List<ResolvedHit>> chunk : chunks) {
+					chunksHits.add(Utils.await(chunk, "Interrupted while scanning Blast database."));
+				}
+				for (List<ResolvedHit> chunkHits : chunksHits) {
+					for (ResolvedHit hit : chunkHits) {
+						addResolvedHit(blastResults, hit);
+					}
+				}
+			} finally {
+				Utils.releaseParserPool(pool, chunks);
+			}
+			return;
+		}
 		// Parse line by line FASTA Blast search DB. Extract Subject Lengths and
 		// Subject HRDs.
 		BufferedReader fastaIn = null;
 		try {
-			fastaIn = new BufferedReader(new FileReader(getSettings().getPathToBlastDatabase(blastDbName)));
+			fastaIn = new BufferedReader(new FileReader(pathToBlastDatabase));
 			String str, hrd = new String();
 			String acc = "";
 			Integer hitAALength = new Integer(0);
@@ -332,23 +579,23 @@ public class BlastResult implements Comparable<BlastResult> {
 
 					}
 
+					// Skip Proteins in the FASTA database, that certainly are of
+					// no relevance within this context:
+					if (!fastaHeaderParser.isCandidate(str, hitAccessions)) {
+						hit = false;
+						continue;
+					}
 					// Process the current Fasta-Header-Line:
-					Matcher m = getSettings().getFastaHeaderRegex(blastDbName).matcher(str);
-					if (!m.matches()) {
-						// Provided REGEX to parse FASTA header does not work in
-						// this case:
-						System.err.println("WARNING: FASTA header line\n" + str.trim()
-								+ "\ndoes not match provided regular expression\n"
-								+ getSettings().getFastaHeaderRegex(blastDbName).toString()
-								+ "\n. The header and the following entry, including possibly respective matching BLAST Hits, are ignored and discarded.\n"
-								+ "To fix this, please use - Blast database specific - parameter "
-								+ Settings.FASTA_HEADER_REGEX_KEY
-								+ " to provide a regular expression that matches ALL FASTA headers in Blast database '"
-								+ blastDbName + "'.");
-					} else if (blastResults.containsKey(m.group(FASTA_PROTEIN_HEADER_ACCESSION_GROUP_NAME).trim())) {
+					String headerAcc = fastaHeaderParser.parseAccession(str);
+					if (headerAcc == null) {
+						// Provided format to parse FASTA header does not work
+						// in this case:
+						warnFastaHeaderMismatch(str, fastaHeaderParser.getFastaHeaderRegex(), blastDbName);
+						hit = false;
+					} else if (blastResults.containsKey(headerAcc)) {
 						// Found the next Blast HIT:
-						acc = m.group(FASTA_PROTEIN_HEADER_ACCESSION_GROUP_NAME).trim();
-						hrd = m.group(FASTA_PROTEIN_HEADER_DESCRIPTION_GROUP_NAME).trim();
+						acc = headerAcc;
+						hrd = fastaHeaderParser.parseDescription(str);
 						// Following lines, until the next header, contain
 						// information to be collected:
 						hit = true;
@@ -372,11 +619,42 @@ public class BlastResult implements Comparable<BlastResult> {
 		}
 	}
 
+	/**
+	 * Reports a FASTA header of a Blast database that does not match the
+	 * regular expression used to parse it.
+	 * 
+	 * @param fastaHeader
+	 * @param fastaHeaderRegex
+	 * @param blastDbName
+	 */
+	static void warnFastaHeaderMismatch(String fastaHeader, Pattern fastaHeaderRegex, String blastDbName) {
+		System.err.println("WARNING: FASTA header line\n" + fastaHeader.trim()
+				+ "\ndoes not match provided regular expression\n" + fastaHeaderRegex.toString()
+				+ "\n. The header and the following entry, including possibly respective matching BLAST Hits, are ignored and discarded.\n"
+				+ "To fix this, please use - Blast database specific - parameter " + Settings.FASTA_HEADER_REGEX_KEY
+				+ " to provide a regular expression that matches ALL FASTA headers in Blast database '"
+				+ blastDbName + "', or parameter " + Settings.FASTA_HEADER_FORMAT_KEY + " to select another format.");
+	}
+
+	/**
+	 * @param blastResults
+	 * @param howMany
+	 * @return The argument BlastResults, if there are not more than the
+	 *         argument number of them, otherwise those of lowest E-Values. A
+	 *         HitTable is filtered into a new HitTable of just the required
+	 *         size.
+	 */
 	public static List<BlastResult> filterBestScoringBlastResults(List<BlastResult> blastResults, int howMany) {
 		if (blastResults.size() > howMany) {
 			List<BlastResult> sortedBlastResults = new ArrayList<BlastResult>(blastResults);
 			Collections.sort(sortedBlastResults);
-			blastResults = sortedBlastResults.subList(0, howMany);
+			if (blastResults instanceof HitTable) {
+				HitTable hitTable = (HitTable) blastResults;
+				blastResults = new HitTable(hitTable.getBlastDatabaseName(), hitTable.getProtein(), howMany);
+				blastResults.addAll(sortedBlastResults.subList(0, howMany));
+			} else {
+				blastResults = sortedBlastResults.subList(0, howMany);
+			}
 		}
 		return blastResults;
 	}
@@ -406,7 +684,8 @@ public class BlastResult implements Comparable<BlastResult> {
 	 */
 	public void tokenize() {
 		List<String> tknBlackList = getSettings().getTokenBlackList(getBlastDatabaseName());
-		this.setTokens(TokenScoreCalculator.tokenize(this.getDescription(), tknBlackList));
+		// Frozen right away, so that the Subject need not copy the Tokens:
+		this.setTokens(TokenScoreCalculator.tokenize(this.getDescription(), tknBlackList).freeze());
 	}
 
 	/**
@@ -478,9 +757,39 @@ public class BlastResult implements Comparable<BlastResult> {
 	 *         descriptionScore, tokens and evaluationScore.
 	 */
 	public BlastResult clone() {
-		return new BlastResult(new String(this.getAccession()), new Double(eValue), new String(description),
-				new Integer(queryStart), new Integer(queryEnd), new Integer(subjectStart), new Integer(subjectEnd),
-				new Integer(subjectLength), new Double(bitScore), new String(blastDatabaseName));
+		return new BlastResult(new String(this.getAccession()), new Double(getEValue()),
+				new String(getDescription()), new Integer(getQueryStart()), new Integer(getQueryEnd()),
+				new Integer(getSubjectStart()), new Integer(getSubjectEnd()), new Integer(getSubjectLength()),
+				new Double(getBitScore()), new String(getBlastDatabaseName()));
+	}
+
+	/**
+	 * Passes this' human readable description through the blacklist and, if
+	 * it passes, filters and tokenizes it. If a DescriptionCache is configured
+	 * for this' Blast database, the results for a description already seen
+	 * are taken from the cache.
+	 * 
+	 * @return A copy of this' Subject holding the filtered description and its
+	 *         Tokens, or <code>null</code> if the description does not pass
+	 *         the blacklist.
+	 */
+	public Subject candidateSubject() {
+		DescriptionCache cache = getSettings().getDescriptionCache(getBlastDatabaseName());
+		String rawDescription = getDescription();
+		DescriptionCache.Entry entry = (cache == null) ? null : cache.get(rawDescription);
+		if (entry == null) {
+			if (passesBlacklist(rawDescription)) {
+				String filteredDescription = filter(rawDescription);
+				entry = new DescriptionCache.Entry(true, filteredDescription, TokenScoreCalculator
+						.tokenize(filteredDescription, getSettings().getTokenBlackList(getBlastDatabaseName())).freeze());
+			} else {
+				entry = new DescriptionCache.Entry(false, null, null);
+			}
+			if (cache != null)
+				cache.put(rawDescription, entry);
+		}
+		return entry.getPassesBlacklist()
+				? getSubject().withDescription(entry.getFilteredDescription()).withTokens(entry.getTokens()) : null;
 	}
 
 	/**
@@ -490,6 +799,19 @@ public class BlastResult implements Comparable<BlastResult> {
 	 * BlastResults.
 	 */
 	public void generateHRDCandidateForProtein() {
+		generateHRDCandidateForProtein(candidateSubject());
+	}
+
+	/**
+	 * Like <code>generateHRDCandidateForProtein()</code>, but uses the argument
+	 * result of this' <code>candidateSubject()</code>, which might be shared
+	 * with other BlastResults of the same Hit.
+	 * 
+	 * @param candidate
+	 *            - this' Subject with filtered description and Tokens, or
+	 *            <code>null</code> if the description is blacklisted
+	 */
+	public void generateHRDCandidateForProtein(Subject candidate) {
 		// For Training-Purposes:
 		if (getSettings().getWriteBestBlastHitsToOutput()) {
 			// Of course we do have to treat this best-blast-hit
@@ -499,14 +821,11 @@ public class BlastResult implements Comparable<BlastResult> {
 			// Pass best Blast-Hit's Description through filter:
 			theClone.setDescription(filter(theClone.getDescription()));
 			// Tokenize without filtering tokens through the Blacklist:
-			theClone.setTokens(TokenScoreCalculator.tokenize(theClone.getDescription(), new ArrayList<String>()));
+			theClone.setTokens(TokenScoreCalculator.tokenize(theClone.getDescription(), new ArrayList<String>()).freeze());
 			getProtein().getEvaluationScoreCalculator().addUnchangedBlastResult(getBlastDatabaseName(), theClone);
 		}
-		if (passesBlacklist(getDescription())) {
-			// Pass bestScoringHSP through filter:
-			setDescription(filter(getDescription()));
-			// Tokenize the filtered Description-Line:
-			tokenize();
+		if (candidate != null) {
+			setSubject(candidate);
 			// Pass bestScoringHSP through Blacklist and add it, if it
 			// is still valid:
 			if (isValid()) {
@@ -531,31 +850,39 @@ public class BlastResult implements Comparable<BlastResult> {
 	 * @return String
 	 */
 	public String getShortAccession() {
-		if (shortAccession == null) {
-			Pattern p = getSettings().getShortAccessionRegex(getBlastDatabaseName());
-			Matcher m = p.matcher(getAccession());
-			setShortAccession(getAccession());
-			if (!m.find()) {
-				System.err.println("WARNING: Regular Expression '" + p.toString()
+		if (getSubject().getShortAccession() == null) {
+			FastaHeaderParser parser = getSettings().getFastaHeaderParser(getBlastDatabaseName());
+			String shortAccession = parser.parseShortAccession(getAccession());
+			if (shortAccession == null) {
+				System.err.println("WARNING: Regular Expression '" + parser.getShortAccessionRegex().toString()
 						+ "' does NOT match - using pattern.find(...) - Blast Hit Accession '" + getAccession()
 						+ "' - continuing with the original accession. This might lead to unrecognized reference GO annotations!");
+				setShortAccession(getAccession());
 			} else {
-				shortAccession = m.group(SHORT_ACCESSION_GROUP_NAME);
+				setShortAccession(shortAccession);
 			}
 		}
-		return (shortAccession);
+		return getSubject().getShortAccession();
 	}
 
 	public void setShortAccession(String shortAccession) {
-		this.shortAccession = shortAccession;
+		setSubject(getSubject().withShortAccession(shortAccession));
 	}
 
 	public String getAccession() {
-		return accession;
+		return getSubject().getAccession();
 	}
 
 	public void setAccession(String accession) {
-		this.accession = accession;
+		setSubject(getSubject().withAccession(accession));
+	}
+
+	public Subject getSubject() {
+		return subject;
+	}
+
+	public void setSubject(Subject subject) {
+		this.subject = subject;
 	}
 
 	public Double getEValue() {
@@ -567,11 +894,11 @@ public class BlastResult implements Comparable<BlastResult> {
 	}
 
 	public String getDescription() {
-		return description;
+		return getSubject().getDescription();
 	}
 
 	public void setDescription(String description) {
-		this.description = description;
+		setSubject(getSubject().withDescription(description));
 	}
 
 	public Integer getQueryStart() {
@@ -598,12 +925,21 @@ public class BlastResult implements Comparable<BlastResult> {
 		this.bitScore = bitScore;
 	}
 
-	public Set<String> getTokens() {
-		return tokens;
+	/**
+	 * @return The Subject's Tokens, which cannot be modified. Use
+	 *         <code>setTokens</code> to change them.
+	 */
+	public TokenSet getTokens() {
+		return getSubject().getTokens();
 	}
 
+	/**
+	 * @param tokens
+	 *            - kept as is, if it is a frozen TokenSet, otherwise copied
+	 *            into a frozen one
+	 */
 	public void setTokens(Set<String> tokens) {
-		this.tokens = tokens;
+		setSubject(getSubject().withTokens(TokenSet.valueOf(tokens)));
 	}
 
 	public Double getDescriptionScore() {
@@ -632,12 +968,16 @@ public class BlastResult implements Comparable<BlastResult> {
 		this.evaluationScore = evaluationScore;
 	}
 
-	public Set<String> getEvaluationTokens() {
+	public TokenSet getEvaluationTokens() {
 		return evaluationTokens;
 	}
 
+	/**
+	 * @param evaluationTokens
+	 *            - kept as is, if it is a TokenSet, otherwise copied into one
+	 */
 	public void setEvaluationTokens(Set<String> evaluationTokens) {
-		this.evaluationTokens = evaluationTokens;
+		this.evaluationTokens = TokenSet.valueOf(evaluationTokens);
 	}
 
 	public Integer getSubjectStart() {
@@ -657,11 +997,11 @@ public class BlastResult implements Comparable<BlastResult> {
 	}
 
 	public Integer getSubjectLength() {
-		return subjectLength;
+		return getSubject().getSubjectLength();
 	}
 
 	public void setSubjectLength(Integer subjectLength) {
-		this.subjectLength = subjectLength;
+		setSubject(getSubject().withSubjectLength(subjectLength));
 	}
 
 	public Protein getProtein() {
@@ -0,0 +1,169 @@
+package ahrd.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache remembering, per raw Blast Hit description, whether it passes
+ * the description blacklist, the filtered description and its Tokens. Large
+ * Blast databases are full of repeated descriptions like "Uncharacterized
+ * protein", which thus are blacklisted, filtered and tokenized only once. As
+ * the blacklist, filter and Token blacklist are configured per Blast database,
+ * so is the cache.
+ *
+ * The cache is split into segments, each evicting its least recently used
+ * descriptions once full, so that concurrent parsers rarely contend for the
+ * same lock. Hits and misses are counted to help sizing the cache, see
+ * <code>Settings.getDescriptionCacheSize</code>.
+ *
+ * Instances are thread-safe.
+ *
+ * @author hallab, klee
+ */
+public class DescriptionCache {
+
+	private static final int SEGMENTS = 16;
+
+	/**
+	 * The result of processing a single raw description. Instances are
+	 * shared, and so are their frozen Tokens, see <code>TokenSet.freeze</code>.
+	 */
+	public static class Entry {
+		private boolean passesBlacklist;
+		private String filteredDescription;
+		private TokenSet tokens;
+
+		public Entry(boolean passesBlacklist, String filteredDescription, TokenSet tokens) {
+			super();
+			this.passesBlacklist = passesBlacklist;
+			this.filteredDescription = filteredDescription;
+			this.tokens = TokenSet.frozenCopyOf(tokens);
+		}
+
+		public boolean getPassesBlacklist() {
+			return passesBlacklist;
+		}
+
+		/**
+		 * @return The filtered description or <code>null</code>, if the
+		 *         description does not pass the blacklist.
+		 */
+		public String getFilteredDescription() {
+			return filteredDescription;
+		}
+
+		/**
+		 * @return The filtered description's frozen Tokens or
+		 *         <code>null</code>, if the description does not pass the
+		 *         blacklist.
+		 */
+		public TokenSet getTokens() {
+			return tokens;
+		}
+	}
+
+	/**
+	 * A least recently used map evicting its eldest entry once full.
+	 */
+	private static class Segment extends LinkedHashMap<String, Entry> {
+		private static final long serialVersionUID = 1L;
+		private int maxSize;
+
+		public Segment(int maxSize) {
+			super(16, 0.75f, true);
+			this.maxSize = maxSize;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+			return size() > this.maxSize;
+		}
+	}
+
+	private int maxSize;
+	private Segment[] segments = new Segment[SEGMENTS];
+	private AtomicLong hits = new AtomicLong();
+	private AtomicLong misses = new AtomicLong();
+
+	/**
+	 * @param maxSize
+	 *            - the maximum number of cached descriptions
+	 */
+	public DescriptionCache(int maxSize) {
+		super();
+		this.maxSize = maxSize;
+		int maxSegmentSize = Math.max(1, (maxSize + SEGMENTS - 1) / SEGMENTS);
+		for (int i = 0; i < SEGMENTS; i++)
+			this.segments[i] = new Segment(maxSegmentSize);
+	}
+
+	private Segment segment(String description) {
+		int h = description.hashCode();
+		h ^= (h >>> 16);
+		return this.segments[h & (SEGMENTS - 1)];
+	}
+
+	/**
+	 * @param description
+	 *            - the raw description
+	 * @return The cached Entry or <code>null</code>, if the argument
+	 *         description has not been processed yet.
+	 */
+	public Entry get(String description) {
+		Segment segment = segment(description);
+		Entry entry;
+		synchronized (segment) {
+			entry = segment.get(description);
+		}
+		if (entry == null)
+			this.misses.incrementAndGet();
+		else
+			this.hits.incrementAndGet();
+		return entry;
+	}
+
+	/**
+	 * @param description
+	 *            - the raw description
+	 * @param entry
+	 *            - the result of processing it
+	 */
+	public void put(String description, Entry entry) {
+		Segment segment = segment(description);
+		synchronized (segment) {
+			segment.put(description, entry);
+		}
+	}
+
+	public int size() {
+		int size = 0;
+		for (Segment segment : this.segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return The proportion of looked up descriptions found in the cache.
+	 */
+	public double getHitRate() {
+		long lookups = getHits() + getMisses();
+		return lookups == 0 ? 0.0 : (double) getHits() / lookups;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+}
@@ -51,7 +51,10 @@ public class EvaluationScoreCalculator {
 	 */
 	public static Double truePositives(Set<String> assignedTokens, Set<String> referenceTokens) {
 		double tp = 0.0;
-		if (assignedTokens != null && !assignedTokens.isEmpty()) {
+		if (assignedTokens instanceof TokenSet && referenceTokens instanceof TokenSet) {
+			// Merge the sorted Token IDs:
+			tp = ((TokenSet) assignedTokens).intersectionSize((TokenSet) referenceTokens);
+		} else if (assignedTokens != null && !assignedTokens.isEmpty()) {
 			for (String assignedTkn : assignedTokens) {
 				if (referenceTokens.contains(assignedTkn))
 					tp += 1;
@@ -88,11 +91,7 @@ public class EvaluationScoreCalculator {
 	public static Double falsePositivesRate(Set<String> assignedTokens, Set<String> referenceTokens,
 			Set<String> allBlastTokens) {
 		// Count false-positives
-		double fp = 0;
-		for (String asgnTkn : assignedTokens) {
-			if (!referenceTokens.contains(asgnTkn))
-				fp += 1;
-		}
+		double fp = assignedTokens.size() - truePositives(assignedTokens, referenceTokens);
 		// Count all negative tokens:
 		double an = allBlastTokens.size();
 		for (String blastTkn : allBlastTokens) {
@@ -0,0 +1,442 @@
+package ahrd.model;
+
+import static ahrd.controller.Settings.DEFAULT_FASTA_HEADER_REGEX;
+import static ahrd.controller.Settings.DEFAULT_SHORT_ACCESSION_REGEX;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Extracts accession and human readable description from the FASTA headers of
+ * a Blast database, and short accessions from its long accessions. Every
+ * header of every Blast database is parsed, so the common formats are parsed
+ * by hand instead of with a regular expression, see
+ * <code>Settings.FASTA_HEADER_FORMAT_KEY</code>:
+ * <ul>
+ * <li><code>uniprot</code>, e.g.
+ * <code>&gt;sp|Q9ZWC8|BRL1_ARATH Serine/threonine-protein kinase BRI1-like 1 OS=Arabidopsis thaliana GN=BRL1</code>,
+ * parsed exactly like <code>Settings.DEFAULT_FASTA_HEADER_REGEX</code> and
+ * <code>Settings.DEFAULT_SHORT_ACCESSION_REGEX</code> would,</li>
+ * <li><code>tair</code>, e.g.
+ * <code>&gt;AT3G03300.2 | Symbols: DCL2 | DCL2 (DICER-LIKE 2) | chr3:768020-774525 REVERSE</code>,
+ * parsed exactly like <code>TAIR_FASTA_HEADER_REGEX</code> would, using the
+ * accession as short accession,</li>
+ * <li><code>regex</code>, using the Blast database's
+ * <code>fasta_header_regex</code>.</li>
+ * </ul>
+ * A configured <code>short_accession_regex</code> is always used.
+ *
+ * The rare headers the hand coded parsers can not decide on, e.g. containing
+ * line terminators or requiring a regular expression to backtrack, are passed
+ * on to the equivalent regular expression. So each format yields exactly the
+ * same results as its regular expression.
+ *
+ * Instances are immutable and thread-safe.
+ *
+ * @author hallab, klee
+ */
+public abstract class FastaHeaderParser {
+
+	public static final String UNIPROT_FORMAT = "uniprot";
+	public static final String TAIR_FORMAT = "tair";
+	public static final String REGEX_FORMAT = "regex";
+	public static final Pattern TAIR_FASTA_HEADER_REGEX = Pattern.compile(
+			"^>(?<accession>[aA][tT][0-9mMcC][gG]\\d+(\\.\\d+)?)\\s+\\|[^\\|]+\\|\\s+(?<description>[^\\|]+)(\\s*\\|.*)?$");
+	public static final Pattern TAIR_SHORT_ACCESSION_REGEX = Pattern.compile("^(?<shortAccession>.+)$");
+
+	/**
+	 * The configured regular expression to extract short accessions or
+	 * <code>null</code>, if the format's own rule is used.
+	 */
+	private Pattern shortAccessionRegex;
+
+	protected FastaHeaderParser(Pattern shortAccessionRegex) {
+		super();
+		this.shortAccessionRegex = shortAccessionRegex;
+	}
+
+	/**
+	 * @param format
+	 *            - one of <code>uniprot</code>, <code>tair</code> or
+	 *            <code>regex</code>
+	 * @param fastaHeaderRegex
+	 *            - used by format <code>regex</code>
+	 * @param shortAccessionRegex
+	 *            - <code>null</code> to use the format's own rule
+	 * @return The parser of the argument format
+	 * @throws IllegalArgumentException
+	 *             if the format is unknown
+	 */
+	public static FastaHeaderParser valueOf(String format, Pattern fastaHeaderRegex, Pattern shortAccessionRegex) {
+		if (UNIPROT_FORMAT.equals(format))
+			return new Uniprot(shortAccessionRegex);
+		if (TAIR_FORMAT.equals(format))
+			return new Tair(shortAccessionRegex);
+		if (REGEX_FORMAT.equals(format))
+			return new Regex(fastaHeaderRegex, shortAccessionRegex);
+		throw new IllegalArgumentException("Unknown FASTA header format '" + format + "'. Use one of '"
+				+ UNIPROT_FORMAT + "', '" + TAIR_FORMAT + "' or '" + REGEX_FORMAT + "'.");
+	}
+
+	/**
+	 * @param header
+	 *            - the FASTA header line including the leading '&gt;'
+	 * @return The trimmed accession or <code>null</code>, if the header does
+	 *         not match the format.
+	 */
+	public abstract String parseAccession(String header);
+
+	/**
+	 * @param header
+	 *            - a FASTA header line matching the format
+	 * @return The trimmed human readable description
+	 */
+	public abstract String parseDescription(String header);
+
+	/**
+	 * Checks cheaply, whether the argument header may belong to one of the
+	 * argument accessions, without parsing it. Used to skip the headers of
+	 * Proteins that are no Blast Hits.
+	 *
+	 * @param header
+	 * @param accessions
+	 * @return FALSE only if the accession parsed from the argument header is
+	 *         certainly not among the argument accessions. As an arbitrary
+	 *         regular expression can not be checked without matching it, TRUE
+	 *         by default.
+	 */
+	public boolean isCandidate(String header, AccessionSet accessions) {
+		return true;
+	}
+
+	/**
+	 * Like <code>isCandidate(String, AccessionSet)</code>, but checks the
+	 * argument region of bytes holding the header, so that the headers of
+	 * Proteins that are no Blast Hits need not be decoded into Strings.
+	 *
+	 * @param header
+	 * @param from
+	 *            - inclusive
+	 * @param to
+	 *            - exclusive
+	 * @param accessions
+	 * @return FALSE only if the accession parsed from the argument header is
+	 *         certainly not among the argument accessions, TRUE by default.
+	 */
+	public boolean isCandidate(byte[] header, int from, int to, AccessionSet accessions) {
+		return true;
+	}
+
+	/**
+	 * @return The regular expression equivalent to this parser. It identifies
+	 *         the parsing rules, e.g. in warnings or to validate a
+	 *         BlastDatabaseIndex.
+	 */
+	public abstract Pattern getFastaHeaderRegex();
+
+	/**
+	 * @param accession
+	 * @return The short accession extracted from the argument long accession
+	 *         or <code>null</code>, if it does not match.
+	 */
+	public String parseShortAccession(String accession) {
+		if (this.shortAccessionRegex != null)
+			return shortAccessionByRegex(this.shortAccessionRegex, accession);
+		return shortAccession(accession);
+	}
+
+	/**
+	 * @return The regular expression equivalent to the rule used to extract
+	 *         short accessions.
+	 */
+	public Pattern getShortAccessionRegex() {
+		return this.shortAccessionRegex != null ? this.shortAccessionRegex : DEFAULT_SHORT_ACCESSION_REGEX;
+	}
+
+	/**
+	 * The format's own rule to extract short accessions, by default the one
+	 * of <code>Settings.DEFAULT_SHORT_ACCESSION_REGEX</code>: the second of
+	 * the pipe separated fields.
+	 */
+	protected String shortAccession(String accession) {
+		int start = accession.indexOf('|');
+		if (start <= 0)
+			return null;
+		int end = accession.indexOf('|', start + 1);
+		if (end < 0)
+			end = accession.length();
+		return end > start + 1 ? accession.substring(start + 1, end) : null;
+	}
+
+	protected static String shortAccessionByRegex(Pattern shortAccessionRegex, String accession) {
+		Matcher m = shortAccessionRegex.matcher(accession);
+		return m.find() ? m.group(BlastResult.SHORT_ACCESSION_GROUP_NAME) : null;
+	}
+
+	/**
+	 * @param c
+	 * @return TRUE if and only if the argument character is matched by the
+	 *         regular expression <code>\s</code>.
+	 */
+	protected static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
+
+	/**
+	 * @param s
+	 * @return TRUE if the argument String contains any character not matched
+	 *         by the regular expression <code>.</code>.
+	 */
+	protected static boolean hasLineTerminator(String s) {
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029')
+				return true;
+		}
+		return false;
+	}
+
+	protected static int skipWhitespace(String s, int from) {
+		while (from < s.length() && isWhitespace(s.charAt(from)))
+			from++;
+		return from;
+	}
+
+	/**
+	 * Parses FASTA headers using a regular expression with the named groups
+	 * <code>accession</code> and <code>description</code>.
+	 */
+	private static class Regex extends FastaHeaderParser {
+		private Pattern fastaHeaderRegex;
+
+		public Regex(Pattern fastaHeaderRegex, Pattern shortAccessionRegex) {
+			super(shortAccessionRegex);
+			this.fastaHeaderRegex = fastaHeaderRegex;
+		}
+
+		@Override
+		public String parseAccession(String header) {
+			Matcher m = this.fastaHeaderRegex.matcher(header);
+			return m.matches() ? m.group(BlastResult.FASTA_PROTEIN_HEADER_ACCESSION_GROUP_NAME).trim() : null;
+		}
+
+		@Override
+		public String parseDescription(String header) {
+			Matcher m = this.fastaHeaderRegex.matcher(header);
+			return m.matches() ? m.group(BlastResult.FASTA_PROTEIN_HEADER_DESCRIPTION_GROUP_NAME).trim() : null;
+		}
+
+		@Override
+		public Pattern getFastaHeaderRegex() {
+			return this.fastaHeaderRegex;
+		}
+	}
+
+	/**
+	 * Hand coded parser for FASTA headers of the formats above. A header is
+	 * split into the positions of accession and description by
+	 * <code>scan</code>. If it can not decide, the header is parsed by the
+	 * equivalent regular expression.
+	 */
+	private static abstract class HandCoded extends FastaHeaderParser {
+		/**
+		 * Returned by <code>scan</code>, if the header does not match.
+		 */
+		protected static final int[] NO_MATCH = new int[0];
+		private Regex fallback;
+
+		public HandCoded(Pattern fastaHeaderRegex, Pattern shortAccessionRegex) {
+			super(shortAccessionRegex);
+			this.fallback = new Regex(fastaHeaderRegex, shortAccessionRegex);
+		}
+
+		/**
+		 * @param header
+		 * @return Start and end of the accession and of the description, or
+		 *         <code>NO_MATCH</code>, or <code>null</code> if the header has
+		 *         to be parsed by the regular expression.
+		 */
+		protected abstract int[] scan(String header);
+
+		@Override
+		public String parseAccession(String header) {
+			int[] positions = scan(header);
+			if (positions == null)
+				return this.fallback.parseAccession(header);
+			if (positions == NO_MATCH)
+				return null;
+			return header.substring(positions[0], positions[1]).trim();
+		}
+
+		@Override
+		public String parseDescription(String header) {
+			int[] positions = scan(header);
+			if (positions == null)
+				return this.fallback.parseDescription(header);
+			if (positions == NO_MATCH)
+				return null;
+			return header.substring(positions[2], positions[3]).trim();
+		}
+
+		@Override
+		public Pattern getFastaHeaderRegex() {
+			return this.fallback.getFastaHeaderRegex();
+		}
+
+		/**
+		 * In all hand coded formats, the accession is the trimmed first word
+		 * following the '&gt;'.
+		 */
+		@Override
+		public boolean isCandidate(String header, AccessionSet accessions) {
+			int length = header.length();
+			if (length < 2 || header.charAt(0) != '>')
+				return true;
+			int end = 1;
+			while (end < length && !isWhitespace(header.charAt(end)))
+				end++;
+			// Like String.trim():
+			int start = 1;
+			while (start < end && header.charAt(start) <= ' ')
+				start++;
+			while (end > start && header.charAt(end - 1) <= ' ')
+				end--;
+			return accessions.contains(header, start, end);
+		}
+
+		/**
+		 * Headers, whose first word holds non US-ASCII bytes, are left to the
+		 * check of the decoded header.
+		 */
+		@Override
+		public boolean isCandidate(byte[] header, int from, int to, AccessionSet accessions) {
+			if (to - from < 2 || header[from] != '>')
+				return true;
+			int end = from + 1;
+			while (end < to && (header[end] < 0 || !isWhitespace((char) header[end]))) {
+				if (header[end] < 0)
+					return true;
+				end++;
+			}
+			// Like String.trim():
+			int start = from + 1;
+			while (start < end && header[start] <= ' ')
+				start++;
+			while (end > start && header[end - 1] <= ' ')
+				end--;
+			return accessions.contains(header, start, end);
+		}
+	}
+
+	/**
+	 * Parses headers like <code>Settings.DEFAULT_FASTA_HEADER_REGEX</code>:
+	 * The accession is the first word, the description the following words
+	 * up to the first of "OS=" or "GN=".
+	 */
+	private static class Uniprot extends HandCoded {
+
+		public Uniprot(Pattern shortAccessionRegex) {
+			super(DEFAULT_FASTA_HEADER_REGEX, shortAccessionRegex);
+		}
+
+		private static boolean isTag(String header, int at) {
+			return header.startsWith("OS=", at) || header.startsWith("os=", at) || header.startsWith("GN=", at)
+					|| header.startsWith("gn=", at);
+		}
+
+		@Override
+		protected int[] scan(String header) {
+			int length = header.length();
+			if (length < 2 || header.charAt(0) != '>' || isWhitespace(header.charAt(1)))
+				return NO_MATCH;
+			if (hasLineTerminator(header))
+				return null;
+			int accessionEnd = 1;
+			while (accessionEnd < length && !isWhitespace(header.charAt(accessionEnd)))
+				accessionEnd++;
+			if (accessionEnd == length)
+				return NO_MATCH;
+			int descriptionStart = skipWhitespace(header, accessionEnd);
+			if (descriptionStart == length)
+				return null;
+			// The description ends at the first whitespace followed by the end
+			// of the header or by "OS=..." or "GN=...":
+			for (int end = descriptionStart + 1; end < length; end++) {
+				if (isWhitespace(header.charAt(end))) {
+					int next = skipWhitespace(header, end);
+					if (next == length || (isTag(header, next) && next + 3 < length))
+						return new int[] { 1, accessionEnd, descriptionStart, end };
+					end = next;
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Parses headers like <code>TAIR_FASTA_HEADER_REGEX</code>: The accession
+	 * is the Arabidopsis gene identifier, the description the third of the
+	 * pipe separated fields. The accession is the short accession.
+	 */
+	private static class Tair extends HandCoded {
+
+		public Tair(Pattern shortAccessionRegex) {
+			super(TAIR_FASTA_HEADER_REGEX, shortAccessionRegex);
+		}
+
+		private static boolean isDigit(char c) {
+			return c >= '0' && c <= '9';
+		}
+
+		@Override
+		protected int[] scan(String header) {
+			int length = header.length();
+			if (length < 6 || header.charAt(0) != '>')
+				return NO_MATCH;
+			char a = header.charAt(1), t = header.charAt(2), chr = header.charAt(3), g = header.charAt(4);
+			if ((a != 'a' && a != 'A') || (t != 't' && t != 'T')
+					|| !(isDigit(chr) || chr == 'm' || chr == 'M' || chr == 'c' || chr == 'C')
+					|| (g != 'g' && g != 'G') || !isDigit(header.charAt(5)))
+				return NO_MATCH;
+			if (hasLineTerminator(header))
+				return null;
+			int accessionEnd = 6;
+			while (accessionEnd < length && isDigit(header.charAt(accessionEnd)))
+				accessionEnd++;
+			if (accessionEnd + 1 < length && header.charAt(accessionEnd) == '.'
+					&& isDigit(header.charAt(accessionEnd + 1))) {
+				accessionEnd += 2;
+				while (accessionEnd < length && isDigit(header.charAt(accessionEnd)))
+					accessionEnd++;
+			}
+			int pipe = skipWhitespace(header, accessionEnd);
+			if (pipe == accessionEnd || pipe == length || header.charAt(pipe) != '|')
+				return NO_MATCH;
+			int secondPipe = header.indexOf('|', pipe + 1);
+			if (secondPipe <= pipe + 1)
+				return NO_MATCH;
+			int descriptionStart = skipWhitespace(header, secondPipe + 1);
+			if (descriptionStart == secondPipe + 1)
+				return NO_MATCH;
+			if (descriptionStart == length || header.charAt(descriptionStart) == '|')
+				return null;
+			int descriptionEnd = header.indexOf('|', descriptionStart);
+			if (descriptionEnd < 0)
+				descriptionEnd = length;
+			return new int[] { 1, accessionEnd, descriptionStart, descriptionEnd };
+		}
+
+		@Override
+		protected String shortAccession(String accession) {
+			return accession.isEmpty() || hasLineTerminator(accession)
+					? shortAccessionByRegex(TAIR_SHORT_ACCESSION_REGEX, accession) : accession;
+		}
+
+		@Override
+		public Pattern getShortAccessionRegex() {
+			Pattern configured = super.getShortAccessionRegex();
+			return configured == DEFAULT_SHORT_ACCESSION_REGEX ? TAIR_SHORT_ACCESSION_REGEX : configured;
+		}
+	}
+
+}
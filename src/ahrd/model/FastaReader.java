@@ -0,0 +1,122 @@
+package ahrd.model;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FileReader;
+import java.io.IOException;
+
+/**
+ * Reads a FASTA formatted file record by record. In contrast to reading the
+ * whole file into memory and splitting it, only the current record is held in
+ * memory. If the caller is not interested in the sequence itself, only the
+ * number of residues is counted and the sequence is never built.
+ *
+ * Usage:
+ *
+ * <pre>
+ * FastaReader fr = new FastaReader(pathToFasta, false);
+ * while (fr.next()) {
+ * 	fr.getHeader();
+ * 	fr.getSequenceLength();
+ * }
+ * fr.close();
+ * </pre>
+ *
+ * @author hallab, klee
+ */
+public class FastaReader implements Closeable {
+
+	private BufferedReader reader;
+	private boolean keepSequence;
+	/**
+	 * Header of the record that is to be returned by the next call of
+	 * <code>next()</code>. Is <code>null</code> when the end of file has been
+	 * reached.
+	 */
+	private String nextHeader;
+	private String header;
+	private StringBuilder sequence = new StringBuilder();
+	private int sequenceLength;
+
+	/**
+	 * @param pathToFasta
+	 * @param keepSequence
+	 *            - If <code>false</code> only the residues are counted and the
+	 *            sequence is not retained.
+	 * @throws IOException
+	 */
+	public FastaReader(String pathToFasta, boolean keepSequence) throws IOException {
+		this(new BufferedReader(new FileReader(pathToFasta)), keepSequence);
+	}
+
+	public FastaReader(BufferedReader reader, boolean keepSequence) throws IOException {
+		super();
+		this.reader = reader;
+		this.keepSequence = keepSequence;
+		// Skip anything preceding the first header:
+		String line;
+		while ((line = reader.readLine()) != null) {
+			if (line.startsWith(">")) {
+				this.nextHeader = line.substring(1);
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Advances to the next record.
+	 *
+	 * @return <code>true</code> if a record has been read, <code>false</code>
+	 *         if the end of the file has been reached.
+	 * @throws IOException
+	 */
+	public boolean next() throws IOException {
+		this.header = this.nextHeader;
+		this.nextHeader = null;
+		this.sequence.setLength(0);
+		this.sequenceLength = 0;
+		if (this.header == null)
+			return false;
+		String line;
+		while ((line = this.reader.readLine()) != null) {
+			if (line.startsWith(">")) {
+				this.nextHeader = line.substring(1);
+				break;
+			}
+			String residues = line.trim();
+			this.sequenceLength += residues.length();
+			if (this.keepSequence)
+				this.sequence.append(residues);
+		}
+		return true;
+	}
+
+	/**
+	 * @return The current record's header line without the leading '&gt;'.
+	 */
+	public String getHeader() {
+		return header;
+	}
+
+	/**
+	 * @return The current record's sequence or <code>null</code>, if this
+	 *         reader has been told not to keep sequences.
+	 */
+	public String getSequence() {
+		return this.keepSequence ? this.sequence.toString() : null;
+	}
+
+	public int getSequenceLength() {
+		return sequenceLength;
+	}
+
+	public boolean isKeepSequence() {
+		return keepSequence;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.reader.close();
+	}
+
+}
@@ -0,0 +1,300 @@
+package ahrd.model;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A set of Gene Ontology (GO) terms held as the sorted array of their integer
+ * codes. A GO term of the form 'GO:' followed by seven digits is coded as the
+ * number given by its digits. Hence, such GO terms are iterated in their
+ * natural order, and are only decoded into Strings when they are iterated,
+ * e.g. to be written to the output. Any other term, as extracted by a custom
+ * reference GO regular expression, is interned into a dictionary and coded as
+ * a negative number.
+ *
+ * Reference GO annotations assign the very same GO terms to many proteins.
+ * Identical GoTermSets can share a single instance, see
+ * <code>shareIdenticalSets</code>.
+ *
+ * Instances are not thread-safe.
+ *
+ * @author hallab, klee
+ */
+public class GoTermSet extends AbstractSet<String> {
+
+	private static final int[] EMPTY = new int[0];
+	private static final String GO_TERM_PREFIX = "GO:";
+	private static final int GO_TERM_DIGITS = 7;
+
+	/**
+	 * Dictionary of terms not of the form 'GO:' followed by seven digits.
+	 */
+	private static final ConcurrentMap<String, Integer> otherTermCodes = new ConcurrentHashMap<String, Integer>();
+	private static final ConcurrentMap<Integer, String> otherTerms = new ConcurrentHashMap<Integer, String>();
+
+	private int[] codes = EMPTY;
+	private int size = 0;
+
+	public GoTermSet() {
+		super();
+	}
+
+	public GoTermSet(Collection<String> goTerms) {
+		this();
+		if (goTerms instanceof GoTermSet) {
+			GoTermSet other = (GoTermSet) goTerms;
+			this.codes = Arrays.copyOf(other.codes, other.size);
+			this.size = other.size;
+		} else {
+			for (String goTerm : goTerms)
+				add(goTerm);
+		}
+	}
+
+	/**
+	 * @param goTerm
+	 * @return The code of a term of the form 'GO:' followed by seven digits,
+	 *         or -1 for any other term.
+	 */
+	private static int goTermNumber(String goTerm) {
+		if (goTerm.length() != GO_TERM_PREFIX.length() + GO_TERM_DIGITS || !goTerm.startsWith(GO_TERM_PREFIX))
+			return -1;
+		int number = 0;
+		for (int i = GO_TERM_PREFIX.length(); i < goTerm.length(); i++) {
+			char c = goTerm.charAt(i);
+			if (c < '0' || c > '9')
+				return -1;
+			number = 10 * number + (c - '0');
+		}
+		return number;
+	}
+
+	/**
+	 * @param goTerm
+	 * @return The code of the argument term, which is assigned on its first
+	 *         occurrence, if the term is not of the form 'GO:' followed by
+	 *         seven digits.
+	 */
+	public static int encode(String goTerm) {
+		int code = goTermNumber(goTerm);
+		if (code >= 0)
+			return code;
+		Integer other = otherTermCodes.get(goTerm);
+		if (other == null) {
+			synchronized (otherTermCodes) {
+				other = otherTermCodes.get(goTerm);
+				if (other == null) {
+					other = -1 - otherTermCodes.size();
+					otherTerms.put(other, goTerm);
+					otherTermCodes.put(goTerm, other);
+				}
+			}
+		}
+		return other;
+	}
+
+	/**
+	 * @param goTerm
+	 * @return The code of the argument term, or <code>null</code> if it has
+	 *         no code, yet.
+	 */
+	private static Integer lookup(String goTerm) {
+		int code = goTermNumber(goTerm);
+		return code >= 0 ? Integer.valueOf(code) : otherTermCodes.get(goTerm);
+	}
+
+	/**
+	 * @param code
+	 * @return The term of the argument code.
+	 */
+	public static String decode(int code) {
+		if (code < 0)
+			return otherTerms.get(code);
+		char[] goTerm = new char[GO_TERM_PREFIX.length() + GO_TERM_DIGITS];
+		GO_TERM_PREFIX.getChars(0, GO_TERM_PREFIX.length(), goTerm, 0);
+		for (int i = goTerm.length - 1; i >= GO_TERM_PREFIX.length(); i--) {
+			goTerm[i] = (char) ('0' + code % 10);
+			code /= 10;
+		}
+		return new String(goTerm);
+	}
+
+	/**
+	 * @param code
+	 * @return The hash code of the term of the argument code, computed
+	 *         without decoding it.
+	 */
+	private static int termHashCode(int code) {
+		if (code < 0)
+			return otherTerms.get(code).hashCode();
+		int h = GO_TERM_PREFIX.hashCode();
+		for (int divisor = 1000000; divisor > 0; divisor /= 10)
+			h = 31 * h + ('0' + code / divisor % 10);
+		return h;
+	}
+
+	/**
+	 * Replaces the GoTermSets in the argument Map by a single shared instance
+	 * for all equal ones, and releases the GoTermSets' spare capacity. The
+	 * shared instances must not be modified thereafter.
+	 *
+	 * @param goa
+	 *            - Map of keys to Sets of GO terms
+	 */
+	public static <K> void shareIdenticalSets(Map<K, Set<String>> goa) {
+		Map<GoTermSet, GoTermSet> shared = new HashMap<GoTermSet, GoTermSet>();
+		for (Map.Entry<K, Set<String>> entry : goa.entrySet()) {
+			if (!(entry.getValue() instanceof GoTermSet))
+				continue;
+			GoTermSet goTerms = (GoTermSet) entry.getValue();
+			GoTermSet sharedGoTerms = shared.get(goTerms);
+			if (sharedGoTerms == null) {
+				goTerms.trimToSize();
+				shared.put(goTerms, goTerms);
+			} else {
+				entry.setValue(sharedGoTerms);
+			}
+		}
+	}
+
+	/**
+	 * Releases the spare capacity of the array of codes.
+	 */
+	public void trimToSize() {
+		if (this.codes.length > this.size)
+			this.codes = this.size == 0 ? EMPTY : Arrays.copyOf(this.codes, this.size);
+	}
+
+	/**
+	 * @param code
+	 * @return The index of the argument code in the sorted codes, or
+	 *         <code>-(insertion point) - 1</code> if absent.
+	 */
+	private int indexOf(int code) {
+		return Arrays.binarySearch(this.codes, 0, this.size, code);
+	}
+
+	/**
+	 * @param i
+	 * @return The i-th smallest code.
+	 */
+	public int getCode(int i) {
+		return this.codes[i];
+	}
+
+	public boolean containsCode(int code) {
+		return indexOf(code) >= 0;
+	}
+
+	public boolean addCode(int code) {
+		int i = indexOf(code);
+		if (i >= 0)
+			return false;
+		i = -i - 1;
+		if (this.size == this.codes.length)
+			this.codes = Arrays.copyOf(this.codes, Math.max(4, this.size * 2));
+		System.arraycopy(this.codes, i, this.codes, i + 1, this.size - i);
+		this.codes[i] = code;
+		this.size++;
+		return true;
+	}
+
+	private void removeAt(int i) {
+		System.arraycopy(this.codes, i + 1, this.codes, i, this.size - i - 1);
+		this.size--;
+	}
+
+	@Override
+	public boolean add(String goTerm) {
+		return addCode(encode(goTerm));
+	}
+
+	@Override
+	public boolean contains(Object goTerm) {
+		if (!(goTerm instanceof String))
+			return false;
+		Integer code = lookup((String) goTerm);
+		return code != null && containsCode(code);
+	}
+
+	@Override
+	public boolean remove(Object goTerm) {
+		if (!(goTerm instanceof String))
+			return false;
+		Integer code = lookup((String) goTerm);
+		int i = code != null ? indexOf(code) : -1;
+		if (i < 0)
+			return false;
+		removeAt(i);
+		return true;
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public void clear() {
+		this.size = 0;
+	}
+
+	@Override
+	public Iterator<String> iterator() {
+		return new Iterator<String>() {
+			private int next = 0;
+			private boolean removable = false;
+
+			public boolean hasNext() {
+				return this.next < size;
+			}
+
+			public String next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				this.removable = true;
+				return decode(codes[this.next++]);
+			}
+
+			public void remove() {
+				if (!this.removable)
+					throw new IllegalStateException();
+				removeAt(--this.next);
+				this.removable = false;
+			}
+		};
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (o instanceof GoTermSet) {
+			GoTermSet other = (GoTermSet) o;
+			if (other.size != this.size)
+				return false;
+			for (int i = 0; i < this.size; i++) {
+				if (this.codes[i] != other.codes[i])
+					return false;
+			}
+			return true;
+		}
+		return super.equals(o);
+	}
+
+	@Override
+	public int hashCode() {
+		// Must equal the hash code of any other Set holding the same GO terms:
+		int h = 0;
+		for (int i = 0; i < this.size; i++)
+			h += termHashCode(this.codes[i]);
+		return h;
+	}
+
+}
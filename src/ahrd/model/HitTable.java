@@ -0,0 +1,320 @@
+package ahrd.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * The BlastResults of a single query Protein found in a single Blast database,
+ * stored column-wise in primitive arrays instead of one BlastResult object per
+ * Hit. Large proteomes retain tens of millions of Hits, whose boxed fields and
+ * object headers would otherwise make up most of the heap. The Hit's
+ * accession, sequence length, description and Tokens are held by the Subject
+ * shared among all BlastResults of that Hit, so that each row only references
+ * it.
+ *
+ * <code>add</code> copies the argument BlastResult into a new row, while
+ * <code>get</code> returns a lightweight view of a row, which reads and writes
+ * the table's arrays. Hence the calculators and the OutputWriter work on a
+ * HitTable just like on any other List of BlastResults. Two views of the same
+ * row are equal, but not identical.
+ *
+ * Instances are not thread-safe.
+ *
+ * @author hallab, klee
+ */
+public class HitTable extends AbstractList<BlastResult> implements RandomAccess {
+
+	private static final int DEFAULT_CAPACITY = 8;
+	/**
+	 * Integer columns use this value to represent <code>null</code>, Double
+	 * columns use <code>Double.NaN</code>.
+	 */
+	private static final int NULL_INT = Integer.MIN_VALUE;
+
+	private String blastDatabaseName;
+	private Protein protein;
+	private int size = 0;
+	private Subject[] subjects;
+	private double[] eValues;
+	private double[] bitScores;
+	private int[] queryStarts;
+	private int[] queryEnds;
+	private int[] subjectStarts;
+	private int[] subjectEnds;
+	private double[] descriptionScores;
+	/**
+	 * Evaluation scores and Tokens are only needed while training or evaluating
+	 * AHRD and thus allocated on first use.
+	 */
+	private double[] evaluationScores;
+	private TokenSet[] evaluationTokens;
+
+	/**
+	 * A view of a single row. Everything, but the Blast database name and the
+	 * query Protein, which are the same for the whole table, is read from and
+	 * written to the table's arrays.
+	 */
+	private static class Row extends BlastResult {
+		private HitTable table;
+		private int row;
+
+		public Row(HitTable table, int row) {
+			super();
+			this.table = table;
+			this.row = row;
+		}
+
+		@Override
+		public Subject getSubject() {
+			return table.subjects[row];
+		}
+
+		@Override
+		public void setSubject(Subject subject) {
+			table.subjects[row] = subject;
+		}
+
+		@Override
+		public Double getEValue() {
+			return toDouble(table.eValues[row]);
+		}
+
+		@Override
+		public void setEValue(Double value) {
+			table.eValues[row] = toPrimitive(value);
+		}
+
+		@Override
+		public Double getBitScore() {
+			return toDouble(table.bitScores[row]);
+		}
+
+		@Override
+		public void setBitScore(Double bitScore) {
+			table.bitScores[row] = toPrimitive(bitScore);
+		}
+
+		@Override
+		public Integer getQueryStart() {
+			return toInteger(table.queryStarts[row]);
+		}
+
+		@Override
+		public void setQueryStart(Integer start) {
+			table.queryStarts[row] = toPrimitive(start);
+		}
+
+		@Override
+		public Integer getQueryEnd() {
+			return toInteger(table.queryEnds[row]);
+		}
+
+		@Override
+		public void setQueryEnd(Integer end) {
+			table.queryEnds[row] = toPrimitive(end);
+		}
+
+		@Override
+		public Integer getSubjectStart() {
+			return toInteger(table.subjectStarts[row]);
+		}
+
+		@Override
+		public void setSubjectStart(Integer subjectStart) {
+			table.subjectStarts[row] = toPrimitive(subjectStart);
+		}
+
+		@Override
+		public Integer getSubjectEnd() {
+			return toInteger(table.subjectEnds[row]);
+		}
+
+		@Override
+		public void setSubjectEnd(Integer subjectEnd) {
+			table.subjectEnds[row] = toPrimitive(subjectEnd);
+		}
+
+		@Override
+		public Double getDescriptionScore() {
+			return toDouble(table.descriptionScores[row]);
+		}
+
+		@Override
+		public void setDescriptionScore(Double descriptionScore) {
+			table.descriptionScores[row] = toPrimitive(descriptionScore);
+		}
+
+		@Override
+		public Double getEvaluationScore() {
+			return table.evaluationScores == null ? null : toDouble(table.evaluationScores[row]);
+		}
+
+		@Override
+		public void setEvaluationScore(Double evaluationScore) {
+			if (table.evaluationScores == null) {
+				table.evaluationScores = new double[table.subjects.length];
+				Arrays.fill(table.evaluationScores, Double.NaN);
+			}
+			table.evaluationScores[row] = toPrimitive(evaluationScore);
+		}
+
+		@Override
+		public TokenSet getEvaluationTokens() {
+			return table.evaluationTokens == null ? null : table.evaluationTokens[row];
+		}
+
+		@Override
+		public void setEvaluationTokens(Set<String> evaluationTokens) {
+			if (table.evaluationTokens == null)
+				table.evaluationTokens = new TokenSet[table.subjects.length];
+			table.evaluationTokens[row] = TokenSet.valueOf(evaluationTokens);
+		}
+
+		@Override
+		public String getBlastDatabaseName() {
+			return table.blastDatabaseName;
+		}
+
+		@Override
+		public void setBlastDatabaseName(String blastDatabaseName) {
+			throw new UnsupportedOperationException("All rows of a HitTable share their Blast-Database-Name.");
+		}
+
+		@Override
+		public Protein getProtein() {
+			return table.protein;
+		}
+
+		@Override
+		public void setProtein(Protein protein) {
+			throw new UnsupportedOperationException("All rows of a HitTable share their query Protein.");
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Row))
+				return false;
+			Row other = (Row) o;
+			return other.table == this.table && other.row == this.row;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * System.identityHashCode(table) + row;
+		}
+	}
+
+	public HitTable(String blastDatabaseName, Protein protein) {
+		this(blastDatabaseName, protein, DEFAULT_CAPACITY);
+	}
+
+	public HitTable(String blastDatabaseName, Protein protein, int initialCapacity) {
+		super();
+		if (blastDatabaseName == null)
+			throw new IllegalArgumentException("Blast-Database-Name must not be NULL.");
+		this.blastDatabaseName = blastDatabaseName;
+		this.protein = protein;
+		int capacity = Math.max(1, initialCapacity);
+		this.subjects = new Subject[capacity];
+		this.eValues = new double[capacity];
+		this.bitScores = new double[capacity];
+		this.queryStarts = new int[capacity];
+		this.queryEnds = new int[capacity];
+		this.subjectStarts = new int[capacity];
+		this.subjectEnds = new int[capacity];
+		this.descriptionScores = new double[capacity];
+	}
+
+	private static Double toDouble(double value) {
+		return Double.isNaN(value) ? null : value;
+	}
+
+	private static double toPrimitive(Double value) {
+		return value == null ? Double.NaN : value;
+	}
+
+	private static Integer toInteger(int value) {
+		return value == NULL_INT ? null : value;
+	}
+
+	private static int toPrimitive(Integer value) {
+		return value == null ? NULL_INT : value;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > this.subjects.length) {
+			int newCapacity = Math.max(capacity, this.subjects.length + (this.subjects.length >> 1) + 1);
+			this.subjects = Arrays.copyOf(this.subjects, newCapacity);
+			this.eValues = Arrays.copyOf(this.eValues, newCapacity);
+			this.bitScores = Arrays.copyOf(this.bitScores, newCapacity);
+			this.queryStarts = Arrays.copyOf(this.queryStarts, newCapacity);
+			this.queryEnds = Arrays.copyOf(this.queryEnds, newCapacity);
+			this.subjectStarts = Arrays.copyOf(this.subjectStarts, newCapacity);
+			this.subjectEnds = Arrays.copyOf(this.subjectEnds, newCapacity);
+			this.descriptionScores = Arrays.copyOf(this.descriptionScores, newCapacity);
+			if (this.evaluationScores != null) {
+				this.evaluationScores = Arrays.copyOf(this.evaluationScores, newCapacity);
+				Arrays.fill(this.evaluationScores, this.size, newCapacity, Double.NaN);
+			}
+			if (this.evaluationTokens != null)
+				this.evaluationTokens = Arrays.copyOf(this.evaluationTokens, newCapacity);
+		}
+	}
+
+	/**
+	 * Copies the argument BlastResult into a new row. Its Blast database must
+	 * be the one of this table. Its query Protein is not retained.
+	 *
+	 * @param br
+	 * @return TRUE
+	 */
+	@Override
+	public boolean add(BlastResult br) {
+		if (!getBlastDatabaseName().equals(br.getBlastDatabaseName()))
+			throw new IllegalArgumentException("Cannot add a BlastResult of Blast-Database '"
+					+ br.getBlastDatabaseName() + "' to a HitTable of Blast-Database '" + getBlastDatabaseName() + "'.");
+		ensureCapacity(this.size + 1);
+		int row = this.size++;
+		this.modCount++;
+		Row view = new Row(this, row);
+		view.setSubject(br.getSubject());
+		view.setEValue(br.getEValue());
+		view.setBitScore(br.getBitScore());
+		view.setQueryStart(br.getQueryStart());
+		view.setQueryEnd(br.getQueryEnd());
+		view.setSubjectStart(br.getSubjectStart());
+		view.setSubjectEnd(br.getSubjectEnd());
+		view.setDescriptionScore(br.getDescriptionScore());
+		if (br.getEvaluationScore() != null || this.evaluationScores != null)
+			view.setEvaluationScore(br.getEvaluationScore());
+		if (br.getEvaluationTokens() != null || this.evaluationTokens != null)
+			view.setEvaluationTokens(br.getEvaluationTokens());
+		return true;
+	}
+
+	/**
+	 * @return A view of the argument row.
+	 */
+	@Override
+	public BlastResult get(int index) {
+		if (index < 0 || index >= this.size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+		return new Row(this, index);
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	public String getBlastDatabaseName() {
+		return blastDatabaseName;
+	}
+
+	public Protein getProtein() {
+		return protein;
+	}
+
+}
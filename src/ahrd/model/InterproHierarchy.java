@@ -0,0 +1,228 @@
+package ahrd.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The ancestors and the recursively contained entries of all entries of an
+ * InterPro memory database, computed once after the database has been loaded.
+ * The entries are numbered, and each entry's ancestors and contained entries
+ * are held as sorted arrays of these numbers. Hence, whether an entry is an
+ * ancestor of, or is contained in, another entry, is looked up by a binary
+ * search, instead of recursively walking the hierarchy through the memory
+ * database.
+ *
+ * The closures are only known for entries, whose references can be resolved
+ * completely within the memory database. For all other entries, e.g. those
+ * referring to an entry missing from the database, or entries added to the
+ * database later on, <code>InterproResult</code> walks the hierarchy
+ * recursively as it always did.
+ *
+ * Instances are not modified once they have been computed, and thus are
+ * thread-safe.
+ *
+ * @author hallab, klee
+ */
+public class InterproHierarchy {
+
+	private static final int UNVISITED = 0;
+	private static final int IN_PROGRESS = 1;
+	private static final int DONE = 2;
+
+	private Map<String, InterproResult> interproDb;
+	private Map<String, Integer> indexOfId;
+	private InterproResult[] entries;
+	/**
+	 * Sorted numbers of each entry's ancestors and contained entries, or
+	 * <code>null</code> if they could not be resolved completely.
+	 */
+	private int[][] ancestors;
+	private int[][] containedEntries;
+	private int[] containedState;
+
+	/**
+	 * @param interproDb
+	 *            - must not be modified while the closures are computed
+	 */
+	public InterproHierarchy(Map<String, InterproResult> interproDb) {
+		super();
+		this.interproDb = interproDb;
+		this.entries = interproDb.values().toArray(new InterproResult[interproDb.size()]);
+		this.indexOfId = new HashMap<String, Integer>();
+		for (int i = 0; i < this.entries.length; i++) {
+			this.indexOfId.put(this.entries[i].getId(), i);
+			this.entries[i].setHierarchyIndex(this, i);
+		}
+		this.ancestors = new int[this.entries.length][];
+		this.containedEntries = new int[this.entries.length][];
+		this.containedState = new int[this.entries.length];
+		for (int i = 0; i < this.entries.length; i++) {
+			this.ancestors[i] = ancestors(i);
+			containedEntries(i);
+		}
+		this.containedState = null;
+	}
+
+	/**
+	 * Follows the parents of the argument entry up to the root.
+	 *
+	 * @return The sorted ancestors, or <code>null</code> if a parent is
+	 *         missing or the parents form a cycle.
+	 */
+	private int[] ancestors(int entry) {
+		int[] found = new int[4];
+		int n = 0;
+		String parentId = this.entries[entry].getParentId();
+		while (parentId != null) {
+			Integer parent = this.indexOfId.get(parentId);
+			if (parent == null || parent == entry || contains(found, n, parent))
+				return null;
+			if (n == found.length)
+				found = Arrays.copyOf(found, 2 * n);
+			found[n++] = parent;
+			parentId = this.entries[parent].getParentId();
+		}
+		found = Arrays.copyOf(found, n);
+		Arrays.sort(found);
+		return found;
+	}
+
+	private static boolean contains(int[] values, int length, int value) {
+		for (int i = 0; i < length; i++) {
+			if (values[i] == value)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Collects the entries contained in the argument entry, and recursively
+	 * those contained in them.
+	 *
+	 * @return The sorted contained entries, or <code>null</code> if one of
+	 *         them is missing or the containments form a cycle.
+	 */
+	private int[] containedEntries(int entry) {
+		if (this.containedState[entry] == DONE)
+			return this.containedEntries[entry];
+		if (this.containedState[entry] == IN_PROGRESS)
+			return null;
+		this.containedState[entry] = IN_PROGRESS;
+		int[] found = new int[0];
+		for (String containedId : this.entries[entry].getContains()) {
+			Integer contained = this.indexOfId.get(containedId);
+			int[] transitive = contained == null ? null : containedEntries(contained);
+			if (transitive == null) {
+				found = null;
+				break;
+			}
+			found = union(found, transitive, contained);
+		}
+		this.containedEntries[entry] = found;
+		this.containedState[entry] = DONE;
+		return found;
+	}
+
+	/**
+	 * @return The sorted union of the argument sorted arrays and the argument
+	 *         value.
+	 */
+	private static int[] union(int[] a, int[] b, int value) {
+		int[] union = new int[a.length + b.length + 1];
+		int i = 0, j = 0, n = 0;
+		boolean valueAdded = false;
+		while (i < a.length || j < b.length || !valueAdded) {
+			int next = Integer.MAX_VALUE;
+			if (i < a.length)
+				next = a[i];
+			if (j < b.length)
+				next = Math.min(next, b[j]);
+			if (!valueAdded)
+				next = Math.min(next, value);
+			if (i < a.length && a[i] == next)
+				i++;
+			if (j < b.length && b[j] == next)
+				j++;
+			if (!valueAdded && value == next)
+				valueAdded = true;
+			union[n++] = next;
+		}
+		return n == union.length ? union : Arrays.copyOf(union, n);
+	}
+
+	/**
+	 * @return The number of the argument entry, if it is the very entry this
+	 *         hierarchy has been computed for, otherwise -1.
+	 */
+	private int indexOf(InterproResult ipr) {
+		return ipr.getHierarchy() == this ? ipr.getHierarchyIndex() : -1;
+	}
+
+	/**
+	 * @return The number of the entry of the same ID as the argument one, or
+	 *         -1 if there is none.
+	 */
+	private int indexOfId(InterproResult ipr) {
+		if (ipr.getHierarchy() == this)
+			return ipr.getHierarchyIndex();
+		Integer index = this.indexOfId.get(ipr.getId());
+		return index != null ? index : -1;
+	}
+
+	/**
+	 * @param interproDb
+	 * @return TRUE if and only if this hierarchy has been computed for the
+	 *         argument memory database.
+	 */
+	public boolean isHierarchyOf(Map<String, InterproResult> interproDb) {
+		return this.interproDb == interproDb;
+	}
+
+	/**
+	 * @param ipr
+	 * @return TRUE if and only if the ancestors of the argument entry are
+	 *         known, see <code>isAncestor</code>.
+	 */
+	public boolean hasAncestors(InterproResult ipr) {
+		int index = indexOf(ipr);
+		return index >= 0 && this.ancestors[index] != null;
+	}
+
+	/**
+	 * @param ipr
+	 *            - must have known ancestors, see <code>hasAncestors</code>
+	 * @param ancestor
+	 * @return TRUE if and only if the entry of the argument's ID is an
+	 *         ancestor of the argument entry.
+	 */
+	public boolean isAncestor(InterproResult ipr, InterproResult ancestor) {
+		int index = indexOfId(ancestor);
+		return index >= 0 && Arrays.binarySearch(this.ancestors[indexOf(ipr)], index) >= 0;
+	}
+
+	/**
+	 * @param ipr
+	 * @return TRUE if and only if the recursively contained entries of the
+	 *         argument entry are known, see <code>isContained</code>.
+	 */
+	public boolean hasContainedEntries(InterproResult ipr) {
+		int index = indexOf(ipr);
+		return index >= 0 && this.containedEntries[index] != null;
+	}
+
+	/**
+	 * @param ipr
+	 *            - must have known contained entries, see
+	 *            <code>hasContainedEntries</code>
+	 * @param contained
+	 * @return TRUE if and only if the entry of the argument's ID is contained
+	 *         in the argument entry, or recursively in one of its contained
+	 *         entries.
+	 */
+	public boolean isContained(InterproResult ipr, InterproResult contained) {
+		int index = indexOfId(contained);
+		return index >= 0 && Arrays.binarySearch(this.containedEntries[indexOf(ipr)], index) >= 0;
+	}
+
+}
@@ -2,25 +2,33 @@ package ahrd.model;
 
 import static ahrd.controller.Settings.getSettings;
 import java.io.BufferedInputStream;
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-import nu.xom.Attribute;
-import nu.xom.Builder;
-import nu.xom.Document;
-import nu.xom.Element;
-import nu.xom.Nodes;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
 import nu.xom.ParsingException;
 
+import ahrd.controller.Settings;
+import ahrd.controller.Utils;
 import ahrd.exception.MissingProteinException;
 import ahrd.exception.MissingInterproResultException;
 
@@ -37,8 +45,21 @@ public class InterproResult implements Comparable<InterproResult> {
 	private String type;
 	private String parentId;
 	private Set<String> contains = new HashSet<String>();
+	/**
+	 * The InterproHierarchy this entry has been numbered by, and its number.
+	 */
+	private InterproHierarchy hierarchy;
+	private int hierarchyIndex;
 
-	private static Map<String, InterproResult> interproDb = new HashMap<String, InterproResult>();
+	/**
+	 * Read concurrently, if the Proteins are annotated in parallel.
+	 */
+	private static Map<String, InterproResult> interproDb = new ConcurrentHashMap<String, InterproResult>();
+	/**
+	 * Computed once the memory database has been loaded, see
+	 * <code>initialiseInterproHierarchy</code>.
+	 */
+	private static volatile InterproHierarchy interproHierarchy;
 
 	public InterproResult(String id, String shortName, String type) {
 		super();
@@ -47,118 +68,457 @@ public class InterproResult implements Comparable<InterproResult> {
 		setType(type);
 	}
 
-	private static String getAttributeValue(Element element,
-			String attributeName) {
-		String attrVal = "";
-		Attribute attr = element.getAttribute(attributeName);
-		if (attr != null)
-			attrVal = attr.getValue();
-		// else
-		// element.getLocalName() +
-		// "' does not have Attribute '" +
-		// attributeName + "'!"
-		// );
-		return attrVal;
-	}
-
-	private static String retrieveContentOfFirstChildElement(Element element,
-			String xpathQuery) {
-		String res = null;
-		Nodes resultNodes = element.query(xpathQuery);
-		if (resultNodes.size() > 0) {
-			res = resultNodes.get(0).getValue();
-		}
-		return res;
+	/**
+	 * @return The value of the argument attribute of the current element, or
+	 *         the empty String, if it has no such attribute.
+	 */
+	private static String getAttributeValue(XMLStreamReader xml, String attributeName) {
+		String attrVal = xml.getAttributeValue(null, attributeName);
+		return attrVal != null ? attrVal : "";
 	}
 
+	/**
+	 * Loads all entries of the InterPro database in XML format into the
+	 * memory database. The XML is streamed in a single forward pass, so that
+	 * only the entries, but never the whole document, are held in memory.
+	 * 
+	 * @throws IOException
+	 * @throws ParsingException
+	 *             - If the InterPro database is not well-formed XML.
+	 */
 	public static void initialiseInterproDb() throws IOException,
 			ParsingException {
-		Builder parser = new Builder();
-		Document doc = parser.build(new BufferedInputStream(
-				new FileInputStream(new File(getSettings()
-						.getPathToInterproDatabase()))));
-		Nodes ipr_nodes = doc.query("//interpro");
-		for (int i = 0; i < ipr_nodes.size(); i++) {
-			Element ipr_el = (Element) ipr_nodes.get(i);
-			InterproResult ipr = new InterproResult(getAttributeValue(ipr_el,
-					"id"), getAttributeValue(ipr_el, "short_name"),
-					getAttributeValue(ipr_el, "type"));
-			ipr.setName(retrieveContentOfFirstChildElement(ipr_el, "name"));
-			// Retrieve Parent-Id:
-			Nodes resultNodes = ipr_el.query("parent_list");
-			if (resultNodes.size() > 0) {
-				resultNodes = resultNodes.get(0).query("rel_ref");
-				if (resultNodes.size() > 0) {
-					Attribute relRefAttr = ((Element) resultNodes.get(0))
-							.getAttribute("ipr_ref");
-					if (relRefAttr != null)
-						ipr.setParentId(relRefAttr.getValue());
+		initialiseInterproDb(null);
+	}
+
+	/**
+	 * Loads only the argument entries of the InterPro database, e.g. those
+	 * referenced in the InterPro results, see <code>parseInterproIds</code>,
+	 * together with all entries they refer to as parent or as contained
+	 * entry, recursively. As the references may point backwards and forwards
+	 * in the database, the XML is streamed twice: The first pass keeps only
+	 * the references of every entry, from which the referenced entries are
+	 * determined. The second pass reads only these entries in full.
+	 * 
+	 * @param interproIds
+	 *            - If <code>null</code> all entries are loaded.
+	 * @throws IOException
+	 * @throws ParsingException
+	 *             - If the InterPro database is not well-formed XML.
+	 */
+	public static void initialiseInterproDb(Set<String> interproIds)
+			throws IOException, ParsingException {
+		Set<String> referencedIds = null;
+		if (interproIds != null) {
+			Map<String, String[]> references = new HashMap<String, String[]>();
+			streamInterproDb(null, references);
+			referencedIds = referencedEntries(references, interproIds);
+		}
+		streamInterproDb(referencedIds, null);
+		initialiseInterproHierarchy();
+	}
+
+	/**
+	 * Streams the InterPro database in XML format in a single forward pass,
+	 * so that never the whole document is held in memory.
+	 * 
+	 * @param interproIds
+	 *            - The entries to add to the memory database, or
+	 *            <code>null</code> for all entries
+	 * @param references
+	 *            - If not <code>null</code>, the IDs of each entry's parent,
+	 *            or <code>null</code>, and contained entries are put into
+	 *            this Map instead of adding any entry to the memory database
+	 * @throws IOException
+	 * @throws ParsingException
+	 */
+	private static void streamInterproDb(Set<String> interproIds,
+			Map<String, String[]> references) throws IOException,
+			ParsingException {
+		String pathToInterproDb = getSettings().getPathToInterproDatabase();
+		InputStream in = new BufferedInputStream(new FileInputStream(new File(
+				pathToInterproDb)));
+		XMLStreamReader xml = null;
+		try {
+			XMLInputFactory factory = XMLInputFactory.newInstance();
+			// The document type definition is not needed to read the entries:
+			factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+			xml = factory.createXMLStreamReader(in);
+			while (xml.hasNext()) {
+				if (xml.next() == XMLStreamConstants.START_ELEMENT
+						&& xml.getLocalName().equals("interpro")) {
+					if (references != null) {
+						InterproResult ipr = parseInterproElement(xml, false);
+						references.put(ipr.getId(), references(ipr));
+					} else if (interproIds == null
+							|| interproIds.contains(getAttributeValue(xml, "id"))) {
+						InterproResult ipr = parseInterproElement(xml, true);
+						// Add new InterproResult to the
+						// Interpro-Memory-Database:
+						getInterproDb().put(ipr.getId(), ipr);
+					} else {
+						skipElement(xml);
+					}
 				}
 			}
-			// Initialise contained InterproResults:
-			resultNodes = ipr_el.query("contains");
-			if (resultNodes.size() > 0) {
-				resultNodes = ((Element) resultNodes.get(0)).query("rel_ref");
-				if (resultNodes.size() > 0) {
-					for (int j = 0; j < resultNodes.size(); j++) {
-						Element relRefElmnt = (Element) resultNodes.get(j);
-						Attribute relRefAttr = relRefElmnt
-								.getAttribute("ipr_ref");
-						if (relRefAttr != null) {
-							ipr.getContains().add(relRefAttr.getValue());
-						}
+		} catch (XMLStreamException e) {
+			Location location = e.getLocation();
+			throw new ParsingException(e.getMessage(), pathToInterproDb,
+					location != null ? location.getLineNumber() : -1,
+					location != null ? location.getColumnNumber() : -1, e);
+		} finally {
+			try {
+				if (xml != null)
+					xml.close();
+			} catch (XMLStreamException e) {
+				// Nothing left to read
+			}
+			in.close();
+		}
+	}
+
+	/**
+	 * @return The ID of the argument entry's parent, or <code>null</code>,
+	 *         followed by the IDs of its contained entries.
+	 */
+	private static String[] references(InterproResult ipr) {
+		String[] references = new String[1 + ipr.getContains().size()];
+		references[0] = ipr.getParentId();
+		int i = 1;
+		for (String containedId : ipr.getContains())
+			references[i++] = containedId;
+		return references;
+	}
+
+	/**
+	 * Computes the IDs of the argument InterPro entries and recursively of
+	 * all entries they reference as parent or contained entry.
+	 * 
+	 * @param references
+	 *            - The references of all entries of the InterPro database,
+	 *            see <code>references</code>
+	 * @param interproIds
+	 * @return Set of the IDs of all referenced entries in the database
+	 */
+	private static Set<String> referencedEntries(
+			Map<String, String[]> references, Set<String> interproIds) {
+		Set<String> referenced = new HashSet<String>();
+		Deque<String> unvisited = new ArrayDeque<String>(interproIds);
+		while (!unvisited.isEmpty()) {
+			String id = unvisited.pop();
+			String[] refs = references.get(id);
+			if (refs != null && referenced.add(id)) {
+				for (String ref : refs) {
+					if (ref != null)
+						unvisited.push(ref);
+				}
+			}
+		}
+		return referenced;
+	}
+
+	/**
+	 * Reads the current element up to and including its end tag.
+	 * 
+	 * @param xml
+	 *            - positioned at the start of an element
+	 * @throws XMLStreamException
+	 */
+	private static void skipElement(XMLStreamReader xml)
+			throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0) {
+			switch (xml.next()) {
+			case XMLStreamConstants.START_ELEMENT:
+				depth++;
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				depth--;
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Computes the ancestors and contained entries of all entries in the
+	 * memory database, see <code>InterproHierarchy</code>. Needs to be invoked
+	 * again, if the memory database is modified, so that the hierarchy is
+	 * used for the new entries, too.
+	 */
+	public static void initialiseInterproHierarchy() {
+		setInterproHierarchy(new InterproHierarchy(getInterproDb()));
+	}
+
+	/**
+	 * Warns about InterPro results that have been detected not to be in
+	 * InterProScan's tabulator separated format. As detecting the format
+	 * reads the results, callers reading them more than once should call this
+	 * once and pass the format on.
+	 * 
+	 * @return The configured format of the InterPro results, or if none is
+	 *         configured, the detected one.
+	 * @throws IOException
+	 */
+	public static String interproResultFormat() throws IOException {
+		String format = getSettings().getInterproResultFormat();
+		if (format != null)
+			return format;
+		format = InterproResultParser.detectFormat(getSettings()
+				.getPathToInterproResults());
+		if (format.equals(InterproResultParser.REGEX_FORMAT))
+			System.err.println("WARNING: InterPro results '"
+					+ getSettings().getPathToInterproResults()
+					+ "' hold no InterPro IDs in the twelfth tabulator separated column, parsing them with the regular expression. Set '"
+					+ Settings.INTERPRO_RESULT_FORMAT_KEY + ": "
+					+ InterproResultParser.REGEX_FORMAT
+					+ "' to skip this check.");
+		return format;
+	}
+
+	/**
+	 * Reads the IDs of all InterPro entries found in the raw InterPro results
+	 * file, see <code>parseInterproResult</code>.
+	 * 
+	 * @param format
+	 *            - see <code>interproResultFormat()</code>
+	 * @return Set<String> of InterPro IDs
+	 * @throws IOException
+	 */
+	public static Set<String> parseInterproIds(String format)
+			throws IOException {
+		Set<String> interproIds = new HashSet<String>();
+		InterproResultParser parser = new InterproResultParser(getSettings()
+				.getPathToInterproResults(), format);
+		try {
+			while (parser.next())
+				interproIds.add(parser.getInterproId());
+		} finally {
+			parser.close();
+		}
+		return interproIds;
+	}
+
+	/**
+	 * Reads the current 'interpro' element up to and including its end tag.
+	 * Like the InterPro database itself, only the first 'name', the first
+	 * 'rel_ref' of the first 'parent_list', and all 'rel_ref's of the first
+	 * 'contains' child elements are regarded.
+	 * 
+	 * @param xml
+	 *            - positioned at the start of an 'interpro' element
+	 * @param readName
+	 *            - if FALSE, the text of the 'name' element is not read
+	 * @return InterproResult
+	 * @throws XMLStreamException
+	 */
+	private static InterproResult parseInterproElement(XMLStreamReader xml,
+			boolean readName) throws XMLStreamException {
+		InterproResult ipr = new InterproResult(getAttributeValue(xml, "id"),
+				getAttributeValue(xml, "short_name"), getAttributeValue(xml,
+						"type"));
+		// Child elements of the 'interpro' element are at depth two:
+		int depth = 1;
+		String child = null;
+		StringBuilder name = null;
+		boolean nameRead = false, parentListRead = false, containsRead = false;
+		boolean parentRelRefRead = false;
+		while (depth > 0) {
+			switch (xml.next()) {
+			case XMLStreamConstants.START_ELEMENT:
+				depth++;
+				String localName = xml.getLocalName();
+				if (depth == 2) {
+					child = null;
+					if (localName.equals("name") && !nameRead && readName) {
+						child = localName;
+						name = new StringBuilder();
+					} else if (localName.equals("parent_list")
+							&& !parentListRead) {
+						child = localName;
+					} else if (localName.equals("contains") && !containsRead) {
+						child = localName;
 					}
+				} else if (depth == 3 && localName.equals("rel_ref")) {
+					String relRef = xml.getAttributeValue(null, "ipr_ref");
+					if ("parent_list".equals(child) && !parentRelRefRead) {
+						parentRelRefRead = true;
+						if (relRef != null)
+							ipr.setParentId(relRef);
+					} else if ("contains".equals(child) && relRef != null) {
+						ipr.getContains().add(relRef);
+					}
+				}
+				break;
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+			case XMLStreamConstants.SPACE:
+				if ("name".equals(child))
+					name.append(xml.getText());
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				if (depth == 2 && child != null) {
+					if (child.equals("name")) {
+						nameRead = true;
+						ipr.setName(name.toString());
+					} else if (child.equals("parent_list")) {
+						parentListRead = true;
+					} else {
+						containsRead = true;
+					}
+					child = null;
 				}
+				depth--;
+				break;
 			}
-			// Add new InterproResult to the Interpro-Memory-Database:
-			getInterproDb().put(ipr.getId(), ipr);
 		}
+		return ipr;
 	}
 
 	/**
 	 * Reads in a raw Interpro-Result-File and assigns iteratively
 	 * InterproResult-instances to the Proteins, specified by their
-	 * Gene-Accessions.
+	 * Gene-Accessions. See <code>InterproResultParser</code> for the supported
+	 * formats. Large files are parsed in parallel, if AHRD is configured to
+	 * use more than one parser thread.
 	 * 
 	 * @param proteinDb
 	 * @throws IOException
 	 */
 	public static void parseInterproResult(Map<String, Protein> proteinDb)
 			throws IOException, MissingProteinException {
-		Set<String> missingInterproIds = new HashSet<String>();
+		parseInterproResult(proteinDb, interproResultFormat());
+	}
+
+	/**
+	 * Parses the raw InterPro results in the argument format, see
+	 * <code>interproResultFormat()</code>, as explained above.
+	 * 
+	 * @param proteinDb
+	 * @param format
+	 * @throws IOException
+	 */
+	public static void parseInterproResult(Map<String, Protein> proteinDb,
+			String format) throws IOException, MissingProteinException {
+		int threads = getSettings().getParserThreads();
+		long size = new File(getSettings().getPathToInterproResults())
+				.length();
+		int nChunks = (int) Math.max(1,
+				Math.min(threads, size / BlastResult.MIN_PARSER_CHUNK_SIZE));
+		parseInterproResult(proteinDb, nChunks, format);
+	}
 
-		BufferedReader br = new BufferedReader(new FileReader(new File(
-				getSettings().getPathToInterproResults())));
-		String iterLine = null;
-		while ((iterLine = br.readLine()) != null) {
-			Pattern p = Pattern.compile("(\\S+)\\s+.*\\s(IPR\\d{6})\\s.*");
-			Matcher m = p.matcher(iterLine);
-			if (m.matches()) {
-				String geneAcc = m.group(1);
-				String iprId = m.group(2);
-				if (geneAcc != null && iprId != null && !geneAcc.equals("")
-						&& !iprId.equals("")) {
-					if (proteinDb.containsKey(geneAcc)) {
-						Protein prot = proteinDb.get(geneAcc);
-						InterproResult ipr = null;
-						// WARN, if an Interpro-Result is not found in the
-						// memory-database:
-						if (getInterproDb().containsKey(iprId))
-							ipr = getInterproDb().get(iprId);
-						else
-							missingInterproIds.add(iprId);
-						if (prot != null && ipr != null) {
-							prot.getInterproResults().add(ipr);
+	/**
+	 * Parses the raw InterPro results as explained above. If the argument
+	 * number of chunks is greater than one, the file is split into as many
+	 * ranges of lines, which are parsed in parallel. Each range's
+	 * InterproResults are then assigned to the Proteins in the order of the
+	 * ranges, which results in exactly the same assignments as parsing the
+	 * file sequentially.
+	 * 
+	 * @param proteinDb
+	 * @param nChunks
+	 * @param format
+	 *            - see <code>interproResultFormat()</code>
+	 * @throws IOException
+	 */
+	public static void parseInterproResult(final Map<String, Protein> proteinDb,
+			int nChunks, final String format) throws IOException,
+			MissingProteinException {
+		final String path = getSettings().getPathToInterproResults();
+		Set<String> missingInterproIds = new HashSet<String>();
+		if (nChunks <= 1) {
+			ProteinInterproResults assigned = new ProteinInterproResults();
+			parseInterproResult(new InterproResultParser(path, format),
+					proteinDb, assigned);
+			assigned.assign(missingInterproIds);
+		} else {
+			final long[] boundaries = LineRangeReader.chunkBoundaries(
+					path, nChunks);
+			List<Future<ProteinInterproResults>> chunks = new ArrayList<Future<ProteinInterproResults>>();
+			ExecutorService pool = Utils.parserPool(nChunks);
+			try {
+				for (int i = 0; i < nChunks; i++) {
+					final long start = boundaries[i];
+					final long end = boundaries[i + 1];
+					chunks.add(pool.submit(new Callable<ProteinInterproResults>() {
+						public ProteinInterproResults call() throws Exception {
+							ProteinInterproResults chunkAssigned = new ProteinInterproResults();
+							parseInterproResult(new InterproResultParser(path,
+									start, end, format), proteinDb,
+									chunkAssigned);
+							return chunkAssigned;
 						}
-					}
+					}));
 				}
+				// Assign in the order of the chunks, as if the file had been
+				// read sequentially:
+				for (Future<ProteinInterproResults> chunk : chunks) {
+					Utils.await(chunk,
+							"Interrupted while parsing InterPro results.").assign(
+							missingInterproIds);
+				}
+			} finally {
+				Utils.releaseParserPool(pool, chunks);
 			}
 		}
 		if (missingInterproIds.size() > 0)
 			System.err
 					.println("Could not find the following Interpro_IDs in Database:\n"
 							+ missingInterproIds);
-		br.close();
+	}
+
+	/**
+	 * Reads all lines provided by the argument parser, looks up the Proteins
+	 * and InterproResults, and closes the parser. Neither the Proteins nor the
+	 * memory database are modified, so that this can be done concurrently.
+	 */
+	private static void parseInterproResult(InterproResultParser parser,
+			Map<String, Protein> proteinDb, ProteinInterproResults assigned)
+			throws IOException {
+		Map<String, InterproResult> interproDb = getInterproDb();
+		try {
+			while (parser.next()) {
+				Protein prot = proteinDb.get(parser.getProteinAccession());
+				if (prot != null) {
+					String iprId = parser.getInterproId();
+					InterproResult ipr = interproDb.get(iprId);
+					// WARN, if an Interpro-Result is not found in the
+					// memory-database:
+					if (ipr == null)
+						assigned.missingInterproIds.add(iprId);
+					else
+						assigned.add(prot, ipr);
+				}
+			}
+		} finally {
+			parser.close();
+		}
+	}
+
+	/**
+	 * The InterproResults found for Proteins in a range of raw InterPro
+	 * results, in the order they have been read.
+	 */
+	private static class ProteinInterproResults {
+		private List<Protein> proteins = new ArrayList<Protein>();
+		private List<InterproResult> interproResults = new ArrayList<InterproResult>();
+		private Set<String> missingInterproIds = new HashSet<String>();
+
+		private void add(Protein prot, InterproResult ipr) {
+			this.proteins.add(prot);
+			this.interproResults.add(ipr);
+		}
+
+		/**
+		 * Assigns the InterproResults to their Proteins.
+		 */
+		private void assign(Set<String> missingInterproIds) {
+			for (int i = 0; i < this.proteins.size(); i++) {
+				this.proteins.get(i).getInterproResults()
+						.add(this.interproResults.get(i));
+			}
+			missingInterproIds.addAll(this.missingInterproIds);
+		}
 	}
 
 	public static Map<String, InterproResult> getInterproDb() {
@@ -169,22 +529,38 @@ public class InterproResult implements Comparable<InterproResult> {
 		InterproResult.interproDb = interproDb;
 	}
 
+	public static InterproHierarchy getInterproHierarchy() {
+		return interproHierarchy;
+	}
+
+	public static void setInterproHierarchy(InterproHierarchy interproHierarchy) {
+		InterproResult.interproHierarchy = interproHierarchy;
+	}
+
+	/**
+	 * @return The hierarchy of the current memory database, or
+	 *         <code>null</code> if it has not been computed.
+	 */
+	private static InterproHierarchy currentInterproHierarchy() {
+		InterproHierarchy hierarchy = getInterproHierarchy();
+		return hierarchy != null && hierarchy.isHierarchyOf(getInterproDb()) ? hierarchy : null;
+	}
+
 	/**
 	 * Filters out all those Protein's InterproResults, who are parents of or
-	 * contained by any other of the protein's InterproResults. Unfortunately
-	 * this is of O(n^2)!
+	 * contained by any other of the protein's InterproResults. Although this
+	 * is of O(n^2), each check is a mere look up in the precomputed
+	 * InterproHierarchy.
 	 */
 	public static void filterForMostInforming(Protein p)
 			throws MissingInterproResultException {
 		Set<InterproResult> mostInformatives = new HashSet<InterproResult>(p
 				.getInterproResults());
 		for (InterproResult iprToValidate : p.getInterproResults()) {
-			Set<InterproResult> iprsToCompare = new HashSet<InterproResult>(p
-					.getInterproResults());
-			iprsToCompare.remove(iprToValidate);
-			for (InterproResult iprToCompare : iprsToCompare) {
-				if (iprToValidate.isParent(iprToCompare)
-						|| iprToCompare.contains(iprToValidate))
+			for (InterproResult iprToCompare : p.getInterproResults()) {
+				if (iprToCompare != iprToValidate
+						&& (iprToValidate.isParent(iprToCompare) || iprToCompare
+								.contains(iprToValidate)))
 					mostInformatives.remove(iprToValidate);
 			}
 		}
@@ -197,6 +573,9 @@ public class InterproResult implements Comparable<InterproResult> {
 
 	public boolean contains(InterproResult container)
 			throws MissingInterproResultException {
+		InterproHierarchy hierarchy = currentInterproHierarchy();
+		if (hierarchy != null && hierarchy.hasContainedEntries(this))
+			return hierarchy.isContained(this, container);
 		boolean isContained = false;
 		if (getInterproDb().containsKey(container.getId())) {
 			isContained = this.getContains().contains(container.getId());
@@ -225,6 +604,9 @@ public class InterproResult implements Comparable<InterproResult> {
 	 */
 	public boolean isParent(InterproResult parent)
 			throws MissingInterproResultException {
+		InterproHierarchy hierarchy = currentInterproHierarchy();
+		if (hierarchy != null && hierarchy.hasAncestors(this))
+			return hierarchy.isAncestor(this, parent);
 		boolean isParent = false;
 		if (getInterproDb().containsKey(parent.getId())) {
 			isParent = getParentId() != null
@@ -243,6 +625,19 @@ public class InterproResult implements Comparable<InterproResult> {
 		return isParent;
 	}
 
+	InterproHierarchy getHierarchy() {
+		return hierarchy;
+	}
+
+	int getHierarchyIndex() {
+		return hierarchyIndex;
+	}
+
+	void setHierarchyIndex(InterproHierarchy hierarchy, int hierarchyIndex) {
+		this.hierarchy = hierarchy;
+		this.hierarchyIndex = hierarchyIndex;
+	}
+
 	/**
 	 * Get id.
 	 * 
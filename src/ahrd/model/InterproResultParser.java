@@ -0,0 +1,248 @@
+package ahrd.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the Protein accessions and InterPro IDs from raw InterPro results
+ * line by line directly from the bytes of the file.
+ *
+ * In the tabulator separated format written by InterProScan, the Protein
+ * accession is held in the first, and the InterPro ID in the twelfth column.
+ * Both are located by counting tabulators, and lines without an InterPro ID in
+ * the twelfth column, like those of analyses not integrated into InterPro, are
+ * skipped without creating any String. As InterPro results are grouped by
+ * Protein, the Protein accession of the preceding line is re-used whenever it
+ * is the same.
+ *
+ * Results in other formats are read using the regular expression
+ * <code>INTERPRO_RESULT_LINE_REGEX</code>, just as AHRD always did: The first
+ * word of a line is taken as Protein accession and the last InterPro ID
+ * surrounded by white space as InterPro ID.
+ *
+ * Usage:
+ *
+ * <pre>
+ * InterproResultParser p = new InterproResultParser(path, InterproResultParser.TSV_FORMAT);
+ * while (p.next()) {
+ * 	p.getProteinAccession();
+ * 	p.getInterproId();
+ * }
+ * p.close();
+ * </pre>
+ *
+ * Instances are not thread-safe.
+ *
+ * @author hallab, klee
+ */
+public class InterproResultParser implements Closeable {
+
+	public static final String TSV_FORMAT = "tsv";
+	public static final String REGEX_FORMAT = "regex";
+	public static final Pattern INTERPRO_RESULT_LINE_REGEX = Pattern.compile("(\\S+)\\s+.*\\s(IPR\\d{6})\\s.*");
+	public static final int PROTEIN_ACCESSION_COL = 0;
+	public static final int INTERPRO_ID_COL = 11;
+	private static final int INTERPRO_ID_LENGTH = 9;
+
+	private LineRangeReader reader;
+	private Charset charset = Charset.defaultCharset();
+	private boolean tsv;
+	private Matcher lineMatcher;
+
+	/**
+	 * The buffer holding the current line, and the line's start and end in it.
+	 */
+	private byte[] buffer;
+	private int lineStart;
+	private int lineEnd;
+
+	private byte[] lastProteinAccessionBytes = new byte[0];
+	private String proteinAccession;
+	private String interproId;
+
+	/**
+	 * Parses the whole file.
+	 *
+	 * @param pathToInterproResults
+	 * @param format
+	 *            - <code>TSV_FORMAT</code> or <code>REGEX_FORMAT</code>
+	 * @throws IOException
+	 */
+	public InterproResultParser(String pathToInterproResults, String format) throws IOException {
+		this(pathToInterproResults, 0, Long.MAX_VALUE, format);
+	}
+
+	/**
+	 * Parses only those lines of the file that start within the argument range
+	 * of bytes. Hence, splitting a file at arbitrary positions into
+	 * consecutive ranges, see
+	 * <code>LineRangeReader.chunkBoundaries</code>,
+	 * and parsing each with its own instance, reads each line exactly once.
+	 *
+	 * @param pathToInterproResults
+	 * @param start
+	 *            - inclusive
+	 * @param end
+	 *            - exclusive
+	 * @param format
+	 *            - <code>TSV_FORMAT</code> or <code>REGEX_FORMAT</code>
+	 * @throws IOException
+	 */
+	public InterproResultParser(String pathToInterproResults, long start, long end, String format)
+			throws IOException {
+		super();
+		if (TSV_FORMAT.equals(format))
+			this.tsv = true;
+		else if (REGEX_FORMAT.equals(format))
+			this.lineMatcher = INTERPRO_RESULT_LINE_REGEX.matcher("");
+		else
+			throw new IllegalArgumentException("Unknown format '" + format + "' of InterPro results. Use '"
+					+ TSV_FORMAT + "' or '" + REGEX_FORMAT + "'.");
+		this.reader = new LineRangeReader(pathToInterproResults, start, end);
+	}
+
+	/**
+	 * Detects the format of the argument InterPro results: If the tabulator
+	 * separated columns yield at least one InterPro ID, the results are in
+	 * <code>TSV_FORMAT</code>. Otherwise, if the regular expression matches at
+	 * least one line, they are in <code>REGEX_FORMAT</code>, so that results
+	 * AHRD has always parsed are still parsed the same way. Results without
+	 * any InterPro ID are considered to be in <code>TSV_FORMAT</code>.
+	 *
+	 * @param pathToInterproResults
+	 * @return <code>TSV_FORMAT</code> or <code>REGEX_FORMAT</code>
+	 * @throws IOException
+	 */
+	public static String detectFormat(String pathToInterproResults) throws IOException {
+		String[] formats = { TSV_FORMAT, REGEX_FORMAT };
+		for (String format : formats) {
+			InterproResultParser parser = new InterproResultParser(pathToInterproResults, format);
+			try {
+				if (parser.next())
+					return format;
+			} finally {
+				parser.close();
+			}
+		}
+		return TSV_FORMAT;
+	}
+
+	/**
+	 * Advances to the next line holding an InterPro ID.
+	 *
+	 * @return <code>true</code> if a line has been read, <code>false</code>
+	 *         if there are no further lines.
+	 * @throws IOException
+	 */
+	public boolean next() throws IOException {
+		while (readLine()) {
+			if (this.tsv ? parseColumns() : matchLine())
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Locates the Protein accession and InterPro ID columns of the current
+	 * line.
+	 *
+	 * @return <code>true</code> if and only if the current line holds an
+	 *         InterPro ID in the respective column.
+	 */
+	private boolean parseColumns() {
+		int col = 0;
+		int colStart = this.lineStart;
+		int accessionEnd = -1;
+		for (int i = this.lineStart; i <= this.lineEnd; i++) {
+			if (i == this.lineEnd || this.buffer[i] == '\t') {
+				if (col == PROTEIN_ACCESSION_COL) {
+					accessionEnd = i;
+				} else if (col == INTERPRO_ID_COL) {
+					if (!isInterproId(colStart, i) || accessionEnd == this.lineStart)
+						return false;
+					this.proteinAccession = proteinAccession(this.lineStart, accessionEnd);
+					this.interproId = new String(this.buffer, colStart, INTERPRO_ID_LENGTH, this.charset);
+					return true;
+				}
+				col++;
+				colStart = i + 1;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return <code>true</code> if and only if the argument bytes are an
+	 *         InterPro ID, i.e. 'IPR' followed by six digits.
+	 */
+	private boolean isInterproId(int from, int to) {
+		if (to - from != INTERPRO_ID_LENGTH || this.buffer[from] != 'I' || this.buffer[from + 1] != 'P'
+				|| this.buffer[from + 2] != 'R')
+			return false;
+		for (int i = from + 3; i < to; i++) {
+			if (this.buffer[i] < '0' || this.buffer[i] > '9')
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return The Protein accession held in the argument bytes, which is the
+	 *         preceding line's one, if the bytes are the same.
+	 */
+	private String proteinAccession(int from, int to) {
+		int len = to - from;
+		boolean same = len == this.lastProteinAccessionBytes.length;
+		for (int i = 0; same && i < len; i++)
+			same = this.buffer[from + i] == this.lastProteinAccessionBytes[i];
+		if (!same) {
+			this.lastProteinAccessionBytes = Arrays.copyOfRange(this.buffer, from, to);
+			this.proteinAccession = new String(this.lastProteinAccessionBytes, this.charset);
+		}
+		return this.proteinAccession;
+	}
+
+	/**
+	 * Matches the current line against the regular expression
+	 * <code>INTERPRO_RESULT_LINE_REGEX</code>.
+	 *
+	 * @return <code>true</code> if and only if it matches.
+	 */
+	private boolean matchLine() {
+		this.lineMatcher.reset(new String(this.buffer, this.lineStart, this.lineEnd - this.lineStart, this.charset));
+		if (!this.lineMatcher.matches())
+			return false;
+		this.proteinAccession = this.lineMatcher.group(1);
+		this.interproId = this.lineMatcher.group(2);
+		return true;
+	}
+
+	/**
+	 * Sets buffer, lineStart and lineEnd to the next line.
+	 */
+	private boolean readLine() throws IOException {
+		if (!this.reader.readLine())
+			return false;
+		this.buffer = this.reader.getBuffer();
+		this.lineStart = this.reader.getLineStart();
+		this.lineEnd = this.reader.getLineEnd();
+		return true;
+	}
+
+	public String getProteinAccession() {
+		return proteinAccession;
+	}
+
+	public String getInterproId() {
+		return interproId;
+	}
+
+	public void close() throws IOException {
+		this.reader.close();
+	}
+
+}
@@ -0,0 +1,206 @@
+package ahrd.model;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Reads the lines of a file, or of a range of bytes of it, directly into a
+ * byte buffer, without decoding them into Strings. The parsers of tabular
+ * search results, InterPro results and reference GO annotations locate their
+ * columns in the current line's bytes.
+ *
+ * A line belongs to the range it starts in. Hence, splitting a file at
+ * arbitrary positions into consecutive ranges, see
+ * <code>chunkBoundaries</code>, and reading each with its own instance, reads
+ * each line exactly once.
+ *
+ * Usage:
+ *
+ * <pre>
+ * LineRangeReader r = new LineRangeReader(path, start, end);
+ * while (r.readLine()) {
+ * 	r.getBuffer();
+ * 	r.getLineStart();
+ * 	r.getLineEnd();
+ * }
+ * r.close();
+ * </pre>
+ *
+ * Instances are not thread-safe.
+ *
+ * @author hallab, klee
+ */
+public class LineRangeReader implements Closeable {
+
+	public static final int BUFFER_SIZE = 1 << 16;
+
+	private FileChannel channel;
+	private byte[] buffer = new byte[BUFFER_SIZE];
+	private int bufferPos = 0;
+	private int bufferLimit = 0;
+	/**
+	 * Position in the file of the first byte held in <code>buffer</code>.
+	 */
+	private long bufferFilePos;
+	/**
+	 * Lines starting at or after this position in the file are not read.
+	 */
+	private long end;
+	private boolean endOfFile = false;
+
+	/**
+	 * The current line's position in the file, and its start and end in
+	 * <code>buffer</code>.
+	 */
+	private long lineFilePos;
+	private int lineStart;
+	private int lineEnd;
+
+	/**
+	 * Reads the whole file.
+	 *
+	 * @param path
+	 * @throws IOException
+	 */
+	public LineRangeReader(String path) throws IOException {
+		this(path, 0, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Reads only those lines of the file that start within the argument range
+	 * of bytes.
+	 *
+	 * @param path
+	 * @param start
+	 *            - inclusive
+	 * @param end
+	 *            - exclusive
+	 * @throws IOException
+	 */
+	public LineRangeReader(String path, long start, long end) throws IOException {
+		super();
+		this.channel = new FileInputStream(path).getChannel();
+		this.end = end;
+		this.bufferFilePos = start;
+		// A line starting before the range belongs to the preceding one:
+		if (start > 0) {
+			ByteBuffer preceding = ByteBuffer.allocate(1);
+			this.channel.read(preceding, start - 1);
+			if (preceding.get(0) != '\n')
+				readLine();
+		}
+	}
+
+	/**
+	 * Splits the argument file into ranges of roughly equal size. The ranges
+	 * are meant to be read with the above range constructor.
+	 *
+	 * @param path
+	 * @param nChunks
+	 * @return long[] - The <code>nChunks + 1</code> boundaries of the ranges,
+	 *         starting with zero and ending with the file's size.
+	 */
+	public static long[] chunkBoundaries(String path, int nChunks) {
+		long size = new File(path).length();
+		long[] boundaries = new long[nChunks + 1];
+		for (int i = 0; i <= nChunks; i++) {
+			boundaries[i] = size * i / nChunks;
+		}
+		return boundaries;
+	}
+
+	/**
+	 * Advances to the next line, refilling the buffer as needed. The line
+	 * terminator, '\n' or '\r\n', is excluded.
+	 *
+	 * @return <code>true</code> if a line has been read, <code>false</code>
+	 *         if there are no further lines within the range.
+	 * @throws IOException
+	 */
+	public boolean readLine() throws IOException {
+		int nl = -1;
+		while (true) {
+			for (int i = this.bufferPos; i < this.bufferLimit; i++) {
+				if (this.buffer[i] == '\n') {
+					nl = i;
+					break;
+				}
+			}
+			if (nl >= 0 || this.endOfFile)
+				break;
+			fillBuffer();
+		}
+		if (this.bufferPos == this.bufferLimit && nl < 0)
+			return false;
+		this.lineFilePos = this.bufferFilePos + this.bufferPos;
+		if (this.lineFilePos >= this.end)
+			return false;
+		this.lineStart = this.bufferPos;
+		this.lineEnd = nl >= 0 ? nl : this.bufferLimit;
+		this.bufferPos = nl >= 0 ? nl + 1 : this.bufferLimit;
+		if (this.lineEnd > this.lineStart && this.buffer[this.lineEnd - 1] == '\r')
+			this.lineEnd--;
+		return true;
+	}
+
+	/**
+	 * Moves the unread bytes to the start of the buffer, growing it if a
+	 * single line does not fit, and reads further bytes from the channel.
+	 */
+	private void fillBuffer() throws IOException {
+		int unread = this.bufferLimit - this.bufferPos;
+		if (this.bufferPos > 0) {
+			System.arraycopy(this.buffer, this.bufferPos, this.buffer, 0, unread);
+			this.bufferFilePos += this.bufferPos;
+			this.bufferPos = 0;
+			this.bufferLimit = unread;
+		} else if (unread == this.buffer.length) {
+			this.buffer = Arrays.copyOf(this.buffer, this.buffer.length * 2);
+		}
+		ByteBuffer bb = ByteBuffer.wrap(this.buffer, this.bufferLimit, this.buffer.length - this.bufferLimit);
+		int read = this.channel.read(bb, this.bufferFilePos + this.bufferLimit);
+		if (read < 0)
+			this.endOfFile = true;
+		else
+			this.bufferLimit += read;
+	}
+
+	/**
+	 * @return The buffer holding the current line. It may be replaced by a
+	 *         larger one whenever a line is read.
+	 */
+	public byte[] getBuffer() {
+		return buffer;
+	}
+
+	/**
+	 * @return The start (inclusive) of the current line in the buffer.
+	 */
+	public int getLineStart() {
+		return lineStart;
+	}
+
+	/**
+	 * @return The end (exclusive) of the current line in the buffer.
+	 */
+	public int getLineEnd() {
+		return lineEnd;
+	}
+
+	/**
+	 * @return The position in the file at which the current line starts.
+	 */
+	public long getLineFilePos() {
+		return lineFilePos;
+	}
+
+	public void close() throws IOException {
+		this.channel.close();
+	}
+
+}
@@ -0,0 +1,81 @@
+package ahrd.model;
+
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A view on the Protein database, in which each Protein is replaced by a
+ * partial copy of itself, see <code>Protein.partialCopyOf</code>. The partial
+ * copies are created on demand and merely collect the BlastResults of a single
+ * Blast database without measuring any scores. This enables parsing the
+ * results of several Blast databases concurrently, as each Blast database works
+ * on its own partial copies. Once all Blast databases have been parsed, the
+ * partial copies are merged into the real Proteins, one Blast database after
+ * another in a fixed order, see <code>mergeInto</code>. Only then the
+ * contributions to the Token- and Description-Scores are measured, so that
+ * they are summed up in the same order as if the Blast databases had been
+ * parsed one after another.
+ *
+ * Looking up the partial copies is thread-safe, so that the results of a
+ * single Blast database can still be parsed in chunks.
+ *
+ * @author hallab, klee
+ */
+public class PartialProteinDb extends AbstractMap<String, Protein> {
+
+	private Map<String, Protein> proteinDb;
+	private ConcurrentMap<String, Protein> partialProteins = new ConcurrentHashMap<String, Protein>();
+
+	public PartialProteinDb(Map<String, Protein> proteinDb) {
+		super();
+		this.proteinDb = proteinDb;
+	}
+
+	/**
+	 * @return The partial copy of the Protein of argument accession or
+	 *         <code>null</code>, if no such Protein exists.
+	 */
+	@Override
+	public Protein get(Object accession) {
+		Protein partial = this.partialProteins.get(accession);
+		if (partial == null) {
+			Protein protein = this.proteinDb.get(accession);
+			if (protein != null) {
+				partial = Protein.partialCopyOf(protein);
+				Protein present = this.partialProteins.putIfAbsent(protein.getAccession(), partial);
+				if (present != null)
+					partial = present;
+			}
+		}
+		return partial;
+	}
+
+	@Override
+	public boolean containsKey(Object accession) {
+		return this.proteinDb.containsKey(accession);
+	}
+
+	/**
+	 * @return The partial copies created so far.
+	 */
+	@Override
+	public Set<Map.Entry<String, Protein>> entrySet() {
+		return this.partialProteins.entrySet();
+	}
+
+	/**
+	 * Merges the BlastResults of the argument Blast database, collected by the
+	 * partial copies, into the real Proteins and measures their scores.
+	 *
+	 * @param blastDb
+	 */
+	public void mergeInto(String blastDb) {
+		for (Protein partial : this.partialProteins.values()) {
+			this.proteinDb.get(partial.getAccession()).mergeBlastResults(partial, blastDb);
+		}
+	}
+
+}
@@ -0,0 +1,139 @@
+package ahrd.model;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * An immutable list of regular expressions, e.g. a blacklist or a filter,
+ * compiled once. To test whether any of them matches a String, all regular
+ * expressions are additionally compiled into a single alternation, so that the
+ * String is searched in one pass, see <code>matchesAny</code>. Regular
+ * expressions that cannot be safely embedded into an alternation, like those
+ * using back references, quoting or comments, are matched one after another.
+ *
+ * Identical lists of regular expressions, like the same blacklist file used for
+ * several Blast databases, are compiled only once, see <code>valueOf</code>.
+ *
+ * Instances are thread-safe.
+ *
+ * @author hallab, klee
+ */
+public class PatternSet extends AbstractList<String> {
+
+	public static final PatternSet EMPTY = new PatternSet(new ArrayList<String>());
+
+	/**
+	 * Back references, quotes and comments would change their meaning when
+	 * embedded into an alternation.
+	 */
+	private static final Pattern NOT_COMBINABLE = Pattern.compile("\\\\[1-9]|\\\\k<|\\\\Q|\\(\\?[a-zA-Z-]*x");
+	private static final ConcurrentMap<List<String>, PatternSet> compiled = new ConcurrentHashMap<List<String>, PatternSet>();
+
+	private List<String> regexes;
+	private Pattern[] patterns;
+	/**
+	 * The alternation of all regular expressions or <code>null</code>, if they
+	 * have to be matched one after another.
+	 */
+	private Pattern combined;
+
+	private PatternSet(List<String> regexes) {
+		super();
+		this.regexes = Collections.unmodifiableList(new ArrayList<String>(regexes));
+		this.patterns = new Pattern[regexes.size()];
+		StringBuilder alternation = new StringBuilder();
+		boolean combinable = !regexes.isEmpty();
+		for (int i = 0; i < this.patterns.length; i++) {
+			String regex = this.regexes.get(i);
+			this.patterns[i] = Pattern.compile(regex);
+			combinable = combinable && !NOT_COMBINABLE.matcher(regex).find();
+			if (i > 0)
+				alternation.append('|');
+			alternation.append("(?:").append(regex).append(')');
+		}
+		if (combinable) {
+			try {
+				this.combined = Pattern.compile(alternation.toString());
+			} catch (PatternSyntaxException e) {
+				this.combined = null;
+			}
+		}
+	}
+
+	/**
+	 * @param regexes
+	 * @return The argument list itself, if it is a PatternSet, or the compiled
+	 *         PatternSet of the argument regular expressions. Each distinct
+	 *         list of regular expressions is compiled only once.
+	 */
+	public static PatternSet valueOf(List<String> regexes) {
+		if (regexes instanceof PatternSet)
+			return (PatternSet) regexes;
+		if (regexes == null || regexes.isEmpty())
+			return EMPTY;
+		PatternSet patternSet = compiled.get(regexes);
+		if (patternSet == null) {
+			patternSet = new PatternSet(regexes);
+			PatternSet present = compiled.putIfAbsent(patternSet.regexes, patternSet);
+			if (present != null)
+				patternSet = present;
+		}
+		return patternSet;
+	}
+
+	/**
+	 * @param input
+	 * @return TRUE if and only if any of the regular expressions is found in
+	 *         the argument input.
+	 */
+	public boolean matchesAny(CharSequence input) {
+		if (this.combined != null)
+			return this.combined.matcher(input).find();
+		for (Pattern p : this.patterns) {
+			if (p.matcher(input).find())
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Replaces all matches of the first regular expression in the argument
+	 * input, then all matches of the second one in the result, and so on.
+	 *
+	 * @param input
+	 * @param replacement
+	 * @return The modified input
+	 */
+	public String replaceAll(String input, String replacement) {
+		String result = input;
+		for (Pattern p : this.patterns) {
+			result = p.matcher(result).replaceAll(replacement);
+		}
+		return result;
+	}
+
+	public Pattern[] getPatterns() {
+		return patterns.clone();
+	}
+
+	public boolean isCombined() {
+		return combined != null;
+	}
+
+	@Override
+	public String get(int index) {
+		return this.regexes.get(index);
+	}
+
+	@Override
+	public int size() {
+		return this.regexes.size();
+	}
+
+}
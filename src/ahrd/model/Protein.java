@@ -3,6 +3,7 @@ package ahrd.model;
 import static ahrd.controller.Settings.DEFAULT_LINE_SEP;
 import static ahrd.controller.Settings.getSettings;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -21,11 +22,17 @@ public class Protein {
 	private Integer sequenceLength;
 	private Map<String, List<BlastResult>> blastResults;
 	private Set<InterproResult> interproResults = new HashSet<InterproResult>();
-	private Set<String> goResults = new HashSet<String>();
+	private Set<String> goResults = new GoTermSet();
 	private TokenScoreCalculator tokenScoreCalculator;
 	private LexicalScoreCalculator lexicalScoreCalculator;
 	private DescriptionScoreCalculator descriptionScoreCalculator;
 	private EvaluationScoreCalculator evaluationScoreCalculator;
+	/**
+	 * The Protein this partial copy collects BlastResults for, or
+	 * <code>null</code> if this is no partial copy, see
+	 * <code>partialCopyOf</code>.
+	 */
+	private Protein whole;
 
 	public Protein(String accession, Integer sequenceLength) {
 		super();
@@ -60,6 +67,34 @@ public class Protein {
 			setEvaluationScoreCalculator(new EvaluationScoreCalculator(this));
 	}
 
+	/**
+	 * Constructs a partial copy of the argument Protein, see
+	 * <code>partialCopyOf</code>.
+	 */
+	private Protein(Protein whole) {
+		super();
+		this.whole = whole;
+		setAccession(whole.getAccession());
+		setSequenceLength(whole.getSequenceLength());
+		setBlastResults(new HashMap<String, List<BlastResult>>());
+		// Only the unchanged best Blast-Hits are collected for evaluation:
+		if (whole.getEvaluationScoreCalculator() != null)
+			setEvaluationScoreCalculator(new EvaluationScoreCalculator(this));
+	}
+
+	/**
+	 * A partial copy merely collects BlastResults, in HitTables that already
+	 * belong to the argument Protein. It has no Token-, Lexical- or
+	 * Description-Score-Calculator and measures no scores. See
+	 * <code>mergeBlastResults</code> and <code>PartialProteinDb</code>.
+	 * 
+	 * @param whole
+	 * @return Protein
+	 */
+	public static Protein partialCopyOf(Protein whole) {
+		return new Protein(whole);
+	}
+
 	public static List<String> splitFasta(String fastaStr) {
 		List<String> fastaEntries = new ArrayList<String>(
 				Arrays.asList(fastaStr.split("(^|\n|\r)>")));
@@ -70,17 +105,35 @@ public class Protein {
 	public static Protein constructFromFastaEntry(String fastaEntry)
 			throws MissingAccessionException {
 		String[] fasta_data = fastaEntry.split(DEFAULT_LINE_SEP);
-		String accession = fasta_data[0].split(" ")[0];
+		StringBuilder sequence = new StringBuilder();
+		for (int i = 1; i < fasta_data.length; i++) {
+			sequence.append(fasta_data[i].trim());
+		}
+		return constructFromFastaRecord(fasta_data[0], sequence.toString(),
+				sequence.length());
+	}
+
+	/**
+	 * Constructs a Protein from an already split FASTA record. Depending on
+	 * the current Settings either the AA-sequence is stored or just its
+	 * length.
+	 * 
+	 * @param header
+	 *            - The record's header line without the leading '&gt;'
+	 * @param sequence
+	 *            - The AA-sequence, can be <code>null</code> if output is not
+	 *            requested in FASTA format
+	 * @param sequenceLength
+	 * @return Protein
+	 * @throws MissingAccessionException
+	 */
+	public static Protein constructFromFastaRecord(String header,
+			String sequence, int sequenceLength)
+			throws MissingAccessionException {
+		String accession = header.split(" ")[0];
 		if (accession == null || accession.equals("")) {
 			throw new MissingAccessionException(
-					"Missing protein-accession in:\n" + fastaEntry);
-		}
-		String[] sequence_parts = new String[fasta_data.length - 1];
-		System.arraycopy(fasta_data, 1, sequence_parts, 0,
-				fasta_data.length - 1);
-		String sequence = "";
-		for (String sequence_part : sequence_parts) {
-			sequence += sequence_part.trim();
+					"Missing protein-accession in:\n" + header);
 		}
 		// Construct the new Protein, either storing its AA-sequence or just the
 		// sequence's length:
@@ -88,7 +141,7 @@ public class Protein {
 		if (getSettings().doOutputFasta())
 			p = new Protein(accession, sequence);
 		else
-			p = new Protein(accession, sequence.length());
+			p = new Protein(accession, sequenceLength);
 		return p;
 	}
 
@@ -112,6 +165,34 @@ public class Protein {
 		return proteins;
 	}
 
+	/**
+	 * Construct Memory-Database of Proteins reading the FASTA file record by
+	 * record. Only the current record is held in memory, and AA-sequences are
+	 * only built if output is requested in FASTA format.
+	 * 
+	 * @param pathToFasta
+	 * @return Map of Protein-Accessions to Proteins
+	 * @throws IOException
+	 * @throws MissingAccessionException
+	 */
+	public static Map<String, Protein> readProteins(String pathToFasta)
+			throws IOException, MissingAccessionException {
+		Map<String, Protein> proteins = new HashMap<String, Protein>();
+		FastaReader fastaReader = new FastaReader(pathToFasta, getSettings()
+				.doOutputFasta());
+		try {
+			while (fastaReader.next()) {
+				Protein prot = constructFromFastaRecord(
+						fastaReader.getHeader(), fastaReader.getSequence(),
+						fastaReader.getSequenceLength());
+				proteins.put(prot.accession, prot);
+			}
+		} finally {
+			fastaReader.close();
+		}
+		return proteins;
+	}
+
 	/**
 	 * Extracts all unique Gene Ontology (GO) terms annotated to the Proteins in
 	 * argument prots.
@@ -132,16 +213,31 @@ public class Protein {
 	 * total scores later needed to calculate the Token-Scores. Also finds the
 	 * highest BitScore and Description-Line-Frequency. The argument BlastResult
 	 * is expected to have passed Blacklist and Filter and is expected to have
-	 * been token- and patternized.
+	 * been token- and patternized. The BlastResult is copied into this'
+	 * respective HitTable. A partial copy, see <code>partialCopyOf</code>,
+	 * only collects the BlastResult.
 	 * 
 	 * @param BlastResult
 	 */
 	public void addBlastResult(BlastResult br) {
 		String blastDb = br.getBlastDatabaseName();
 		if (!getBlastResults().containsKey(blastDb)) {
-			getBlastResults().put(blastDb, new ArrayList<BlastResult>());
+			getBlastResults().put(blastDb, new HitTable(blastDb, this.whole != null ? this.whole : this));
 		}
 		getBlastResults().get(blastDb).add(br);
+		// The scores of a partial copy's BlastResults are measured once they
+		// are merged:
+		if (this.whole == null)
+			measureScores(br);
+	}
+
+	/**
+	 * Measures the scores of the argument BlastResult explained in
+	 * <code>addBlastResult</code>.
+	 * 
+	 * @param br
+	 */
+	private void measureScores(BlastResult br) {
 		// Measure TokenScore related cumulative Scores:
 		getTokenScoreCalculator().measureCumulativeScores(br);
 		// Measure TokenScore related total Scores:
@@ -150,6 +246,41 @@ public class Protein {
 		getDescriptionScoreCalculator().measureMaxBitScore(br.getBitScore());
 	}
 
+	/**
+	 * Adds the BlastResults of the argument Blast database, that have been
+	 * collected by the argument partial copy of this Protein, to this Protein.
+	 * The partial copy's HitTable is taken over as is, if this Protein has
+	 * none for the Blast database, yet. The scores are measured in the very
+	 * order the BlastResults have been added to the partial copy, so that
+	 * merging the partial copies of all Blast databases, one after another,
+	 * measures exactly the same scores as adding the BlastResults directly.
+	 * See <code>PartialProteinDb</code> for details.
+	 * 
+	 * @param partial
+	 * @param blastDb
+	 */
+	public void mergeBlastResults(Protein partial, String blastDb) {
+		List<BlastResult> collected = partial.getBlastResults().get(blastDb);
+		if (collected != null) {
+			if (!getBlastResults().containsKey(blastDb) && collected instanceof HitTable
+					&& ((HitTable) collected).getProtein() == this) {
+				getBlastResults().put(blastDb, collected);
+			} else {
+				for (BlastResult br : collected) {
+					getBlastResults().get(blastDb).add(br);
+				}
+			}
+			for (BlastResult br : collected) {
+				measureScores(br);
+			}
+		}
+		if (partial.getEvaluationScoreCalculator() != null
+				&& partial.getEvaluationScoreCalculator().getUnchangedBlastResults().containsKey(blastDb)) {
+			getEvaluationScoreCalculator().addUnchangedBlastResult(blastDb,
+					partial.getEvaluationScoreCalculator().getUnchangedBlastResults().get(blastDb));
+		}
+	}
+
 	public String getAccession() {
 		return accession;
 	}
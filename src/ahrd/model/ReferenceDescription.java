@@ -1,12 +1,11 @@
 package ahrd.model;
 
 import static ahrd.controller.Settings.getSettings;
-import java.util.HashSet;
 import java.util.Set;
 
 public class ReferenceDescription {
 
-	private Set<String> tokens = new HashSet<String>();
+	private TokenSet tokens = new TokenSet();
 	private String accession;
 	private String description;
 
@@ -15,14 +14,23 @@ public class ReferenceDescription {
 	}
 
 	public static ReferenceDescription constructFromFastaEntry(String fastaEntry) {
-		ReferenceDescription rd = new ReferenceDescription();
-
 		// First line is a combination of Accession and Description
-		String[] fastaData = fastaEntry.split("\n");
+		return constructFromFastaHeader(fastaEntry.split("\n")[0]);
+	}
+
+	/**
+	 * Constructs the ReferenceDescription from a FASTA header line, i.e. the
+	 * combination of Accession and Description without the leading '&gt;'.
+	 * 
+	 * @param fastaHeader
+	 * @return ReferenceDescription
+	 */
+	public static ReferenceDescription constructFromFastaHeader(String fastaHeader) {
+		ReferenceDescription rd = new ReferenceDescription();
 		// First token before whitespace-char is the Accession
-		rd.setAccession(fastaData[0].split(" ")[0].trim());
+		rd.setAccession(fastaHeader.split(" ")[0].trim());
 		// Everything after the Accession is considered the description-line:
-		rd.setDescription(fastaData[0].replace(rd.getAccession(), "").trim());
+		rd.setDescription(fastaHeader.replace(rd.getAccession(), "").trim());
 		// Process the reference's human readable description as requested by
 		// the user (Settings) -
 		// NOTE, if the HRD passes the Blacklist and no filtering is
@@ -46,12 +54,16 @@ public class ReferenceDescription {
 		return rd;
 	}
 
-	public Set<String> getTokens() {
+	public TokenSet getTokens() {
 		return tokens;
 	}
 
+	/**
+	 * @param tokens
+	 *            - kept as is, if it is a TokenSet, otherwise copied into one
+	 */
 	public void setTokens(Set<String> tokens) {
-		this.tokens = tokens;
+		this.tokens = TokenSet.valueOf(tokens);
 	}
 
 	public String getAccession() {
@@ -2,16 +2,20 @@ package ahrd.model;
 
 import static ahrd.controller.Settings.getSettings;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Matcher;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
+import ahrd.controller.Utils;
+
 public class ReferenceGoAnnotations {
 
 	public static final String SHORT_ACCESSION_GROUP_NAME = "shortAccession";
@@ -23,7 +27,10 @@ public class ReferenceGoAnnotations {
 	 * annotate the query proteins with GO terms. The important restriction is,
 	 * that only those reference GO annotations will be extracted that match one
 	 * of the BlastResults found in the respective Blast searches
-	 * <code>uniqueShortAccessions</code>.
+	 * <code>uniqueShortAccessions</code>. If the GOA file has been indexed,
+	 * see <code>ReferenceGoAnnotationsIndex</code>, the short accessions are
+	 * just looked up. Otherwise large files are parsed in parallel, if AHRD is
+	 * configured to use more than one parser thread.
 	 * 
 	 * @param Set
 	 *            <String> uniqueShortAccessions - The unique short accessions
@@ -34,29 +41,101 @@ public class ReferenceGoAnnotations {
 	 */
 	public static Map<String, Set<String>> parseReferenceGoAnnotations(
 			Set<String> uniqueShortAccessions) throws IOException {
+		// If the GOA file has been indexed, just look up the short accessions:
+		ReferenceGoAnnotationsIndex index = ReferenceGoAnnotationsIndex.open(
+				getSettings().getPathToGeneOntologyResults(), getSettings()
+						.getReferenceGoRegex());
+		if (index != null) {
+			try {
+				return index.lookupAll(uniqueShortAccessions);
+			} finally {
+				index.close();
+			}
+		}
+		int threads = getSettings().getParserThreads();
+		long size = new File(getSettings().getPathToGeneOntologyResults())
+				.length();
+		int nChunks = (int) Math.max(1,
+				Math.min(threads, size / BlastResult.MIN_PARSER_CHUNK_SIZE));
+		return parseReferenceGoAnnotations(uniqueShortAccessions, nChunks);
+	}
+
+	/**
+	 * Parses the reference GO annotations as explained above. If the argument
+	 * number of chunks is greater than one, the file is split into as many
+	 * ranges of lines, which are parsed in parallel and finally merged.
+	 * 
+	 * @param uniqueShortAccessions
+	 * @param nChunks
+	 * @return Map<String, Set<String>> - BlastResult short-accessions mapped to
+	 *         Sets of GO terms
+	 * @throws IOException
+	 */
+	public static Map<String, Set<String>> parseReferenceGoAnnotations(
+			Set<String> uniqueShortAccessions, int nChunks) throws IOException {
+		final String path = getSettings().getPathToGeneOntologyResults();
+		final Pattern p = getSettings().getReferenceGoRegex();
+		final AccessionSet shortAccessions = new AccessionSet(
+				uniqueShortAccessions);
 		Map<String, Set<String>> goa = new HashMap<String, Set<String>>();
-		BufferedReader goaIn = null;
+		if (nChunks <= 1) {
+			parseReferenceGoAnnotations(new ReferenceGoAnnotationsParser(path,
+					shortAccessions, p), goa);
+			GoTermSet.shareIdenticalSets(goa);
+			return goa;
+		}
+		final long[] boundaries = LineRangeReader.chunkBoundaries(
+				path, nChunks);
+		List<Future<Map<String, Set<String>>>> chunks = new ArrayList<Future<Map<String, Set<String>>>>();
+		ExecutorService pool = Utils.parserPool(nChunks);
 		try {
-			goaIn = new BufferedReader(new FileReader(getSettings()
-					.getPathToGeneOntologyResults()));
-			Pattern p = getSettings().getReferenceGoRegex();
-			String line, shortAcc, goTerm = "";
-			while ((line = goaIn.readLine()) != null) {
-				Matcher m = p.matcher(line);
-				if (m.find()) {
-					shortAcc = m.group(SHORT_ACCESSION_GROUP_NAME);
-					if (uniqueShortAccessions.contains(shortAcc)) {
-						goTerm = m.group(GO_TERM_GROUP_NAME);
-						addGoAnnotation(goa, shortAcc, goTerm);
+			for (int i = 0; i < nChunks; i++) {
+				final long start = boundaries[i];
+				final long end = boundaries[i + 1];
+				chunks.add(pool.submit(new Callable<Map<String, Set<String>>>() {
+					public Map<String, Set<String>> call() throws Exception {
+						Map<String, Set<String>> chunkGoa = new HashMap<String, Set<String>>();
+						parseReferenceGoAnnotations(
+								new ReferenceGoAnnotationsParser(path, start,
+										end, shortAccessions, p), chunkGoa);
+						return chunkGoa;
+					}
+				}));
+			}
+			for (Future<Map<String, Set<String>>> chunk : chunks) {
+				for (Map.Entry<String, Set<String>> chunkAnnotations : Utils.await(
+						chunk,
+						"Interrupted while parsing reference Gene Ontology annotations.")
+						.entrySet()) {
+					for (String goTerm : chunkAnnotations.getValue()) {
+						addGoAnnotation(goa, chunkAnnotations.getKey(), goTerm);
 					}
 				}
 			}
 		} finally {
-			goaIn.close();
+			Utils.releaseParserPool(pool, chunks);
 		}
+		GoTermSet.shareIdenticalSets(goa);
 		return goa;
 	}
 
+	/**
+	 * Reads all annotations provided by the argument parser into the argument
+	 * Map and closes the parser.
+	 */
+	private static void parseReferenceGoAnnotations(
+			ReferenceGoAnnotationsParser parser, Map<String, Set<String>> goa)
+			throws IOException {
+		try {
+			while (parser.next()) {
+				addGoAnnotation(goa, parser.getShortAccession(),
+						parser.getGoTerm());
+			}
+		} finally {
+			parser.close();
+		}
+	}
+
 	/**
 	 * Adds the Gene Ontology term <code>goTerm</code> to the Set of the
 	 * BlastResult's GO term annotations. In this, the BlastResult is identified
@@ -69,7 +148,7 @@ public class ReferenceGoAnnotations {
 	protected static void addGoAnnotation(Map<String, Set<String>> goa,
 			String brShortAccession, String goTerm) {
 		if (!goa.containsKey(brShortAccession)) {
-			goa.put(brShortAccession, new HashSet<String>());
+			goa.put(brShortAccession, new GoTermSet());
 		}
 		goa.get(brShortAccession).add(goTerm);
 	}
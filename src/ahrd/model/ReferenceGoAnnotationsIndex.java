@@ -0,0 +1,356 @@
+package ahrd.model;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * A persistent, memory mapped index of reference Gene Ontology term
+ * annotations (GOA). It maps each short accession to its GO terms, both as
+ * extracted by the reference GO regular expression. With a valid index the
+ * GOA file does not have to be parsed, instead only the short accessions of
+ * the Blast Hits are looked up by binary search.
+ *
+ * The index is written once into a file next to the GOA file, see
+ * <code>ahrd.controller.ReferenceGoAnnotationsIndexer</code>. It is only used
+ * as long as size, modification time and a checksum of the GOA file, as well
+ * as the regular expression used to parse it, are unchanged.
+ *
+ * Layout of the index file:
+ * <ol>
+ * <li>Header: magic number, format version, size, modification time and
+ * checksum of the GOA file, number of short accessions, offset of the record
+ * offsets, and the reference GO regular expression</li>
+ * <li>One record per short accession, sorted by the accession's bytes: length
+ * and bytes of the accession, number of GO terms, and for each GO term its
+ * length and bytes. Records never cross the boundary of a mapped
+ * segment.</li>
+ * <li>The offsets of the records, in the same order.</li>
+ * </ol>
+ *
+ * @author hallab, klee
+ */
+public class ReferenceGoAnnotationsIndex {
+
+	public static final String INDEX_FILE_SUFFIX = ".ahrd_go_index";
+	/**
+	 * Appended to the index's path to name the file the index is written
+	 * into, before it is moved into place.
+	 */
+	public static final String TMP_FILE_SUFFIX = ".tmp";
+	public static final long MAGIC_NUMBER = 0x41485244474F4131L;
+	public static final int VERSION = 1;
+	/**
+	 * The index is mapped in segments of this size, as a single mapped buffer
+	 * can not exceed two gigabytes.
+	 */
+	public static final long SEGMENT_SIZE = 1L << 30;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final int HEADER_ACCESSIONS_OFFSET = 8 + 4 + 8 + 8 + 8;
+
+	/**
+	 * Orders byte arrays lexicographically, comparing bytes unsigned.
+	 */
+	private static final Comparator<byte[]> BYTES_COMPARATOR = new Comparator<byte[]>() {
+		public int compare(byte[] a, byte[] b) {
+			return compareBytes(a, b, 0, b.length);
+		}
+	};
+
+	private FileChannel channel;
+	private MappedByteBuffer[] segments;
+	private long nAccessions;
+	private long offsetsOffset;
+
+	private ReferenceGoAnnotationsIndex(FileChannel channel, MappedByteBuffer[] segments, long nAccessions,
+			long offsetsOffset) {
+		super();
+		this.channel = channel;
+		this.segments = segments;
+		this.nAccessions = nAccessions;
+		this.offsetsOffset = offsetsOffset;
+	}
+
+	public static String getPathToIndex(String pathToGoa) {
+		return pathToGoa + INDEX_FILE_SUFFIX;
+	}
+
+	/**
+	 * Compares the argument bytes with the argument region of other bytes,
+	 * lexicographically and unsigned.
+	 */
+	private static int compareBytes(byte[] a, byte[] b, int from, int to) {
+		int length = to - from;
+		for (int i = 0; i < Math.min(a.length, length); i++) {
+			int diff = (a[i] & 0xff) - (b[from + i] & 0xff);
+			if (diff != 0)
+				return diff;
+		}
+		return a.length - length;
+	}
+
+	/**
+	 * Parses the argument GOA file and writes its index.
+	 *
+	 * @param pathToGoa
+	 * @param referenceGoRegex
+	 * @return The number of indexed short accessions
+	 * @throws IOException
+	 */
+	public static long write(String pathToGoa, Pattern referenceGoRegex) throws IOException {
+		File goa = new File(pathToGoa);
+		long goaSize = goa.length();
+		long goaLastModified = goa.lastModified();
+		long goaChecksum = BlastDatabaseIndex.checksum(pathToGoa);
+		String pathToIndex = getPathToIndex(pathToGoa);
+		byte[] regex = referenceGoRegex.pattern().getBytes(UTF8);
+
+		// The GO terms are held as GoTermSets of integer codes:
+		Map<String, Set<String>> annotations = new HashMap<String, Set<String>>();
+		ReferenceGoAnnotationsParser parser = new ReferenceGoAnnotationsParser(pathToGoa, null, referenceGoRegex);
+		try {
+			while (parser.next()) {
+				ReferenceGoAnnotations.addGoAnnotation(annotations, parser.getShortAccession(), parser.getGoTerm());
+			}
+		} finally {
+			parser.close();
+		}
+		byte[][] accessions = new byte[annotations.size()][];
+		Map<byte[], Set<String>> annotationsOfBytes = new IdentityHashMap<byte[], Set<String>>();
+		int n = 0;
+		for (Map.Entry<String, Set<String>> entry : annotations.entrySet()) {
+			accessions[n] = entry.getKey().getBytes(UTF8);
+			annotationsOfBytes.put(accessions[n], entry.getValue());
+			n++;
+		}
+		annotations = null;
+		Arrays.sort(accessions, BYTES_COMPARATOR);
+
+		long[] offsets = new long[accessions.length];
+		// Write into a temporary file, which is moved into place once complete,
+		// so that readers never see a partially written index:
+		String pathToTmpIndex = pathToIndex + TMP_FILE_SUFFIX;
+		DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(pathToTmpIndex), 1 << 16));
+		try {
+			out.writeLong(MAGIC_NUMBER);
+			out.writeInt(VERSION);
+			out.writeLong(goaSize);
+			out.writeLong(goaLastModified);
+			out.writeLong(goaChecksum);
+			// Number of accessions and offset of the record offsets are
+			// written when known:
+			out.writeLong(0);
+			out.writeLong(0);
+			out.writeInt(regex.length);
+			out.write(regex);
+			long pos = HEADER_ACCESSIONS_OFFSET + 8 + 8 + 4 + regex.length;
+
+			for (int i = 0; i < accessions.length; i++) {
+				String[] terms = annotationsOfBytes.get(accessions[i]).toArray(new String[0]);
+				Arrays.sort(terms);
+				byte[][] termBytes = new byte[terms.length][];
+				long recordSize = 4 + accessions[i].length + 4;
+				for (int j = 0; j < terms.length; j++) {
+					termBytes[j] = terms[j].getBytes(UTF8);
+					recordSize += 4 + termBytes[j].length;
+				}
+				if (recordSize > SEGMENT_SIZE)
+					throw new IOException("Too many GO terms to be indexed for short accession '"
+							+ new String(accessions[i], UTF8) + "'.");
+				// Records must not cross the boundary of a segment:
+				long segmentEnd = (pos / SEGMENT_SIZE + 1) * SEGMENT_SIZE;
+				if (pos + recordSize > segmentEnd) {
+					for (; pos < segmentEnd; pos++)
+						out.write(0);
+				}
+				offsets[i] = pos;
+				out.writeInt(accessions[i].length);
+				out.write(accessions[i]);
+				out.writeInt(termBytes.length);
+				for (byte[] term : termBytes) {
+					out.writeInt(term.length);
+					out.write(term);
+				}
+				pos += recordSize;
+			}
+
+			// Align the offsets to eight bytes, so that none of them crosses
+			// the boundary of a segment:
+			for (; pos % 8 != 0; pos++)
+				out.write(0);
+			for (long offset : offsets)
+				out.writeLong(offset);
+			out.close();
+
+			RandomAccessFile raf = new RandomAccessFile(pathToTmpIndex, "rw");
+			try {
+				raf.seek(HEADER_ACCESSIONS_OFFSET);
+				raf.writeLong(accessions.length);
+				raf.writeLong(pos);
+				raf.getChannel().force(true);
+			} finally {
+				raf.close();
+			}
+			Files.move(Paths.get(pathToTmpIndex), Paths.get(pathToIndex), StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			out.close();
+			new File(pathToTmpIndex).delete();
+			throw e;
+		}
+		return accessions.length;
+	}
+
+	/**
+	 * Opens the index of the argument GOA file, if it exists and is valid,
+	 * i.e. the GOA file has not changed since the index was written and the
+	 * index was written using the argument regular expression.
+	 *
+	 * @param pathToGoa
+	 * @param referenceGoRegex
+	 * @return The opened index or <code>null</code> if there is no valid one.
+	 * @throws IOException
+	 */
+	public static ReferenceGoAnnotationsIndex open(String pathToGoa, Pattern referenceGoRegex) throws IOException {
+		File index = new File(getPathToIndex(pathToGoa));
+		if (!index.canRead())
+			return null;
+		File goa = new File(pathToGoa);
+		FileChannel fc = new FileInputStream(index).getChannel();
+		boolean valid = false;
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_ACCESSIONS_OFFSET + 8 + 8 + 4);
+			fc.read(header, 0);
+			header.flip();
+			valid = header.remaining() == header.capacity() && header.getLong() == MAGIC_NUMBER
+					&& header.getInt() == VERSION && header.getLong() == goa.length()
+					&& header.getLong() == goa.lastModified()
+					&& header.getLong() == BlastDatabaseIndex.checksum(pathToGoa);
+			if (!valid) {
+				System.err.println("WARNING: Index '" + index.getPath()
+						+ "' does not match reference Gene Ontology annotations '" + pathToGoa
+						+ "' and is ignored. Please, re-create it.");
+				return null;
+			}
+			long nAccessions = header.getLong();
+			long offsetsOffset = header.getLong();
+			byte[] regex = new byte[header.getInt()];
+			fc.read(ByteBuffer.wrap(regex), header.capacity());
+			if (!new String(regex, UTF8).equals(referenceGoRegex.pattern())) {
+				valid = false;
+				System.err.println("WARNING: Index '" + index.getPath()
+						+ "' has been created with another reference_go_regex and is ignored. Please, re-create it.");
+				return null;
+			}
+			long size = fc.size();
+			MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+			for (int i = 0; i < segments.length; i++) {
+				long start = i * SEGMENT_SIZE;
+				segments[i] = fc.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, size - start));
+			}
+			return new ReferenceGoAnnotationsIndex(fc, segments, nAccessions, offsetsOffset);
+		} finally {
+			if (!valid)
+				fc.close();
+		}
+	}
+
+	private ByteBuffer segment(long position) {
+		return this.segments[(int) (position / SEGMENT_SIZE)];
+	}
+
+	private int getInt(long position) {
+		return segment(position).getInt((int) (position % SEGMENT_SIZE));
+	}
+
+	private long getLong(long position) {
+		return segment(position).getLong((int) (position % SEGMENT_SIZE));
+	}
+
+	private byte[] getBytes(long position, int length) {
+		ByteBuffer seg = segment(position).duplicate();
+		seg.position((int) (position % SEGMENT_SIZE));
+		byte[] bytes = new byte[length];
+		seg.get(bytes);
+		return bytes;
+	}
+
+	/**
+	 * Looks up the GO terms of the argument short accession.
+	 *
+	 * @param shortAccession
+	 * @return The GO terms as GoTermSet or <code>null</code> if the short
+	 *         accession has no GO term annotations.
+	 */
+	public Set<String> lookup(String shortAccession) {
+		byte[] acc = shortAccession.getBytes(UTF8);
+		long low = 0;
+		long high = this.nAccessions - 1;
+		while (low <= high) {
+			long mid = (low + high) >>> 1;
+			long record = getLong(this.offsetsOffset + 8 * mid);
+			int length = getInt(record);
+			int cmp = compareBytes(acc, getBytes(record + 4, length), 0, length);
+			if (cmp > 0) {
+				low = mid + 1;
+			} else if (cmp < 0) {
+				high = mid - 1;
+			} else {
+				long p = record + 4 + length;
+				int nTerms = getInt(p);
+				p += 4;
+				GoTermSet goTerms = new GoTermSet();
+				for (int i = 0; i < nTerms; i++) {
+					int termLength = getInt(p);
+					goTerms.add(new String(getBytes(p + 4, termLength), UTF8));
+					p += 4 + termLength;
+				}
+				return goTerms;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Looks up all argument short accessions.
+	 *
+	 * @param shortAccessions
+	 * @return Map<String, Set<String>> - Short accessions with GO term
+	 *         annotations mapped to Sets of GO terms
+	 */
+	public Map<String, Set<String>> lookupAll(Collection<String> shortAccessions) {
+		Map<String, Set<String>> goa = new HashMap<String, Set<String>>();
+		for (String shortAccession : shortAccessions) {
+			Set<String> goTerms = lookup(shortAccession);
+			if (goTerms != null)
+				goa.put(shortAccession, goTerms);
+		}
+		GoTermSet.shareIdenticalSets(goa);
+		return goa;
+	}
+
+	public void close() throws IOException {
+		this.segments = null;
+		this.channel.close();
+	}
+
+}
@@ -0,0 +1,189 @@
+package ahrd.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import ahrd.controller.Settings;
+
+/**
+ * Reads the reference Gene Ontology term annotations (GOA) of those proteins,
+ * whose short accessions are among the argument ones, or of all proteins, if
+ * no short accessions are given, line by line directly from the bytes of the
+ * file. Each line is matched against the argument regular expression, see
+ * <code>Settings.getReferenceGoRegex()</code>, as AHRD always did.
+ *
+ * If the regular expression is the default one, i.e. the file is in the GAF
+ * 2.x format of UniProtKB-GOA, most lines are skipped before decoding them
+ * into Strings: Comment lines start with '!', and lines of other proteins are
+ * identified by looking up the second tabulator separated column in the Set
+ * of short accessions. Only the remaining lines are matched against the
+ * regular expression. Lines, whose second column does not consist of
+ * US-ASCII characters other than white space, are always matched, too.
+ *
+ * Usage:
+ *
+ * <pre>
+ * ReferenceGoAnnotationsParser p = new ReferenceGoAnnotationsParser(path, shortAccessions, regex);
+ * while (p.next()) {
+ * 	p.getShortAccession();
+ * 	p.getGoTerm();
+ * }
+ * p.close();
+ * </pre>
+ *
+ * Instances are not thread-safe.
+ *
+ * @author hallab, klee
+ */
+public class ReferenceGoAnnotationsParser implements Closeable {
+
+	private static final byte[] UNIPROT_KB = "UniProtKB".getBytes(Charset.forName("US-ASCII"));
+
+	private LineRangeReader reader;
+	private Charset charset = Charset.defaultCharset();
+	private AccessionSet shortAccessions;
+	private Matcher lineMatcher;
+	private boolean gaf;
+
+	/**
+	 * The buffer holding the current line, and the line's start and end in it.
+	 */
+	private byte[] buffer;
+	private int lineStart;
+	private int lineEnd;
+
+	private String shortAccession;
+	private String goTerm;
+
+	/**
+	 * Parses the whole file.
+	 *
+	 * @param pathToGoa
+	 * @param shortAccessions
+	 *            - <code>null</code> to read the annotations of all proteins
+	 * @param referenceGoRegex
+	 *            - Must have the named groups
+	 *            <code>ReferenceGoAnnotations.SHORT_ACCESSION_GROUP_NAME</code>
+	 *            and <code>ReferenceGoAnnotations.GO_TERM_GROUP_NAME</code>.
+	 * @throws IOException
+	 */
+	public ReferenceGoAnnotationsParser(String pathToGoa, AccessionSet shortAccessions, Pattern referenceGoRegex)
+			throws IOException {
+		this(pathToGoa, 0, Long.MAX_VALUE, shortAccessions, referenceGoRegex);
+	}
+
+	/**
+	 * Parses only those lines of the file that start within the argument range
+	 * of bytes. Hence, splitting a file at arbitrary positions into
+	 * consecutive ranges, see
+	 * <code>LineRangeReader.chunkBoundaries</code>,
+	 * and parsing each with its own instance, reads each line exactly once.
+	 *
+	 * @param pathToGoa
+	 * @param start
+	 *            - inclusive
+	 * @param end
+	 *            - exclusive
+	 * @param shortAccessions
+	 * @param referenceGoRegex
+	 * @throws IOException
+	 */
+	public ReferenceGoAnnotationsParser(String pathToGoa, long start, long end, AccessionSet shortAccessions,
+			Pattern referenceGoRegex) throws IOException {
+		super();
+		this.shortAccessions = shortAccessions;
+		this.lineMatcher = referenceGoRegex.matcher("");
+		this.gaf = referenceGoRegex.pattern().equals(Settings.DEFAULT_REFERENCE_GO_REGEX.pattern());
+		this.reader = new LineRangeReader(pathToGoa, start, end);
+	}
+
+	/**
+	 * Advances to the next GO term annotation of one of the short accessions.
+	 *
+	 * @return <code>true</code> if an annotation has been read,
+	 *         <code>false</code> if there are no further lines.
+	 * @throws IOException
+	 */
+	public boolean next() throws IOException {
+		while (readLine()) {
+			if ((!this.gaf || isCandidate()) && matchLine())
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Checks the current line of a file in GAF format without decoding it.
+	 *
+	 * @return <code>false</code> if the current line cannot match the default
+	 *         regular expression for one of the short accessions.
+	 */
+	private boolean isCandidate() {
+		int i = this.lineStart;
+		// Lines not starting with 'UniProtKB', e.g. comment lines starting
+		// with '!', never match:
+		if (this.lineEnd - i <= UNIPROT_KB.length)
+			return false;
+		for (int j = 0; j < UNIPROT_KB.length; j++) {
+			if (this.buffer[i++] != UNIPROT_KB[j])
+				return false;
+		}
+		if (this.buffer[i++] != '\t')
+			return true;
+		int accessionStart = i;
+		while (i < this.lineEnd && this.buffer[i] != '\t') {
+			// Leave white space and other characters to the regular
+			// expression:
+			if (this.buffer[i] <= ' ' || this.buffer[i] >= 127)
+				return true;
+			i++;
+		}
+		return i == accessionStart || this.shortAccessions == null
+				|| this.shortAccessions.contains(this.buffer, accessionStart, i);
+	}
+
+	/**
+	 * Matches the current line against the regular expression.
+	 *
+	 * @return <code>true</code> if and only if it matches and its short
+	 *         accession is one of the argument ones, if any.
+	 */
+	private boolean matchLine() {
+		this.lineMatcher.reset(new String(this.buffer, this.lineStart, this.lineEnd - this.lineStart, this.charset));
+		if (!this.lineMatcher.find())
+			return false;
+		this.shortAccession = this.lineMatcher.group(ReferenceGoAnnotations.SHORT_ACCESSION_GROUP_NAME);
+		if (this.shortAccessions != null && !this.shortAccessions.contains(this.shortAccession))
+			return false;
+		this.goTerm = this.lineMatcher.group(ReferenceGoAnnotations.GO_TERM_GROUP_NAME);
+		return true;
+	}
+
+	/**
+	 * Sets buffer, lineStart and lineEnd to the next line.
+	 */
+	private boolean readLine() throws IOException {
+		if (!this.reader.readLine())
+			return false;
+		this.buffer = this.reader.getBuffer();
+		this.lineStart = this.reader.getLineStart();
+		this.lineEnd = this.reader.getLineEnd();
+		return true;
+	}
+
+	public String getShortAccession() {
+		return shortAccession;
+	}
+
+	public String getGoTerm() {
+		return goTerm;
+	}
+
+	public void close() throws IOException {
+		this.reader.close();
+	}
+
+}
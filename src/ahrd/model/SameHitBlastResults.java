@@ -0,0 +1,105 @@
+package ahrd.model;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * The BlastResults of a single Hit, holding at most one, the best scoring,
+ * High Scoring Pair (HSP) per query Protein. See
+ * <code>BlastResult.addBlastResult</code> for details.
+ *
+ * Most Hits are found for just a few query Proteins, which are simply scanned
+ * to find a query's present HSP. Highly conserved Hits, e.g. of large gene
+ * families, can be found for tens of thousands of queries, though. Once more
+ * than <code>INDEX_THRESHOLD</code> queries have been seen, they are thus
+ * indexed, so that adding an HSP takes constant time.
+ *
+ * Instances are not thread-safe.
+ *
+ * @author hallab, klee
+ */
+public class SameHitBlastResults extends AbstractList<BlastResult> implements RandomAccess {
+
+	public static final int INDEX_THRESHOLD = 8;
+
+	private List<BlastResult> blastResults = new ArrayList<BlastResult>(1);
+	/**
+	 * The positions of the query Proteins' BlastResults, or <code>null</code>
+	 * while there are not more than <code>INDEX_THRESHOLD</code> of them.
+	 */
+	private Map<Protein, Integer> indexOfQuery;
+
+	public SameHitBlastResults() {
+		super();
+	}
+
+	/**
+	 * Adds the argument BlastResults, one after another, using
+	 * <code>addHighScoringPair</code>.
+	 *
+	 * @param blastResults
+	 */
+	public SameHitBlastResults(List<BlastResult> blastResults) {
+		this();
+		for (BlastResult br : blastResults) {
+			addHighScoringPair(br);
+		}
+	}
+
+	/**
+	 * Adds the argument BlastResult, if none is present for its query Protein.
+	 * Otherwise it replaces the present one, if and only if it has a better
+	 * Bit-Score.
+	 *
+	 * @param br
+	 */
+	public void addHighScoringPair(BlastResult br) {
+		int index = indexOf(br.getProtein());
+		if (index < 0) {
+			this.blastResults.add(br);
+			this.modCount++;
+			if (this.indexOfQuery != null) {
+				this.indexOfQuery.put(br.getProtein(), this.blastResults.size() - 1);
+			} else if (this.blastResults.size() > INDEX_THRESHOLD) {
+				this.indexOfQuery = new HashMap<Protein, Integer>();
+				for (int i = 0; i < this.blastResults.size(); i++) {
+					this.indexOfQuery.put(this.blastResults.get(i).getProtein(), i);
+				}
+			}
+		} else if (this.blastResults.get(index).getBitScore() < br.getBitScore()) {
+			this.blastResults.set(index, br);
+		}
+	}
+
+	/**
+	 * @param query
+	 * @return The position of the argument query Protein's BlastResult or -1,
+	 *         if there is none.
+	 */
+	private int indexOf(Protein query) {
+		if (this.indexOfQuery != null) {
+			Integer index = this.indexOfQuery.get(query);
+			return index == null ? -1 : index;
+		}
+		for (int i = 0; i < this.blastResults.size(); i++) {
+			if (this.blastResults.get(i).getProtein().equals(query))
+				return i;
+		}
+		return -1;
+	}
+
+	@Override
+	public BlastResult get(int index) {
+		return this.blastResults.get(index);
+	}
+
+	@Override
+	public int size() {
+		return this.blastResults.size();
+	}
+
+}
@@ -1,5 +1,452 @@
 package ahrd.model;
 
-public class SequenceSimilarityTabularSearchResultParser {
+import static ahrd.controller.Settings.getSettings;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+/**
+ * Reads tabular sequence similarity search results (Blast 8, BLAST+ -outfmt
+ * 6, BLAT, Diamond, ...) line by line directly from the bytes of the file.
+ * Only the columns configured in the Settings are located, and numbers are
+ * parsed straight from the bytes. Strings are only created for the query and
+ * subject accessions. As search results are usually grouped by query, the
+ * query accession of the preceding line is re-used whenever it is the same.
+ *
+ * If the configured column separator is not a single character, each line is
+ * decoded and split using the separator as regular expression, just as AHRD
+ * always did.
+ *
+ * Lines are read with a <code>LineRangeReader</code>.
+ *
+ * Usage:
+ *
+ * <pre>
+ * SequenceSimilarityTabularSearchResultParser p = new SequenceSimilarityTabularSearchResultParser(path);
+ * while (p.next()) {
+ * 	p.getQueryAccession();
+ * 	p.getEValue();
+ * }
+ * p.close();
+ * </pre>
+ *
+ * @author hallab, klee
+ */
+public class SequenceSimilarityTabularSearchResultParser implements Closeable {
+
+	/**
+	 * Exactly representable powers of ten, used to parse doubles with up to
+	 * 15 significant digits without any loss of precision.
+	 */
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+	/**
+	 * Number of slots in the cache of parsed doubles, must be a power of two.
+	 */
+	private static final int DOUBLE_CACHE_SIZE = 1 << 12;
+
+	private LineRangeReader reader;
+	private Charset charset = Charset.defaultCharset();
+
+	private byte separator;
+	private Pattern separatorRegex;
+	private Pattern commentLineRegex;
+	private int queryCol, subjectCol, queryStartCol, queryEndCol, subjectStartCol, subjectEndCol, eValueCol,
+			bitScoreCol;
+	private int lastCol;
+
+	/**
+	 * The buffer holding the current line, and the line's start and end in it.
+	 */
+	private byte[] buffer;
+	private int lineStart;
+	private int lineEnd;
+	/**
+	 * Start (inclusive) and end (exclusive) of each column in
+	 * <code>buffer</code>, up to and including the last configured column.
+	 */
+	private int[] colStarts;
+	private int[] colEnds;
+	/**
+	 * Used instead of the above, if the column separator is a regular
+	 * expression.
+	 */
+	private String[] fields;
+
+	/**
+	 * Search tools print E-Values with few significant digits, e.g. '2e-137',
+	 * so the same textual values occur over and over again. Many of them can
+	 * not be computed exactly from the bytes, so the values of the last seen
+	 * numbers of at most eight bytes are remembered, keyed by their bytes
+	 * packed into a long. On collision the slot is simply overwritten.
+	 */
+	private long[] doubleCacheKeys = new long[DOUBLE_CACHE_SIZE];
+	private double[] doubleCacheValues = new double[DOUBLE_CACHE_SIZE];
+
+	private byte[] lastQueryBytes = new byte[0];
+	private String lastQuery;
+
+	/**
+	 * Parses the whole file, using the column separator and positions set in
+	 * the current Settings.
+	 *
+	 * @param pathToTable
+	 * @throws IOException
+	 */
+	public SequenceSimilarityTabularSearchResultParser(String pathToTable) throws IOException {
+		this(pathToTable, !isSingleCharSeparator(getSettings().getSeqSimSearchTableSep()));
+	}
+
+	/**
+	 * @param pathToTable
+	 * @param splitByRegex
+	 *            - If <code>true</code> each line is decoded and split using
+	 *            the configured separator as regular expression, even if it is
+	 *            a single character.
+	 * @throws IOException
+	 */
+	public SequenceSimilarityTabularSearchResultParser(String pathToTable, boolean splitByRegex)
+			throws IOException {
+		this(pathToTable, 0, Long.MAX_VALUE, splitByRegex);
+	}
+
+	/**
+	 * Parses only those lines of the file that start within the argument range
+	 * of bytes. Hence, splitting a file at arbitrary positions into
+	 * consecutive ranges, and parsing each with its own instance, reads each
+	 * line exactly once.
+	 * 
+	 * @param pathToTable
+	 * @param start
+	 *            - inclusive
+	 * @param end
+	 *            - exclusive
+	 * @param splitByRegex
+	 * @throws IOException
+	 */
+	public SequenceSimilarityTabularSearchResultParser(String pathToTable, long start, long end,
+			boolean splitByRegex) throws IOException {
+		super();
+		this.reader = new LineRangeReader(pathToTable, start, end);
+		String sep = getSettings().getSeqSimSearchTableSep();
+		if (splitByRegex)
+			this.separatorRegex = Pattern.compile(sep);
+		else
+			this.separator = separatorByte(sep);
+		this.commentLineRegex = getSettings().getSeqSimSearchTableCommentLineRegex();
+		this.queryCol = getSettings().getSeqSimSearchTableQueryCol();
+		this.subjectCol = getSettings().getSeqSimSearchTableSubjectCol();
+		this.queryStartCol = getSettings().getSeqSimSearchTableQueryStartCol();
+		this.queryEndCol = getSettings().getSeqSimSearchTableQueryEndCol();
+		this.subjectStartCol = getSettings().getSeqSimSearchTableSubjectStartCol();
+		this.subjectEndCol = getSettings().getSeqSimSearchTableSubjectEndCol();
+		this.eValueCol = getSettings().getSeqSimSearchTableEValueCol();
+		this.bitScoreCol = getSettings().getSeqSimSearchTableBitScoreCol();
+		this.lastCol = Math.max(Math.max(Math.max(queryCol, subjectCol), Math.max(queryStartCol, queryEndCol)),
+				Math.max(Math.max(subjectStartCol, subjectEndCol), Math.max(eValueCol, bitScoreCol)));
+		this.colStarts = new int[this.lastCol + 1];
+		this.colEnds = new int[this.lastCol + 1];
+	}
+
+	/**
+	 * The byte level parser can be used, if and only if the separator is a
+	 * single ASCII character that has no special meaning in a regular
+	 * expression, or the escaped tabulator '\t'.
+	 *
+	 * @param sep
+	 * @return boolean
+	 */
+	public static boolean isSingleCharSeparator(String sep) {
+		if (sep == null)
+			return false;
+		if (sep.equals("\\t"))
+			return true;
+		return sep.length() == 1 && sep.charAt(0) < 128 && ".$|()[]{}^?*+\\".indexOf(sep.charAt(0)) < 0;
+	}
+
+	private static byte separatorByte(String sep) {
+		if (sep.equals("\\t"))
+			return '\t';
+		return (byte) sep.charAt(0);
+	}
+
+	/**
+	 * Advances to the next line holding a search result. Empty lines and those
+	 * matching the configured comment line regular expression are skipped.
+	 *
+	 * @return <code>true</code> if a line has been read, <code>false</code>
+	 *         if there are no further lines.
+	 * @throws IOException
+	 */
+	public boolean next() throws IOException {
+		while (readLine()) {
+			if (this.lineEnd == this.lineStart)
+				continue;
+			if (this.commentLineRegex != null && this.commentLineRegex
+					.matcher(new String(this.buffer, this.lineStart, this.lineEnd - this.lineStart, this.charset))
+					.matches())
+				continue;
+			splitLine();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Sets buffer, lineStart and lineEnd to the next line.
+	 */
+	private boolean readLine() throws IOException {
+		if (!this.reader.readLine())
+			return false;
+		this.buffer = this.reader.getBuffer();
+		this.lineStart = this.reader.getLineStart();
+		this.lineEnd = this.reader.getLineEnd();
+		return true;
+	}
+
+	private void splitLine() throws IOException {
+		if (this.separatorRegex != null) {
+			this.fields = this.separatorRegex
+					.split(new String(this.buffer, this.lineStart, this.lineEnd - this.lineStart, this.charset));
+			if (this.fields.length <= this.lastCol)
+				throw missingColumns();
+			return;
+		}
+		int col = 0;
+		int start = this.lineStart;
+		for (int i = this.lineStart; i < this.lineEnd && col <= this.lastCol; i++) {
+			if (this.buffer[i] == this.separator) {
+				this.colStarts[col] = start;
+				this.colEnds[col] = i;
+				col++;
+				start = i + 1;
+			}
+		}
+		if (col == this.lastCol) {
+			this.colStarts[col] = start;
+			this.colEnds[col] = this.lineEnd;
+			col++;
+		}
+		if (col <= this.lastCol)
+			throw missingColumns();
+	}
+
+	private IOException missingColumns() {
+		return new IOException("Line at byte " + this.reader.getLineFilePos()
+				+ " of the sequence similarity search result table has less than " + (this.lastCol + 1)
+				+ " columns:\n" + new String(this.buffer, this.lineStart, this.lineEnd - this.lineStart, this.charset));
+	}
+
+	private String stringCol(int col) {
+		if (this.fields != null)
+			return this.fields[col];
+		return new String(this.buffer, this.colStarts[col], this.colEnds[col] - this.colStarts[col], this.charset);
+	}
+
+	private int intCol(int col) {
+		if (this.fields != null)
+			return Integer.parseInt(this.fields[col]);
+		return parseInt(this.buffer, this.colStarts[col], this.colEnds[col]);
+	}
+
+	private double doubleCol(int col) {
+		if (this.fields != null)
+			return Double.parseDouble(BlastResult.validateDouble(this.fields[col]));
+		int from = this.colStarts[col];
+		int to = this.colEnds[col];
+		if (to - from > 8 || to == from)
+			return parseDouble(this.buffer, from, to);
+		long key = 0;
+		for (int i = from; i < to; i++) {
+			key = (key << 8) | (this.buffer[i] & 0xFF);
+		}
+		int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 52) & (DOUBLE_CACHE_SIZE - 1);
+		if (this.doubleCacheKeys[slot] != key) {
+			this.doubleCacheValues[slot] = parseDouble(this.buffer, from, to);
+			this.doubleCacheKeys[slot] = key;
+		}
+		return this.doubleCacheValues[slot];
+	}
+
+	/**
+	 * @return The current line's query accession. If it equals the one of the
+	 *         preceding line, the very same String is returned.
+	 */
+	public String getQueryAccession() {
+		if (this.fields != null)
+			return this.fields[this.queryCol];
+		int from = this.colStarts[this.queryCol];
+		int len = this.colEnds[this.queryCol] - from;
+		boolean same = len == this.lastQueryBytes.length;
+		for (int i = 0; same && i < len; i++) {
+			same = this.buffer[from + i] == this.lastQueryBytes[i];
+		}
+		if (!same) {
+			this.lastQueryBytes = Arrays.copyOfRange(this.buffer, from, from + len);
+			this.lastQuery = new String(this.lastQueryBytes, this.charset);
+		}
+		return this.lastQuery;
+	}
+
+	public String getSubjectAccession() {
+		return stringCol(this.subjectCol);
+	}
+
+	public double getEValue() {
+		return doubleCol(this.eValueCol);
+	}
+
+	public double getBitScore() {
+		return doubleCol(this.bitScoreCol);
+	}
+
+	public int getQueryStart() {
+		return intCol(this.queryStartCol);
+	}
+
+	public int getQueryEnd() {
+		return intCol(this.queryEndCol);
+	}
+
+	public int getSubjectStart() {
+		return intCol(this.subjectStartCol);
+	}
+
+	public int getSubjectEnd() {
+		return intCol(this.subjectEndCol);
+	}
+
+	/**
+	 * @return The position in the file at which the current line starts.
+	 */
+	public long getLineOffset() {
+		return this.reader.getLineFilePos();
+	}
+
+	/**
+	 * Parses an integer from the argument bytes. Anything but an optional sign
+	 * followed by decimal digits is handed over to
+	 * <code>Integer.parseInt</code>, which also raises the appropriate
+	 * NumberFormatException.
+	 *
+	 * @param b
+	 * @param from
+	 *            - inclusive
+	 * @param to
+	 *            - exclusive
+	 * @return int
+	 */
+	public static int parseInt(byte[] b, int from, int to) {
+		int i = from;
+		boolean negative = false;
+		if (i < to && (b[i] == '-' || b[i] == '+')) {
+			negative = b[i] == '-';
+			i++;
+		}
+		long value = 0;
+		boolean valid = i < to && to - i < 11;
+		for (; valid && i < to; i++) {
+			int digit = b[i] - '0';
+			valid = digit >= 0 && digit <= 9;
+			value = value * 10 + digit;
+		}
+		if (negative)
+			value = -value;
+		if (!valid || value > Integer.MAX_VALUE || value < Integer.MIN_VALUE)
+			return Integer.parseInt(new String(b, from, to - from, Charset.defaultCharset()));
+		return (int) value;
+	}
+
+	/**
+	 * Parses a double from the argument bytes. Plain decimals and scientific
+	 * notation, including Blast's 'e-10' meaning '1e-10', with up to 15
+	 * significant digits and a decimal exponent of at most 22 are computed
+	 * from the bytes. As both the mantissa and the power of ten are exactly
+	 * representable in that case, the single multiplication or division is
+	 * correctly rounded, i.e. the result equals that of
+	 * <code>Double.parseDouble</code>. Anything else is handed over to
+	 * <code>Double.parseDouble</code>.
+	 *
+	 * @param b
+	 * @param from
+	 *            - inclusive
+	 * @param to
+	 *            - exclusive
+	 * @return double
+	 */
+	public static double parseDouble(byte[] b, int from, int to) {
+		int i = from;
+		boolean negative = false;
+		if (i < to && (b[i] == '-' || b[i] == '+')) {
+			negative = b[i] == '-';
+			i++;
+		}
+		long mantissa = 0;
+		int digits = 0;
+		int significantDigits = 0;
+		int fractionDigits = 0;
+		boolean inFraction = false;
+		boolean valid = true;
+		for (; i < to; i++) {
+			byte c = b[i];
+			if (c >= '0' && c <= '9') {
+				digits++;
+				if (mantissa > 0 || c != '0')
+					significantDigits++;
+				mantissa = mantissa * 10 + (c - '0');
+				if (inFraction)
+					fractionDigits++;
+			} else if (c == '.' && !inFraction) {
+				inFraction = true;
+			} else {
+				break;
+			}
+		}
+		int exponent = 0;
+		if (i < to) {
+			if (b[i] == 'e' || b[i] == 'E') {
+				// Blast writes e.g. 'e-10' meaning '1e-10':
+				if (i == from) {
+					mantissa = 1;
+					digits = 1;
+					significantDigits = 1;
+				}
+				i++;
+				boolean negativeExponent = false;
+				if (i < to && (b[i] == '-' || b[i] == '+')) {
+					negativeExponent = b[i] == '-';
+					i++;
+				}
+				valid = i < to && to - i < 5;
+				for (; valid && i < to; i++) {
+					int digit = b[i] - '0';
+					valid = digit >= 0 && digit <= 9;
+					exponent = exponent * 10 + digit;
+				}
+				if (negativeExponent)
+					exponent = -exponent;
+			} else {
+				valid = false;
+			}
+		}
+		valid = valid && digits > 0 && significantDigits <= 15;
+		exponent -= fractionDigits;
+		if (valid && mantissa == 0)
+			return negative ? -0.0 : 0.0;
+		if (!valid || mantissa >= MAX_EXACT_MANTISSA || exponent > 22 || exponent < -22)
+			return Double.parseDouble(
+					BlastResult.validateDouble(new String(b, from, to - from, Charset.defaultCharset())));
+		double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+		return negative ? -value : value;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.reader.close();
+	}
 
 }
@@ -0,0 +1,85 @@
+package ahrd.model;
+
+/**
+ * The reference protein a BlastResult's query protein has been aligned with,
+ * i.e. the Blast Hit or Subject. A Subject holds everything about the Hit
+ * that does not depend on the alignment: accession, short accession, sequence
+ * length, human readable description and its Tokens. Many query proteins,
+ * e.g. members of a large gene family, hit the same Subject. While reading
+ * the Blast database, each Subject is thus processed once and shared by all
+ * BlastResults of that Hit, see
+ * <code>BlastResult.fastaEntryValuesForBlastHit</code>.
+ *
+ * Subjects are immutable. The <code>with...</code> methods return modified
+ * copies. A Subject holds frozen Tokens, see <code>TokenSet.freeze</code>,
+ * which cannot be modified. Unfrozen Tokens are copied, so that the caller's
+ * set is left as is.
+ *
+ * @author hallab, klee
+ */
+public class Subject {
+
+	private final String accession;
+	private final String shortAccession;
+	private final Integer subjectLength;
+	private final String description;
+	private final TokenSet tokens;
+
+	public Subject(String accession, String shortAccession, Integer subjectLength, String description,
+			TokenSet tokens) {
+		super();
+		this.accession = accession;
+		this.shortAccession = shortAccession;
+		this.subjectLength = subjectLength;
+		this.description = description;
+		this.tokens = TokenSet.frozenCopyOf(tokens);
+	}
+
+	public Subject withAccession(String accession) {
+		return new Subject(accession, this.shortAccession, this.subjectLength, this.description, this.tokens);
+	}
+
+	public Subject withShortAccession(String shortAccession) {
+		return new Subject(this.accession, shortAccession, this.subjectLength, this.description, this.tokens);
+	}
+
+	public Subject withSubjectLength(Integer subjectLength) {
+		return new Subject(this.accession, this.shortAccession, subjectLength, this.description, this.tokens);
+	}
+
+	public Subject withDescription(String description) {
+		return new Subject(this.accession, this.shortAccession, this.subjectLength, description, this.tokens);
+	}
+
+	public Subject withTokens(TokenSet tokens) {
+		return new Subject(this.accession, this.shortAccession, this.subjectLength, this.description, tokens);
+	}
+
+	public String getAccession() {
+		return accession;
+	}
+
+	/**
+	 * @return The short accession or <code>null</code>, if it has not been
+	 *         extracted yet, see <code>BlastResult.getShortAccession</code>.
+	 */
+	public String getShortAccession() {
+		return shortAccession;
+	}
+
+	public Integer getSubjectLength() {
+		return subjectLength;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	/**
+	 * @return The frozen Tokens, see <code>TokenSet.freeze</code>.
+	 */
+	public TokenSet getTokens() {
+		return tokens;
+	}
+
+}
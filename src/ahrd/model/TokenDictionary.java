@@ -0,0 +1,86 @@
+package ahrd.model;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Process-wide dictionary interning Tokens to integer IDs. The same few
+ * hundred thousand words are shared by the descriptions of millions of
+ * BlastResults, so each distinct Token is stored once and Token sets only hold
+ * the IDs, see <code>TokenSet</code>. IDs are assigned in ascending order
+ * starting at zero and are never released. As Tokens are interned by
+ * concurrent parsers, the IDs depend on thread timing and must not determine
+ * the order of floating point computations.
+ *
+ * Interning and looking up Tokens is thread-safe.
+ *
+ * @author hallab, klee
+ */
+public class TokenDictionary {
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private static final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+	/**
+	 * The interned Tokens indexed by their IDs. Only grown while holding the
+	 * lock and published before the new ID is put into <code>ids</code>.
+	 */
+	private static volatile String[] tokens = new String[INITIAL_CAPACITY];
+	private static int size = 0;
+	private static final Object lock = new Object();
+
+	private TokenDictionary() {
+		super();
+	}
+
+	/**
+	 * @param token
+	 * @return The ID of the argument Token, which is assigned on its first
+	 *         occurrence.
+	 */
+	public static int intern(String token) {
+		Integer id = ids.get(token);
+		if (id == null) {
+			synchronized (lock) {
+				id = ids.get(token);
+				if (id == null) {
+					String[] tkns = tokens;
+					if (size == tkns.length)
+						tkns = Arrays.copyOf(tkns, tkns.length * 2);
+					tkns[size] = token;
+					tokens = tkns;
+					id = size++;
+					ids.put(token, id);
+				}
+			}
+		}
+		return id;
+	}
+
+	/**
+	 * @param token
+	 * @return The ID of the argument Token or -1, if it has never been
+	 *         interned.
+	 */
+	public static int lookup(String token) {
+		Integer id = ids.get(token);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * @param id
+	 * @return The Token of the argument ID.
+	 */
+	public static String getToken(int id) {
+		return tokens[id];
+	}
+
+	/**
+	 * @return The number of interned Tokens.
+	 */
+	public static int size() {
+		return ids.size();
+	}
+
+}
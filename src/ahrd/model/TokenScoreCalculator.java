@@ -3,63 +3,64 @@ package ahrd.model;
 import static ahrd.controller.Settings.getSettings;
 import static ahrd.controller.Utils.roundToNDecimalPlaces;
 
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Functions calculating Token-Scores.
  */
 public class TokenScoreCalculator {
 
-	private Map<String, Double> cumulativeTokenBitScores = new HashMap<String, Double>();
-	private Map<String, Double> cumulativeTokenBlastDatabaseScores = new HashMap<String, Double>();
-	private Map<String, Double> cumulativeTokenOverlapScores = new HashMap<String, Double>();
+	/**
+	 * Holds the cumulative Bit-, Blast-Database-, and Overlap-Scores as well
+	 * as the Token-Scores of all Tokens without boxing them.
+	 */
+	private TokenScoreTable tokenScoreTable = new TokenScoreTable();
 	private double totalTokenBitScore = 0;
 	private double totalTokenBlastDatabaseScore = 0;
 	private double totalTokenOverlapScore = 0;
-	private Map<String, Double> tokenScores = new HashMap<String, Double>();
 	private Protein protein;
 	// Please enter your initials ___
 	private double tokenHighScore = 0.0;
 
+	/**
+	 * @param token
+	 * @param blacklist
+	 *            - compiled once, if it is not a PatternSet already
+	 * @return TRUE if and only if the argument token is neither empty nor
+	 *         matched by any of the regular expressions in blacklist.
+	 */
 	public static boolean tokenPassesBlacklist(String token, List<String> blacklist) {
-		// No Token passes being NULL or empty String
-		boolean passed = (token != null && !token.equals(""));
-		Iterator<String> i = blacklist.iterator();
-		while (i.hasNext() && passed) {
-			Pattern p = Pattern.compile(i.next());
-			Matcher m = p.matcher(token);
-			// A Match against a blacklisted RegExp lets the token fail:
-			passed = !m.find();
-		}
-		return passed;
+		// No Token passes being NULL or empty String. A Match against a
+		// blacklisted RegExp lets the token fail:
+		return token != null && !token.equals("") && !PatternSet.valueOf(blacklist).matchesAny(token);
 	}
 
 	/**
-	 * Splits the String description into tokens using the regular expressions
-	 * found in <code>BlastResult.TOKEN _SPLITTER_REGEX</code> and then passes
-	 * them through Blacklisting retaining only tokens that pass.
+	 * Each thread reuses its own Tokenizer and thereby its buffer.
+	 */
+	private static final ThreadLocal<Tokenizer> tokenizer = new ThreadLocal<Tokenizer>() {
+		@Override
+		protected Tokenizer initialValue() {
+			return new Tokenizer();
+		}
+	};
+
+	/**
+	 * Splits the String description into tokens at the characters matched by
+	 * <code>BlastResult.TOKEN_SPLITTER_REGEX</code> and then passes them
+	 * through Blacklisting retaining only tokens that pass. See
+	 * <code>Tokenizer</code> for details.
 	 * 
 	 * @param description
 	 * @param tokenBlacklist
-	 * @return An instance of Set holding all tokens extracted from description
+	 * @return An instance of TokenSet holding all tokens extracted from
+	 *         description
 	 */
-	public static Set<String> tokenize(String description, List<String> tokenBlacklist) {
-		Set<String> tkns = new HashSet<String>();
-		for (String tokenCandidate : new HashSet<String>(
-				Arrays.asList(description.split(BlastResult.TOKEN_SPLITTER_REGEX)))) {
-			tokenCandidate = tokenCandidate.toLowerCase();
-			if (tokenCandidate != null && !tokenCandidate.equals("")
-					&& tokenPassesBlacklist(tokenCandidate, tokenBlacklist))
-				tkns.add(tokenCandidate);
-		}
+	public static TokenSet tokenize(String description, List<String> tokenBlacklist) {
+		TokenSet tkns = new TokenSet();
+		tokenizer.get().tokenize(description, tokenBlacklist, tkns);
 		return tkns;
 	}
 
@@ -91,11 +92,7 @@ public class TokenScoreCalculator {
 	 * Returns the sum of BlastResult's Tokens' Scores.
 	 */
 	public double descriptionLineSummedTokenScore(BlastResult br) {
-		double sum = 0.0;
-		for (String token : br.getTokens()) {
-			sum += getTokenScores().get(token);
-		}
-		return sum;
+		return sumOfAllTokenScores(br);
 	}
 
 	/**
@@ -109,10 +106,12 @@ public class TokenScoreCalculator {
 			// databases
 			for (BlastResult iterResult : getProtein().getBlastResults().get(iterBlastDb)) {
 				// iterate through tokens in different blast result desc-lines
-				for (String token : iterResult.getTokens()) {
-					if (!(getTokenScores().containsKey(token))) {
-						double tokenscore = tokenScore(token, iterBlastDb);
-						getTokenScores().put(token, new Double(tokenscore));
+				TokenSet tokens = iterResult.getTokens();
+				for (int i = 0; i < tokens.size(); i++) {
+					int slot = getTokenScoreTable().slotForId(tokens.getId(i));
+					if (!getTokenScoreTable().contains(slot, TokenScoreTable.TOKEN_SCORE)) {
+						double tokenscore = tokenScore(slot);
+						getTokenScoreTable().set(slot, TokenScoreTable.TOKEN_SCORE, tokenscore);
 						// remember highest token score
 						if (tokenscore > getTokenHighScore()) {
 							setTokenHighScore(tokenscore);
@@ -129,9 +128,12 @@ public class TokenScoreCalculator {
 	 * (old TokenScore) - (tokenHighScore / 2).
 	 */
 	public void filterTokenScores() {
-		for (String token : getTokenScores().keySet()) {
-			if (!isInformativeToken(token)) {
-				getTokenScores().put(token, new Double(getTokenScores().get(token) - getTokenHighScore() / 2));
+		TokenScoreTable table = getTokenScoreTable();
+		for (int slot = 0; slot < table.getNumberOfSlots(); slot++) {
+			if (table.contains(slot, TokenScoreTable.TOKEN_SCORE)) {
+				double tokenScore = table.get(slot, TokenScoreTable.TOKEN_SCORE);
+				if (!(tokenScore > getTokenHighScore() / 2))
+					table.set(slot, TokenScoreTable.TOKEN_SCORE, tokenScore - getTokenHighScore() / 2);
 			}
 		}
 	}
@@ -144,7 +146,16 @@ public class TokenScoreCalculator {
 	 *        initialized!
 	 */
 	public boolean isInformativeToken(String token) {
-		return getTokenScores().get(token) > getTokenHighScore() / 2;
+		return isInformativeToken(TokenDictionary.lookup(token));
+	}
+
+	/**
+	 * @param tokenId
+	 *            - the token's ID in the TokenDictionary
+	 * @see #isInformativeToken(String)
+	 */
+	public boolean isInformativeToken(int tokenId) {
+		return getTokenScoreTable().getById(tokenId, TokenScoreTable.TOKEN_SCORE) > getTokenHighScore() / 2;
 	}
 
 	/**
@@ -155,12 +166,17 @@ public class TokenScoreCalculator {
 	 *            br
 	 */
 	public void measureCumulativeScores(BlastResult br) {
-		for (String token : br.getTokens()) {
-			Double overlapScore = TokenScoreCalculator.overlapScore(br.getQueryStart(), br.getQueryEnd(),
-					getProtein().getSequenceLength(), br.getSubjectStart(), br.getSubjectEnd(), br.getSubjectLength());
-			addCumulativeTokenBitScore(token, br.getBitScore());
-			addCumulativeTokenBlastDatabaseScore(token, br.getBlastDatabaseName());
-			addCumulativeTokenOverlapScore(token, overlapScore);
+		double overlapScore = TokenScoreCalculator.overlapScore(br.getQueryStart(), br.getQueryEnd(),
+				getProtein().getSequenceLength(), br.getSubjectStart(), br.getSubjectEnd(), br.getSubjectLength());
+		double bitScore = br.getBitScore();
+		double blastDatabaseWeight = getSettings().getBlastDbWeight(br.getBlastDatabaseName());
+		TokenScoreTable table = getTokenScoreTable();
+		TokenSet tokens = br.getTokens();
+		for (int i = 0; i < tokens.size(); i++) {
+			int slot = table.slotForId(tokens.getId(i));
+			table.add(slot, TokenScoreTable.BIT_SCORE, bitScore);
+			table.add(slot, TokenScoreTable.BLAST_DATABASE_SCORE, blastDatabaseWeight);
+			table.add(slot, TokenScoreTable.OVERLAP_SCORE, overlapScore);
 		}
 	}
 
@@ -185,6 +201,15 @@ public class TokenScoreCalculator {
 	 * @return token-score
 	 */
 	public double tokenScore(String token, String blastDatabaseName) {
+		return tokenScore(getTokenScoreTable().slot(token));
+	}
+
+	/**
+	 * @param slot
+	 *            - the token's slot in the TokenScoreTable
+	 * @return token-score
+	 */
+	public double tokenScore(int slot) {
 		// Validate:
 		Double bitScoreWeight = getSettings().getTokenScoreBitScoreWeight();
 		Double databaseScoreWeight = getSettings().getTokenScoreDatabaseScoreWeight();
@@ -196,40 +221,36 @@ public class TokenScoreCalculator {
 					"The three weights 'bitScoreWeight', 'databaseScoreWeight', and 'overlapScoreWeight' should sum up to 1, but actually sum up to: "
 							+ (bitScoreWeight + databaseScoreWeight + overlapScoreWeight));
 		// Calculate Token-Score:
-		return (bitScoreWeight * getCumulativeTokenBitScores().get(token) / getTotalTokenBitScore()
-				+ databaseScoreWeight * getCumulativeTokenBlastDatabaseScores().get(token)
+		TokenScoreTable table = getTokenScoreTable();
+		return (bitScoreWeight * table.get(slot, TokenScoreTable.BIT_SCORE) / getTotalTokenBitScore()
+				+ databaseScoreWeight * table.get(slot, TokenScoreTable.BLAST_DATABASE_SCORE)
 						/ getTotalTokenBlastDatabaseScore()
-				+ overlapScoreWeight * getCumulativeTokenOverlapScores().get(token) / getTotalTokenOverlapScore());
+				+ overlapScoreWeight * table.get(slot, TokenScoreTable.OVERLAP_SCORE) / getTotalTokenOverlapScore());
 	}
 
 	public void addCumulativeTokenBitScore(String token, double bitScore) {
-		if (!getCumulativeTokenBitScores().containsKey(token))
-			getCumulativeTokenBitScores().put(token, new Double(bitScore));
-		else
-			getCumulativeTokenBitScores().put(token, new Double(bitScore + getCumulativeTokenBitScores().get(token)));
+		getTokenScoreTable().add(token, TokenScoreTable.BIT_SCORE, bitScore);
 	}
 
 	public void addCumulativeTokenOverlapScore(String token, double overlapScore) {
-		if (!getCumulativeTokenOverlapScores().containsKey(token))
-			getCumulativeTokenOverlapScores().put(token, new Double(overlapScore));
-		else
-			getCumulativeTokenOverlapScores().put(token,
-					new Double(overlapScore + getCumulativeTokenOverlapScores().get(token)));
+		getTokenScoreTable().add(token, TokenScoreTable.OVERLAP_SCORE, overlapScore);
 	}
 
 	public void addCumulativeTokenBlastDatabaseScore(String token, String blastDatabaseName) {
-		Integer blastDatabaseWeight = getSettings().getBlastDbWeight(blastDatabaseName);
-		if (!getCumulativeTokenBlastDatabaseScores().containsKey(token))
-			getCumulativeTokenBlastDatabaseScores().put(token, new Double(blastDatabaseWeight));
-		else
-			getCumulativeTokenBlastDatabaseScores().put(token,
-					new Double(blastDatabaseWeight + getCumulativeTokenBlastDatabaseScores().get(token)));
+		getTokenScoreTable().add(token, TokenScoreTable.BLAST_DATABASE_SCORE,
+				getSettings().getBlastDbWeight(blastDatabaseName));
 	}
 
+	/**
+	 * Sums the Token-Scores in the order of the Tokens, not of their IDs, so
+	 * that the sum does not depend on the order the Tokens have been interned
+	 * in.
+	 */
 	public double sumOfAllTokenScores(BlastResult blastResult) {
 		double sum = 0.0;
-		for (String token : blastResult.getTokens()) {
-			sum += getTokenScores().get(token);
+		TokenSet tokens = blastResult.getTokens();
+		for (int i = 0; i < tokens.size(); i++) {
+			sum += getTokenScoreTable().getById(tokens.getIdInTokenOrder(i), TokenScoreTable.TOKEN_SCORE);
 		}
 		return sum;
 	}
@@ -242,28 +263,56 @@ public class TokenScoreCalculator {
 		this.protein = protein;
 	}
 
+	public TokenScoreTable getTokenScoreTable() {
+		return tokenScoreTable;
+	}
+
+	public void setTokenScoreTable(TokenScoreTable tokenScoreTable) {
+		this.tokenScoreTable = tokenScoreTable;
+	}
+
+	/**
+	 * @return A view of the cumulative Bit-Scores held in the
+	 *         TokenScoreTable.
+	 */
 	public Map<String, Double> getCumulativeTokenBitScores() {
-		return cumulativeTokenBitScores;
+		return getTokenScoreTable().getColumn(TokenScoreTable.BIT_SCORE);
 	}
 
 	public void setCumulativeTokenBitScores(Map<String, Double> cumulativeTokenBitScores) {
-		this.cumulativeTokenBitScores = cumulativeTokenBitScores;
+		setColumn(TokenScoreTable.BIT_SCORE, cumulativeTokenBitScores);
 	}
 
+	/**
+	 * @return A view of the cumulative Blast-Database-Scores held in the
+	 *         TokenScoreTable.
+	 */
 	public Map<String, Double> getCumulativeTokenBlastDatabaseScores() {
-		return cumulativeTokenBlastDatabaseScores;
+		return getTokenScoreTable().getColumn(TokenScoreTable.BLAST_DATABASE_SCORE);
 	}
 
 	public void setCumulativeTokenBlastDatabaseScores(Map<String, Double> cumulativeTokenBlastDatabaseScores) {
-		this.cumulativeTokenBlastDatabaseScores = cumulativeTokenBlastDatabaseScores;
+		setColumn(TokenScoreTable.BLAST_DATABASE_SCORE, cumulativeTokenBlastDatabaseScores);
 	}
 
+	/**
+	 * @return A view of the cumulative Overlap-Scores held in the
+	 *         TokenScoreTable.
+	 */
 	public Map<String, Double> getCumulativeTokenOverlapScores() {
-		return cumulativeTokenOverlapScores;
+		return getTokenScoreTable().getColumn(TokenScoreTable.OVERLAP_SCORE);
 	}
 
 	public void setCumulativeTokenOverlapScores(Map<String, Double> cumulativeTokenOverlapScores) {
-		this.cumulativeTokenOverlapScores = cumulativeTokenOverlapScores;
+		setColumn(TokenScoreTable.OVERLAP_SCORE, cumulativeTokenOverlapScores);
+	}
+
+	private void setColumn(int column, Map<String, Double> scores) {
+		// The argument might be a view of the very column:
+		Map<String, Double> copy = new LinkedHashMap<String, Double>(scores);
+		Map<String, Double> view = getTokenScoreTable().getColumn(column);
+		view.clear();
+		view.putAll(copy);
 	}
 
 	public double getTotalTokenBitScore() {
@@ -312,10 +361,11 @@ public class TokenScoreCalculator {
 	/**
 	 * Get tokenScores.
 	 * 
-	 * @return tokenScores as Map<String, Double>.
+	 * @return A view of the tokenScores held in the TokenScoreTable as
+	 *         Map<String, Double>.
 	 */
 	public Map<String, Double> getTokenScores() {
-		return tokenScores;
+		return getTokenScoreTable().getColumn(TokenScoreTable.TOKEN_SCORE);
 	}
 
 	/**
@@ -325,6 +375,6 @@ public class TokenScoreCalculator {
 	 *            the value to set.
 	 */
 	public void setTokenScores(Map<String, Double> tokenScores) {
-		this.tokenScores = tokenScores;
+		setColumn(TokenScoreTable.TOKEN_SCORE, tokenScores);
 	}
 }
@@ -0,0 +1,338 @@
+package ahrd.model;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Holds the scores of a Protein's tokens without boxing them. Each token is
+ * assigned a slot on its first occurrence. For each slot the cumulative
+ * Bit-Score, Blast-Database-Score, Overlap-Score and the Token-Score are stored
+ * side by side in a single array of primitive doubles, the columns. Tokens
+ * are looked up by their IDs in the <code>TokenDictionary</code> using an open
+ * addressing hash table.
+ *
+ * A column can also be accessed as a <code>Map&lt;String, Double&gt;</code>,
+ * see <code>getColumn</code>. Such a view reads and writes through to this
+ * table, and iterates the tokens in the order of their first occurrence.
+ *
+ * Instances are not thread-safe.
+ *
+ * @author hallab, klee
+ */
+public class TokenScoreTable {
+
+	public static final int BIT_SCORE = 0;
+	public static final int BLAST_DATABASE_SCORE = 1;
+	public static final int OVERLAP_SCORE = 2;
+	public static final int TOKEN_SCORE = 3;
+	public static final int N_COLUMNS = 4;
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * Open addressing hash table holding slot + 1, zero meaning empty.
+	 */
+	private int[] hashTable = new int[INITIAL_CAPACITY * 2];
+	/**
+	 * The Token IDs of the slots.
+	 */
+	private int[] ids = new int[INITIAL_CAPACITY];
+	private double[] scores = new double[INITIAL_CAPACITY * N_COLUMNS];
+	/**
+	 * Bit i is set, if column i holds a value for the slot's token.
+	 */
+	private byte[] present = new byte[INITIAL_CAPACITY];
+	private int nSlots = 0;
+	private int[] columnSizes = new int[N_COLUMNS];
+
+	private static int hash(int id) {
+		int h = id * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * @return The slot of the token with the argument ID or -1, if it has
+	 *         none.
+	 */
+	public int slotOfId(int id) {
+		int mask = this.hashTable.length - 1;
+		for (int i = hash(id) & mask;; i = (i + 1) & mask) {
+			int s = this.hashTable[i];
+			if (s == 0)
+				return -1;
+			if (this.ids[s - 1] == id)
+				return s - 1;
+		}
+	}
+
+	/**
+	 * @return The slot of the token with the argument ID, which is created if
+	 *         required.
+	 */
+	public int slotForId(int id) {
+		int mask = this.hashTable.length - 1;
+		int i = hash(id) & mask;
+		for (;; i = (i + 1) & mask) {
+			int s = this.hashTable[i];
+			if (s == 0)
+				break;
+			if (this.ids[s - 1] == id)
+				return s - 1;
+		}
+		if (this.nSlots == this.ids.length) {
+			int capacity = this.ids.length * 2;
+			this.ids = Arrays.copyOf(this.ids, capacity);
+			this.scores = Arrays.copyOf(this.scores, capacity * N_COLUMNS);
+			this.present = Arrays.copyOf(this.present, capacity);
+		}
+		int slot = this.nSlots++;
+		this.ids[slot] = id;
+		if (this.nSlots * 2 > this.hashTable.length) {
+			rehash(this.hashTable.length * 2);
+		} else {
+			this.hashTable[i] = slot + 1;
+		}
+		return slot;
+	}
+
+	/**
+	 * @return The argument token's slot or -1, if it has none.
+	 */
+	public int slot(String token) {
+		int id = TokenDictionary.lookup(token);
+		return id < 0 ? -1 : slotOfId(id);
+	}
+
+	/**
+	 * @return The argument token's slot, which is created if required.
+	 */
+	public int slotFor(String token) {
+		return slotForId(TokenDictionary.intern(token));
+	}
+
+	private void rehash(int capacity) {
+		this.hashTable = new int[capacity];
+		int mask = capacity - 1;
+		for (int slot = 0; slot < this.nSlots; slot++) {
+			int i = hash(this.ids[slot]) & mask;
+			while (this.hashTable[i] != 0)
+				i = (i + 1) & mask;
+			this.hashTable[i] = slot + 1;
+		}
+	}
+
+	public String getToken(int slot) {
+		return TokenDictionary.getToken(this.ids[slot]);
+	}
+
+	public int getNumberOfSlots() {
+		return this.nSlots;
+	}
+
+	public boolean contains(int slot, int column) {
+		return (this.present[slot] & (1 << column)) != 0;
+	}
+
+	public boolean contains(String token, int column) {
+		int slot = slot(token);
+		return slot >= 0 && contains(slot, column);
+	}
+
+	public double get(int slot, int column) {
+		return this.scores[slot * N_COLUMNS + column];
+	}
+
+	/**
+	 * @return The argument token's score in the argument column, or
+	 *         <code>Double.NaN</code> if there is none.
+	 */
+	public double get(String token, int column) {
+		return getById(TokenDictionary.lookup(token), column);
+	}
+
+	/**
+	 * @return The score of the token with the argument ID in the argument
+	 *         column, or <code>Double.NaN</code> if there is none.
+	 */
+	public double getById(int id, int column) {
+		int slot = id < 0 ? -1 : slotOfId(id);
+		return (slot >= 0 && contains(slot, column)) ? get(slot, column) : Double.NaN;
+	}
+
+	public void set(int slot, int column, double score) {
+		if (!contains(slot, column)) {
+			this.present[slot] |= 1 << column;
+			this.columnSizes[column]++;
+		}
+		this.scores[slot * N_COLUMNS + column] = score;
+	}
+
+	public void set(String token, int column, double score) {
+		set(slotFor(token), column, score);
+	}
+
+	/**
+	 * Adds the argument score to the one the argument slot holds in the
+	 * argument column. A missing score counts as zero.
+	 */
+	public void add(int slot, int column, double score) {
+		if (contains(slot, column))
+			this.scores[slot * N_COLUMNS + column] += score;
+		else
+			set(slot, column, score);
+	}
+
+	public void add(String token, int column, double score) {
+		add(slotFor(token), column, score);
+	}
+
+	public void remove(int slot, int column) {
+		if (contains(slot, column)) {
+			this.present[slot] &= ~(1 << column);
+			this.columnSizes[column]--;
+			this.scores[slot * N_COLUMNS + column] = 0.0;
+		}
+	}
+
+	/**
+	 * Removes all scores of the argument column.
+	 */
+	public void clear(int column) {
+		for (int slot = 0; slot < this.nSlots; slot++)
+			remove(slot, column);
+	}
+
+	public int size(int column) {
+		return this.columnSizes[column];
+	}
+
+	/**
+	 * @param column
+	 * @return A view of the argument column as a Map of tokens to scores.
+	 */
+	public Map<String, Double> getColumn(int column) {
+		return new Column(column);
+	}
+
+	/**
+	 * View of a single column.
+	 */
+	private class Column extends AbstractMap<String, Double> {
+
+		private int column;
+
+		public Column(int column) {
+			super();
+			this.column = column;
+		}
+
+		@Override
+		public Double get(Object token) {
+			if (!(token instanceof String))
+				return null;
+			int slot = slot((String) token);
+			return (slot >= 0 && contains(slot, this.column)) ? TokenScoreTable.this.get(slot, this.column) : null;
+		}
+
+		@Override
+		public boolean containsKey(Object token) {
+			return (token instanceof String) && contains((String) token, this.column);
+		}
+
+		@Override
+		public Double put(String token, Double score) {
+			int slot = slotFor(token);
+			Double previous = contains(slot, this.column) ? TokenScoreTable.this.get(slot, this.column) : null;
+			set(slot, this.column, score);
+			return previous;
+		}
+
+		@Override
+		public Double remove(Object token) {
+			Double previous = get(token);
+			if (previous != null)
+				TokenScoreTable.this.remove(slot((String) token), this.column);
+			return previous;
+		}
+
+		@Override
+		public int size() {
+			return TokenScoreTable.this.size(this.column);
+		}
+
+		@Override
+		public void clear() {
+			TokenScoreTable.this.clear(this.column);
+		}
+
+		@Override
+		public Set<Map.Entry<String, Double>> entrySet() {
+			return new AbstractSet<Map.Entry<String, Double>>() {
+				@Override
+				public Iterator<Map.Entry<String, Double>> iterator() {
+					return new ColumnIterator(column);
+				}
+
+				@Override
+				public int size() {
+					return Column.this.size();
+				}
+			};
+		}
+	}
+
+	/**
+	 * Iterates the tokens of a column in the order of their slots.
+	 */
+	private class ColumnIterator implements Iterator<Map.Entry<String, Double>> {
+
+		private int column;
+		private int next = -1;
+		private int current = -1;
+
+		public ColumnIterator(int column) {
+			super();
+			this.column = column;
+			advance();
+		}
+
+		private void advance() {
+			do {
+				this.next++;
+			} while (this.next < nSlots && !contains(this.next, this.column));
+		}
+
+		public boolean hasNext() {
+			return this.next < nSlots;
+		}
+
+		public Map.Entry<String, Double> next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			this.current = this.next;
+			advance();
+			final int slot = this.current;
+			return new AbstractMap.SimpleEntry<String, Double>(getToken(slot), get(slot, this.column)) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				public Double setValue(Double score) {
+					set(slot, column, score);
+					return super.setValue(score);
+				}
+			};
+		}
+
+		public void remove() {
+			if (this.current < 0)
+				throw new IllegalStateException();
+			TokenScoreTable.this.remove(this.current, this.column);
+			this.current = -1;
+		}
+	}
+
+}
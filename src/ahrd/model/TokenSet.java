@@ -0,0 +1,287 @@
+package ahrd.model;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A set of Tokens held as the sorted array of their IDs in the
+ * <code>TokenDictionary</code>. Tokens are iterated in the order of their IDs,
+ * i.e. in the order they have first been interned.
+ *
+ * As Tokens are interned concurrently by parallel parsers, their IDs and
+ * thus this order depend on thread timing. Floating point sums over the
+ * Tokens must therefore visit them in the canonical order of the Tokens
+ * themselves, see <code>getIdInTokenOrder</code>, so that they do not differ
+ * between runs.
+ *
+ * Set operations between two TokenSets, like
+ * <code>intersectionSize</code>, merge the sorted IDs and do not need to look
+ * up any Token.
+ *
+ * Once frozen, see <code>freeze</code>, a TokenSet cannot be modified and
+ * can be shared, e.g. by a <code>Subject</code>. Otherwise instances are not
+ * thread-safe.
+ *
+ * @author hallab, klee
+ */
+public class TokenSet extends AbstractSet<String> {
+
+	private static final int[] EMPTY = new int[0];
+	private static final TokenSet EMPTY_TOKEN_SET = new TokenSet().freeze();
+
+	private int[] ids = EMPTY;
+	private int size = 0;
+	private boolean frozen = false;
+	/**
+	 * The IDs sorted by their Tokens, computed on demand and discarded when
+	 * this set is modified, see <code>getIdInTokenOrder</code>.
+	 */
+	private volatile int[] idsInTokenOrder;
+
+	public TokenSet() {
+		super();
+	}
+
+	public TokenSet(Collection<String> tokens) {
+		this();
+		if (tokens instanceof TokenSet) {
+			TokenSet other = (TokenSet) tokens;
+			this.ids = Arrays.copyOf(other.ids, other.size);
+			this.size = other.size;
+		} else {
+			for (String token : tokens)
+				add(token);
+		}
+	}
+
+	/**
+	 * @param tokens
+	 * @return The argument set itself, if it is a TokenSet, or a TokenSet
+	 *         holding the same Tokens. <code>null</code> is returned for
+	 *         <code>null</code>.
+	 */
+	public static TokenSet valueOf(Set<String> tokens) {
+		if (tokens == null || tokens instanceof TokenSet)
+			return (TokenSet) tokens;
+		return new TokenSet(tokens);
+	}
+
+	/**
+	 * @return A single frozen empty TokenSet shared by all callers.
+	 */
+	public static TokenSet emptyTokenSet() {
+		return EMPTY_TOKEN_SET;
+	}
+
+	/**
+	 * @param tokens
+	 * @return The argument set itself, if it is frozen, or a frozen copy of
+	 *         it. <code>null</code> is returned for <code>null</code>.
+	 */
+	public static TokenSet frozenCopyOf(TokenSet tokens) {
+		if (tokens == null || tokens.isFrozen())
+			return tokens;
+		return new TokenSet(tokens).freeze();
+	}
+
+	/**
+	 * Makes this TokenSet unmodifiable. Any further attempt to modify it
+	 * throws an UnsupportedOperationException.
+	 *
+	 * @return This TokenSet
+	 */
+	public TokenSet freeze() {
+		this.frozen = true;
+		return this;
+	}
+
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	private void checkNotFrozen() {
+		if (this.frozen)
+			throw new UnsupportedOperationException("TokenSet is frozen and cannot be modified.");
+	}
+
+	/**
+	 * @param id
+	 * @return The index of the argument ID in the sorted IDs, or
+	 *         <code>-(insertion point) - 1</code> if absent.
+	 */
+	private int indexOf(int id) {
+		return Arrays.binarySearch(this.ids, 0, this.size, id);
+	}
+
+	/**
+	 * @param i
+	 * @return The i-th smallest Token ID.
+	 */
+	public int getId(int i) {
+		return this.ids[i];
+	}
+
+	/**
+	 * @param i
+	 * @return The ID of the i-th smallest Token in the natural order of
+	 *         Strings, which, unlike the order of IDs, is the same in every
+	 *         run.
+	 */
+	public int getIdInTokenOrder(int i) {
+		int[] sorted = this.idsInTokenOrder;
+		if (sorted == null) {
+			// Token sets are small, so insertion sort is sufficient:
+			sorted = Arrays.copyOf(this.ids, this.size);
+			for (int j = 1; j < sorted.length; j++) {
+				int id = sorted[j];
+				String token = TokenDictionary.getToken(id);
+				int k = j - 1;
+				while (k >= 0 && TokenDictionary.getToken(sorted[k]).compareTo(token) > 0) {
+					sorted[k + 1] = sorted[k];
+					k--;
+				}
+				sorted[k + 1] = id;
+			}
+			this.idsInTokenOrder = sorted;
+		}
+		return sorted[i];
+	}
+
+	public boolean containsId(int id) {
+		return id >= 0 && indexOf(id) >= 0;
+	}
+
+	public boolean addId(int id) {
+		checkNotFrozen();
+		int i = indexOf(id);
+		if (i >= 0)
+			return false;
+		i = -i - 1;
+		if (this.size == this.ids.length)
+			this.ids = Arrays.copyOf(this.ids, Math.max(4, this.size * 2));
+		System.arraycopy(this.ids, i, this.ids, i + 1, this.size - i);
+		this.ids[i] = id;
+		this.size++;
+		this.idsInTokenOrder = null;
+		return true;
+	}
+
+	public boolean removeId(int id) {
+		checkNotFrozen();
+		int i = id >= 0 ? indexOf(id) : -1;
+		if (i < 0)
+			return false;
+		removeAt(i);
+		return true;
+	}
+
+	private void removeAt(int i) {
+		System.arraycopy(this.ids, i + 1, this.ids, i, this.size - i - 1);
+		this.size--;
+		this.idsInTokenOrder = null;
+	}
+
+	/**
+	 * @param other
+	 * @return The number of Tokens shared by this and the argument TokenSet.
+	 */
+	public int intersectionSize(TokenSet other) {
+		int n = 0;
+		int i = 0;
+		int j = 0;
+		while (i < this.size && j < other.size) {
+			int a = this.ids[i];
+			int b = other.ids[j];
+			if (a == b) {
+				n++;
+				i++;
+				j++;
+			} else if (a < b) {
+				i++;
+			} else {
+				j++;
+			}
+		}
+		return n;
+	}
+
+	@Override
+	public boolean add(String token) {
+		return addId(TokenDictionary.intern(token));
+	}
+
+	@Override
+	public boolean contains(Object token) {
+		return (token instanceof String) && containsId(TokenDictionary.lookup((String) token));
+	}
+
+	@Override
+	public boolean remove(Object token) {
+		return (token instanceof String) && removeId(TokenDictionary.lookup((String) token));
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public void clear() {
+		checkNotFrozen();
+		this.size = 0;
+		this.idsInTokenOrder = null;
+	}
+
+	@Override
+	public Iterator<String> iterator() {
+		return new Iterator<String>() {
+			private int next = 0;
+			private boolean removable = false;
+
+			public boolean hasNext() {
+				return this.next < size;
+			}
+
+			public String next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				this.removable = true;
+				return TokenDictionary.getToken(ids[this.next++]);
+			}
+
+			public void remove() {
+				if (!this.removable)
+					throw new IllegalStateException();
+				checkNotFrozen();
+				removeAt(--this.next);
+				this.removable = false;
+			}
+		};
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (o instanceof TokenSet) {
+			TokenSet other = (TokenSet) o;
+			if (other.size != this.size)
+				return false;
+			for (int i = 0; i < this.size; i++) {
+				if (this.ids[i] != other.ids[i])
+					return false;
+			}
+			return true;
+		}
+		return super.equals(o);
+	}
+
+	@Override
+	public int hashCode() {
+		// Must equal the hash code of any other Set holding the same Tokens:
+		return super.hashCode();
+	}
+
+}
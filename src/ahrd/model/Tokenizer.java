@@ -0,0 +1,109 @@
+package ahrd.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Splits descriptions into lower case Tokens in a single pass over their
+ * characters. A Tokenizer recognizes the same delimiters as
+ * <code>BlastResult.TOKEN_SPLITTER_REGEX</code>, lowercases each Token into a
+ * reusable buffer and adds those passing the Token blacklist to a caller
+ * supplied TokenSet. Blacklisted Tokens are not interned.
+ *
+ * Instances are not thread-safe, use one per thread, see
+ * <code>TokenScoreCalculator.tokenize</code>.
+ *
+ * @author hallab, klee
+ */
+public class Tokenizer {
+
+	/**
+	 * Lowercasing ASCII letters by hand is only equivalent to
+	 * <code>String.toLowerCase()</code>, if the default locale does not treat
+	 * them specially, as e.g. Turkish does.
+	 */
+	private static final boolean ASCII_LOWER_CASE = "ABCDEFGHIJKLMNOPQRSTUVWXYZ".toLowerCase()
+			.equals("abcdefghijklmnopqrstuvwxyz");
+
+	private char[] buffer = new char[64];
+
+	public Tokenizer() {
+		super();
+	}
+
+	/**
+	 * @param c
+	 * @return TRUE if and only if the argument character is matched by
+	 *         <code>BlastResult.TOKEN_SPLITTER_REGEX</code>.
+	 */
+	public static boolean isDelimiter(char c) {
+		switch (c) {
+		case '-':
+		case '/':
+		case ';':
+		case '\\':
+		case ',':
+		case ':':
+		case '"':
+		case '\'':
+		case '.':
+		case '|':
+		case '(':
+		case ')':
+		case ' ':
+		case '\t':
+		case '\n':
+		case '\u000B':
+		case '\f':
+		case '\r':
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Adds the lower case Tokens of the argument description, that pass the
+	 * argument Token blacklist, to the argument TokenSet.
+	 *
+	 * @param description
+	 * @param tokenBlacklist
+	 * @param tokens
+	 *            - receives the Tokens
+	 */
+	public void tokenize(String description, List<String> tokenBlacklist, TokenSet tokens) {
+		PatternSet blacklist = PatternSet.valueOf(tokenBlacklist);
+		int length = description.length();
+		int start = 0;
+		while (start < length) {
+			// Skip delimiters:
+			while (start < length && isDelimiter(description.charAt(start)))
+				start++;
+			if (start == length)
+				break;
+			// Scan and lowercase the Token:
+			int end = start;
+			boolean ascii = ASCII_LOWER_CASE;
+			while (end < length) {
+				char c = description.charAt(end);
+				if (isDelimiter(c))
+					break;
+				if (c >= 'A' && c <= 'Z')
+					c += 'a' - 'A';
+				else if (c > 127)
+					ascii = false;
+				if (end - start == this.buffer.length)
+					this.buffer = Arrays.copyOf(this.buffer, this.buffer.length * 2);
+				this.buffer[end - start] = c;
+				end++;
+			}
+			// Leave lowercasing of other characters to the JDK:
+			String token = ascii ? new String(this.buffer, 0, end - start)
+					: description.substring(start, end).toLowerCase();
+			if (!blacklist.matchesAny(token))
+				tokens.add(token);
+			start = end;
+		}
+	}
+
+}
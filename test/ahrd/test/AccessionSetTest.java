@@ -0,0 +1,58 @@
+package ahrd.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import ahrd.model.AccessionSet;
+
+public class AccessionSetTest {
+
+	public AccessionSetTest() {
+		super();
+	}
+
+	@Test
+	public void testContainsRegions() {
+		AccessionSet accessions = new AccessionSet(
+				Arrays.asList("sp|Q9ZWC8|BRL1_ARATH", "AT3G03300.2", "AT3G03300.2", ""));
+		assertEquals(3, accessions.size());
+		assertTrue(accessions.contains("AT3G03300.2"));
+		assertTrue(accessions.contains(">sp|Q9ZWC8|BRL1_ARATH Serine/threonine-protein kinase", 1, 21));
+		assertTrue(accessions.contains(">AT3G03300.2 | Symbols: DCL2", 1, 12));
+		assertTrue(accessions.contains(">", 1, 1));
+		assertFalse(accessions.contains(">AT3G03300.2 | Symbols: DCL2", 1, 11));
+		assertFalse(accessions.contains(">AT3G03300.2 | Symbols: DCL2", 0, 12));
+		assertFalse(accessions.contains("AT3G03300.1"));
+	}
+
+	@Test
+	public void testContainsByteRegions() {
+		AccessionSet accessions = new AccessionSet(Arrays.asList("AT1G01040.1", "W9QFR0"));
+		byte[] line = "UniProtKB\tAT1G01040.1\tmoeA5\t\tGO:0003824".getBytes();
+		assertTrue(accessions.contains(line, 10, 21));
+		assertFalse(accessions.contains(line, 10, 20));
+		assertFalse(accessions.contains(line, 0, 9));
+		assertTrue(accessions.contains("W9QFR0".getBytes(), 0, 6));
+	}
+
+	@Test
+	public void testManyAccessions() {
+		List<String> inserted = new ArrayList<String>();
+		for (int i = 0; i < 10000; i++)
+			inserted.add("tr|A" + i + "|A" + i + "_HUMAN");
+		AccessionSet accessions = new AccessionSet(inserted);
+		assertEquals(inserted.size(), accessions.size());
+		for (int i = 0; i < 20000; i++) {
+			String header = ">tr|A" + i + "|A" + i + "_HUMAN Uncharacterized protein OS=Homo sapiens";
+			assertEquals(i < 10000, accessions.contains(header, 1, header.indexOf(' ')));
+		}
+	}
+
+}
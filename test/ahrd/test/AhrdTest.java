@@ -1,10 +1,14 @@
 package ahrd.test;
 
+import static ahrd.controller.Settings.getSettings;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -16,6 +20,7 @@ import ahrd.exception.MissingProteinException;
 import ahrd.model.BlastResult;
 import ahrd.model.InterproResult;
 import ahrd.model.Protein;
+import ahrd.model.TokenScoreCalculator;
 
 public class AhrdTest {
 
@@ -83,4 +88,68 @@ public class AhrdTest {
 			assertTrue(protein.getInterproResults().size() > 0);
 		}
 	}
+
+	@Test
+	public void testConcurrentSetup() throws Exception {
+		ahrd.setup(false);
+		AHRD concurrent = new AHRD("./test/resources/ahrd_input.yml");
+		getSettings().setConcurrentSetup(true);
+		concurrent.setup(false);
+		// The parser pool is only shared during the setup:
+		assertNull(getSettings().getParserPool());
+		assertEquals(ahrd.getProteins().keySet(), concurrent.getProteins().keySet());
+		for (String protAcc : ahrd.getProteins().keySet()) {
+			Protein expected = ahrd.getProteins().get(protAcc);
+			Protein protein = concurrent.getProteins().get(protAcc);
+			assertEquals(expected.getBlastResults().keySet(), protein.getBlastResults().keySet());
+			for (String blastDb : expected.getBlastResults().keySet()) {
+				List<BlastResult> expectedBrs = expected.getBlastResults().get(blastDb);
+				List<BlastResult> brs = protein.getBlastResults().get(blastDb);
+				assertEquals(expectedBrs.size(), brs.size());
+				for (int i = 0; i < expectedBrs.size(); i++) {
+					assertEquals(expectedBrs.get(i).getAccession(), brs.get(i).getAccession());
+					assertEquals(expectedBrs.get(i).getBitScore(), brs.get(i).getBitScore());
+					assertSame(protein, brs.get(i).getProtein());
+				}
+			}
+			// Scores have to be identical, not just approximately equal:
+			TokenScoreCalculator expectedTsc = expected.getTokenScoreCalculator();
+			TokenScoreCalculator tsc = protein.getTokenScoreCalculator();
+			assertEquals(expectedTsc.getCumulativeTokenBitScores(), tsc.getCumulativeTokenBitScores());
+			assertEquals(expectedTsc.getCumulativeTokenBlastDatabaseScores(),
+					tsc.getCumulativeTokenBlastDatabaseScores());
+			assertEquals(expectedTsc.getCumulativeTokenOverlapScores(), tsc.getCumulativeTokenOverlapScores());
+			assertEquals(expectedTsc.getTotalTokenBitScore(), tsc.getTotalTokenBitScore(), 0.0);
+			assertEquals(expectedTsc.getTotalTokenBlastDatabaseScore(), tsc.getTotalTokenBlastDatabaseScore(), 0.0);
+			assertEquals(expectedTsc.getTotalTokenOverlapScore(), tsc.getTotalTokenOverlapScore(), 0.0);
+			assertEquals(expected.getDescriptionScoreCalculator().getMaxBitScore(),
+					protein.getDescriptionScoreCalculator().getMaxBitScore(), 0.0);
+			assertEquals(expected.getInterproResults().size(), protein.getInterproResults().size());
+			assertTrue(protein.getInterproResults().size() > 0);
+		}
+	}
+
+	@Test
+	public void testParallelAnnotation() throws Exception {
+		ahrd.setup(false);
+		ahrd.assignHumanReadableDescriptions();
+		AHRD parallel = new AHRD("./test/resources/ahrd_input.yml");
+		getSettings().setAnnotationThreads(4);
+		parallel.setup(false);
+		parallel.assignHumanReadableDescriptions();
+		for (String protAcc : ahrd.getProteins().keySet()) {
+			Protein expected = ahrd.getProteins().get(protAcc);
+			Protein protein = parallel.getProteins().get(protAcc);
+			BlastResult expectedBr = expected.getDescriptionScoreCalculator().getHighestScoringBlastResult();
+			BlastResult br = protein.getDescriptionScoreCalculator().getHighestScoringBlastResult();
+			assertNotNull(br);
+			assertEquals(expectedBr.getAccession(), br.getAccession());
+			assertEquals(expectedBr.getDescription(), br.getDescription());
+			assertEquals(expectedBr.getDescriptionScore(), br.getDescriptionScore(), 0.0);
+			assertEquals(expected.getTokenScoreCalculator().getTokenScores(),
+					protein.getTokenScoreCalculator().getTokenScores());
+			assertEquals(expected.getGoResults(), protein.getGoResults());
+			assertEquals(expected.getInterproResults().size(), protein.getInterproResults().size());
+		}
+	}
 }
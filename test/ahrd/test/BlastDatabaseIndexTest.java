@@ -0,0 +1,154 @@
+package ahrd.test;
+
+import static ahrd.controller.Settings.getSettings;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ahrd.controller.Settings;
+import ahrd.exception.MissingProteinException;
+import ahrd.model.BlastDatabaseIndex;
+import ahrd.model.BlastResult;
+import ahrd.model.Protein;
+
+public class BlastDatabaseIndexTest {
+
+	private File blastDatabase;
+
+	public BlastDatabaseIndexTest() {
+		super();
+	}
+
+	/**
+	 * The index is written next to a copy of the tair Blast database, so that
+	 * no index files are left in the test resources.
+	 */
+	@Before
+	public void setUp() throws IOException {
+		TestUtils.initTestSettings();
+		this.blastDatabase = File.createTempFile("tair_blast_db", ".fasta");
+		Files.copy(new File("./test/resources/tair_blast_db.fasta").toPath(), this.blastDatabase.toPath(),
+				StandardCopyOption.REPLACE_EXISTING);
+		getSettings().getBlastDbSettings().get("tair").put(Settings.BLAST_DATABASE_KEY,
+				this.blastDatabase.getPath());
+	}
+
+	@After
+	public void tearDown() {
+		new File(BlastDatabaseIndex.getPathToIndex(this.blastDatabase.getPath())).delete();
+		this.blastDatabase.delete();
+	}
+
+	/**
+	 * Only the copy of the tair Blast database is indexed, the other test
+	 * Blast databases are left untouched.
+	 */
+	private void indexTair() throws IOException {
+		assertTrue(BlastDatabaseIndex.write(this.blastDatabase.getPath(), getSettings().getFastaHeaderRegex("tair"),
+				"tair") > 0);
+		// The index is moved into place, once it has been written completely:
+		assertFalse(new File(BlastDatabaseIndex.getPathToIndex(this.blastDatabase.getPath())
+				+ BlastDatabaseIndex.TMP_FILE_SUFFIX).exists());
+	}
+
+	@Test
+	public void testParseBlastDatabaseWithIndex() throws IOException, MissingProteinException {
+		indexTair();
+		BlastDatabaseIndex index = BlastDatabaseIndex.open(this.blastDatabase.getPath(),
+				getSettings().getFastaHeaderRegex("tair"));
+		assertNotNull(index);
+		index.close();
+		Map<String, Protein> protDb = TestUtils.mockProteinDb();
+		Map<String, List<BlastResult>> brs = BlastResult.parseBlastResults(protDb, "tair", null);
+		BlastResult.parseBlastDatabase(protDb, "tair", brs);
+		Protein p1 = protDb.get("gene:chr01.502:mRNA:chr01.502");
+		Protein p2 = protDb.get("gene:chr01.1056:mRNA:chr01.1056");
+		assertEquals(7, p1.getBlastResults().get("tair").size());
+		assertEquals("AT3G03300.2", p1.getBlastResults().get("tair").get(0).getAccession());
+		assertEquals(Integer.valueOf(1375), p1.getBlastResults().get("tair").get(0).getSubjectLength());
+		assertEquals(200, p2.getBlastResults().get("tair").size());
+		assertEquals("AT3G45420.1", p2.getBlastResults().get("tair").get(199).getAccession());
+		assertEquals(Integer.valueOf(668), p2.getBlastResults().get("tair").get(199).getSubjectLength());
+	}
+
+	@Test
+	public void testIndexGivesSameResultsAsScan() throws IOException, MissingProteinException {
+		Map<String, Protein> scannedDb = TestUtils.mockProteinDb();
+		Map<String, List<BlastResult>> scanned = BlastResult.parseBlastResults(scannedDb, "tair", null);
+		BlastResult.parseBlastDatabase(scannedDb, "tair", scanned);
+
+		indexTair();
+		Map<String, Protein> indexedDb = TestUtils.mockProteinDb();
+		Map<String, List<BlastResult>> indexed = BlastResult.parseBlastResults(indexedDb, "tair", null);
+		BlastResult.parseBlastDatabase(indexedDb, "tair", indexed);
+
+		for (String protAcc : scannedDb.keySet()) {
+			List<BlastResult> expected = scannedDb.get(protAcc).getBlastResults().get("tair");
+			List<BlastResult> found = indexedDb.get(protAcc).getBlastResults().get("tair");
+			if (expected == null) {
+				assertNull(found);
+				continue;
+			}
+			assertEquals(expected.size(), found.size());
+			for (int i = 0; i < expected.size(); i++) {
+				assertEquals(expected.get(i).getAccession(), found.get(i).getAccession());
+				assertEquals(expected.get(i).getDescription(), found.get(i).getDescription());
+				assertEquals(expected.get(i).getSubjectLength(), found.get(i).getSubjectLength());
+			}
+		}
+	}
+
+	@Test
+	public void testLookupMissingAccession() throws IOException {
+		indexTair();
+		BlastDatabaseIndex index = BlastDatabaseIndex.open(this.blastDatabase.getPath(),
+				getSettings().getFastaHeaderRegex("tair"));
+		List<BlastDatabaseIndex.Entry> entries = new ArrayList<BlastDatabaseIndex.Entry>();
+		index.lookup("AT9G99999.9", entries);
+		assertTrue(entries.isEmpty());
+		index.lookup("AT3G45420.1", entries);
+		assertEquals(1, entries.size());
+		assertEquals(668, entries.get(0).getSequenceLength());
+		index.close();
+	}
+
+	@Test
+	public void testReplacesExistingIndex() throws IOException {
+		indexTair();
+		indexTair();
+		BlastDatabaseIndex index = BlastDatabaseIndex.open(this.blastDatabase.getPath(),
+				getSettings().getFastaHeaderRegex("tair"));
+		assertNotNull(index);
+		index.close();
+	}
+
+	@Test
+	public void testIgnoresInvalidIndex() throws IOException {
+		indexTair();
+		// Another regular expression to parse the FASTA headers:
+		assertNull(BlastDatabaseIndex.open(this.blastDatabase.getPath(),
+				Pattern.compile("^>(?<accession>\\S+)\\s+(?<description>.+)$")));
+		// Changed Blast database:
+		FileWriter fw = new FileWriter(this.blastDatabase, true);
+		fw.write(">AT9G99999.9 | Symbols: | new protein | chr9:1-3 FORWARD LENGTH=1\nM\n");
+		fw.close();
+		assertNull(BlastDatabaseIndex.open(this.blastDatabase.getPath(), getSettings().getFastaHeaderRegex("tair")));
+	}
+
+}
@@ -0,0 +1,88 @@
+package ahrd.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ahrd.model.AccessionSet;
+import ahrd.model.BlastDatabaseScanner;
+import ahrd.model.FastaHeaderParser;
+
+public class BlastDatabaseScannerTest {
+
+	private File blastDatabase;
+	private FastaHeaderParser fastaHeaderParser;
+	private AccessionSet hitAccessions;
+
+	public BlastDatabaseScannerTest() {
+		super();
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		TestUtils.initTestSettings();
+		this.blastDatabase = File.createTempFile("blast_db", ".fasta");
+		FileWriter fw = new FileWriter(this.blastDatabase);
+		fw.write("ignored line\n");
+		fw.write(">sp|P1|ONE_ARATH Protein one OS=Arabidopsis thaliana\nMKLV\n MKL \n\n");
+		fw.write(">sp|P2|TWO_ARATH Protein two OS=Arabidopsis thaliana\r\nMK\r\nLV\r\n");
+		fw.write(">sp|P3|THREE_ARATH Protein three OS=Arabidopsis thaliana\rMKLVM\rM\r");
+		fw.write(">sp|P4|FOUR_ARATH Not a Hit OS=Arabidopsis thaliana\nMKLVMKLV\n");
+		fw.write(">sp|P5|FIVE_ARATH Protein five OS=Arabidopsis thaliana\nMKLVMKLVMK");
+		fw.close();
+		this.fastaHeaderParser = FastaHeaderParser.valueOf(FastaHeaderParser.UNIPROT_FORMAT, null, null);
+		this.hitAccessions = new AccessionSet(
+				Arrays.asList("sp|P1|ONE_ARATH", "sp|P2|TWO_ARATH", "sp|P3|THREE_ARATH", "sp|P5|FIVE_ARATH"));
+	}
+
+	@After
+	public void tearDown() {
+		this.blastDatabase.delete();
+	}
+
+	/**
+	 * @return The accession, sequence length and description of each Hit
+	 *         found within the argument ranges.
+	 */
+	private List<String> scan(long... boundaries) throws IOException {
+		List<String> hits = new ArrayList<String>();
+		for (int i = 0; i < boundaries.length - 1; i++) {
+			BlastDatabaseScanner scanner = new BlastDatabaseScanner(this.blastDatabase.getPath(), boundaries[i],
+					boundaries[i + 1], this.fastaHeaderParser, this.hitAccessions, "swissprot");
+			while (scanner.next()) {
+				hits.add(scanner.getAccession() + " " + scanner.getSequenceLength() + " " + scanner.getDescription());
+			}
+			scanner.close();
+		}
+		return hits;
+	}
+
+	@Test
+	public void testScanWholeFile() throws IOException {
+		assertEquals(Arrays.asList("sp|P1|ONE_ARATH 7 Protein one", "sp|P2|TWO_ARATH 4 Protein two",
+				"sp|P3|THREE_ARATH 6 Protein three", "sp|P5|FIVE_ARATH 10 Protein five"),
+				scan(0, this.blastDatabase.length()));
+	}
+
+	@Test
+	public void testScanRangesSplitAnywhere() throws IOException {
+		long size = this.blastDatabase.length();
+		List<String> expected = scan(0, size);
+		for (long split = 0; split <= size; split++) {
+			assertEquals(expected, scan(0, split, size));
+			for (long secondSplit = split; secondSplit <= size; secondSplit += 7) {
+				assertEquals(expected, scan(0, split, secondSplit, size));
+			}
+		}
+	}
+
+}
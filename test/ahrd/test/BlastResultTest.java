@@ -13,13 +13,16 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import ahrd.controller.Settings;
 import ahrd.exception.MissingProteinException;
 import ahrd.model.BlastResult;
 import ahrd.model.Protein;
+import ahrd.model.SameHitBlastResults;
 
 public class BlastResultTest {
 
@@ -86,6 +89,28 @@ public class BlastResultTest {
 		assertEquals(1, blastResults.get("accession_2").size());
 	}
 
+	@Test
+	public void testAddBlastResultOfHitFoundForManyQueries() {
+		List<Protein> queries = new ArrayList<Protein>();
+		for (int i = 0; i < 3 * SameHitBlastResults.INDEX_THRESHOLD; i++)
+			queries.add(new Protein("query_" + i, 300));
+		Map<String, List<BlastResult>> blastResults = new HashMap<String, List<BlastResult>>();
+		for (Protein query : queries)
+			BlastResult.addBlastResult(blastResults,
+					new BlastResult("accession_1", 1.0, 10, 20, 10, 20, 200, "swissprot", query), null);
+		for (Protein query : queries)
+			BlastResult.addBlastResult(blastResults,
+					new BlastResult("accession_1", 1.0, 10, 20, 10, 20, 100, "swissprot", query), null);
+		BlastResult.addBlastResult(blastResults,
+				new BlastResult("accession_1", 1.0, 10, 20, 10, 20, 300, "swissprot", queries.get(20)), null);
+		List<BlastResult> sameHitBrs = blastResults.get("accession_1");
+		assertEquals(queries.size(), sameHitBrs.size());
+		for (int i = 0; i < queries.size(); i++) {
+			assertEquals(queries.get(i), sameHitBrs.get(i).getProtein());
+			assertEquals(Double.valueOf(i == 20 ? 300 : 200), sameHitBrs.get(i).getBitScore());
+		}
+	}
+
 	@Test
 	public void testParseBlastResults() throws MissingProteinException, IOException {
 		Map<String, Protein> protDb = TestUtils.mockProteinDb();
@@ -121,6 +146,97 @@ public class BlastResultTest {
 		assertEquals(brs.size(), 207);
 	}
 
+	@Test
+	public void testParseBlastResultsInChunks() throws MissingProteinException, IOException {
+		Map<String, Protein> protDb = TestUtils.mockProteinDb();
+		for (String blastDb : Arrays.asList("swissprot", "tair", "trembl")) {
+			Map<String, List<BlastResult>> sequential = BlastResult.parseBlastResults(protDb, blastDb, null, 1);
+			Map<String, List<BlastResult>> chunked = BlastResult.parseBlastResults(protDb, blastDb, null, 7);
+			assertEquals(sequential.keySet(), chunked.keySet());
+			for (String hitAcc : sequential.keySet()) {
+				assertEquals(sequential.get(hitAcc).size(), chunked.get(hitAcc).size());
+				for (int i = 0; i < sequential.get(hitAcc).size(); i++) {
+					BlastResult expected = sequential.get(hitAcc).get(i);
+					BlastResult br = chunked.get(hitAcc).get(i);
+					assertEquals(expected.getProtein(), br.getProtein());
+					assertEquals(expected.getEValue(), br.getEValue());
+					assertEquals(expected.getBitScore(), br.getBitScore());
+					assertEquals(expected.getQueryStart(), br.getQueryStart());
+					assertEquals(expected.getQueryEnd(), br.getQueryEnd());
+					assertEquals(expected.getSubjectStart(), br.getSubjectStart());
+					assertEquals(expected.getSubjectEnd(), br.getSubjectEnd());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Groups the argument BlastResults by their query proteins.
+	 */
+	private Map<Protein, List<BlastResult>> blastResultsByQuery(Map<String, List<BlastResult>> brs) {
+		Map<Protein, List<BlastResult>> byQuery = new HashMap<Protein, List<BlastResult>>();
+		for (List<BlastResult> hitBrs : brs.values()) {
+			for (BlastResult br : hitBrs) {
+				if (!byQuery.containsKey(br.getProtein()))
+					byQuery.put(br.getProtein(), new ArrayList<BlastResult>());
+				byQuery.get(br.getProtein()).add(br);
+			}
+		}
+		return byQuery;
+	}
+
+	@Test
+	public void testParseBlastResultsWhileFilteringBestHits() throws MissingProteinException, IOException {
+		Map<String, Protein> protDb = TestUtils.mockProteinDb();
+		Map<Protein, List<BlastResult>> all = blastResultsByQuery(
+				BlastResult.parseBlastResults(protDb, "tair", null, 1));
+		getSettings().getBlastDbSettings().get("tair").put(Settings.MAX_HITS_KEY, "5");
+		getSettings().setFilterBestHitsWhileParsing(true);
+		Map<String, List<BlastResult>> brs = BlastResult.parseBlastResults(protDb, "tair", null, 1);
+		Map<Protein, List<BlastResult>> best = blastResultsByQuery(brs);
+		assertEquals(all.keySet(), best.keySet());
+		for (Protein query : all.keySet()) {
+			List<BlastResult> bestBrs = best.get(query);
+			assertEquals(Math.min(5, all.get(query).size()), bestBrs.size());
+			Set<String> bestAccs = new HashSet<String>();
+			double worstRetained = 0.0;
+			for (BlastResult br : bestBrs) {
+				bestAccs.add(br.getAccession());
+				worstRetained = Math.max(worstRetained, br.getEValue());
+			}
+			for (BlastResult br : all.get(query)) {
+				if (!bestAccs.contains(br.getAccession()))
+					assertTrue(br.getEValue() >= worstRetained);
+			}
+		}
+		// Parsing in chunks retains the very same Hits:
+		Map<String, List<BlastResult>> chunked = BlastResult.parseBlastResults(protDb, "tair", null, 7);
+		assertEquals(brs.keySet(), chunked.keySet());
+		for (String hitAcc : brs.keySet()) {
+			assertEquals(brs.get(hitAcc).size(), chunked.get(hitAcc).size());
+			for (int i = 0; i < brs.get(hitAcc).size(); i++) {
+				assertEquals(brs.get(hitAcc).get(i).getProtein(), chunked.get(hitAcc).get(i).getProtein());
+				assertEquals(brs.get(hitAcc).get(i).getBitScore(), chunked.get(hitAcc).get(i).getBitScore());
+			}
+		}
+	}
+
+	@Test
+	public void testParseBlastResultsWithThresholds() throws MissingProteinException, IOException {
+		Map<String, Protein> protDb = TestUtils.mockProteinDb();
+		getSettings().getBlastDbSettings().get("tair").put(Settings.MIN_BIT_SCORE_KEY, "50");
+		getSettings().getBlastDbSettings().get("tair").put(Settings.MAX_E_VALUE_KEY, "1e-10");
+		Map<String, List<BlastResult>> brs = BlastResult.parseBlastResults(protDb, "tair", null);
+		assertTrue(!brs.isEmpty());
+		assertTrue(brs.size() < 207);
+		for (List<BlastResult> hitBrs : brs.values()) {
+			for (BlastResult br : hitBrs) {
+				assertTrue(br.getBitScore() >= 50.0);
+				assertTrue(br.getEValue() <= 1e-10);
+			}
+		}
+	}
+
 	@Test
 	public void testParseBlastDatabase() throws IOException, MissingProteinException {
 		Map<String, Protein> protDb = TestUtils.mockProteinDb();
@@ -138,6 +254,34 @@ public class BlastResultTest {
 		assertEquals(new Integer(668), p2.getBlastResults().get("tair").get(199).getSubjectLength());
 	}
 
+	@Test
+	public void testParseBlastDatabaseInChunks() throws IOException, MissingProteinException {
+		for (String blastDb : Arrays.asList("swissprot", "tair", "trembl")) {
+			Map<String, Protein> sequentialDb = TestUtils.mockProteinDb();
+			BlastResult.parseBlastDatabase(sequentialDb, blastDb,
+					BlastResult.parseBlastResults(sequentialDb, blastDb, null, 1), 1);
+			Map<String, Protein> chunkedDb = TestUtils.mockProteinDb();
+			BlastResult.parseBlastDatabase(chunkedDb, blastDb,
+					BlastResult.parseBlastResults(chunkedDb, blastDb, null, 1), 7);
+			for (String protAcc : sequentialDb.keySet()) {
+				List<BlastResult> expected = sequentialDb.get(protAcc).getBlastResults().get(blastDb);
+				List<BlastResult> found = chunkedDb.get(protAcc).getBlastResults().get(blastDb);
+				if (expected == null) {
+					assertNull(found);
+					continue;
+				}
+				assertEquals(expected.size(), found.size());
+				for (int i = 0; i < expected.size(); i++) {
+					assertEquals(expected.get(i).getAccession(), found.get(i).getAccession());
+					assertEquals(expected.get(i).getDescription(), found.get(i).getDescription());
+					assertEquals(expected.get(i).getSubjectLength(), found.get(i).getSubjectLength());
+					assertEquals(expected.get(i).getTokens(), found.get(i).getTokens());
+					assertEquals(expected.get(i).getBitScore(), found.get(i).getBitScore());
+				}
+			}
+		}
+	}
+
 	@Test
 	public void testCompareBlastResultsBasedOnTheirEvalues() {
 		BlastResult br1 = new BlastResult("accession_1", 3e-163, "description_1", 10, 20, 10, 20, 200, 30, "swissprot");
@@ -270,4 +414,26 @@ public class BlastResultTest {
 		assertEquals("tr|W9CFB7|W9CFB7_9HELO",
 				p1.getEvaluationScoreCalculator().getUnchangedBlastResults().get("trembl").getAccession());
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testHitsShareTheirSubject() {
+		Protein p1 = new Protein("query_1", 200);
+		Protein p2 = new Protein("query_2", 210);
+		BlastResult br1 = new BlastResult("sp|Q9ZWC8|BRL1_ARATH", 1e-50, 10, 190, 5, 185, 300.0, "swissprot", p1);
+		BlastResult br2 = new BlastResult("sp|Q9ZWC8|BRL1_ARATH", 1e-40, 20, 200, 15, 195, 250.0, "swissprot", p2);
+		Map<String, List<BlastResult>> brs = new HashMap<String, List<BlastResult>>();
+		brs.put("sp|Q9ZWC8|BRL1_ARATH", new ArrayList<BlastResult>(Arrays.asList(br1, br2)));
+		BlastResult.fastaEntryValuesForBlastHit(brs, "sp|Q9ZWC8|BRL1_ARATH", 1166,
+				"Serine/threonine-protein kinase BRI1-like 1");
+		assertTrue(br1.getSubject() == br2.getSubject());
+		assertTrue(br1.getTokens() == br2.getTokens());
+		assertEquals(1166, br1.getSubjectLength().intValue());
+		assertEquals(new HashSet<String>(Arrays.asList("serine", "threonine", "kinase", "bri1", "1")),
+				br2.getTokens());
+		assertTrue(p1.getBlastResults().get("swissprot").get(0).getSubject() == br1.getSubject());
+		assertTrue(p2.getBlastResults().get("swissprot").get(0).getSubject() == br2.getSubject());
+		// Setters do not affect the other BlastResults of the same Hit:
+		br1.setDescription("Changed description");
+		assertEquals("Serine/threonine-protein kinase BRI1-like 1", br2.getDescription());
+	}
+}
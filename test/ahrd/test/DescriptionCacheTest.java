@@ -0,0 +1,83 @@
+package ahrd.test;
+
+import static ahrd.controller.Settings.getSettings;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ahrd.exception.MissingProteinException;
+import ahrd.model.BlastResult;
+import ahrd.model.DescriptionCache;
+import ahrd.model.Protein;
+import ahrd.model.TokenSet;
+
+public class DescriptionCacheTest {
+
+	public DescriptionCacheTest() {
+		super();
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		TestUtils.initTestSettings();
+	}
+
+	@Test
+	public void testEvictsLeastRecentlyUsed() {
+		DescriptionCache cache = new DescriptionCache(16);
+		DescriptionCache.Entry entry = new DescriptionCache.Entry(true, "kinase",
+				new TokenSet(Arrays.asList("kinase")));
+		for (int i = 0; i < 1000; i++)
+			cache.put("description " + i, entry);
+		assertTrue(cache.size() <= 16);
+		assertNull(cache.get("description 0"));
+		assertSame(entry, cache.get("description 999"));
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		assertEquals(0.5, cache.getHitRate(), 0.0);
+		// All BlastResults share the frozen Tokens:
+		assertSame(entry.getTokens(), entry.getTokens());
+		assertTrue(entry.getTokens().isFrozen());
+	}
+
+	@Test
+	public void testCachedDescriptionsEqualProcessedOnes() throws IOException, MissingProteinException {
+		DescriptionCache cache = getSettings().getDescriptionCache("swissprot");
+		assertNotNull(cache);
+		Map<String, Protein> uncachedDb = TestUtils.mockProteinDb();
+		BlastResult.readBlastResults(uncachedDb, "swissprot", null);
+		long misses = cache.getMisses();
+		assertTrue(misses > 0);
+		// Parsing the same results again finds all descriptions in the cache:
+		Map<String, Protein> cachedDb = TestUtils.mockProteinDb();
+		BlastResult.readBlastResults(cachedDb, "swissprot", null);
+		assertEquals(misses, cache.getMisses());
+		assertTrue(cache.getHits() >= misses);
+		for (String protAcc : uncachedDb.keySet()) {
+			List<BlastResult> expected = uncachedDb.get(protAcc).getBlastResults().get("swissprot");
+			List<BlastResult> found = cachedDb.get(protAcc).getBlastResults().get("swissprot");
+			if (expected == null) {
+				assertNull(found);
+				continue;
+			}
+			assertEquals(expected.size(), found.size());
+			for (int i = 0; i < expected.size(); i++) {
+				assertEquals(expected.get(i).getDescription(), found.get(i).getDescription());
+				assertEquals(expected.get(i).getTokens(), found.get(i).getTokens());
+				// Cached descriptions share their Tokens:
+				assertSame(expected.get(i).getTokens(), found.get(i).getTokens());
+			}
+		}
+	}
+
+}
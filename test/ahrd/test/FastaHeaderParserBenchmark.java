@@ -0,0 +1,74 @@
+package ahrd.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+
+import org.junit.Test;
+
+import ahrd.controller.Settings;
+import ahrd.model.AccessionSet;
+import ahrd.model.BlastResult;
+import ahrd.model.FastaHeaderParser;
+
+/**
+ * Compares scanning the headers of a Blast database, of which only a few
+ * belong to Blast Hits, with the default regular expression, as AHRD used to,
+ * with the hand coded Uniprot parser, that skips the headers of Proteins that
+ * are no Hits. Run with <code>ant test.benchmarks</code>.
+ */
+public class FastaHeaderParserBenchmark {
+
+	public static final int HEADERS = 500000;
+	/**
+	 * Every HIT_RATIO-th header belongs to a Blast Hit.
+	 */
+	public static final int HIT_RATIO = 100;
+	public static final int ROUNDS = 5;
+
+	@Test
+	public void benchmarkScanHeaders() {
+		List<String> descriptions = PatternSetBenchmark.generateDescriptions(HEADERS);
+		List<String> headers = new ArrayList<String>(HEADERS);
+		Map<String, String> hits = new HashMap<String, String>();
+		for (int i = 0; i < HEADERS; i++) {
+			String accession = "tr|A" + i + "|A" + i + "_ARATH";
+			headers.add(">" + accession + " " + descriptions.get(i)
+					+ " OS=Arabidopsis thaliana GN=At" + i + " PE=4 SV=1");
+			if (i % HIT_RATIO == 0)
+				hits.put(accession, null);
+		}
+		FastaHeaderParser parser = FastaHeaderParser.valueOf(FastaHeaderParser.UNIPROT_FORMAT, null, null);
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			int expected = 0;
+			for (String header : headers) {
+				Matcher m = Settings.DEFAULT_FASTA_HEADER_REGEX.matcher(header);
+				if (m.matches()
+						&& hits.containsKey(m.group(BlastResult.FASTA_PROTEIN_HEADER_ACCESSION_GROUP_NAME).trim()))
+					expected += m.group(BlastResult.FASTA_PROTEIN_HEADER_DESCRIPTION_GROUP_NAME).trim().length();
+			}
+			double regexSec = (System.nanoTime() - start) / 1e9;
+			start = System.nanoTime();
+			AccessionSet hitAccessions = new AccessionSet(hits.keySet());
+			int found = 0;
+			for (String header : headers) {
+				if (parser.isCandidate(header, hitAccessions)) {
+					String accession = parser.parseAccession(header);
+					if (accession != null && hits.containsKey(accession))
+						found += parser.parseDescription(header).length();
+				}
+			}
+			double parserSec = (System.nanoTime() - start) / 1e9;
+			assertEquals(expected, found);
+			System.out.println(String.format(
+					"Round %d: regular expression %.0f headers/s, prefiltered Uniprot parser %.0f headers/s (speed-up %.1fx)",
+					round, HEADERS / regexSec, HEADERS / parserSec, regexSec / parserSec));
+		}
+	}
+
+}
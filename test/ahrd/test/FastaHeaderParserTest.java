@@ -0,0 +1,152 @@
+package ahrd.test;
+
+import static ahrd.controller.Settings.getSettings;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ahrd.controller.Settings;
+import ahrd.model.AccessionSet;
+import ahrd.model.BlastResult;
+import ahrd.model.FastaHeaderParser;
+
+public class FastaHeaderParserTest {
+
+	public FastaHeaderParserTest() {
+		super();
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		TestUtils.initTestSettings();
+	}
+
+	private static List<String> readHeaders(String... pathsToFasta) throws IOException {
+		List<String> headers = new ArrayList<String>();
+		for (String pathToFasta : pathsToFasta) {
+			for (String header : TokenizerTest.readDescriptions(pathToFasta))
+				headers.add(">" + header);
+		}
+		return headers;
+	}
+
+	/**
+	 * Asserts that the argument parser extracts the same accessions,
+	 * descriptions and short accessions as the argument regular expressions.
+	 */
+	private static void assertParsesLikeRegex(FastaHeaderParser parser, Pattern fastaHeaderRegex,
+			Pattern shortAccessionRegex, List<String> headers) {
+		for (String header : headers) {
+			Matcher m = fastaHeaderRegex.matcher(header);
+			if (!m.matches()) {
+				assertNull(header, parser.parseAccession(header));
+				continue;
+			}
+			String accession = m.group(BlastResult.FASTA_PROTEIN_HEADER_ACCESSION_GROUP_NAME).trim();
+			assertEquals(header, accession, parser.parseAccession(header));
+			assertEquals(header, m.group(BlastResult.FASTA_PROTEIN_HEADER_DESCRIPTION_GROUP_NAME).trim(),
+					parser.parseDescription(header));
+			Matcher sm = shortAccessionRegex.matcher(accession);
+			assertEquals(header, sm.find() ? sm.group(BlastResult.SHORT_ACCESSION_GROUP_NAME) : null,
+					parser.parseShortAccession(accession));
+		}
+	}
+
+	@Test
+	public void testUniprotFormatEqualsDefaultRegex() throws IOException {
+		List<String> headers = readHeaders("./test/resources/swissprot_blast_db.fasta",
+				"./test/resources/trembl_blast_db.fasta", "./test/resources/bgh04634_trembl_database.fasta",
+				"./test/resources/tair_blast_db.fasta");
+		headers.addAll(Arrays.asList(">", "> sp|P1|A desc", ">sp|P1|A", ">sp|P1|A ", ">sp|P1|A   ",
+				">sp|P1|A desc", ">sp|P1|A desc ", ">sp|P1|A  two  words \t", ">sp|P1|A desc OS=", ">sp|P1|A desc OS=x",
+				">sp|P1|A desc os=x GN=y", ">sp|P1|A desc Os=x", ">sp|P1|A OS=x", ">sp|P1|A   OS=x",
+				">sp|P1|A desc GN=y OS=x", ">sp|P1|A desc\u0085 OS=x", ">sp|P1\u2028|A desc OS=x", ">acc\tdesc\u000Bline",
+				">sp||A desc", ">|P1|A desc", ">sp|P1 desc"));
+		assertParsesLikeRegex(FastaHeaderParser.valueOf(FastaHeaderParser.UNIPROT_FORMAT, null, null),
+				Settings.DEFAULT_FASTA_HEADER_REGEX, Settings.DEFAULT_SHORT_ACCESSION_REGEX, headers);
+	}
+
+	@Test
+	public void testTairFormatEqualsTairRegex() throws IOException {
+		List<String> headers = readHeaders("./test/resources/tair_blast_db.fasta",
+				"./test/resources/swissprot_blast_db.fasta");
+		headers.addAll(Arrays.asList(">AT1G01010.1 | Symbols: NAC001 | NAC domain | chr1:3631-5899 FORWARD",
+				">at1g01010 | Symbols: | desc", ">ATMG00010.1 | x | desc|", ">ATCG1.1 | x |  desc  | rest",
+				">AT1G01010. | x | desc", ">AT1G01010.x | x | desc", ">AT1G01010.1| x | desc", ">AT1G01010.1 || desc",
+				">AT1G01010.1 | x |desc", ">AT1G01010.1 | x |  | rest", ">AT1G01010.1 | x |   ",
+				">AT1G01010.1 | x | desc\r", ">ATXG01010.1 | x | desc", ">AT1G | x | desc"));
+		assertParsesLikeRegex(FastaHeaderParser.valueOf(FastaHeaderParser.TAIR_FORMAT, null, null),
+				FastaHeaderParser.TAIR_FASTA_HEADER_REGEX, FastaHeaderParser.TAIR_SHORT_ACCESSION_REGEX, headers);
+	}
+
+	@Test
+	public void testFormatSettings() {
+		// A fasta_header_regex is used as is:
+		assertEquals(FastaHeaderParser.REGEX_FORMAT, getSettings().getFastaHeaderFormat("tair"));
+		assertEquals(getSettings().getFastaHeaderRegex("tair").pattern(),
+				getSettings().getFastaHeaderParser("tair").getFastaHeaderRegex().pattern());
+		// Otherwise Uniprot headers are expected:
+		assertEquals(FastaHeaderParser.UNIPROT_FORMAT, getSettings().getFastaHeaderFormat("swissprot"));
+		FastaHeaderParser parser = getSettings().getFastaHeaderParser("swissprot");
+		assertEquals(Settings.DEFAULT_FASTA_HEADER_REGEX, parser.getFastaHeaderRegex());
+		assertEquals("sp|Q9ZWC8|BRL1_ARATH",
+				parser.parseAccession(">sp|Q9ZWC8|BRL1_ARATH Serine/threonine-protein kinase BRI1-like 1 OS=Arabidopsis thaliana GN=BRL1 PE=1 SV=1"));
+		assertEquals("Serine/threonine-protein kinase BRI1-like 1",
+				parser.parseDescription(">sp|Q9ZWC8|BRL1_ARATH Serine/threonine-protein kinase BRI1-like 1 OS=Arabidopsis thaliana GN=BRL1 PE=1 SV=1"));
+		assertEquals("Q9ZWC8", parser.parseShortAccession("sp|Q9ZWC8|BRL1_ARATH"));
+		// A configured short_accession_regex is always used:
+		assertEquals("AT1G01010.1", FastaHeaderParser
+				.valueOf(FastaHeaderParser.UNIPROT_FORMAT, null, FastaHeaderParser.TAIR_SHORT_ACCESSION_REGEX)
+				.parseShortAccession("AT1G01010.1"));
+	}
+
+	@Test
+	public void testIsCandidate() {
+		AccessionSet hits = new AccessionSet(Arrays.asList("sp|Q9ZWC8|BRL1_ARATH", "AT3G03300.2"));
+		FastaHeaderParser uniprot = FastaHeaderParser.valueOf(FastaHeaderParser.UNIPROT_FORMAT, null, null);
+		assertTrue(isCandidate(uniprot, ">sp|Q9ZWC8|BRL1_ARATH Serine/threonine-protein kinase OS=Arabidopsis", hits));
+		assertTrue(isCandidate(uniprot, ">sp|Q9ZWC8|BRL1_ARATH\u0001\tkinase", hits));
+		assertFalse(isCandidate(uniprot, ">sp|Q9ZWC9|BRL2_ARATH Serine/threonine-protein kinase OS=Arabidopsis", hits));
+		assertFalse(isCandidate(uniprot, ">sp|Q9ZWC8|BRL1_ARATH_2 kinase", hits));
+		// Not a FASTA header, leave it to the parser to report it:
+		assertTrue(isCandidate(uniprot, "sp|Q9ZWC9|BRL2_ARATH kinase", hits));
+		FastaHeaderParser tair = FastaHeaderParser.valueOf(FastaHeaderParser.TAIR_FORMAT, null, null);
+		assertTrue(isCandidate(tair, ">AT3G03300.2 | Symbols: DCL2 | DCL2 (DICER-LIKE 2) | chr3:768020-774525", hits));
+		assertFalse(isCandidate(tair, ">AT3G03300.1 | Symbols: DCL2 | DCL2 (DICER-LIKE 2) | chr3:768020-774525", hits));
+		// Accessions holding non US-ASCII bytes are left to the decoded header:
+		byte[] nonAscii = ">sp|Q9ZWC8|BRL1_ARATH\u00e9 kinase".getBytes(Charset.forName("UTF-8"));
+		assertTrue(uniprot.isCandidate(nonAscii, 0, nonAscii.length, hits));
+		// Regular expressions can not be checked without matching them:
+		assertTrue(FastaHeaderParser.valueOf(FastaHeaderParser.REGEX_FORMAT, Settings.DEFAULT_FASTA_HEADER_REGEX, null)
+				.isCandidate(">sp|Q9ZWC9|BRL2_ARATH kinase OS=Arabidopsis", hits));
+	}
+
+	/**
+	 * Checks the argument header both as String and as bytes, which must give
+	 * the same result.
+	 */
+	private static boolean isCandidate(FastaHeaderParser parser, String header, AccessionSet accessions) {
+		boolean candidate = parser.isCandidate(header, accessions);
+		byte[] bytes = ("x" + header + "x").getBytes(Charset.forName("UTF-8"));
+		assertEquals(candidate, parser.isCandidate(bytes, 1, bytes.length - 1, accessions));
+		return candidate;
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownFormat() {
+		FastaHeaderParser.valueOf("genbank", null, null);
+	}
+
+}
@@ -0,0 +1,52 @@
+package ahrd.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Test;
+
+import ahrd.model.FastaReader;
+
+public class FastaReaderTest {
+
+	public static final String FASTA = "\n>Protein One->Expressed in stupid user\nSPGYDASMTDSRSS \nGISMSIGGRSL\n>Protein Two\n>Protein Three\nMADDSKFC\r\nFFLVST\n";
+
+	public FastaReaderTest() {
+		super();
+	}
+
+	@Test
+	public void testReadsRecordByRecord() throws IOException {
+		FastaReader fr = new FastaReader(new BufferedReader(new StringReader(FASTA)), true);
+		assertTrue(fr.next());
+		assertEquals("Protein One->Expressed in stupid user", fr.getHeader());
+		assertEquals("SPGYDASMTDSRSSGISMSIGGRSL", fr.getSequence());
+		assertEquals(25, fr.getSequenceLength());
+		assertTrue(fr.next());
+		assertEquals("Protein Two", fr.getHeader());
+		assertEquals("", fr.getSequence());
+		assertEquals(0, fr.getSequenceLength());
+		assertTrue(fr.next());
+		assertEquals("Protein Three", fr.getHeader());
+		assertEquals("MADDSKFCFFLVST", fr.getSequence());
+		assertFalse(fr.next());
+		assertNull(fr.getHeader());
+		fr.close();
+	}
+
+	@Test
+	public void testOnlyCountsResiduesWhenNotKeepingSequences() throws IOException {
+		FastaReader fr = new FastaReader(new BufferedReader(new StringReader(FASTA)), false);
+		assertTrue(fr.next());
+		assertNull(fr.getSequence());
+		assertEquals(25, fr.getSequenceLength());
+		fr.close();
+	}
+
+}
@@ -0,0 +1,73 @@
+package ahrd.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import ahrd.model.GoTermSet;
+
+public class GoTermSetTest {
+
+	public GoTermSetTest() {
+		super();
+	}
+
+	@Test
+	public void testGoTermsAreCoded() {
+		assertEquals(5524, GoTermSet.encode("GO:0005524"));
+		assertEquals("GO:0005524", GoTermSet.decode(5524));
+		assertEquals("GO:9999999", GoTermSet.decode(GoTermSet.encode("GO:9999999")));
+		assertEquals("GO:0000000", GoTermSet.decode(GoTermSet.encode("GO:0000000")));
+		// Other terms are interned:
+		int code = GoTermSet.encode("GO:12345");
+		assertTrue(code < 0);
+		assertEquals(code, GoTermSet.encode(new String("GO:12345")));
+		assertEquals("GO:12345", GoTermSet.decode(code));
+	}
+
+	@Test
+	public void testBehavesLikeASet() {
+		Set<String> expected = new HashSet<String>(
+				Arrays.asList("GO:0043401", "GO:0006355", "GO:0003824", "custom_term"));
+		GoTermSet goTerms = new GoTermSet(
+				Arrays.asList("GO:0043401", "GO:0006355", "custom_term", "GO:0003824", "GO:0006355"));
+		assertEquals(4, goTerms.size());
+		assertEquals(expected, goTerms);
+		assertEquals(goTerms, expected);
+		assertEquals(expected.hashCode(), goTerms.hashCode());
+		assertTrue(goTerms.contains("GO:0006355"));
+		assertFalse(goTerms.contains("GO:0005524"));
+		assertFalse(goTerms.contains("never_coded_term"));
+		assertFalse(goTerms.add("GO:0003824"));
+		assertTrue(goTerms.remove("custom_term"));
+		// GO terms are iterated in their natural order:
+		assertEquals(Arrays.asList("GO:0003824", "GO:0006355", "GO:0043401"), new ArrayList<String>(goTerms));
+	}
+
+	@Test
+	public void testShareIdenticalSets() {
+		Map<String, Set<String>> goa = new HashMap<String, Set<String>>();
+		List<String> terms = Arrays.asList("GO:0009058", "GO:0030170");
+		goa.put("W9QFR0", new GoTermSet(terms));
+		goa.put("W9S3W9", new GoTermSet(terms));
+		goa.put("A0A001", new GoTermSet(Arrays.asList("GO:0000166")));
+		goa.put("B9SRU2", new HashSet<String>(terms));
+		GoTermSet.shareIdenticalSets(goa);
+		assertSame(goa.get("W9QFR0"), goa.get("W9S3W9"));
+		assertEquals(new HashSet<String>(terms), goa.get("W9QFR0"));
+		assertEquals(new HashSet<String>(Arrays.asList("GO:0000166")), goa.get("A0A001"));
+		assertTrue(goa.get("B9SRU2") instanceof HashSet);
+	}
+
+}
@@ -0,0 +1,105 @@
+package ahrd.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ahrd.model.BlastResult;
+import ahrd.model.HitTable;
+import ahrd.model.Protein;
+
+public class HitTableTest {
+
+	public HitTableTest() {
+		super();
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		TestUtils.initTestSettings();
+	}
+
+	@Test
+	public void testRowsEqualAddedBlastResults() {
+		Protein prot = new Protein("query_1", 300);
+		HitTable hits = new HitTable("swissprot", prot);
+		for (int i = 0; i < 20; i++) {
+			BlastResult br = TestUtils.mockBlastResult("accession_" + i, Math.pow(10, -i), "description " + i, 10,
+					20 + i, 5, 15 + i, 200 + i, 30.0 + i, "swissprot",
+					new HashSet<String>(Arrays.asList("description", String.valueOf(i))));
+			if (i % 2 == 0)
+				br.setDescriptionScore(0.5 * i);
+			hits.add(br);
+		}
+		assertEquals(20, hits.size());
+		for (int i = 0; i < 20; i++) {
+			BlastResult row = hits.get(i);
+			assertEquals("accession_" + i, row.getAccession());
+			assertEquals("accession_" + i, row.getShortAccession());
+			assertEquals(Math.pow(10, -i), row.getEValue(), 0.0);
+			assertEquals("description " + i, row.getDescription());
+			assertEquals(Integer.valueOf(10), row.getQueryStart());
+			assertEquals(Integer.valueOf(20 + i), row.getQueryEnd());
+			assertEquals(Integer.valueOf(5), row.getSubjectStart());
+			assertEquals(Integer.valueOf(15 + i), row.getSubjectEnd());
+			assertEquals(Integer.valueOf(200 + i), row.getSubjectLength());
+			assertEquals(30.0 + i, row.getBitScore(), 0.0);
+			assertEquals(new HashSet<String>(Arrays.asList("description", String.valueOf(i))), row.getTokens());
+			assertEquals(i % 2 == 0 ? Double.valueOf(0.5 * i) : null, row.getDescriptionScore());
+			assertNull(row.getEvaluationScore());
+			assertNull(row.getEvaluationTokens());
+			assertEquals("swissprot", row.getBlastDatabaseName());
+			assertTrue(prot == row.getProtein());
+			assertTrue(row.isValid());
+		}
+	}
+
+	@Test
+	public void testRowsWriteThrough() {
+		HitTable hits = new HitTable("swissprot", new Protein("query_1", 300));
+		hits.add(TestUtils.mockBlastResult("accession_1", 1e-10, "description one", 10, 20, 5, 15, 200, 30.0,
+				"swissprot", new HashSet<String>(Arrays.asList("description", "one"))));
+		hits.add(TestUtils.mockBlastResult("accession_2", 1e-20, "description two", 10, 20, 5, 15, 200, 40.0,
+				"swissprot", new HashSet<String>(Arrays.asList("description", "two"))));
+		hits.get(1).setDescriptionScore(0.75);
+		hits.get(1).setEvaluationScore(0.5);
+		hits.get(1).setDescription("changed description");
+		assertEquals(0.75, hits.get(1).getDescriptionScore(), 0.0);
+		assertEquals(0.5, hits.get(1).getEvaluationScore(), 0.0);
+		assertEquals("changed description", hits.get(1).getDescription());
+		assertNull(hits.get(0).getEvaluationScore());
+		assertEquals("description one", hits.get(0).getDescription());
+		assertEquals(hits.get(1), hits.get(1));
+		assertEquals(1, hits.indexOf(hits.get(1)));
+	}
+
+	@Test
+	public void testFilterBestScoringBlastResults() {
+		Protein prot = new Protein("query_1", 300);
+		HitTable hits = new HitTable("swissprot", prot);
+		double[] eValues = { 1e-5, 1e-30, 1e-10, 1e-20, 1e-1 };
+		for (int i = 0; i < eValues.length; i++) {
+			hits.add(TestUtils.mockBlastResult("accession_" + i, eValues[i], "description " + i, 10, 20, 5, 15, 200,
+					30.0, "swissprot", new HashSet<String>(Arrays.asList("description", String.valueOf(i)))));
+		}
+		List<BlastResult> best = BlastResult.filterBestScoringBlastResults(hits, 3);
+		assertTrue(best instanceof HitTable);
+		assertTrue(prot == ((HitTable) best).getProtein());
+		assertEquals(3, best.size());
+		assertEquals("accession_1", best.get(0).getAccession());
+		assertEquals("accession_3", best.get(1).getAccession());
+		assertEquals("accession_2", best.get(2).getAccession());
+		// The filtered HitTable is left untouched:
+		assertEquals(5, hits.size());
+		assertEquals("accession_0", hits.get(0).getAccession());
+	}
+
+}
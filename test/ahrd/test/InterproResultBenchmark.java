@@ -0,0 +1,119 @@
+package ahrd.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ahrd.exception.MissingInterproResultException;
+import ahrd.model.InterproHierarchy;
+import ahrd.model.InterproResult;
+import ahrd.model.Protein;
+
+/**
+ * Compares filtering the InterproResults of large multi-domain Proteins for
+ * the most informative ones by recursively walking the InterPro hierarchy
+ * with the look ups in the precomputed InterproHierarchy. Run with
+ * <code>ant test.benchmarks</code>.
+ */
+public class InterproResultBenchmark {
+
+	public static final int ENTRIES = 30000;
+	public static final int LEVELS = 8;
+	public static final int PROTEINS = 200;
+	public static final int INTERPRO_RESULTS_PER_PROTEIN = 60;
+	public static final int ROUNDS = 5;
+
+	private Map<String, InterproResult> formerInterproDb;
+	private List<List<InterproResult>> proteinsInterproResults = new ArrayList<List<InterproResult>>();
+
+	/**
+	 * Builds a synthetic InterPro database, in which each entry below the top
+	 * level has a parent on the level above, and some entries contain a few
+	 * entries on lower levels.
+	 */
+	@Before
+	public void setUp() throws IOException {
+		TestUtils.initTestSettings();
+		this.formerInterproDb = InterproResult.getInterproDb();
+		Map<String, InterproResult> interproDb = new ConcurrentHashMap<String, InterproResult>();
+		Random random = new Random(42);
+		List<InterproResult> entries = new ArrayList<InterproResult>();
+		for (int i = 0; i < ENTRIES; i++) {
+			InterproResult ipr = new InterproResult(String.format("IPR%06d", i), "entry_" + i, "Domain");
+			int level = i % LEVELS;
+			if (level > 0 && i >= LEVELS)
+				ipr.setParentId(entries.get(LEVELS * random.nextInt(i / LEVELS) + level - 1).getId());
+			if (level < LEVELS - 1 && random.nextInt(4) == 0) {
+				for (int c = random.nextInt(3) + 1; c > 0; c--) {
+					int contained = i + 1 + random.nextInt(LEVELS - 1 - level);
+					if (contained < ENTRIES)
+						ipr.getContains().add(String.format("IPR%06d", contained));
+				}
+			}
+			entries.add(ipr);
+			interproDb.put(ipr.getId(), ipr);
+		}
+		InterproResult.setInterproDb(interproDb);
+		for (int p = 0; p < PROTEINS; p++) {
+			List<InterproResult> iprs = new ArrayList<InterproResult>();
+			for (int i = 0; i < INTERPRO_RESULTS_PER_PROTEIN; i++)
+				iprs.add(entries.get(random.nextInt(ENTRIES)));
+			this.proteinsInterproResults.add(iprs);
+		}
+	}
+
+	@After
+	public void tearDown() {
+		InterproResult.setInterproDb(this.formerInterproDb);
+		InterproResult.setInterproHierarchy(null);
+	}
+
+	/**
+	 * @return The number of most informative InterproResults of all Proteins.
+	 */
+	private int filterAll() throws MissingInterproResultException {
+		int mostInformatives = 0;
+		for (List<InterproResult> iprs : this.proteinsInterproResults) {
+			Protein p = new Protein("protein", 1000);
+			p.setInterproResults(new HashSet<InterproResult>(iprs));
+			InterproResult.filterForMostInforming(p);
+			mostInformatives += p.getInterproResults().size();
+		}
+		return mostInformatives;
+	}
+
+	@Test
+	public void benchmarkFilterForMostInforming() throws MissingInterproResultException {
+		long start = System.nanoTime();
+		InterproResult.initialiseInterproHierarchy();
+		InterproHierarchy hierarchy = InterproResult.getInterproHierarchy();
+		System.out.println(String.format("Computed hierarchy of %d entries in %.3f sec", ENTRIES,
+				(System.nanoTime() - start) / 1e9));
+		for (int round = 0; round < ROUNDS; round++) {
+			InterproResult.setInterproHierarchy(null);
+			start = System.nanoTime();
+			int recursively = filterAll();
+			double recursiveSec = (System.nanoTime() - start) / 1e9;
+			InterproResult.setInterproHierarchy(hierarchy);
+			start = System.nanoTime();
+			int lookedUp = filterAll();
+			double lookUpSec = (System.nanoTime() - start) / 1e9;
+			assertEquals(recursively, lookedUp);
+			System.out.println(String.format(
+					"Round %d: recursive %.0f Proteins/s, hierarchy %.0f Proteins/s (speed-up %.1fx)", round,
+					PROTEINS / recursiveSec, PROTEINS / lookUpSec, recursiveSec / lookUpSec));
+		}
+	}
+
+}
@@ -1,8 +1,16 @@
 package ahrd.test;
 
+import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import static ahrd.controller.Settings.getSettings;
 import static junit.framework.Assert.*;
 
 import nu.xom.ParsingException;
@@ -10,7 +18,9 @@ import nu.xom.ParsingException;
 import org.junit.Before;
 import org.junit.Test;
 
+import ahrd.model.InterproHierarchy;
 import ahrd.model.InterproResult;
+import ahrd.model.InterproResultParser;
 import ahrd.model.Protein;
 
 import ahrd.exception.MissingProteinException;
@@ -45,6 +55,112 @@ public class InterproResultTest {
 		assertTrue(InterproResult.getInterproDb().containsKey("IPR000536"));
 	}
 
+	@Test
+	public void testInitialiseInterproDbReadsOnlyFirstChildElements()
+			throws IOException, ParsingException {
+		File interproDb = File.createTempFile("interpro", ".xml");
+		FileWriter fw = new FileWriter(interproDb);
+		fw.write("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n"
+				+ "<!DOCTYPE interprodb SYSTEM \"interpro.dtd\">\n"
+				+ "<interprodb>\n"
+				+ "<interpro id=\"IPR999998\" short_name=\"Test_1\">\n"
+				+ "  <name>Test <i>one</i> &amp; more</name>\n"
+				+ "  <name>Another name</name>\n"
+				+ "  <parent_list><rel_ref/><rel_ref ipr_ref=\"IPR000001\"/></parent_list>\n"
+				+ "  <contains><rel_ref ipr_ref=\"IPR000002\"/><rel_ref ipr_ref=\"IPR000003\"/></contains>\n"
+				+ "  <contains><rel_ref ipr_ref=\"IPR000004\"/></contains>\n"
+				+ "</interpro>\n"
+				+ "<interpro id=\"IPR999999\" type=\"Domain\">\n"
+				+ "  <parent_list><rel_ref ipr_ref=\"IPR999998\"/></parent_list>\n"
+				+ "  <parent_list><rel_ref ipr_ref=\"IPR000001\"/></parent_list>\n"
+				+ "</interpro>\n" + "</interprodb>\n");
+		fw.close();
+		getSettings().setPathToInterproDatabase(interproDb.getPath());
+		try {
+			InterproResult.initialiseInterproDb();
+		} finally {
+			interproDb.delete();
+		}
+		InterproResult ipr = InterproResult.getInterproDb().get("IPR999998");
+		assertEquals("Test_1", ipr.getShortName());
+		assertEquals("", ipr.getType());
+		assertEquals("Test one & more", ipr.getName());
+		assertNull(ipr.getParentId());
+		assertEquals(2, ipr.getContains().size());
+		assertTrue(ipr.getContains().contains("IPR000002"));
+		assertTrue(ipr.getContains().contains("IPR000003"));
+		ipr = InterproResult.getInterproDb().get("IPR999999");
+		assertEquals("", ipr.getShortName());
+		assertEquals("Domain", ipr.getType());
+		assertNull(ipr.getName());
+		assertEquals("IPR999998", ipr.getParentId());
+		assertTrue(ipr.getContains().isEmpty());
+	}
+
+	@Test
+	public void testInitialiseInterproDbWithReferencedEntriesOnly()
+			throws IOException, ParsingException {
+		InterproResult.setInterproDb(new ConcurrentHashMap<String, InterproResult>());
+		InterproResult.initialiseInterproDb(new HashSet<String>(Arrays
+				.asList("IPR000003", "IPR999999")));
+		// The entry, its ancestors and its contained entries, recursively:
+		Set<String> expected = new HashSet<String>(Arrays.asList("IPR000003",
+				"IPR001723", "IPR013806", "IPR000536", "IPR008946",
+				"IPR000006", "IPR000535", "IPR003019"));
+		assertEquals(expected, InterproResult.getInterproDb().keySet());
+		assertEquals("Retinoid X receptor", InterproResult.getInterproDb()
+				.get("IPR000003").getName());
+	}
+
+	@Test
+	public void testParseInterproIds() throws IOException {
+		Set<String> interproIds = InterproResult.parseInterproIds(InterproResult.interproResultFormat());
+		assertTrue(interproIds.contains("IPR000535"));
+		assertTrue(interproIds.contains("IPR000006"));
+		assertTrue(interproIds.contains("IPR000536"));
+	}
+
+	/**
+	 * @return The result of the argument check, or the exception it threw.
+	 */
+	private Object isParentOrException(InterproResult child, InterproResult parent) {
+		try {
+			return child.isParent(parent);
+		} catch (MissingInterproResultException e) {
+			return e.getMessage();
+		}
+	}
+
+	private Object containsOrException(InterproResult container, InterproResult containee) {
+		try {
+			return container.contains(containee);
+		} catch (MissingInterproResultException e) {
+			return e.getMessage();
+		}
+	}
+
+	@Test
+	public void testHierarchyGivesSameResultsAsRecursion() {
+		assertNotNull(InterproResult.getInterproHierarchy());
+		InterproHierarchy hierarchy = InterproResult.getInterproHierarchy();
+		for (InterproResult a : InterproResult.getInterproDb().values()) {
+			for (InterproResult b : InterproResult.getInterproDb().values()) {
+				InterproResult.setInterproHierarchy(null);
+				Object expectedIsParent = isParentOrException(a, b);
+				Object expectedContains = containsOrException(a, b);
+				InterproResult.setInterproHierarchy(hierarchy);
+				assertEquals(expectedIsParent, isParentOrException(a, b));
+				assertEquals(expectedContains, containsOrException(a, b));
+			}
+		}
+		InterproResult irpChild = InterproResult.getInterproDb().get("IPR000003");
+		assertTrue(hierarchy.hasAncestors(irpChild));
+		assertTrue(hierarchy.isAncestor(irpChild, InterproResult.getInterproDb().get("IPR013806")));
+		assertTrue(hierarchy.hasContainedEntries(InterproResult.getInterproDb().get("IPR000006")));
+		// IPR000535 contains IPR008962, which is missing from the database:
+		assertFalse(hierarchy.hasContainedEntries(InterproResult.getInterproDb().get("IPR000536")));
+	}
+
 	@Test
 	public void testRecursiveParentSearch()
 			throws MissingInterproResultException {
@@ -92,6 +208,64 @@ public class InterproResultTest {
 						InterproResult.getInterproDb().get("IPR000536")));
 	}
 
+	/**
+	 * @return Each Protein's accession mapped to its InterproResults.
+	 */
+	private Map<String, Set<InterproResult>> parseInterproResults(String format, int nChunks)
+			throws IOException, MissingProteinException {
+		getSettings().setInterproResultFormat(format);
+		Map<String, Protein> proteinDb = TestUtils.mockProteinDb();
+		InterproResult.parseInterproResult(proteinDb, nChunks, InterproResult.interproResultFormat());
+		Map<String, Set<InterproResult>> iprs = new HashMap<String, Set<InterproResult>>();
+		for (Protein prot : proteinDb.values()) {
+			iprs.put(prot.getAccession(), new HashSet<InterproResult>(prot.getInterproResults()));
+		}
+		return iprs;
+	}
+
+	@Test
+	public void testParseInterproResultsInFormatsAndChunks() throws IOException, MissingProteinException {
+		Map<String, Set<InterproResult>> expected = parseInterproResults(InterproResultParser.REGEX_FORMAT, 1);
+		assertEquals(2, expected.get("gene:chr01.1056:mRNA:chr01.1056").size());
+		assertEquals(expected, parseInterproResults(InterproResultParser.TSV_FORMAT, 1));
+		// Chunks of a few bytes each split the file at many positions within
+		// lines:
+		assertEquals(expected, parseInterproResults(InterproResultParser.TSV_FORMAT, 7));
+		assertEquals(expected, parseInterproResults(InterproResultParser.REGEX_FORMAT, 7));
+		assertEquals(expected, parseInterproResults(InterproResultParser.TSV_FORMAT, 500));
+	}
+
+	@Test
+	public void testDetectsInterproResultFormat() throws IOException, MissingProteinException {
+		Map<String, Set<InterproResult>> expected = parseInterproResults(InterproResultParser.REGEX_FORMAT, 1);
+		assertEquals(InterproResultParser.TSV_FORMAT,
+				InterproResultParser.detectFormat(getSettings().getPathToInterproResults()));
+		assertEquals(expected, parseInterproResults(null, 1));
+		// Results separated by blanks are parsed with the regular expression,
+		// unless the tabulator separated format is configured explicitly:
+		File blankSeparated = File.createTempFile("interpro_result", ".raw");
+		blankSeparated.deleteOnExit();
+		FileWriter out = new FileWriter(blankSeparated);
+		out.write("gene:chr01.502:mRNA:chr01.502 HMMPfam PF00560 LRR_1 IPR000535 Leucine-rich repeat\n");
+		out.write("gene:chr01.1056:mRNA:chr01.1056 superfamily SSF48264 IPR000536 Cytochrome P450\n");
+		out.close();
+		getSettings().setPathToInterproResults(blankSeparated.getPath());
+		assertEquals(InterproResultParser.REGEX_FORMAT, InterproResultParser.detectFormat(blankSeparated.getPath()));
+		Map<String, Set<InterproResult>> detected = parseInterproResults(null, 1);
+		assertEquals(1, detected.get("gene:chr01.502:mRNA:chr01.502").size());
+		assertEquals(1, detected.get("gene:chr01.1056:mRNA:chr01.1056").size());
+		assertEquals(detected, parseInterproResults(InterproResultParser.REGEX_FORMAT, 1));
+		assertTrue(parseInterproResults(InterproResultParser.TSV_FORMAT, 1).get("gene:chr01.502:mRNA:chr01.502")
+				.isEmpty());
+		getSettings().setInterproResultFormat(null);
+		assertTrue(InterproResult.parseInterproIds(InterproResult.interproResultFormat()).contains("IPR000535"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInterproResultParserRejectsUnknownFormat() throws IOException {
+		new InterproResultParser(getSettings().getPathToInterproResults(), "xml");
+	}
+
 	@Test
 	public void testFilterInterproResults() throws Exception {
 		Protein p = TestUtils.mockProtein();
@@ -0,0 +1,103 @@
+package ahrd.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import ahrd.controller.Utils;
+import ahrd.model.PatternSet;
+
+/**
+ * Compares testing descriptions and tokens against blacklists compiled on
+ * every call with testing them against a precompiled PatternSet. Run with
+ * <code>ant test.benchmarks</code>.
+ */
+public class PatternSetBenchmark {
+
+	public static final int DESCRIPTIONS = 200000;
+	public static final int ROUNDS = 5;
+	public static final String[] WORDS = { "putative", "serine", "threonine", "protein", "kinase", "family",
+			"receptor", "like", "unknown", "orf12", "transcription", "factor", "domain", "containing", "zinc",
+			"finger", "hypothetical", "similar", "to", "ATP", "binding", "cassette", "transporter" };
+
+	public static List<String> generateDescriptions(int n) {
+		List<String> descriptions = new ArrayList<String>(n);
+		Random rand = new Random(42);
+		for (int i = 0; i < n; i++) {
+			StringBuilder description = new StringBuilder();
+			int words = 2 + rand.nextInt(6);
+			for (int j = 0; j < words; j++) {
+				if (j > 0)
+					description.append(' ');
+				description.append(WORDS[rand.nextInt(WORDS.length)]);
+			}
+			descriptions.add(description.toString());
+		}
+		return descriptions;
+	}
+
+	private int compilingOnEveryCall(List<String> descriptions, List<String> blacklist) {
+		int passed = 0;
+		for (String description : descriptions) {
+			boolean passes = true;
+			for (String regex : blacklist) {
+				if (Pattern.compile(regex).matcher(description).find()) {
+					passes = false;
+					break;
+				}
+			}
+			if (passes)
+				passed++;
+		}
+		return passed;
+	}
+
+	private int precompiled(List<String> descriptions, PatternSet blacklist) {
+		int passed = 0;
+		for (String description : descriptions) {
+			if (!blacklist.matchesAny(description))
+				passed++;
+		}
+		return passed;
+	}
+
+	private void benchmark(String name, List<String> inputs, List<String> blacklist) {
+		PatternSet patternSet = PatternSet.valueOf(blacklist);
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			int expected = compilingOnEveryCall(inputs, blacklist);
+			double compilingSec = (System.nanoTime() - start) / 1e9;
+			start = System.nanoTime();
+			int passed = precompiled(inputs, patternSet);
+			double precompiledSec = (System.nanoTime() - start) / 1e9;
+			assertEquals(expected, passed);
+			System.out.println(String.format(
+					"%s round %d: compiling on every call %.0f/s, precompiled alternation %.0f/s (speed-up %.1fx)",
+					name, round, inputs.size() / compilingSec, inputs.size() / precompiledSec,
+					compilingSec / precompiledSec));
+		}
+	}
+
+	@Test
+	public void benchmarkDescriptionBlacklist() throws IOException {
+		benchmark("Descriptions", generateDescriptions(DESCRIPTIONS),
+				Utils.fromFile("./test/resources/blacklist_descline.txt"));
+	}
+
+	@Test
+	public void benchmarkTokenBlacklist() throws IOException {
+		List<String> tokens = new ArrayList<String>();
+		for (String description : generateDescriptions(DESCRIPTIONS / 4)) {
+			for (String token : description.split(" "))
+				tokens.add(token.toLowerCase());
+		}
+		benchmark("Tokens", tokens, Utils.fromFile("./test/resources/blacklist_token.txt"));
+	}
+
+}
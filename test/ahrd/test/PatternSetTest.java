@@ -0,0 +1,71 @@
+package ahrd.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import ahrd.controller.Utils;
+import ahrd.model.PatternSet;
+
+public class PatternSetTest {
+
+	public PatternSetTest() {
+		super();
+	}
+
+	private static boolean matchesAnyOneByOne(List<String> regexes, String input) {
+		for (String regex : regexes) {
+			if (Pattern.compile(regex).matcher(input).find())
+				return true;
+		}
+		return false;
+	}
+
+	@Test
+	public void testCombinedMatcherEqualsMatchingOneByOne() throws IOException {
+		List<String> blacklist = Utils.fromFile("./test/resources/blacklist_token.txt");
+		PatternSet patternSet = PatternSet.valueOf(blacklist);
+		assertTrue(patternSet.isCombined());
+		assertEquals(blacklist, patternSet);
+		for (String token : Arrays.asList("protein", "Protein", "kinase", "orf12", "xorfy", "orfan", "family",
+				"subfamily", "families", "", "tair", "contigs")) {
+			assertEquals(token, matchesAnyOneByOne(blacklist, token), patternSet.matchesAny(token));
+		}
+	}
+
+	@Test
+	public void testNotCombinable() {
+		List<String> regexes = Arrays.asList("(a)\\1", "\\Q(b\\E", "(?x) c # comment");
+		PatternSet patternSet = PatternSet.valueOf(regexes);
+		assertFalse(patternSet.isCombined());
+		assertTrue(patternSet.matchesAny("xaax"));
+		assertTrue(patternSet.matchesAny("(b"));
+		assertTrue(patternSet.matchesAny("c"));
+		assertFalse(patternSet.matchesAny("a(x"));
+	}
+
+	@Test
+	public void testIdenticalListsAreCompiledOnce() throws IOException {
+		PatternSet blacklist = PatternSet.valueOf(Utils.fromFile("./test/resources/blacklist_descline.txt"));
+		assertSame(blacklist, PatternSet.valueOf(Utils.fromFile("./test/resources/blacklist_descline.txt")));
+		assertSame(blacklist, PatternSet.valueOf(blacklist));
+		assertSame(PatternSet.EMPTY, PatternSet.valueOf(new ArrayList<String>()));
+		assertFalse(PatternSet.EMPTY.matchesAny("anything"));
+	}
+
+	@Test
+	public void testReplaceAllInOrder() {
+		assertEquals("xy", PatternSet.valueOf(Arrays.asList("c", "ab")).replaceAll("xacby", ""));
+		assertEquals("xaby", PatternSet.valueOf(Arrays.asList("ab", "c")).replaceAll("xacby", ""));
+	}
+
+}
@@ -4,10 +4,13 @@ import static ahrd.controller.Settings.getSettings;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 
@@ -15,6 +18,8 @@ import org.junit.Before;
 import org.junit.Test;
 
 import ahrd.exception.MissingAccessionException;
+import ahrd.model.BlastResult;
+import ahrd.model.PartialProteinDb;
 import ahrd.model.Protein;
 
 public class ProteinTest {
@@ -123,6 +128,29 @@ public class ProteinTest {
 		assertEquals(2, prot_db.size());
 	}
 
+	@Test
+	public void testReadProteinsFromFasta() throws IOException,
+			MissingAccessionException {
+		Map<String, Protein> prot_db = Protein.readProteins(getSettings()
+				.getPathToProteinsFasta());
+		Map<String, Protein> expected = Protein.initializeProteins(getSettings()
+				.getProteinsFasta());
+		assertEquals(expected.keySet(), prot_db.keySet());
+		for (String acc : expected.keySet()) {
+			assertEquals(expected.get(acc).getSequenceLength(), prot_db
+					.get(acc).getSequenceLength());
+			assertNull(prot_db.get(acc).getSequence());
+		}
+		// Remember AA-sequences only when writing output in FASTA format:
+		getSettings().setOutputFasta(true);
+		prot_db = Protein.readProteins(getSettings().getPathToProteinsFasta());
+		for (Protein prot : prot_db.values()) {
+			assertNotNull(prot.getSequence());
+			assertEquals(prot.getSequence().length(), prot
+					.getSequenceLength().intValue());
+		}
+	}
+
 	@Test
 	public void testFastaSplitter() {
 		String str = ">Protein One->Expressed in stupid user\nSPGYDASMTDSRSSGISMSIGGRSLASEDSDGLTPSAVFSQIMNPKGR\n>Protein Two\nMADDSKFCFFLVSTFLLLAVVVNVTLAANYVPGDDILLNCGGPDNLPDADGRKWGTDIGS";
@@ -134,4 +162,48 @@ public class ProteinTest {
 				fastaEntries);
 	}
 
+	@Test
+	public void testMergingPartialCopiesMeasuresSameScores() {
+		List<BlastResult> brs = Arrays.asList(
+				new BlastResult("accession_1", 1e-10, "alpha beta", 10, 120, 5, 115, 300, 130.7, "swissprot"),
+				new BlastResult("accession_2", 1e-5, "beta gamma", 20, 90, 20, 90, 150, 61.3, "swissprot"),
+				new BlastResult("accession_3", 1e-3, "alpha gamma", 1, 200, 1, 200, 200, 99.1, "tair"));
+		brs.get(0).setTokens(new HashSet<String>(Arrays.asList("alpha", "beta")));
+		brs.get(1).setTokens(new HashSet<String>(Arrays.asList("beta", "gamma")));
+		brs.get(2).setTokens(new HashSet<String>(Arrays.asList("alpha", "gamma")));
+		Protein direct = TestUtils.mockProtein();
+		for (BlastResult br : brs)
+			direct.addBlastResult(br);
+		// Collect the BlastResults of each Blast database in partial copies:
+		Protein merged = TestUtils.mockProtein();
+		Map<String, Protein> proteinDb = new HashMap<String, Protein>();
+		proteinDb.put(merged.getAccession(), merged);
+		for (String blastDb : Arrays.asList("swissprot", "tair")) {
+			PartialProteinDb partialProteinDb = new PartialProteinDb(proteinDb);
+			Protein partial = partialProteinDb.get(merged.getAccession());
+			for (BlastResult br : brs) {
+				if (br.getBlastDatabaseName().equals(blastDb))
+					partial.addBlastResult(br);
+			}
+			assertNull(partial.getTokenScoreCalculator());
+			List<BlastResult> collected = partial.getBlastResults().get(blastDb);
+			partialProteinDb.mergeInto(blastDb);
+			// The partial copy's HitTable is taken over:
+			assertSame(collected, merged.getBlastResults().get(blastDb));
+		}
+		assertEquals(direct.getBlastResults().get("swissprot").size(), merged.getBlastResults().get("swissprot").size());
+		assertEquals(direct.getTokenScoreCalculator().getCumulativeTokenBitScores(),
+				merged.getTokenScoreCalculator().getCumulativeTokenBitScores());
+		assertEquals(direct.getTokenScoreCalculator().getCumulativeTokenBlastDatabaseScores(),
+				merged.getTokenScoreCalculator().getCumulativeTokenBlastDatabaseScores());
+		assertEquals(direct.getTokenScoreCalculator().getCumulativeTokenOverlapScores(),
+				merged.getTokenScoreCalculator().getCumulativeTokenOverlapScores());
+		assertEquals(direct.getTokenScoreCalculator().getTotalTokenBitScore(),
+				merged.getTokenScoreCalculator().getTotalTokenBitScore(), 0.0);
+		assertEquals(direct.getTokenScoreCalculator().getTotalTokenOverlapScore(),
+				merged.getTokenScoreCalculator().getTotalTokenOverlapScore(), 0.0);
+		assertEquals(direct.getDescriptionScoreCalculator().getMaxBitScore(),
+				merged.getDescriptionScoreCalculator().getMaxBitScore(), 0.0);
+	}
+
 }
@@ -0,0 +1,92 @@
+package ahrd.test;
+
+import static ahrd.controller.Settings.getSettings;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ahrd.model.ReferenceGoAnnotations;
+import ahrd.model.ReferenceGoAnnotationsIndex;
+
+public class ReferenceGoAnnotationsIndexTest {
+
+	private File goa;
+
+	public ReferenceGoAnnotationsIndexTest() {
+		super();
+	}
+
+	/**
+	 * The index is written next to a copy of the reference GOA, so that no
+	 * index files are left in the test resources.
+	 */
+	@Before
+	public void setUp() throws IOException {
+		TestUtils.initTestSettings();
+		this.goa = File.createTempFile("reference_goa", ".gaf");
+		Files.copy(new File("./test/resources/reference_gene_ontology_annotations_uniprotKB_GOA.txt").toPath(),
+				this.goa.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		getSettings().setPathToGeneOntologyResults(this.goa.getPath());
+	}
+
+	@After
+	public void tearDown() {
+		new File(ReferenceGoAnnotationsIndex.getPathToIndex(this.goa.getPath())).delete();
+		this.goa.delete();
+	}
+
+	@Test
+	public void testIndexGivesSameResultsAsParsing() throws IOException {
+		Set<String> shortAccessions = new HashSet<String>(
+				Arrays.asList("AT1G01040.1", "W9QFR0", "W9S3W9", "A0A001", "B9SRU2", "Q9ZWC8", ""));
+		Map<String, Set<String>> parsed = ReferenceGoAnnotations.parseReferenceGoAnnotations(shortAccessions);
+		assertEquals(5, parsed.size());
+
+		assertEquals(5, ReferenceGoAnnotationsIndex.write(this.goa.getPath(), getSettings().getReferenceGoRegex()));
+		// Writing the index again replaces it:
+		assertEquals(5, ReferenceGoAnnotationsIndex.write(this.goa.getPath(), getSettings().getReferenceGoRegex()));
+		assertFalse(new File(ReferenceGoAnnotationsIndex.getPathToIndex(this.goa.getPath())
+				+ ReferenceGoAnnotationsIndex.TMP_FILE_SUFFIX).exists());
+		ReferenceGoAnnotationsIndex index = ReferenceGoAnnotationsIndex.open(this.goa.getPath(),
+				getSettings().getReferenceGoRegex());
+		assertNotNull(index);
+		assertEquals(new HashSet<String>(Arrays.asList("GO:0003824", "GO:0003870")), index.lookup("AT1G01040.1"));
+		assertNull(index.lookup("Q9ZWC8"));
+		assertNull(index.lookup("AT1G01040"));
+		index.close();
+		assertEquals(parsed, ReferenceGoAnnotations.parseReferenceGoAnnotations(shortAccessions));
+	}
+
+	@Test
+	public void testIgnoresInvalidIndex() throws IOException {
+		ReferenceGoAnnotationsIndex.write(this.goa.getPath(), getSettings().getReferenceGoRegex());
+		// Another regular expression to parse the GOA:
+		assertNull(ReferenceGoAnnotationsIndex.open(this.goa.getPath(),
+				Pattern.compile("^\\S+\\s+(?<shortAccession>\\S+)\\s+\\S+\\s+(?<goTerm>GO:\\d{7})")));
+		// Changed GOA:
+		FileWriter fw = new FileWriter(this.goa, true);
+		fw.write("UniProtKB\tQ9ZWC8\tBRL1\t\tGO:0005524\tGO_REF:0000002\n");
+		fw.close();
+		assertNull(ReferenceGoAnnotationsIndex.open(this.goa.getPath(), getSettings().getReferenceGoRegex()));
+		assertTrue(ReferenceGoAnnotations
+				.parseReferenceGoAnnotations(new HashSet<String>(Arrays.asList("Q9ZWC8"))).containsKey("Q9ZWC8"));
+	}
+
+}
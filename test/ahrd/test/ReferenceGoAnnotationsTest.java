@@ -1,14 +1,21 @@
 package ahrd.test;
 
 import static ahrd.controller.Settings.getSettings;
+import static ahrd.model.ReferenceGoAnnotations.parseReferenceGoAnnotations;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.regex.Pattern;
 
 import nu.xom.ParsingException;
 
@@ -17,6 +24,7 @@ import org.junit.Test;
 import org.xml.sax.SAXException;
 
 import ahrd.controller.AHRD;
+import ahrd.controller.Settings;
 import ahrd.controller.Utils;
 import ahrd.exception.MissingAccessionException;
 import ahrd.exception.MissingInterproResultException;
@@ -77,6 +85,39 @@ public class ReferenceGoAnnotationsTest {
 		assertTrue(refGos.contains("GO:0003870"));
 	}
 
+	@Test
+	public void testParseReferenceGoAnnotationsLikeRegex() throws IOException {
+		File goa = File.createTempFile("reference_goa", ".gaf");
+		goa.deleteOnExit();
+		FileWriter out = new FileWriter(goa);
+		out.write("!gaf-version: 2.0\n");
+		out.write("UniProtKB\tQ1\tsym\t\tGO:0000001\tGO_REF:0000002\n");
+		out.write("UniProtKB\tQ2\tsym\t\tGO:0000002\tGO_REF:0000002\r\n");
+		out.write("UniProtKB\tQ1\tsym\tNOT\tGO:0000003\tGO_REF:0000002\n");
+		out.write("UniProtKB Q1 sym GO:0000004\n");
+		out.write("UniProtKB\tQ1 x\tGO:0000005\n");
+		out.write("UniProtKB\t\tQ2\t\tGO:0000006\n");
+		out.write("UniProtKBX\tQ1\tsym\t\tGO:0000007\n");
+		out.write("UniProtKB\tQ3\tsym\t\tGO:0000008\n");
+		out.write("UniProtKB\tQ1\tsym\t\tGO:0000009");
+		out.close();
+		getSettings().setPathToGeneOntologyResults(goa.getPath());
+		Set<String> shortAccessions = new HashSet<String>(Arrays.asList("Q1", "Q2"));
+		// An equivalent regular expression, that is not the default one,
+		// disables skipping lines before matching them:
+		getSettings().setReferenceGoRegex(
+				Pattern.compile(Settings.DEFAULT_REFERENCE_GO_REGEX.pattern() + "(?:)"));
+		Map<String, Set<String>> expected = parseReferenceGoAnnotations(shortAccessions, 1);
+		assertEquals(new HashSet<String>(Arrays.asList("GO:0000001", "GO:0000004", "GO:0000005", "GO:0000009")), expected.get("Q1"));
+		assertEquals(new HashSet<String>(Arrays.asList("GO:0000002")), expected.get("Q2"));
+		assertEquals(2, expected.size());
+		assertEquals(expected, parseReferenceGoAnnotations(shortAccessions, 5));
+		getSettings().setReferenceGoRegex(null);
+		assertEquals(expected, parseReferenceGoAnnotations(shortAccessions, 1));
+		assertEquals(expected, parseReferenceGoAnnotations(shortAccessions, 5));
+		assertEquals(expected, parseReferenceGoAnnotations(shortAccessions, 300));
+	}
+
 	@Test
 	public void testAnnotatesGoTerms() throws IOException,
 			MissingAccessionException, MissingProteinException, SAXException,
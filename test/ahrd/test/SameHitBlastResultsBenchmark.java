@@ -0,0 +1,84 @@
+package ahrd.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ahrd.model.BlastResult;
+import ahrd.model.Protein;
+
+/**
+ * Compares adding the High Scoring Pairs of a single Hit found for every query
+ * Protein by scanning all present BlastResults of the Hit with the indexed
+ * SameHitBlastResults. Run with <code>ant test.benchmarks</code>.
+ */
+public class SameHitBlastResultsBenchmark {
+
+	public static final int QUERIES = 20000;
+	public static final int HSPS_PER_QUERY = 2;
+	public static final int ROUNDS = 5;
+
+	@Before
+	public void setUp() throws IOException {
+		TestUtils.initTestSettings();
+	}
+
+	/**
+	 * The former implementation of <code>BlastResult.addHighScoringPair</code>.
+	 */
+	private static void addHighScoringPairByScanning(Map<String, List<BlastResult>> brs, BlastResult br) {
+		List<BlastResult> sameHitBrs = brs.get(br.getAccession());
+		if (sameHitBrs == null) {
+			sameHitBrs = new ArrayList<BlastResult>();
+			brs.put(br.getAccession(), sameHitBrs);
+		}
+		for (int i = 0; i < sameHitBrs.size(); i++) {
+			if (sameHitBrs.get(i).getProtein().equals(br.getProtein())) {
+				if (sameHitBrs.get(i).getBitScore() < br.getBitScore())
+					sameHitBrs.set(i, br);
+				return;
+			}
+		}
+		sameHitBrs.add(br);
+	}
+
+	@Test
+	public void benchmarkOneHitFoundForEveryQuery() {
+		// Each query Protein has several HSPs with the Hit:
+		Protein[] queries = new Protein[QUERIES];
+		for (int q = 0; q < QUERIES; q++)
+			queries[q] = new Protein("query_" + q, 300);
+		List<BlastResult> hsps = new ArrayList<BlastResult>();
+		for (int hsp = 0; hsp < HSPS_PER_QUERY; hsp++) {
+			for (int q = 0; q < QUERIES; q++) {
+				hsps.add(new BlastResult("conserved_hit", 1e-10, 1, 100, 1, 100, 100.0 + hsp, "swissprot",
+						queries[q]));
+			}
+		}
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			Map<String, List<BlastResult>> scanned = new HashMap<String, List<BlastResult>>();
+			for (BlastResult br : hsps)
+				addHighScoringPairByScanning(scanned, br);
+			double scanSec = (System.nanoTime() - start) / 1e9;
+			start = System.nanoTime();
+			Map<String, List<BlastResult>> indexed = new HashMap<String, List<BlastResult>>();
+			for (BlastResult br : hsps)
+				BlastResult.addBlastResult(indexed, br, null);
+			double indexSec = (System.nanoTime() - start) / 1e9;
+			assertEquals(QUERIES, scanned.get("conserved_hit").size());
+			assertEquals(QUERIES, indexed.get("conserved_hit").size());
+			System.out.println(String.format(
+					"Round %d: scanning %.0f HSPs/s, indexed %.0f HSPs/s (speed-up %.1fx)", round,
+					hsps.size() / scanSec, hsps.size() / indexSec, scanSec / indexSec));
+		}
+	}
+
+}
@@ -0,0 +1,91 @@
+package ahrd.test;
+
+import static ahrd.controller.Settings.getSettings;
+import static org.junit.Assert.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ahrd.model.BlastResult;
+import ahrd.model.SequenceSimilarityTabularSearchResultParser;
+
+/**
+ * Compares the throughput of the byte level tabular search result parser
+ * with reading lines and splitting them with the separator as regular
+ * expression. Run with <code>ant test.benchmarks</code>.
+ */
+public class SequenceSimilarityTabularSearchResultParserBenchmark {
+
+	public static final int LINES = 1000000;
+	public static final int ROUNDS = 5;
+
+	public static File generateTable(int lines) throws IOException {
+		File table = File.createTempFile("ahrd_benchmark_table", ".txt");
+		table.deleteOnExit();
+		Random rand = new Random(42);
+		BufferedWriter bw = new BufferedWriter(new FileWriter(table));
+		for (int i = 0; i < lines; i++) {
+			int query = i / 250;
+			bw.write("gene:chr01." + query + ":mRNA:chr01." + query + "\ttr|Q" + rand.nextInt(1000000) + "|Q"
+					+ rand.nextInt(1000000) + "_ARATH\t48.48\t99\t51\t0\t1\t99\t983\t1081\t"
+					+ (rand.nextInt(9) + 1) + "e-" + rand.nextInt(200) + "\t" + rand.nextInt(1000) + "."
+					+ rand.nextInt(10) + "\n");
+		}
+		bw.close();
+		return table;
+	}
+
+	private double splitByRegex(File table) throws IOException {
+		double checksum = 0.0;
+		BufferedReader in = new BufferedReader(new FileReader(table));
+		String line;
+		while ((line = in.readLine()) != null) {
+			String[] fields = line.split(getSettings().getSeqSimSearchTableSep());
+			checksum += fields[0].length() + fields[1].length() + Integer.parseInt(fields[6])
+					+ Integer.parseInt(fields[7]) + Integer.parseInt(fields[8]) + Integer.parseInt(fields[9])
+					+ Double.parseDouble(BlastResult.validateDouble(fields[10])) + Double.parseDouble(fields[11]);
+		}
+		in.close();
+		return checksum;
+	}
+
+	private double parseBytes(File table) throws IOException {
+		double checksum = 0.0;
+		SequenceSimilarityTabularSearchResultParser parser = new SequenceSimilarityTabularSearchResultParser(
+				table.getPath());
+		while (parser.next()) {
+			checksum += parser.getQueryAccession().length() + parser.getSubjectAccession().length()
+					+ parser.getQueryStart() + parser.getQueryEnd() + parser.getSubjectStart()
+					+ parser.getSubjectEnd() + parser.getEValue() + parser.getBitScore();
+		}
+		parser.close();
+		return checksum;
+	}
+
+	@Test
+	public void benchmarkParsing() throws IOException {
+		TestUtils.initTestSettings();
+		File table = generateTable(LINES);
+		double mb = table.length() / (1024.0 * 1024.0);
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			double expected = splitByRegex(table);
+			double splitSec = (System.nanoTime() - start) / 1e9;
+			start = System.nanoTime();
+			double checksum = parseBytes(table);
+			double bytesSec = (System.nanoTime() - start) / 1e9;
+			assertEquals(expected, checksum, 0.0);
+			System.out.println(String.format(
+					"Round %d: readLine and split %.2f MB/s, byte level parser %.2f MB/s (speed-up %.1fx)", round,
+					mb / splitSec, mb / bytesSec, splitSec / bytesSec));
+		}
+	}
+
+}
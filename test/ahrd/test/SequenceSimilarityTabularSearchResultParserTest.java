@@ -1,10 +1,25 @@
 package ahrd.test;
 
+import static ahrd.controller.Settings.getSettings;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.regex.Pattern;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import ahrd.model.BlastResult;
+import ahrd.model.SequenceSimilarityTabularSearchResultParser;
+
 public class SequenceSimilarityTabularSearchResultParserTest {
 
 	public SequenceSimilarityTabularSearchResultParserTest() {
@@ -15,10 +30,100 @@ public class SequenceSimilarityTabularSearchResultParserTest {
 	public void setup() throws IOException {
 		TestUtils.initTestSettings();
 	}
-	
+
+	/**
+	 * Compares each parsed line with the result of splitting the line with
+	 * the separator as regular expression.
+	 */
+	private void assertParsesLikeSplit(String pathToTable, boolean splitByRegex) throws IOException {
+		BufferedReader in = new BufferedReader(new FileReader(pathToTable));
+		SequenceSimilarityTabularSearchResultParser parser = new SequenceSimilarityTabularSearchResultParser(
+				pathToTable, splitByRegex);
+		String line;
+		int lines = 0;
+		while ((line = in.readLine()) != null) {
+			String[] fields = line.split(getSettings().getSeqSimSearchTableSep());
+			assertTrue(parser.next());
+			assertEquals(fields[0], parser.getQueryAccession());
+			assertEquals(fields[1], parser.getSubjectAccession());
+			assertEquals(Integer.parseInt(fields[6]), parser.getQueryStart());
+			assertEquals(Integer.parseInt(fields[7]), parser.getQueryEnd());
+			assertEquals(Integer.parseInt(fields[8]), parser.getSubjectStart());
+			assertEquals(Integer.parseInt(fields[9]), parser.getSubjectEnd());
+			assertEquals(Double.parseDouble(BlastResult.validateDouble(fields[10])), parser.getEValue(), 0.0);
+			assertEquals(Double.parseDouble(fields[11]), parser.getBitScore(), 0.0);
+			lines++;
+		}
+		assertFalse(parser.next());
+		assertTrue(lines > 0);
+		in.close();
+		parser.close();
+	}
+
+	@Test
+	public void testParsesSwissprotTable() throws IOException {
+		assertParsesLikeSplit("./test/resources/swissprot_blast8_tabular.txt", false);
+		assertParsesLikeSplit("./test/resources/trembl_blast8_tabular.txt", false);
+		assertParsesLikeSplit("./test/resources/tair_blast8_tabular.txt", false);
+		assertParsesLikeSplit("./test/resources/swissprot_blast8_tabular.txt", true);
+	}
+
+	@Test
+	public void testReusesQueryAccession() throws IOException {
+		SequenceSimilarityTabularSearchResultParser parser = new SequenceSimilarityTabularSearchResultParser(
+				"./test/resources/swissprot_blast8_tabular.txt");
+		assertTrue(parser.next());
+		String query = parser.getQueryAccession();
+		assertTrue(parser.next());
+		assertSame(query, parser.getQueryAccession());
+		parser.close();
+	}
+
+	@Test
+	public void testSkipsCommentAndEmptyLines() throws IOException {
+		File table = File.createTempFile("ahrd_seq_sim_table", ".txt");
+		table.deleteOnExit();
+		FileWriter fw = new FileWriter(table);
+		fw.write("# BLASTP 2.2.26\r\n\r\nq1\ts1\t48.48\t99\t51\t0\t1\t99\t983\t1081\te-19\t94.4\r\n"
+				+ "#\nq2\ts2\t40.00\t100\t59\t1\t1\t99\t994\t1093\t0.0\t1070");
+		fw.close();
+		getSettings().setSeqSimSearchTableCommentLineRegex(Pattern.compile("#.*"));
+		SequenceSimilarityTabularSearchResultParser parser = new SequenceSimilarityTabularSearchResultParser(
+				table.getPath());
+		assertTrue(parser.next());
+		assertEquals("q1", parser.getQueryAccession());
+		assertEquals(1e-19, parser.getEValue(), 0.0);
+		assertEquals(94.4, parser.getBitScore(), 0.0);
+		assertTrue(parser.next());
+		assertEquals("q2", parser.getQueryAccession());
+		assertEquals(0.0, parser.getEValue(), 0.0);
+		assertEquals(1070.0, parser.getBitScore(), 0.0);
+		assertFalse(parser.next());
+		parser.close();
+	}
+
 	@Test
-	public void testParsesSwissprotTable() {
-		assert(true);
+	public void testParsesNumbersLikeTheJdk() {
+		String[] doubles = { "0.0", "94.4", "2e-19", "e-10", "E-5", "3.1e-163", "1.234567890123456789", "-0.5",
+				"+7", "1e22", "1e23", "123456789012345678901234", "0.000000000000000000000001", "1.", "5E+3",
+				"1070", "48.48" };
+		for (String d : doubles) {
+			byte[] b = d.getBytes(Charset.defaultCharset());
+			assertEquals(d, Double.parseDouble(BlastResult.validateDouble(d)),
+					SequenceSimilarityTabularSearchResultParser.parseDouble(b, 0, b.length), 0.0);
+		}
+		String[] ints = { "0", "1", "-1081", "+994", "2147483647", "-2147483648" };
+		for (String i : ints) {
+			byte[] b = i.getBytes(Charset.defaultCharset());
+			assertEquals(Integer.parseInt(i),
+					SequenceSimilarityTabularSearchResultParser.parseInt(b, 0, b.length));
+		}
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void testRejectsMalformedNumbers() {
+		byte[] b = "1x".getBytes(Charset.defaultCharset());
+		SequenceSimilarityTabularSearchResultParser.parseInt(b, 0, b.length);
 	}
 
 }
@@ -156,9 +156,7 @@ public class TestUtils {
 
 	public static BlastResult mockBlastResult() {
 		BlastResult br = new BlastResult("accession_1", 1.0, "one two three", 10, 20, 10, 20, 200, 30, "swissprot");
-		br.getTokens().add("one");
-		br.getTokens().add("two");
-		br.getTokens().add("three");
+		br.setTokens(new HashSet<String>(Arrays.asList("one", "two", "three")));
 		return br;
 	}
 
@@ -7,7 +7,9 @@ import static ahrd.controller.Settings.getSettings;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 
@@ -17,6 +19,7 @@ import org.junit.Test;
 import ahrd.model.BlastResult;
 import ahrd.model.Protein;
 import ahrd.model.TokenScoreCalculator;
+import ahrd.model.TokenSet;
 
 public class TokenScoreCalculatorTest {
 
@@ -31,17 +34,14 @@ public class TokenScoreCalculatorTest {
 		TestUtils.initTestSettings();
 		br1 = new BlastResult("accession_1", 1.0, "description_1", 40, 99, 40,
 				99, 200, 69.96, "swissprot");
-		br1.getTokens().add("token_one");
 		// ensure double tokens have no effect:
-		br1.getTokens().add("token_one");
+		br1.setTokens(new TokenSet(Arrays.asList("token_one", "token_one")));
 		br2 = new BlastResult("accession_2", 2.0, "description_2", 45, 69, 45,
 				69, 200, 45.54, "tair");
-		br2.getTokens().add("token_one");
-		br2.getTokens().add("token_two");
+		br2.setTokens(new HashSet<String>(Arrays.asList("token_one", "token_two")));
 		br3 = new BlastResult("accession_3", 2.0, "description_3", 35, 125, 35,
 				125, 200, 88.0, "trembl");
-		br3.getTokens().add("token_two");
-		br3.getTokens().add("token_three");
+		br3.setTokens(new HashSet<String>(Arrays.asList("token_two", "token_three")));
 	}
 
 	@Test
@@ -113,6 +113,20 @@ public class TokenScoreCalculatorTest {
 				tsc.getCumulativeTokenOverlapScores().get("token_three"), 0);
 	}
 
+	@Test
+	public void testSumOfAllTokenScoresIsIndependentOfInterningOrder() {
+		Protein p = TestUtils.mockProtein();
+		// Intern the Tokens in reverse order of the Tokens themselves:
+		TokenSet tokens = new TokenSet(Arrays.asList("sum_order_c", "sum_order_b", "sum_order_a"));
+		BlastResult br = new BlastResult("accession_1", 1.0, "sum order", 40, 99, 40, 99, 200, 69.96, "swissprot");
+		br.setTokens(tokens);
+		p.getTokenScoreCalculator().getTokenScores().put("sum_order_a", 0.1);
+		p.getTokenScoreCalculator().getTokenScores().put("sum_order_b", 0.2);
+		p.getTokenScoreCalculator().getTokenScores().put("sum_order_c", 0.3);
+		// Differs from (0.3 + 0.2) + 0.1 in the last bit:
+		assertEquals((0.1 + 0.2) + 0.3, p.getTokenScoreCalculator().sumOfAllTokenScores(br), 0.0);
+	}
+
 	@Test
 	public void testSumOfAllTokenScores() {
 		Protein p = TestUtils.mockProtein();
@@ -120,9 +134,8 @@ public class TokenScoreCalculatorTest {
 				40, 99, 200, 69.96, "swissprot");
 		BlastResult two = new BlastResult("accession_2", 2.0, "first second",
 				45, 69, 45, 69, 200, 45.54, "tair");
-		one.getTokens().add("first");
-		two.getTokens().add("first");
-		two.getTokens().add("second");
+		one.setTokens(new HashSet<String>(Arrays.asList("first")));
+		two.setTokens(new HashSet<String>(Arrays.asList("first", "second")));
 		p.getTokenScoreCalculator().getTokenScores().put("first", 0.25);
 		p.getTokenScoreCalculator().getTokenScores().put("second", 0.50);
 		assertEquals(0.25,
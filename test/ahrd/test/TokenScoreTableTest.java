@@ -0,0 +1,72 @@
+package ahrd.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import ahrd.model.TokenScoreTable;
+
+public class TokenScoreTableTest {
+
+	public TokenScoreTableTest() {
+		super();
+	}
+
+	@Test
+	public void testAddsScoresOfManyTokens() {
+		TokenScoreTable table = new TokenScoreTable();
+		Map<String, Double> expected = new HashMap<String, Double>();
+		for (int i = 0; i < 1000; i++) {
+			String token = "token_" + (i % 300);
+			table.add(token, TokenScoreTable.BIT_SCORE, i);
+			expected.put(token, expected.containsKey(token) ? expected.get(token) + i : i);
+		}
+		assertEquals(300, table.getNumberOfSlots());
+		assertEquals(300, table.size(TokenScoreTable.BIT_SCORE));
+		assertEquals(0, table.size(TokenScoreTable.TOKEN_SCORE));
+		assertEquals(expected, table.getColumn(TokenScoreTable.BIT_SCORE));
+		assertTrue(Double.isNaN(table.get("token_1", TokenScoreTable.OVERLAP_SCORE)));
+		assertEquals(-1, table.slot("missing"));
+	}
+
+	@Test
+	public void testColumnView() {
+		TokenScoreTable table = new TokenScoreTable();
+		Map<String, Double> tokenScores = table.getColumn(TokenScoreTable.TOKEN_SCORE);
+		assertNull(tokenScores.put("sheep", 0.222));
+		tokenScores.put("goat", 0.444);
+		assertEquals(0.222, tokenScores.put("sheep", 0.111), 0.0);
+		table.set("ram", TokenScoreTable.TOKEN_SCORE, 0.333);
+		table.set("wolf", TokenScoreTable.BIT_SCORE, 1.0);
+		assertEquals(3, tokenScores.size());
+		assertFalse(tokenScores.containsKey("wolf"));
+		assertEquals(0.111, table.get("sheep", TokenScoreTable.TOKEN_SCORE), 0.0);
+		// Tokens are iterated in the order of their first occurrence:
+		List<String> tokens = new ArrayList<String>(tokenScores.keySet());
+		assertEquals("sheep", tokens.get(0));
+		assertEquals("goat", tokens.get(1));
+		assertEquals("ram", tokens.get(2));
+		// Changes write through:
+		for (Map.Entry<String, Double> entry : tokenScores.entrySet())
+			entry.setValue(entry.getValue() * 2);
+		assertEquals(0.666, table.get("ram", TokenScoreTable.TOKEN_SCORE), 0.0);
+		Iterator<String> i = tokenScores.keySet().iterator();
+		assertEquals("sheep", i.next());
+		i.remove();
+		assertFalse(table.contains("sheep", TokenScoreTable.TOKEN_SCORE));
+		assertNull(tokenScores.remove("sheep"));
+		assertEquals(0.888, tokenScores.remove("goat"), 0.0);
+		assertEquals(1, tokenScores.size());
+		assertEquals(1.0, table.get("wolf", TokenScoreTable.BIT_SCORE), 0.0);
+	}
+
+}
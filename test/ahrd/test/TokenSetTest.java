@@ -0,0 +1,117 @@
+package ahrd.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.junit.Test;
+
+import ahrd.model.BlastResult;
+import ahrd.model.EvaluationScoreCalculator;
+import ahrd.model.TokenDictionary;
+import ahrd.model.TokenSet;
+
+public class TokenSetTest {
+
+	public TokenSetTest() {
+		super();
+	}
+
+	@Test
+	public void testTokensAreInterned() {
+		int id = TokenDictionary.intern("kinase");
+		assertEquals(id, TokenDictionary.intern(new String("kinase")));
+		assertEquals("kinase", TokenDictionary.getToken(id));
+		assertEquals(-1, TokenDictionary.lookup("never_interned_token"));
+	}
+
+	@Test
+	public void testBehavesLikeASet() {
+		Set<String> expected = new HashSet<String>(Arrays.asList("serine", "threonine", "protein", "kinase"));
+		TokenSet tokens = new TokenSet(Arrays.asList("serine", "threonine", "protein", "kinase", "protein"));
+		assertEquals(4, tokens.size());
+		assertEquals(expected, tokens);
+		assertEquals(tokens, expected);
+		assertEquals(expected.hashCode(), tokens.hashCode());
+		assertFalse(tokens.add("kinase"));
+		assertFalse(tokens.contains("phosphatase"));
+		assertTrue(tokens.remove("serine"));
+		assertFalse(tokens.contains("serine"));
+		for (int i = 1; i < tokens.size(); i++)
+			assertTrue(tokens.getId(i - 1) < tokens.getId(i));
+		Iterator<String> i = tokens.iterator();
+		while (i.hasNext()) {
+			if (i.next().equals("protein"))
+				i.remove();
+		}
+		assertEquals(new HashSet<String>(Arrays.asList("threonine", "kinase")), tokens);
+	}
+
+	@Test
+	public void testIdsInTokenOrder() {
+		TokenSet tokens = new TokenSet(Arrays.asList("order_zeta", "order_beta", "order_alpha"));
+		assertEquals("order_alpha", TokenDictionary.getToken(tokens.getIdInTokenOrder(0)));
+		assertEquals("order_beta", TokenDictionary.getToken(tokens.getIdInTokenOrder(1)));
+		assertEquals("order_zeta", TokenDictionary.getToken(tokens.getIdInTokenOrder(2)));
+		tokens.add("order_delta");
+		assertEquals("order_delta", TokenDictionary.getToken(tokens.getIdInTokenOrder(2)));
+		assertEquals("order_zeta", TokenDictionary.getToken(tokens.getIdInTokenOrder(3)));
+	}
+
+	@Test
+	public void testIntersection() {
+		TokenSet assigned = new TokenSet(Arrays.asList("growth", "hormone", "receptor"));
+		TokenSet reference = new TokenSet(Arrays.asList("receptor", "of", "growth", "hormones"));
+		assertEquals(2, assigned.intersectionSize(reference));
+		assertEquals(2.0, EvaluationScoreCalculator.truePositives(assigned, reference), 0.0);
+		assertEquals(2.0, EvaluationScoreCalculator.truePositives(new HashSet<String>(assigned), reference), 0.0);
+		assertEquals(0, assigned.intersectionSize(new TokenSet()));
+	}
+
+	@Test
+	public void testTokensOfSubjectCannotBeModified() {
+		BlastResult br = new BlastResult("accession_1", 1.0, "protein kinase", 10, 20, 10, 20, 200, 30, "swissprot");
+		TokenSet tokens = new TokenSet(Arrays.asList("protein", "kinase"));
+		br.setTokens(tokens);
+		assertTrue(br.getTokens().isFrozen());
+		// The caller's set is copied, not frozen:
+		assertFalse(tokens.isFrozen());
+		assertTrue(tokens.add("serine"));
+		try {
+			br.getTokens().add("serine");
+			fail("Expected the Tokens of a Subject to be frozen.");
+		} catch (UnsupportedOperationException expected) {
+			// Tokens of a Subject are changed with setTokens only
+		}
+		try {
+			Iterator<String> i = br.getTokens().iterator();
+			i.next();
+			i.remove();
+			fail("Expected the Tokens of a Subject to be frozen.");
+		} catch (UnsupportedOperationException expected) {
+			// Tokens of a Subject are changed with setTokens only
+		}
+		assertEquals(new HashSet<String>(Arrays.asList("protein", "kinase")), br.getTokens());
+		br.setTokens(new HashSet<String>(Arrays.asList("protein", "kinase", "serine")));
+		assertEquals(3, br.getTokens().size());
+	}
+
+	@Test
+	public void testEmptyTokenSetIsSharedAndFrozen() {
+		BlastResult one = new BlastResult("swissprot", "accession_1", "description");
+		BlastResult two = new BlastResult("swissprot", "accession_2", "description");
+		assertSame(one.getTokens(), two.getTokens());
+		assertSame(TokenSet.emptyTokenSet(), one.getTokens());
+		assertTrue(one.getTokens().isFrozen());
+		TokenSet frozen = new TokenSet(Arrays.asList("kinase")).freeze();
+		assertSame(frozen, TokenSet.frozenCopyOf(frozen));
+	}
+
+}
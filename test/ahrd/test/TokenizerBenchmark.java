@@ -0,0 +1,54 @@
+package ahrd.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Test;
+
+import ahrd.controller.Utils;
+import ahrd.model.PatternSet;
+import ahrd.model.TokenScoreCalculator;
+
+/**
+ * Compares the single pass Tokenizer with splitting descriptions by
+ * <code>BlastResult.TOKEN_SPLITTER_REGEX</code>. Run with
+ * <code>ant test.benchmarks</code>.
+ */
+public class TokenizerBenchmark {
+
+	public static final int DESCRIPTIONS = 200000;
+	public static final int ROUNDS = 5;
+
+	private void benchmark(String name, List<String> blacklist) {
+		List<String> descriptions = PatternSetBenchmark.generateDescriptions(DESCRIPTIONS);
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			int expected = 0;
+			for (String description : descriptions)
+				expected += TokenizerTest.tokenizeWithRegex(description, blacklist).size();
+			double regexSec = (System.nanoTime() - start) / 1e9;
+			start = System.nanoTime();
+			int tokens = 0;
+			for (String description : descriptions)
+				tokens += TokenScoreCalculator.tokenize(description, blacklist).size();
+			double scanSec = (System.nanoTime() - start) / 1e9;
+			assertEquals(expected, tokens);
+			System.out.println(String.format(
+					"%s round %d: regular expression split %.0f descriptions/s, single pass Tokenizer %.0f descriptions/s (speed-up %.1fx)",
+					name, round, DESCRIPTIONS / regexSec, DESCRIPTIONS / scanSec, regexSec / scanSec));
+		}
+	}
+
+	@Test
+	public void benchmarkTokenize() {
+		benchmark("Without blacklist", PatternSet.EMPTY);
+	}
+
+	@Test
+	public void benchmarkTokenizeWithBlacklist() throws IOException {
+		benchmark("With blacklist", PatternSet.valueOf(Utils.fromFile("./test/resources/blacklist_token.txt")));
+	}
+
+}
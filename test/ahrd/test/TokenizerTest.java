@@ -0,0 +1,104 @@
+package ahrd.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import ahrd.controller.Utils;
+import ahrd.model.BlastResult;
+import ahrd.model.PatternSet;
+import ahrd.model.TokenScoreCalculator;
+import ahrd.model.TokenSet;
+import ahrd.model.Tokenizer;
+
+public class TokenizerTest {
+
+	public TokenizerTest() {
+		super();
+	}
+
+	/**
+	 * The former implementation of <code>TokenScoreCalculator.tokenize</code>
+	 * splitting descriptions with <code>BlastResult.TOKEN_SPLITTER_REGEX</code>.
+	 */
+	public static Set<String> tokenizeWithRegex(String description, List<String> tokenBlacklist) {
+		Set<String> tkns = new HashSet<String>();
+		for (String tokenCandidate : new HashSet<String>(
+				Arrays.asList(description.split(BlastResult.TOKEN_SPLITTER_REGEX)))) {
+			tokenCandidate = tokenCandidate.toLowerCase();
+			if (!tokenCandidate.equals("") && tokenPassesBlacklist(tokenCandidate, tokenBlacklist))
+				tkns.add(tokenCandidate);
+		}
+		return tkns;
+	}
+
+	private static boolean tokenPassesBlacklist(String token, List<String> tokenBlacklist) {
+		return !PatternSet.valueOf(tokenBlacklist).matchesAny(token);
+	}
+
+	public static List<String> readDescriptions(String pathToFasta) throws IOException {
+		List<String> descriptions = new ArrayList<String>();
+		BufferedReader in = new BufferedReader(new FileReader(pathToFasta));
+		String line;
+		while ((line = in.readLine()) != null) {
+			if (line.startsWith(">"))
+				descriptions.add(line.substring(1));
+		}
+		in.close();
+		return descriptions;
+	}
+
+	@Test
+	public void testDelimitersEqualTokenSplitterRegex() {
+		Pattern splitter = Pattern.compile(BlastResult.TOKEN_SPLITTER_REGEX);
+		for (char c = 0; c < 256; c++) {
+			assertEquals("Character " + (int) c, splitter.matcher(String.valueOf(c)).matches(),
+					Tokenizer.isDelimiter(c));
+		}
+	}
+
+	@Test
+	public void testEqualsRegexTokenizer() throws IOException {
+		List<String> tokenBlacklist = Utils.fromFile("./test/resources/blacklist_token.txt");
+		List<String> descriptions = new ArrayList<String>();
+		descriptions.addAll(readDescriptions("./test/resources/tair_blast_db.fasta"));
+		descriptions.addAll(readDescriptions("./test/resources/swissprot_blast_db.fasta"));
+		descriptions.addAll(readDescriptions("./test/resources/references.fasta"));
+		descriptions.addAll(Arrays.asList("", " ", "--//..", "Sheep-Horn  growth\tfactor (SHGF)|\"1\"; 'two'",
+				"\u00dcn\u00efc\u00f6d\u00e9 SPEcial \u03a9mega kinase", "ORF12 putative ORF protein", "a.b,c:d;e\\f/g\u000Bh\fi\rj\nk"));
+		for (List<String> blacklist : Arrays.asList(new ArrayList<String>(), tokenBlacklist)) {
+			for (String description : descriptions) {
+				assertEquals(description, tokenizeWithRegex(description, blacklist),
+						TokenScoreCalculator.tokenize(description, blacklist));
+			}
+		}
+	}
+
+	@Test
+	public void testEmitsIntoSuppliedTokenSet() {
+		Tokenizer tokenizer = new Tokenizer();
+		TokenSet tokens = new TokenSet();
+		tokenizer.tokenize("Serine/threonine-protein KINASE", new ArrayList<String>(), tokens);
+		tokenizer.tokenize("kinase domain", new ArrayList<String>(), tokens);
+		assertEquals(new HashSet<String>(Arrays.asList("serine", "threonine", "protein", "kinase", "domain")),
+				tokens);
+		// Tokens longer than the initial buffer:
+		StringBuilder longToken = new StringBuilder();
+		for (int i = 0; i < 100; i++)
+			longToken.append("Ab");
+		tokenizer.tokenize(longToken.toString(), new ArrayList<String>(), tokens);
+		assertTrue(tokens.contains(longToken.toString().toLowerCase()));
+	}
+
+}